@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.benchmark;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.geoint.acetate.DomainInstantiationException;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.java.bind.AccessorBinder;
+import org.geoint.acetate.java.bind.ObjectTypeInstance;
+import org.geoint.acetate.java.model.DomainClassRegistry;
+import org.geoint.acetate.java.model.reflect.ClassTypeReflector;
+import org.geoint.acetate.model.InvalidModelException;
+import org.geoint.acetate.model.TypeDescriptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Object/type instance conversion through a binder registered for each class
+ * (specific) and through the default binders of an unregistered domain
+ * (default).
+ *
+ * @author steve_siebert
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class BindingBenchmark {
+
+    private DomainClassRegistry specific;
+    private DomainClassRegistry defaults;
+    private Object[] objects;
+    private TypeInstance[] instances;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup(DomainState state)
+            throws InvalidModelException, DomainInstantiationException {
+        final List<Class<?>> resources = state.domain.getResources();
+
+        specific = new DomainClassRegistry();
+        specific.registerAll(state.domain.getClasses());
+
+        defaults = new DomainClassRegistry();
+        for (Class<?> c : resources) {
+            defaults.registerDefaultBinder(AccessorBinder.forClass(c,
+                    ClassTypeReflector.getTypeDescriptor(c)));
+        }
+
+        objects = new Object[resources.size()];
+        instances = new TypeInstance[resources.size()];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = state.domain.newResource(i);
+            //instance without a source object, forcing construction
+            final TypeDescriptor td = specific.asType(objects[i])
+                    .getTypeDescriptor();
+            final Object value = ((ObjectTypeInstance<?>) specific
+                    .asType(objects[i]))
+                    .findComposite(SyntheticDomain.VALUE_ACCESSOR)
+                    .get();
+            instances[i] = ObjectTypeInstance.newInstance(td,
+                    Collections.singletonMap(SyntheticDomain.VALUE_ACCESSOR,
+                            value));
+        }
+    }
+
+    private int next() {
+        final int i = cursor;
+        cursor = (i + 1 == objects.length) ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public TypeInstance asTypeSpecific()
+            throws DomainInstantiationException, InvalidModelException {
+        return specific.asType(objects[next()]);
+    }
+
+    @Benchmark
+    public Object asObjectSpecific() throws DomainInstantiationException {
+        return specific.asObject(instances[next()]);
+    }
+
+    @Benchmark
+    public TypeInstance asTypeDefault()
+            throws DomainInstantiationException, InvalidModelException {
+        return defaults.asType(objects[next()]);
+    }
+
+    @Benchmark
+    public Object asObjectDefault() throws DomainInstantiationException {
+        return defaults.asObject(instances[next()]);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.benchmark;
+
+import java.io.IOException;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Synthetic domain shared by the benchmarks of a trial.
+ *
+ * @author steve_siebert
+ */
+@State(Scope.Benchmark)
+public class DomainState {
+
+    /**
+     * Number of resource classes in the domain.
+     */
+    @Param({"10", "100", "1000", "10000"})
+    public int size;
+
+    public SyntheticDomain domain;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        domain = SyntheticDomain.generate(size);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        domain.close();
+    }
+}
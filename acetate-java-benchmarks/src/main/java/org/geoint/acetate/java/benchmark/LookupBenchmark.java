@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.benchmark;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.geoint.acetate.java.bind.ObjectBinder;
+import org.geoint.acetate.java.format.ObjectFormatter;
+import org.geoint.acetate.java.format.ObjectParser;
+import org.geoint.acetate.model.DomainType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Registry lookups, cycling through every class of the domain.
+ *
+ * @author steve_siebert
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class LookupBenchmark {
+
+    private int cursor;
+
+    private int next(int length) {
+        final int i = cursor;
+        cursor = (i + 1 == length) ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public Optional<DomainType> findType(RegistryState state) {
+        return state.registry.findType(
+                state.classes[next(state.classes.length)]);
+    }
+
+    @Benchmark
+    public Optional<Class<?>> findClass(RegistryState state) {
+        return state.registry.findClass(
+                state.descriptors[next(state.descriptors.length)]);
+    }
+
+    @Benchmark
+    public Optional<ObjectBinder> findBinder(RegistryState state) {
+        return state.registry.findBinder(
+                state.descriptors[next(state.descriptors.length)]);
+    }
+
+    @Benchmark
+    public Optional<ObjectFormatter> findObjectFormatter(RegistryState state) {
+        return state.registry.findObjectFormatter(
+                state.classes[next(state.classes.length)]);
+    }
+
+    @Benchmark
+    public Optional<ObjectParser> findObjectParser(RegistryState state) {
+        return state.registry.findObjectParser(
+                state.classes[next(state.classes.length)]);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.benchmark;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.geoint.acetate.java.model.reflect.ClassTypeReflector;
+import org.geoint.acetate.model.DomainBuilder;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.InvalidModelException;
+import org.geoint.acetate.model.TypeDescriptor;
+import org.geoint.acetate.model.resolve.MapTypeResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reflective modeling of a whole domain, without a registry.
+ *
+ * @author steve_siebert
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReflectorBenchmark {
+
+    /**
+     * Model each class of the domain, in dependency order, into a new
+     * resolver.
+     *
+     * @param state domain
+     * @return resolver containing the domain models
+     * @throws InvalidModelException if the domain is invalid
+     */
+    @Benchmark
+    public MapTypeResolver<TypeDescriptor> model(DomainState state)
+            throws InvalidModelException {
+        final MapTypeResolver<TypeDescriptor> resolver
+                = new MapTypeResolver<>(new HashMap<>());
+        //values, then resources in ascending order, is a dependency order
+        for (Class<?> c : state.domain.getClasses()) {
+            final DomainType type = ClassTypeReflector.model(c,
+                    new DomainBuilder(SyntheticDomain.NAMESPACE,
+                            SyntheticDomain.VERSION, resolver));
+            resolver.getTypes().put(type.getTypeDescriptor(), type);
+        }
+        return resolver;
+    }
+
+    /**
+     * Read the type descriptor of each class of the domain.
+     *
+     * @param state domain
+     * @return last descriptor
+     * @throws InvalidModelException if the domain is invalid
+     */
+    @Benchmark
+    public TypeDescriptor describe(DomainState state)
+            throws InvalidModelException {
+        TypeDescriptor td = null;
+        for (Class<?> c : state.domain.getClasses()) {
+            td = ClassTypeReflector.getTypeDescriptor(c);
+        }
+        return td;
+    }
+}
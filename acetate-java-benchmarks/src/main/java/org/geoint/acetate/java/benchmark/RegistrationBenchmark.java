@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.geoint.acetate.java.model.DomainClassRegistry;
+import org.geoint.acetate.model.InvalidModelException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Registration of a whole domain into an empty registry.
+ *
+ * @author steve_siebert
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Thread)
+public class RegistrationBenchmark {
+
+    private DomainClassRegistry registry;
+
+    @Setup(Level.Invocation)
+    public void newRegistry() {
+        registry = new DomainClassRegistry();
+    }
+
+    /**
+     * Register each class individually, in dependency order.
+     *
+     * @param state domain
+     * @return registry
+     * @throws InvalidModelException if the domain is invalid
+     */
+    @Benchmark
+    public DomainClassRegistry register(DomainState state)
+            throws InvalidModelException {
+        for (Class<?> c : state.domain.getClasses()) {
+            registry.register(c);
+        }
+        return registry;
+    }
+
+    /**
+     * Register the domain in bulk.
+     *
+     * @param state domain
+     * @return registry
+     * @throws InvalidModelException if the domain is invalid
+     */
+    @Benchmark
+    public DomainClassRegistry registerAll(DomainState state)
+            throws InvalidModelException {
+        registry.registerAll(state.domain.getClasses());
+        return registry;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.benchmark;
+
+import java.util.List;
+import org.geoint.acetate.java.model.DomainClassRegistry;
+import org.geoint.acetate.java.model.reflect.ClassTypeReflector;
+import org.geoint.acetate.model.InvalidModelException;
+import org.geoint.acetate.model.TypeDescriptor;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Registry with the synthetic domain registered.
+ *
+ * @author steve_siebert
+ */
+@State(Scope.Benchmark)
+public class RegistryState {
+
+    /**
+     * Serve lookups from a frozen snapshot.
+     */
+    @Param({"false", "true"})
+    public boolean frozen;
+
+    public DomainClassRegistry registry;
+    public Class<?>[] classes;
+    public TypeDescriptor[] descriptors;
+
+    @Setup(Level.Trial)
+    public void register(DomainState state) throws InvalidModelException {
+        final List<Class<?>> all = state.domain.getClasses();
+        registry = new DomainClassRegistry();
+        registry.registerAll(all);
+        if (frozen) {
+            registry.freeze();
+        }
+
+        classes = all.toArray(new Class<?>[all.size()]);
+        descriptors = new TypeDescriptor[classes.length];
+        for (int i = 0; i < classes.length; i++) {
+            descriptors[i] = ClassTypeReflector.getTypeDescriptor(classes[i]);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Constructor;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Annotated domain classes generated and compiled at runtime, so benchmarks
+ * can be run against domains of arbitrary size.
+ * <p>
+ * A domain of {@code n} resources contains {@code n / 10} (at least one)
+ * values. Resource {@code R<i>} composes value {@code V<i % values>} and
+ * links to resource {@code R<i / 2>}, giving a dependency tree of depth
+ * {@code log2(n)}; the root {@code R0} links to itself.
+ *
+ * @author steve_siebert
+ */
+public final class SyntheticDomain implements Closeable {
+
+    public static final String NAMESPACE = "org.geoint.acetate.benchmark";
+    public static final String VERSION = "1.0";
+    public static final String PACKAGE = "org.geoint.acetate.benchmark.synthetic";
+    public static final String VALUE_ACCESSOR = "value";
+    public static final String PARENT_ACCESSOR = "parent";
+
+    private final Path dir;
+    private final URLClassLoader loader;
+    private final List<Class<?>> resources;
+    private final List<Class<?>> values;
+
+    private SyntheticDomain(Path dir, URLClassLoader loader,
+            List<Class<?>> resources, List<Class<?>> values) {
+        this.dir = dir;
+        this.loader = loader;
+        this.resources = resources;
+        this.values = values;
+    }
+
+    /**
+     * Generate and load a domain.
+     *
+     * @param resourceCount number of resource classes
+     * @return loaded domain
+     * @throws IOException if the domain could not be generated or compiled
+     */
+    public static SyntheticDomain generate(int resourceCount)
+            throws IOException {
+        final int valueCount = Math.max(1, resourceCount / 10);
+        final Path dir = Files.createTempDirectory("acetate-synthetic");
+        final Path src = dir.resolve("src");
+        final Path classes = dir.resolve("classes");
+        final Path pkg = src.resolve(PACKAGE.replace('.', '/'));
+        Files.createDirectories(pkg);
+        Files.createDirectories(classes);
+
+        final List<Path> sources = new ArrayList<>();
+        for (int i = 0; i < valueCount; i++) {
+            sources.add(write(pkg, valueName(i), valueSource(i)));
+        }
+        for (int i = 0; i < resourceCount; i++) {
+            sources.add(write(pkg, resourceName(i),
+                    resourceSource(i, valueCount)));
+        }
+        compile(sources, classes);
+
+        final URLClassLoader loader = new URLClassLoader(
+                new URL[]{classes.toUri().toURL()},
+                SyntheticDomain.class.getClassLoader());
+        try {
+            final List<Class<?>> values = new ArrayList<>(valueCount);
+            for (int i = 0; i < valueCount; i++) {
+                values.add(loader.loadClass(PACKAGE + "." + valueName(i)));
+            }
+            final List<Class<?>> resources = new ArrayList<>(resourceCount);
+            for (int i = 0; i < resourceCount; i++) {
+                resources.add(loader.loadClass(PACKAGE + "." + resourceName(i)));
+            }
+            return new SyntheticDomain(dir, loader,
+                    Collections.unmodifiableList(resources),
+                    Collections.unmodifiableList(values));
+        } catch (ClassNotFoundException ex) {
+            loader.close();
+            throw new IOException("Generated domain class not found.", ex);
+        }
+    }
+
+    /**
+     * All domain classes, values first.
+     *
+     * @return domain classes
+     */
+    public List<Class<?>> getClasses() {
+        final List<Class<?>> all = new ArrayList<>(values);
+        all.addAll(resources);
+        return all;
+    }
+
+    public List<Class<?>> getResources() {
+        return resources;
+    }
+
+    public List<Class<?>> getValues() {
+        return values;
+    }
+
+    /**
+     * Create an instance of a resource class, without a parent.
+     *
+     * @param i resource index
+     * @return resource instance
+     */
+    public Object newResource(int i) {
+        try {
+            final Class<?> rc = resources.get(i);
+            final Constructor<?> c = Arrays.stream(rc.getConstructors())
+                    .filter((k) -> k.getParameterCount() == 2)
+                    .findFirst()
+                    .get();
+            final Object value = c.getParameterTypes()[0]
+                    .getConstructor(int.class)
+                    .newInstance(i);
+            return c.newInstance(value, null);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        loader.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder())
+                    .forEach((f) -> f.toFile().delete());
+        }
+    }
+
+    private static String valueName(int i) {
+        return "V" + i;
+    }
+
+    private static String resourceName(int i) {
+        return "R" + i;
+    }
+
+    private static String valueSource(int i) {
+        return "package " + PACKAGE + ";\n"
+                + "@org.geoint.acetate.java.model.DomainValue("
+                + "namespace = \"" + NAMESPACE + "\", "
+                + "version = \"" + VERSION + "\", "
+                + "type = \"v" + i + "\")\n"
+                + "public class " + valueName(i) + " {\n"
+                + "    private final int value;\n"
+                + "    public " + valueName(i) + "(int value) {\n"
+                + "        this.value = value;\n"
+                + "    }\n"
+                + "    public int getValue() {\n"
+                + "        return value;\n"
+                + "    }\n"
+                + "}\n";
+    }
+
+    private static String resourceSource(int i, int valueCount) {
+        final String name = resourceName(i);
+        final String value = valueName(i % valueCount);
+        final String parent = resourceName(i / 2);
+        return "package " + PACKAGE + ";\n"
+                + "@org.geoint.acetate.java.model.DomainResource("
+                + "namespace = \"" + NAMESPACE + "\", "
+                + "version = \"" + VERSION + "\", "
+                + "type = \"r" + i + "\")\n"
+                + "public class " + name + " {\n"
+                + "    private final " + value + " value;\n"
+                + "    private final " + parent + " parent;\n"
+                + "    public " + name + "("
+                + "@org.geoint.acetate.java.model.Param(name = \""
+                + VALUE_ACCESSOR + "\") " + value + " value, "
+                + "@org.geoint.acetate.java.model.Param(name = \""
+                + PARENT_ACCESSOR + "\") " + parent + " parent) {\n"
+                + "        this.value = value;\n"
+                + "        this.parent = parent;\n"
+                + "    }\n"
+                + "    @org.geoint.acetate.java.model.Accessor(name = \""
+                + VALUE_ACCESSOR + "\")\n"
+                + "    public " + value + " getValue() {\n"
+                + "        return value;\n"
+                + "    }\n"
+                + "    @org.geoint.acetate.java.model.Accessor(name = \""
+                + PARENT_ACCESSOR + "\")\n"
+                + "    public " + parent + " getParent() {\n"
+                + "        return parent;\n"
+                + "    }\n"
+                + "}\n";
+    }
+
+    private static Path write(Path pkg, String name, String source)
+            throws IOException {
+        final Path file = pkg.resolve(name + ".java");
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write(source);
+        }
+        return file;
+    }
+
+    private static void compile(List<Path> sources, Path classes)
+            throws IOException {
+        final JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if (javac == null) {
+            throw new IOException("Synthetic domains require a JDK.");
+        }
+        try (StandardJavaFileManager fm
+                = javac.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            final Boolean compiled = javac.getTask(null, fm, null,
+                    Arrays.asList("-d", classes.toString(),
+                            "-classpath", System.getProperty("java.class.path"),
+                            "-proc:none", "-nowarn"),
+                    null,
+                    fm.getJavaFileObjectsFromFiles(sources.stream()
+                            .map(Path::toFile)
+                            .collect(Collectors.toList()))).call();
+            if (!compiled) {
+                throw new IOException("Unable to compile synthetic domain.");
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.benchmark;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Setup;
+import static org.junit.Assert.*;
+
+/**
+ * Invokes each benchmark once against a small domain, so broken benchmarks
+ * are found by the build rather than a benchmark run.
+ *
+ * @author steve_siebert
+ */
+public class BenchmarkSmokeTest {
+
+    private static final List<Class<?>> BENCHMARKS = Arrays.asList(
+            BindingBenchmark.class, LookupBenchmark.class,
+            RegistrationBenchmark.class, ReflectorBenchmark.class);
+
+    private DomainState domain;
+
+    @Before
+    public void setUp() throws Exception {
+        domain = new DomainState();
+        domain.size = 10;
+        domain.generate();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        domain.close();
+    }
+
+    @Test
+    public void testBenchmarks() throws Exception {
+        for (boolean frozen : new boolean[]{false, true}) {
+            RegistryState registry = new RegistryState();
+            registry.frozen = frozen;
+            registry.register(domain);
+
+            for (Class<?> benchmark : BENCHMARKS) {
+                for (Method m : benchmarks(benchmark)) {
+                    Object instance = benchmark.newInstance();
+                    for (Method setup : benchmark.getMethods()) {
+                        if (setup.isAnnotationPresent(Setup.class)) {
+                            invoke(instance, setup, registry);
+                        }
+                    }
+                    invoke(instance, m, registry);
+                }
+            }
+        }
+    }
+
+    private static List<Method> benchmarks(Class<?> benchmark) {
+        List<Method> methods = new ArrayList<>();
+        for (Method m : benchmark.getMethods()) {
+            if (m.isAnnotationPresent(Benchmark.class)) {
+                methods.add(m);
+            }
+        }
+        assertFalse(methods.isEmpty());
+        return methods;
+    }
+
+    /**
+     * Invoke a benchmark or setup method, passing the states it declares.
+     */
+    private Object invoke(Object instance, Method m, RegistryState registry)
+            throws Exception {
+        Class<?>[] types = m.getParameterTypes();
+        Object[] args = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == DomainState.class) {
+                args[i] = domain;
+            } else if (types[i] == RegistryState.class) {
+                args[i] = registry;
+            } else {
+                fail(String.format("Unsupported state '%s' of '%s'",
+                        types[i].getName(), m));
+            }
+        }
+        return m.invoke(instance, args);
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import org.geoint.acetate.java.model.DomainClassIndex;
+import org.geoint.acetate.java.model.DomainEvent;
+import org.geoint.acetate.java.model.DomainResource;
+import org.geoint.acetate.java.model.DomainValue;
+import org.geoint.acetate.spi.java.DomainTypeFactory;
+
+/**
+ * Annotation processor which generates a {@link DomainTypeFactory} for each
+ * annotated domain class, removing the need to reflect on the class when it is
+ * registered.
+ * <p>
+ * Generated factories are indexed as a ServiceLoader provider-configuration
+ * file. Classes which cannot be referenced by a generated factory (ie private
+ * nested classes) are skipped and will be modeled using reflection at runtime.
+ * <p>
+ * All annotated domain classes, including those without a generated factory,
+ * are listed in the {@link DomainClassIndex#RESOURCE domain class index} so
+ * they can be found by package without scanning the classpath.
+ *
+ * @author steve_siebert
+ */
+public class DomainModelProcessor extends AbstractProcessor {
+
+    static final String FACTORY_SUFFIX = "_DomainType";
+    static final String SERVICE_INDEX = "META-INF/services/"
+            + DomainTypeFactory.class.getName();
+
+    private final Set<String> processed = new HashSet<>();
+    private final Set<String> factories = new LinkedHashSet<>();
+    private final Set<String> domainClasses = new LinkedHashSet<>();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return new HashSet<>(Arrays.asList(DomainResource.class.getName(),
+                DomainValue.class.getName(),
+                DomainEvent.class.getName()));
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations,
+            RoundEnvironment roundEnv) {
+
+        for (TypeElement annotation : annotations) {
+            for (TypeElement type : ElementFilter.typesIn(
+                    roundEnv.getElementsAnnotatedWith(annotation))) {
+                if (processed.add(type.getQualifiedName().toString())) {
+                    process(type);
+                }
+            }
+        }
+
+        if (roundEnv.processingOver()) {
+            writeIndex(SERVICE_INDEX, factories);
+            writeIndex(DomainClassIndex.RESOURCE, domainClasses);
+        }
+        return false; //allow other processors to see domain annotations
+    }
+
+    private void process(TypeElement type) {
+        domainClasses.add(processingEnv.getElementUtils()
+                .getBinaryName(type).toString());
+
+        if (!isReferenceable(type)) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    "Domain model factory not generated for class not "
+                    + "accessible from its package; class will be modeled "
+                    + "using reflection.", type);
+            return;
+        }
+
+        final String pkg = processingEnv.getElementUtils()
+                .getPackageOf(type).getQualifiedName().toString();
+        final String factoryName = factoryName(type);
+        final String qualifiedFactoryName = pkg.isEmpty()
+                ? factoryName
+                : pkg + "." + factoryName;
+
+        try {
+            final String source = new DomainTypeFactorySource(processingEnv,
+                    type, pkg, factoryName).write();
+
+            JavaFileObject file = processingEnv.getFiler()
+                    .createSourceFile(qualifiedFactoryName, type);
+            try (Writer w = file.openWriter()) {
+                w.write(source);
+            }
+            factories.add(qualifiedFactoryName);
+        } catch (InvalidDomainElementException ex) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    ex.getMessage(), ex.getElement());
+        } catch (IOException ex) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    String.format("Unable to write domain model factory '%s': "
+                            + "%s", qualifiedFactoryName, ex.getMessage()),
+                    type);
+        }
+    }
+
+    /**
+     * Writes a class name index resource, merging entries from a previous
+     * (incremental) compilation.
+     *
+     * @param resource index resource name
+     * @param entries class names
+     */
+    private void writeIndex(String resource, Set<String> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        Set<String> index = new TreeSet<>(entries);
+        try {
+            FileObject existing = processingEnv.getFiler()
+                    .getResource(StandardLocation.CLASS_OUTPUT, "", resource);
+            try (BufferedReader r = new BufferedReader(new InputStreamReader(
+                    existing.openInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        index.add(line);
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            //no previous index
+        }
+
+        try {
+            FileObject file = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", resource);
+            try (Writer w = file.openWriter()) {
+                for (String f : index) {
+                    w.write(f);
+                    w.write('\n');
+                }
+            }
+        } catch (IOException ex) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    String.format("Unable to write domain index '%s': %s",
+                            resource, ex.getMessage()));
+        }
+    }
+
+    /**
+     * Generated factory class name, flattening nested class names.
+     *
+     * @param type domain class
+     * @return simple name of the generated factory class
+     */
+    static String factoryName(TypeElement type) {
+        StringBuilder sb = new StringBuilder(type.getSimpleName());
+        Element enclosing = type.getEnclosingElement();
+        while (enclosing != null && !(enclosing instanceof PackageElement)) {
+            sb.insert(0, '_').insert(0, enclosing.getSimpleName());
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return sb.append(FACTORY_SUFFIX).toString();
+    }
+
+    /**
+     * Determine if a class literal of the type can be used from a class in the
+     * same package.
+     *
+     * @param type domain class
+     * @return true if the type can be referenced by the generated factory
+     */
+    private static boolean isReferenceable(TypeElement type) {
+        Element e = type;
+        while (e != null && !(e instanceof PackageElement)) {
+            if (e.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            if (!(e instanceof TypeElement)) {
+                //local or anonymous classes
+                return false;
+            }
+            e = e.getEnclosingElement();
+        }
+        return true;
+    }
+
+}
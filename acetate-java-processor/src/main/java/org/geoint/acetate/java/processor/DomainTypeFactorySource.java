@@ -0,0 +1,376 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import org.geoint.acetate.java.model.Accessor;
+import org.geoint.acetate.java.model.DomainEvent;
+import org.geoint.acetate.java.model.DomainResource;
+import org.geoint.acetate.java.model.DomainValue;
+import org.geoint.acetate.java.model.Idempotent;
+import org.geoint.acetate.java.model.Operation;
+import org.geoint.acetate.java.model.Param;
+import org.geoint.acetate.java.model.Safe;
+
+/**
+ * Writes the source of a {@link org.geoint.acetate.spi.java.DomainTypeFactory}
+ * for a single annotated domain class.
+ * <p>
+ * The generated factory makes the same {@code DomainBuilder} calls, and
+ * enforces the same model rules, as
+ * {@link org.geoint.acetate.java.model.reflect.ClassTypeReflector}.
+ *
+ * @author steve_siebert
+ */
+class DomainTypeFactorySource {
+
+    private static final String BUILDER
+            = "org.geoint.acetate.model.DomainBuilder";
+
+    private final ProcessingEnvironment env;
+    private final TypeElement type;
+    private final String pkg;
+    private final String factoryName;
+    private final StringBuilder src;
+    private int operationCount;
+
+    DomainTypeFactorySource(ProcessingEnvironment env, TypeElement type,
+            String pkg, String factoryName) {
+        this.env = env;
+        this.type = type;
+        this.pkg = pkg;
+        this.factoryName = factoryName;
+        this.src = new StringBuilder();
+    }
+
+    /**
+     * Generate the factory source.
+     *
+     * @return java source
+     * @throws InvalidDomainElementException if the class defines an invalid
+     * domain model
+     */
+    String write() throws InvalidDomainElementException {
+        final String[] td = descriptor(type);
+        if (td == null) {
+            throw new InvalidDomainElementException(type, "Class does not "
+                    + "describe its domain affiliation through a supported "
+                    + "domain annotation.");
+        }
+
+        if (!pkg.isEmpty()) {
+            line(0, "package %s;", pkg);
+            line(0, "");
+        }
+        line(0, "/**");
+        line(0, " * Domain model factory for {@link %s}.", type.getQualifiedName());
+        line(0, " * <p>");
+        line(0, " * Generated by %s, do not edit.",
+                DomainModelProcessor.class.getName());
+        line(0, " */");
+        line(0, "public final class %s implements %s {", factoryName,
+                "org.geoint.acetate.spi.java.DomainTypeFactory");
+        line(0, "");
+        line(1, "private static final org.geoint.acetate.model.TypeDescriptor "
+                + "DESCRIPTOR = new org.geoint.acetate.model.TypeDescriptor(%s, %s, %s);",
+                literal(td[0]), literal(td[1]), literal(td[2]));
+        line(0, "");
+        line(1, "@Override");
+        line(1, "public Class<?> getDomainClass() {");
+        line(2, "return %s.class;", type.getQualifiedName());
+        line(1, "}");
+        line(0, "");
+        line(1, "@Override");
+        line(1, "public org.geoint.acetate.model.TypeDescriptor getTypeDescriptor() {");
+        line(2, "return DESCRIPTOR;");
+        line(1, "}");
+        line(0, "");
+        line(1, "@Override");
+        line(1, "public org.geoint.acetate.model.DomainType model(%s builder)", BUILDER);
+        line(3, "throws org.geoint.acetate.model.InvalidModelException {");
+
+        if (type.getAnnotation(DomainResource.class) != null) {
+            writeResource(type.getAnnotation(DomainResource.class));
+        } else if (type.getAnnotation(DomainEvent.class) != null) {
+            writeEvent(type.getAnnotation(DomainEvent.class));
+        } else {
+            writeValue(type.getAnnotation(DomainValue.class));
+        }
+
+        line(1, "}");
+        line(0, "}");
+        return src.toString();
+    }
+
+    private void writeResource(DomainResource domain)
+            throws InvalidDomainElementException {
+        line(2, "%s.ResourceBuilder rb = builder.defineResource(%s)", BUILDER,
+                literal(domain.type()));
+        line(4, ".withDescription(%s);", literal(domain.description()));
+
+        for (ExecutableElement m : domainMethods()) {
+            if (m.getAnnotation(Operation.class) != null) {
+                writeOperation(m, "rb");
+            } else {
+                writeAccessor(m, "rb", true);
+            }
+        }
+        line(2, "rb.build();");
+        line(2, "return builder.build().getResource(%s);", literal(domain.type()));
+    }
+
+    private void writeEvent(DomainEvent event)
+            throws InvalidDomainElementException {
+        line(2, "%s.EventBuilder eb = builder.defineEvent(%s)", BUILDER,
+                literal(event.type()));
+        line(4, ".withDescription(%s);", literal(event.description()));
+
+        for (ExecutableElement m : domainMethods()) {
+            if (m.getAnnotation(Operation.class) != null) {
+                throw new InvalidDomainElementException(m, "Event types "
+                        + "cannot defined operations.");
+            }
+            writeAccessor(m, "eb", false);
+        }
+        line(2, "eb.build();");
+        line(2, "return builder.build().getEvent(%s);", literal(event.type()));
+    }
+
+    private void writeValue(DomainValue value)
+            throws InvalidDomainElementException {
+        //verify there aren't any methods that make the model invalid
+        for (ExecutableElement m : domainMethods()) {
+            throw new InvalidDomainElementException(m,
+                    (m.getAnnotation(Operation.class) != null)
+                            ? "Value types cannot defined operations."
+                            : "Values types cannot be composed from other types.");
+        }
+        line(2, "builder.defineValue(%s)", literal(value.type()));
+        line(4, ".withDescription(%s)", literal(value.description()));
+        line(4, ".build();");
+        line(2, "return builder.build().getValue(%s);", literal(value.type()));
+    }
+
+    private void writeAccessor(ExecutableElement m, String builderVar,
+            boolean resource) throws InvalidDomainElementException {
+
+        if (!m.getParameters().isEmpty()) {
+            throw new InvalidDomainElementException(m, "Domain accessor "
+                    + "method must not require parameters.");
+        }
+
+        if (m.getReturnType().getKind() == TypeKind.VOID) {
+            throw new InvalidDomainElementException(m, "Domain accessor "
+                    + "method must return a valid domain type, not void.");
+        }
+
+        final Accessor accessor = m.getAnnotation(Accessor.class);
+        final Element returned = element(m.getReturnType());
+
+        if (returned != null
+                && returned.getAnnotation(DomainResource.class) != null) {
+            if (!resource) {
+                throw new InvalidDomainElementException(m, "Only resources "
+                        + "may define resource links.");
+            }
+            DomainResource linked = returned.getAnnotation(DomainResource.class);
+            line(2, "%s.withLink(%s, %s, %s, %s)", builderVar,
+                    literal(accessor.name()), literal(linked.namespace()),
+                    literal(linked.version()), literal(linked.type()));
+            line(4, ".withDescription(%s)", literal(accessor.description()));
+            line(4, ".build();");
+        } else if (returned != null
+                && returned.getAnnotation(DomainValue.class) != null) {
+            DomainValue value = returned.getAnnotation(DomainValue.class);
+            line(2, "%s.withCompositeType(%s, %s, %s, %s)", builderVar,
+                    literal(accessor.name()), literal(value.namespace()),
+                    literal(value.version()), literal(value.type()));
+            line(4, ".build();");
+        } else if (returned != null
+                && returned.getAnnotation(DomainEvent.class) != null) {
+            throw new InvalidDomainElementException(m, "accessors returning "
+                    + "event type is currently not supported.");
+        } else {
+            throw new InvalidDomainElementException(m, String.format("Domain "
+                    + "accessor method must return a valid domain type; '%s' "
+                    + "could not be resolved by the domain.",
+                    m.getReturnType().toString()));
+        }
+    }
+
+    private void writeOperation(ExecutableElement m, String builderVar)
+            throws InvalidDomainElementException {
+        final Operation op = m.getAnnotation(Operation.class);
+        final String ob = "ob" + (operationCount++);
+
+        final Element returned = element(m.getReturnType());
+        if (returned == null || returned.getAnnotation(DomainEvent.class) == null) {
+            throw new InvalidDomainElementException(m, "Domain operation "
+                    + "method must return a domain event type.");
+        }
+        final String[] eventTd = descriptor(returned);
+
+        line(2, "%s.OperationBuilder %s = %s.withOperation(%s)", BUILDER, ob,
+                builderVar, literal(op.name()));
+        line(4, ".withDescription(%s);", literal(op.description()));
+        if (m.getAnnotation(Idempotent.class) != null) {
+            line(2, "%s.idempotent();", ob);
+        }
+        if (m.getAnnotation(Safe.class) != null) {
+            line(2, "%s.safe();", ob);
+        }
+        line(2, "%s.createsEvent(%s, %s, %s, %s)", ob, literal(eventTd[2]),
+                literal(eventTd[0]), literal(eventTd[1]), literal(eventTd[2]));
+        line(4, ".withDescription(%s)", literal(op.description()));
+        line(4, ".build();");
+
+        for (VariableElement p : m.getParameters()) {
+            final String[] paramTd = descriptor(element(p.asType()));
+            if (paramTd == null) {
+                throw new InvalidDomainElementException(p, "Domain operation "
+                        + "parameters must be a domain type.");
+            }
+            final Param ann = p.getAnnotation(Param.class);
+            final String paramName = (ann != null && !ann.name().isEmpty())
+                    ? ann.name()
+                    : p.getSimpleName().toString();
+            final String paramDesc = (ann != null)
+                    ? ann.description()
+                    : "";
+            line(2, "%s.withParameter(%s, %s, %s, %s)", ob, literal(paramName),
+                    literal(paramTd[0]), literal(paramTd[1]), literal(paramTd[2]));
+            line(4, ".withDescription(%s)", literal(paramDesc));
+            line(4, ".build();");
+        }
+        line(2, "%s.build();", ob);
+    }
+
+    /**
+     * Public accessor and operation methods of the class, including inherited
+     * methods, as they would be returned by {@link Class#getMethods()}.
+     *
+     * @return domain methods
+     * @throws InvalidDomainElementException if a method is both an operation
+     * and an accessor
+     */
+    private List<ExecutableElement> domainMethods()
+            throws InvalidDomainElementException {
+        List<ExecutableElement> methods = new ArrayList<>();
+        for (ExecutableElement m : ElementFilter.methodsIn(
+                env.getElementUtils().getAllMembers(type))) {
+            if (!m.getModifiers().contains(Modifier.PUBLIC)) {
+                continue;
+            }
+            final boolean isOperation = m.getAnnotation(Operation.class) != null;
+            final boolean isAccessor = m.getAnnotation(Accessor.class) != null;
+            if (isOperation && isAccessor) {
+                throw new InvalidDomainElementException(m, "Method may not be "
+                        + "declared as both a domain operation and an accessor.");
+            }
+            if (isOperation || isAccessor) {
+                methods.add(m);
+            }
+        }
+        return methods;
+    }
+
+    /**
+     * Domain type descriptor components (namespace, version, type) of the
+     * element, in the same annotation precedence as
+     * {@code ClassTypeReflector.getTypeDescriptor}.
+     *
+     * @param e element
+     * @return descriptor components or null if not a domain type
+     */
+    private static String[] descriptor(Element e) {
+        if (e == null) {
+            return null;
+        }
+        DomainResource r = e.getAnnotation(DomainResource.class);
+        if (r != null) {
+            return new String[]{r.namespace(), r.version(), r.type()};
+        }
+        DomainValue v = e.getAnnotation(DomainValue.class);
+        if (v != null) {
+            return new String[]{v.namespace(), v.version(), v.type()};
+        }
+        DomainEvent ev = e.getAnnotation(DomainEvent.class);
+        if (ev != null) {
+            return new String[]{ev.namespace(), ev.version(), ev.type()};
+        }
+        return null;
+    }
+
+    private Element element(TypeMirror t) {
+        return (t.getKind() == TypeKind.DECLARED)
+                ? ((DeclaredType) t).asElement()
+                : null;
+    }
+
+    private void line(int indent, String format, Object... args) {
+        for (int i = 0; i < indent; i++) {
+            src.append("    ");
+        }
+        src.append(String.format(format, args)).append('\n');
+    }
+
+    /**
+     * Java string literal of the value.
+     *
+     * @param value string value
+     * @return quoted and escaped string literal
+     */
+    static String literal(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
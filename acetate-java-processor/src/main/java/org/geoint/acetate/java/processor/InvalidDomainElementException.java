@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.processor;
+
+import javax.lang.model.element.Element;
+
+/**
+ * Thrown if an annotated source element defines an invalid domain model.
+ * <p>
+ * Reported to the compiler as an error on the offending element.
+ *
+ * @author steve_siebert
+ */
+public class InvalidDomainElementException extends Exception {
+
+    private final Element element;
+
+    public InvalidDomainElementException(Element element, String message) {
+        super(message);
+        this.element = element;
+    }
+
+    public Element getElement() {
+        return element;
+    }
+
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.geoint.acetate.format.TypeFormat;
+import org.geoint.acetate.java.model.DomainClassIndex;
+import org.geoint.acetate.java.model.DomainClassRegistry;
+import org.geoint.acetate.model.TypeDescriptor;
+import org.geoint.acetate.spi.java.DomainTypeFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Runs the processor over sample domain classes with the system java compiler.
+ *
+ * @author steve_siebert
+ */
+public class DomainModelProcessorTest {
+
+    private static final String LABEL
+            = "package sample;\n"
+            + "@org.geoint.acetate.java.model.DomainValue(namespace = \"org.geoint.test\",\n"
+            + "        version = \"1.0\", type = \"Label\", description = \"a \\\"quoted\\\" label\")\n"
+            + "public class Label {\n"
+            + "    public String text;\n"
+            + "}\n";
+    private static final String WIDGET
+            = "package sample;\n"
+            + "import org.geoint.acetate.java.model.Accessor;\n"
+            + "@org.geoint.acetate.java.model.DomainResource(namespace = \"org.geoint.test\",\n"
+            + "        version = \"1.0\", type = \"Widget\")\n"
+            + "public interface Widget {\n"
+            + "    @Accessor(name = \"label\")\n"
+            + "    Label getLabel();\n"
+            + "    @Accessor(name = \"parent\")\n"
+            + "    Widget getParent();\n"
+            + "    @org.geoint.acetate.java.model.DomainValue(namespace = \"org.geoint.test\",\n"
+            + "            version = \"1.0\", type = \"Size\")\n"
+            + "    class Size {\n"
+            + "    }\n"
+            + "}\n";
+    private static final String HIDDEN
+            = "package sample;\n"
+            + "public class Outer {\n"
+            + "    @org.geoint.acetate.java.model.DomainValue(namespace = \"org.geoint.test\",\n"
+            + "            version = \"1.0\", type = \"Hidden\")\n"
+            + "    private static class Hidden {\n"
+            + "    }\n"
+            + "}\n";
+
+    private static final Pattern TYPE_NAME
+            = Pattern.compile("public (?:class|interface) (\\w+)");
+
+    private Path dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("domain-processor");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder())
+                    .forEach((p) -> p.toFile().delete());
+        }
+    }
+
+    /**
+     * Generated factories compile and are indexed for the ServiceLoader.
+     */
+    @Test
+    public void testGeneratedFactories() throws Exception {
+        Path out = compile(sources(LABEL, WIDGET, HIDDEN));
+
+        assertTrue(new String(Files.readAllBytes(
+                dir.resolve("generated/sample/Label_DomainType.java")),
+                StandardCharsets.UTF_8).contains("\"a \\\"quoted\\\" label\""));
+        assertTrue(Files.exists(out.resolve("sample/Label_DomainType.class")));
+        assertTrue(Files.exists(out.resolve("sample/Widget_DomainType.class")));
+        assertTrue(Files.exists(
+                out.resolve("sample/Widget_Size_DomainType.class")));
+        assertFalse(Files.exists(
+                out.resolve("sample/Outer_Hidden_DomainType.class")));
+
+        assertEquals(Arrays.asList("sample.Label_DomainType",
+                "sample.Widget_DomainType", "sample.Widget_Size_DomainType"),
+                lines(out.resolve(DomainModelProcessor.SERVICE_INDEX)));
+        assertEquals(Arrays.asList("sample.Label", "sample.Outer$Hidden",
+                "sample.Widget", "sample.Widget$Size"),
+                lines(out.resolve(DomainClassIndex.RESOURCE)));
+
+        try (URLClassLoader loader = loader(out)) {
+            Map<String, TypeDescriptor> factories = new HashMap<>();
+            for (DomainTypeFactory f
+                    : ServiceLoader.load(DomainTypeFactory.class, loader)) {
+                factories.put(f.getDomainClass().getName(),
+                        f.getTypeDescriptor());
+            }
+            assertEquals(3, factories.size());
+            assertEquals(new TypeDescriptor("org.geoint.test", "1.0", "Label"),
+                    factories.get("sample.Label"));
+            assertEquals(new TypeDescriptor("org.geoint.test", "1.0", "Widget"),
+                    factories.get("sample.Widget"));
+            assertEquals(new TypeDescriptor("org.geoint.test", "1.0", "Size"),
+                    factories.get("sample.Widget$Size"));
+        }
+    }
+
+    /**
+     * A registry created with the generated factories on its classpath models
+     * the classes of a package from them.
+     */
+    @Test
+    public void testRegistry() throws Exception {
+        Path out = compile(sources(LABEL, WIDGET, HIDDEN));
+
+        final Thread current = Thread.currentThread();
+        final ClassLoader context = current.getContextClassLoader();
+        try (URLClassLoader loader = loader(out)) {
+            current.setContextClassLoader(loader);
+            DomainClassRegistry registry = new DomainClassRegistry();
+            registry.registerPackage("sample", loader);
+
+            Class<?> widget = loader.loadClass("sample.Widget");
+            Class<?> label = loader.loadClass("sample.Label");
+            Class<?> hidden = loader.loadClass("sample.Outer$Hidden");
+            assertEquals("Widget", registry.findType(widget).get()
+                    .getTypeDescriptor().getType());
+            assertEquals("Label", registry.findType(label).get()
+                    .getTypeDescriptor().getType());
+            //modeled with reflection
+            assertTrue(registry.findType(hidden).isPresent());
+        } finally {
+            current.setContextClassLoader(context);
+        }
+    }
+
+    /**
+     * Invalid models are reported as compile errors on the offending element.
+     */
+    @Test
+    public void testInvalidModel() throws Exception {
+        String invalid = "package sample;\n"
+                + "@org.geoint.acetate.java.model.DomainValue(namespace = \"org.geoint.test\",\n"
+                + "        version = \"1.0\", type = \"Broken\")\n"
+                + "public class Broken {\n"
+                + "    @org.geoint.acetate.java.model.Accessor(name = \"self\")\n"
+                + "    public Broken getSelf() {\n"
+                + "        return this;\n"
+                + "    }\n"
+                + "}\n";
+        DiagnosticCollector<JavaFileObject> diagnostics
+                = new DiagnosticCollector<>();
+        assertFalse(run(sources(invalid), diagnostics));
+
+        List<String> errors = diagnostics.getDiagnostics().stream()
+                .filter((d) -> d.getKind() == Diagnostic.Kind.ERROR)
+                .map((d) -> d.getMessage(null))
+                .collect(Collectors.toList());
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).contains("composed from other types"));
+    }
+
+    private List<File> sources(String... sources) throws IOException {
+        Path src = Files.createDirectories(dir.resolve("src/sample"));
+        List<File> files = new ArrayList<>();
+        for (String s : sources) {
+            Matcher m = TYPE_NAME.matcher(s);
+            assertTrue(m.find());
+            String name = m.group(1);
+            Path file = src.resolve(name + ".java");
+            Files.write(file, s.getBytes(StandardCharsets.UTF_8));
+            files.add(file.toFile());
+        }
+        return files;
+    }
+
+    private Path compile(List<File> sources) throws IOException {
+        DiagnosticCollector<JavaFileObject> diagnostics
+                = new DiagnosticCollector<>();
+        assertTrue(diagnostics.getDiagnostics().toString(),
+                run(sources, diagnostics));
+        return dir.resolve("classes");
+    }
+
+    private boolean run(List<File> sources,
+            DiagnosticCollector<JavaFileObject> diagnostics)
+            throws IOException {
+        final Path out = Files.createDirectories(dir.resolve("classes"));
+        final Path generated = Files.createDirectories(dir.resolve("generated"));
+        final JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        assertNotNull(javac); //requires a JDK
+        try (StandardJavaFileManager files
+                = javac.getStandardFileManager(diagnostics, null, null)) {
+            JavaCompiler.CompilationTask task = javac.getTask(null, files,
+                    diagnostics, Arrays.asList("-classpath", classpath(),
+                            "-d", out.toString(), "-s", generated.toString()),
+                    null, files.getJavaFileObjectsFromFiles(sources));
+            task.setProcessors(Collections.singletonList(
+                    new DomainModelProcessor()));
+            return task.call();
+        }
+    }
+
+    /**
+     * Classpath of the acetate apis the samples and generated factories
+     * compile against.
+     */
+    private static String classpath() {
+        return Stream.of(DomainClassRegistry.class, TypeDescriptor.class,
+                TypeFormat.class)
+                .map((c) -> c.getProtectionDomain().getCodeSource()
+                        .getLocation().getPath())
+                .distinct()
+                .collect(Collectors.joining(File.pathSeparator));
+    }
+
+    private static URLClassLoader loader(Path classes) throws IOException {
+        return new URLClassLoader(new URL[]{classes.toUri().toURL()},
+                DomainModelProcessorTest.class.getClassLoader());
+    }
+
+    private static List<String> lines(Path index) throws IOException {
+        return Files.readAllLines(index, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.bind;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import org.geoint.acetate.DomainInstantiationException;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.java.model.Accessor;
+import org.geoint.acetate.java.model.Param;
+import org.geoint.acetate.model.TypeDescriptor;
+
+/**
+ * Binder generated at runtime for an annotated domain class, reading
+ * {@link Accessor} methods through direct call sites rather than reflective
+ * invocation.
+ * <p>
+ * Accessor call sites are spun using the {@link LambdaMetafactory} the first
+ * time the binder is used; accessors which are not visible to the metafactory
+ * (ie non-public classes or classes from a child class loader) are invoked
+ * through a {@link MethodHandle}.
+ * <p>
+ * Objects are converted to a {@link LazyObjectTypeInstance}, so accessors are
+ * only invoked for the composites which are actually read.
+ * <p>
+ * Objects are bound from an {@link ObjectTypeInstance} by returning its source
+ * object, or by invoking a public constructor whose parameters are each
+ * annotated with a {@link Param} naming an accessor.
+ * <p>
+ * Instances of this class are thread-safe.
+ *
+ * @author steve_siebert
+ * @param <T> java class representation of the domain type
+ */
+public class AccessorBinder<T> implements ObjectBinder<T> {
+
+    private final Class<T> type;
+    private final TypeDescriptor descriptor;
+    private final Method[] methods;
+    private final List<String> names;
+    private final Map<String, Integer> index;
+    private final Map<String, Integer> ids;
+    private volatile CompiledAccessors compiled; //lazily spun call sites
+
+    private AccessorBinder(Class<T> type, TypeDescriptor descriptor,
+            Method[] methods, List<String> names, Map<String, Integer> index,
+            Map<String, Integer> ids) {
+        this.type = type;
+        this.descriptor = descriptor;
+        this.methods = methods;
+        this.names = names;
+        this.index = index;
+        this.ids = ids;
+    }
+
+    /**
+     * Create a binder for the domain class.
+     * <p>
+     * Accessor call sites are not created until the binder is first used.
+     *
+     * @param <T> domain class
+     * @param type domain class
+     * @param descriptor domain type descriptor of the class
+     * @return binder
+     */
+    public static <T> AccessorBinder<T> forClass(Class<T> type,
+            TypeDescriptor descriptor) {
+
+        //sort accessors by name for a stable composite order
+        TreeMap<String, Method> accessors = new TreeMap<>();
+        for (Method m : type.getMethods()) {
+            Accessor a = m.getAnnotation(Accessor.class);
+            if (a != null && m.getParameterCount() == 0) {
+                accessors.putIfAbsent(a.name(), m);
+            }
+        }
+
+        final String[] names = accessors.keySet().toArray(new String[0]);
+        final Map<String, Integer> index = new HashMap<>();
+        final Map<String, Integer> ids = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            index.put(names[i], i);
+            final int id = accessors.get(names[i])
+                    .getAnnotation(Accessor.class).id();
+            if (id != 0) {
+                ids.put(names[i], id);
+            }
+        }
+        return new AccessorBinder<>(type, descriptor,
+                accessors.values().toArray(new Method[0]),
+                Collections.unmodifiableList(Arrays.asList(names)),
+                Collections.unmodifiableMap(index),
+                Collections.unmodifiableMap(ids));
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public TypeDescriptor getTypeDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * Accessor names of the domain class, in composite index order.
+     *
+     * @return accessor names
+     */
+    public List<String> getAccessorNames() {
+        return names;
+    }
+
+    /**
+     * Ids declared by the accessors of the domain class.
+     *
+     * @return declared ids by accessor name; accessors which do not declare
+     * an id are not included
+     * @see Accessor#id()
+     */
+    public Map<String, Integer> getAccessorIds() {
+        return ids;
+    }
+
+    @Override
+    public boolean supports(TypeDescriptor td) {
+        return descriptor.equals(td);
+    }
+
+    @Override
+    public boolean supports(Class<?> objectClass) {
+        return type.isAssignableFrom(objectClass);
+    }
+
+    @Override
+    public T asObject(TypeInstance instance) throws DomainInstantiationException {
+        if (!(instance instanceof ObjectTypeInstance)
+                || !descriptor.equals(instance.getTypeDescriptor())) {
+            throw new DomainInstantiationException(String.format("Binder for "
+                    + "class '%s' cannot bind instance of type '%s'",
+                    type.getName(), instance.getTypeDescriptor().toString()));
+        }
+
+        final ObjectTypeInstance<?> oi = (ObjectTypeInstance<?>) instance;
+        final Object source = oi.getSource().orElse(null);
+        if (type.isInstance(source)) {
+            return type.cast(source);
+        }
+
+        final CompiledAccessors c = compiled();
+        if (c.constructor == null) {
+            throw new DomainInstantiationException(String.format("Unable to "
+                    + "construct '%s', class does not define a public "
+                    + "constructor with @Param named accessor parameters.",
+                    type.getName()));
+        }
+
+        final Object[] args = new Object[c.constructorParams.length];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = oi.findComposite(c.constructorParams[i]).orElse(null);
+        }
+        try {
+            return type.cast(c.constructor.invokeExact(args));
+        } catch (Throwable ex) {
+            throw new DomainInstantiationException(String.format("Unable to "
+                    + "construct '%s' from type instance.", type.getName()), ex);
+        }
+    }
+
+    /**
+     * Returns a type instance which reads the accessors of the object only
+     * when a composite is first requested.
+     *
+     * @param object source object
+     * @return lazy type instance
+     * @throws DomainInstantiationException if the object is not an instance
+     * of the domain class
+     * @see #asEagerType(Object)
+     */
+    @Override
+    public LazyObjectTypeInstance<T> asType(T object)
+            throws DomainInstantiationException {
+        checkInstance(object);
+        return new LazyObjectTypeInstance<>(this, names, index, object);
+    }
+
+    /**
+     * Returns a type instance holding the values of all the accessors of the
+     * object, read immediately.
+     *
+     * @param object source object
+     * @return type instance
+     * @throws DomainInstantiationException if the object is not an instance
+     * of the domain class or an accessor failed
+     */
+    public ObjectTypeInstance<T> asEagerType(T object)
+            throws DomainInstantiationException {
+        return new ObjectTypeInstance<>(descriptor, names, index,
+                read(object), object);
+    }
+
+    /**
+     * Read all the accessor values of the object.
+     *
+     * @param object domain object
+     * @return accessor values in composite index order
+     * @throws DomainInstantiationException if an accessor failed
+     */
+    protected Object[] read(T object) throws DomainInstantiationException {
+        checkInstance(object);
+        final Function<Object, Object>[] accessors = compiled().accessors;
+        final Object[] values = new Object[accessors.length];
+        for (int i = 0; i < accessors.length; i++) {
+            values[i] = read(object, i, accessors[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Read a single accessor value of the object.
+     *
+     * @param object domain object
+     * @param i accessor index
+     * @return accessor value
+     * @throws DomainInstantiationException if the accessor failed
+     */
+    protected Object read(T object, int i) throws DomainInstantiationException {
+        return read(object, i, compiled().accessors[i]);
+    }
+
+    private void checkInstance(T object) throws DomainInstantiationException {
+        if (!type.isInstance(object)) {
+            throw new DomainInstantiationException(String.format("Binder for "
+                    + "class '%s' cannot bind object of class '%s'",
+                    type.getName(), object.getClass().getName()));
+        }
+    }
+
+    private Object read(T object, int i, Function<Object, Object> accessor)
+            throws DomainInstantiationException {
+        try {
+            return accessor.apply(object);
+        } catch (RuntimeException ex) {
+            throw new DomainInstantiationException(String.format("Domain "
+                    + "accessor '%s' of class '%s' failed.", names.get(i),
+                    type.getName()), ex);
+        }
+    }
+
+    private CompiledAccessors compiled() {
+        CompiledAccessors c = compiled;
+        if (c == null) {
+            //benign race, call sites are idempotent
+            c = new CompiledAccessors(type, methods, index);
+            compiled = c;
+        }
+        return c;
+    }
+
+    /**
+     * Call sites of the domain class.
+     */
+    private static final class CompiledAccessors {
+
+        private final Function<Object, Object>[] accessors;
+        private final MethodHandle constructor; //(Object[])Object, may be null
+        private final String[] constructorParams;
+
+        @SuppressWarnings("unchecked")
+        CompiledAccessors(Class<?> type, Method[] methods,
+                Map<String, Integer> index) {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            accessors = new Function[methods.length];
+            for (int i = 0; i < methods.length; i++) {
+                accessors[i] = accessor(lookup, type, methods[i]);
+            }
+
+            Constructor<?> ctor = null;
+            String[] params = null;
+            for (Constructor<?> c : type.getConstructors()) {
+                String[] p = paramNames(c, index);
+                if (p != null && (params == null || p.length > params.length)) {
+                    ctor = c;
+                    params = p;
+                }
+            }
+            constructor = (ctor == null) ? null : constructor(lookup, ctor);
+            constructorParams = (constructor == null) ? null : params;
+        }
+
+        private static Function<Object, Object> accessor(
+                MethodHandles.Lookup lookup, Class<?> type, Method m) {
+            final MethodHandle mh;
+            try {
+                if (!isPublic(m.getDeclaringClass())) {
+                    m.setAccessible(true);
+                }
+                mh = lookup.unreflect(m);
+            } catch (IllegalAccessException | RuntimeException ex) {
+                //not accessible as a method handle, this is the slow path
+                return (o) -> {
+                    try {
+                        return m.invoke(o);
+                    } catch (ReflectiveOperationException rex) {
+                        throw new IllegalStateException(rex);
+                    }
+                };
+            }
+
+            if (isPublic(m.getDeclaringClass()) && isVisible(m.getDeclaringClass())) {
+                try {
+                    CallSite site = LambdaMetafactory.metafactory(lookup,
+                            "apply",
+                            MethodType.methodType(Function.class),
+                            MethodType.methodType(Object.class, Object.class),
+                            mh,
+                            mh.type().wrap());
+                    return (Function<Object, Object>) site.getTarget().invokeExact();
+                } catch (Throwable ex) {
+                    //fall through to the method handle
+                }
+            }
+
+            final MethodHandle generic = mh.asType(
+                    MethodType.methodType(Object.class, Object.class));
+            return (o) -> {
+                try {
+                    return generic.invokeExact(o);
+                } catch (RuntimeException | Error ex) {
+                    throw ex;
+                } catch (Throwable ex) {
+                    throw new IllegalStateException(ex);
+                }
+            };
+        }
+
+        private static MethodHandle constructor(MethodHandles.Lookup lookup,
+                Constructor<?> c) {
+            try {
+                return lookup.unreflectConstructor(c)
+                        .asSpreader(Object[].class, c.getParameterCount())
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+            } catch (IllegalAccessException ex) {
+                return null;
+            }
+        }
+
+        /**
+         * Accessor names bound to each constructor parameter.
+         *
+         * @return accessor names or null if the constructor cannot be used
+         */
+        private static String[] paramNames(Constructor<?> c,
+                Map<String, Integer> index) {
+            final Parameter[] params = c.getParameters();
+            if (params.length == 0) {
+                return null;
+            }
+            final String[] names = new String[params.length];
+            for (int i = 0; i < params.length; i++) {
+                Param p = params[i].getAnnotation(Param.class);
+                if (p == null || !index.containsKey(p.name())) {
+                    return null;
+                }
+                names[i] = p.name();
+            }
+            return names;
+        }
+
+        private static boolean isPublic(Class<?> c) {
+            for (Class<?> e = c; e != null; e = e.getEnclosingClass()) {
+                if (!Modifier.isPublic(e.getModifiers())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Spun lambda classes resolve the target through the class loader of
+         * this class.
+         */
+        private static boolean isVisible(Class<?> c) {
+            try {
+                return Class.forName(c.getName(), false,
+                        AccessorBinder.class.getClassLoader()) == c;
+            } catch (ClassNotFoundException | LinkageError ex) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.bind;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.geoint.acetate.DomainInstantiationException;
+
+/**
+ * Type instance which reads the accessors of its source object only when a
+ * composite is first requested, remembering the value for later reads.
+ * <p>
+ * Accessors are assumed to be side-effect free; concurrent first reads of the
+ * same composite may each invoke its accessor, but all readers observe the
+ * value which was stored first. An accessor which fails when read through
+ * {@link #findComposite(String)} is reported as an
+ * {@link IllegalStateException}; call {@link #readAll()} to surface accessor
+ * failures as a checked exception up front.
+ *
+ * @author steve_siebert
+ * @param <T> java class representation of the domain type
+ * @see AccessorBinder#asType(Object)
+ */
+public class LazyObjectTypeInstance<T> extends ObjectTypeInstance<T> {
+
+    private static final Object UNREAD = new Object();
+
+    private final AccessorBinder<T> binder;
+    private final T object;
+    private final AtomicReferenceArray<Object> memo;
+
+    LazyObjectTypeInstance(AccessorBinder<T> binder, List<String> names,
+            Map<String, Integer> index, T object) {
+        super(binder.getTypeDescriptor(), names, index, null, object);
+        this.binder = binder;
+        this.object = object;
+        this.memo = new AtomicReferenceArray<>(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            memo.lazySet(i, UNREAD);
+        }
+    }
+
+    /**
+     * Read every composite which has not yet been read.
+     *
+     * @return this instance
+     * @throws DomainInstantiationException if an accessor failed
+     */
+    public LazyObjectTypeInstance<T> readAll()
+            throws DomainInstantiationException {
+        for (int i = 0; i < memo.length(); i++) {
+            read(i);
+        }
+        return this;
+    }
+
+    /**
+     * Indicates if the composite has been read from the source object.
+     *
+     * @param name accessor name
+     * @return true if the composite value is memoized
+     */
+    public boolean isRead(String name) {
+        final int i = getCompositeNames().indexOf(name);
+        return i != -1 && memo.get(i) != UNREAD;
+    }
+
+    @Override
+    protected Object value(int i) {
+        try {
+            return read(i);
+        } catch (DomainInstantiationException ex) {
+            throw new IllegalStateException(ex.getMessage(), ex);
+        }
+    }
+
+    private Object read(int i) throws DomainInstantiationException {
+        final Object v = memo.get(i);
+        if (v != UNREAD) {
+            return v;
+        }
+        final Object read = binder.read(object, i);
+        return memo.compareAndSet(i, UNREAD, read) ? read : memo.get(i);
+    }
+}
@@ -15,14 +15,21 @@
  */
 package org.geoint.acetate.java.bind;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.geoint.acetate.DomainInstantiationException;
 import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.model.TypeDescriptor;
 
 /**
  * Binds a resource to a java object.
  * <p>
  * Implementations may be generic, such as a binder based on POJO data modeling,
  * or may be class/type-specific to support unique binding requirements.
+ * <p>
+ * Binders may declare the domain types and classes they are capable of binding
+ * by overriding the {@code supports} methods, allowing the registry to skip
+ * binders that cannot be used rather than attempting each one.
  *
  * @author steve_siebert
  * @param <T> java class representation of a resource
@@ -54,4 +61,73 @@ public interface ObjectBinder<T> {
      */
     TypeInstance asType(T object) throws DomainInstantiationException;
 
+    /**
+     * Returns the java object representations of domain type instances, in
+     * the order of the instances.
+     * <p>
+     * Binders which can amortize work across instances should override this
+     * method; by default each instance is bound individually.
+     *
+     * @param instances domain instances
+     * @return java object representations of the instances
+     * @throws DomainInstantiationException if the binder cannot be used for
+     * any of the instances
+     */
+    default List<T> asObjects(List<? extends TypeInstance> instances)
+            throws DomainInstantiationException {
+        final List<T> objects = new ArrayList<>(instances.size());
+        for (TypeInstance i : instances) {
+            objects.add(asObject(i));
+        }
+        return objects;
+    }
+
+    /**
+     * Returns the TypeInstance implementations of java objects, in the order
+     * of the objects.
+     * <p>
+     * Binders which can amortize work across objects should override this
+     * method; by default each object is bound individually.
+     *
+     * @param objects source objects
+     * @return domain type instances
+     * @throws DomainInstantiationException if the binder cannot be used for
+     * any of the objects
+     */
+    default List<TypeInstance> asTypes(List<? extends T> objects)
+            throws DomainInstantiationException {
+        final List<TypeInstance> instances = new ArrayList<>(objects.size());
+        for (T o : objects) {
+            instances.add(asType(o));
+        }
+        return instances;
+    }
+
+    /**
+     * Indicates if this binder may be able to bind instances of the domain
+     * type.
+     * <p>
+     * Binders which cannot determine their capabilities ahead of time should
+     * return true (default).
+     *
+     * @param type domain type descriptor
+     * @return false if the binder is known not to support the type
+     */
+    default boolean supports(TypeDescriptor type) {
+        return true;
+    }
+
+    /**
+     * Indicates if this binder may be able to bind objects of the java class.
+     * <p>
+     * Binders which cannot determine their capabilities ahead of time should
+     * return true (default).
+     *
+     * @param objectClass java class
+     * @return false if the binder is known not to support the class
+     */
+    default boolean supports(Class<?> objectClass) {
+        return true;
+    }
+
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.bind;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.model.TypeDescriptor;
+
+/**
+ * Type instance holding the values returned by the domain accessors of a java
+ * object, keyed by accessor name.
+ * <p>
+ * Instances of this class are immutable and thread-safe, though the composite
+ * values themselves may not be.
+ *
+ * @author steve_siebert
+ * @param <T> java class representation of the domain type
+ */
+public class ObjectTypeInstance<T> implements TypeInstance {
+
+    private final TypeDescriptor descriptor;
+    private final List<String> names;
+    private final Map<String, Integer> index;
+    protected final Object[] values;
+    private final T source;
+
+    /**
+     *
+     * @param descriptor domain type descriptor
+     * @param names accessor names, in index order
+     * @param index accessor value index by name
+     * @param values accessor values, in index order
+     * @param source java object the values were read from, may be null
+     */
+    protected ObjectTypeInstance(TypeDescriptor descriptor, List<String> names,
+            Map<String, Integer> index, Object[] values, T source) {
+        this.descriptor = descriptor;
+        this.names = names;
+        this.index = index;
+        this.values = values;
+        this.source = source;
+    }
+
+    /**
+     * Create a type instance from composite values which was not read from a
+     * java object.
+     *
+     * @param <T> java class representation of the domain type
+     * @param descriptor domain type descriptor
+     * @param composites composite values by accessor name
+     * @return type instance
+     */
+    public static <T> ObjectTypeInstance<T> newInstance(TypeDescriptor descriptor,
+            Map<String, Object> composites) {
+        final String[] names = composites.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        final Map<String, Integer> index = new HashMap<>();
+        final Object[] values = new Object[names.length];
+        for (int i = 0; i < names.length; i++) {
+            index.put(names[i], i);
+            values[i] = composites.get(names[i]);
+        }
+        return new ObjectTypeInstance<>(descriptor,
+                Collections.unmodifiableList(Arrays.asList(names)),
+                Collections.unmodifiableMap(index),
+                values, null);
+    }
+
+    @Override
+    public TypeDescriptor getTypeDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * Names of the composites (accessors) of this instance.
+     *
+     * @return composite names
+     */
+    public List<String> getCompositeNames() {
+        return names;
+    }
+
+    /**
+     * Return the value of the named composite.
+     *
+     * @param name accessor name
+     * @return composite value or empty if the composite is not defined or the
+     * accessor returned null
+     */
+    public Optional<Object> findComposite(String name) {
+        final Integer i = index.get(name);
+        return (i == null) ? Optional.empty() : Optional.ofNullable(value(i));
+    }
+
+    /**
+     * Return the composite value by index.
+     *
+     * @param i composite index
+     * @return composite value, may be null
+     */
+    protected Object value(int i) {
+        return values[i];
+    }
+
+    /**
+     * The java object this instance was read from.
+     *
+     * @return source object or empty if the instance was not created from a
+     * java object
+     */
+    public Optional<T> getSource() {
+        return Optional.ofNullable(source);
+    }
+
+}
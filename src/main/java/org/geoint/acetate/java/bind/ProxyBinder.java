@@ -0,0 +1,297 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.bind;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.geoint.acetate.DomainInstantiationException;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.java.model.Accessor;
+import org.geoint.acetate.model.TypeDescriptor;
+
+/**
+ * Binds type instances of a domain interface to dynamic proxies which resolve
+ * each composite only when its accessor is first called.
+ * <p>
+ * A composite held by the type instance is returned from the accessor as-is
+ * if it is already an instance of the accessor return type; a composite
+ * {@link TypeInstance} is bound through the instance binder and a
+ * {@link ResourceLink} is resolved through the link resolver. The resolved
+ * value is remembered for later calls. Failures to resolve a composite are
+ * thrown from the accessor as an {@link IllegalStateException}.
+ * <p>
+ * Accessors with a primitive return type return the wrapped composite, or the
+ * default value of the primitive if the composite is not set.
+ * <p>
+ * Proxies only implement the accessors of the interface, other methods
+ * (ie domain operations) throw {@link UnsupportedOperationException}.
+ * <p>
+ * Instances of this class are thread-safe.
+ *
+ * @author steve_siebert
+ * @param <T> domain interface
+ */
+public class ProxyBinder<T> implements ObjectBinder<T> {
+
+    /**
+     * Default values of the primitive types, by primitive class.
+     */
+    private static final Map<Class<?>, Object> PRIMITIVE_DEFAULTS;
+
+    static {
+        final Map<Class<?>, Object> defaults = new HashMap<>();
+        defaults.put(boolean.class, false);
+        defaults.put(byte.class, (byte) 0);
+        defaults.put(short.class, (short) 0);
+        defaults.put(char.class, '\0');
+        defaults.put(int.class, 0);
+        defaults.put(long.class, 0L);
+        defaults.put(float.class, 0f);
+        defaults.put(double.class, 0d);
+        PRIMITIVE_DEFAULTS = Collections.unmodifiableMap(defaults);
+    }
+
+    private final Class<T> type;
+    private final TypeDescriptor descriptor;
+    private final AccessorBinder<T> accessors;
+    private final Map<Method, Integer> accessorIndex;
+    private final InstanceBinder instanceBinder;
+    private final LinkResolver linkResolver;
+
+    private ProxyBinder(Class<T> type, TypeDescriptor descriptor,
+            InstanceBinder instanceBinder, LinkResolver linkResolver) {
+        this.type = type;
+        this.descriptor = descriptor;
+        this.accessors = AccessorBinder.forClass(type, descriptor);
+        this.instanceBinder = instanceBinder;
+        this.linkResolver = linkResolver;
+
+        final Map<Method, Integer> index = new HashMap<>();
+        for (Method m : type.getMethods()) {
+            final Accessor a = m.getAnnotation(Accessor.class);
+            if (a == null || m.getParameterCount() != 0) {
+                continue;
+            }
+            final int i = accessors.getAccessorNames().indexOf(a.name());
+            if (i < 0 || m.getReturnType() == void.class) {
+                throw new IllegalArgumentException(String.format("Unable to "
+                        + "proxy accessor '%s' of '%s', it does not return "
+                        + "a composite.", m.getName(), type.getName()));
+            }
+            index.put(m, i);
+        }
+        this.accessorIndex = Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * Create a proxy binder for a domain interface.
+     *
+     * @param <T> domain interface
+     * @param type domain interface
+     * @param descriptor domain type descriptor of the interface
+     * @param instanceBinder binds composite type instances
+     * @param linkResolver resolves composite resource links
+     * @return proxy binder
+     * @throws IllegalArgumentException if the type is not an interface or
+     * declares an accessor which cannot be proxied
+     */
+    public static <T> ProxyBinder<T> forInterface(Class<T> type,
+            TypeDescriptor descriptor, InstanceBinder instanceBinder,
+            LinkResolver linkResolver) {
+        if (!type.isInterface()) {
+            throw new IllegalArgumentException(String.format("Unable to proxy "
+                    + "'%s', class is not an interface.", type.getName()));
+        }
+        return new ProxyBinder<>(type, descriptor, instanceBinder, linkResolver);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public TypeDescriptor getTypeDescriptor() {
+        return descriptor;
+    }
+
+    @Override
+    public boolean supports(TypeDescriptor td) {
+        return descriptor.equals(td);
+    }
+
+    @Override
+    public boolean supports(Class<?> objectClass) {
+        return type.isAssignableFrom(objectClass);
+    }
+
+    @Override
+    public T asObject(TypeInstance instance) throws DomainInstantiationException {
+        if (!(instance instanceof ObjectTypeInstance)
+                || !descriptor.equals(instance.getTypeDescriptor())) {
+            throw new DomainInstantiationException(String.format("Binder for "
+                    + "interface '%s' cannot bind instance of type '%s'",
+                    type.getName(), instance.getTypeDescriptor().toString()));
+        }
+        final ObjectTypeInstance<?> oi = (ObjectTypeInstance<?>) instance;
+        final Object source = oi.getSource().orElse(null);
+        if (type.isInstance(source)) {
+            return type.cast(source);
+        }
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(),
+                new Class<?>[]{type}, new LinkHandler(oi)));
+    }
+
+    /**
+     * Returns the type instance a proxy was created from, or reads the
+     * accessors of any other implementation of the interface.
+     *
+     * @param object source object
+     * @return domain type instance
+     * @throws DomainInstantiationException if the object could not be read
+     */
+    @Override
+    public ObjectTypeInstance<T> asType(T object)
+            throws DomainInstantiationException {
+        if (Proxy.isProxyClass(object.getClass())) {
+            final InvocationHandler h = Proxy.getInvocationHandler(object);
+            if (h instanceof ProxyBinder.LinkHandler
+                    && ((LinkHandler) h).binder() == this) {
+                @SuppressWarnings("unchecked")
+                final ObjectTypeInstance<T> instance
+                        = (ObjectTypeInstance<T>) ((LinkHandler) h).instance;
+                return instance;
+            }
+        }
+        return accessors.asType(object);
+    }
+
+    /**
+     * Binds a composite type instance to a java object.
+     */
+    @FunctionalInterface
+    public interface InstanceBinder {
+
+        Object asObject(TypeInstance instance)
+                throws DomainInstantiationException;
+    }
+
+    /**
+     * Resolves a resource link to the linked resource object.
+     */
+    @FunctionalInterface
+    public interface LinkResolver {
+
+        /**
+         * @param resourceClass java class of the linked resource
+         * @param link resource link
+         * @return linked resource object or empty if the resource is unknown
+         * @throws DomainInstantiationException if the link could not be
+         * resolved
+         */
+        Optional<?> resolve(Class<?> resourceClass, ResourceLink link)
+                throws DomainInstantiationException;
+    }
+
+    /**
+     * Memoizing accessor handler of a proxy.
+     */
+    private final class LinkHandler implements InvocationHandler {
+
+        private final ObjectTypeInstance<?> instance;
+        private final AtomicReferenceArray<Object> resolved;
+
+        LinkHandler(ObjectTypeInstance<?> instance) {
+            this.instance = instance;
+            this.resolved = new AtomicReferenceArray<>(
+                    accessors.getAccessorNames().size());
+        }
+
+        ProxyBinder<T> binder() {
+            return ProxyBinder.this;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            final Integer i = accessorIndex.get(method);
+            if (i != null) {
+                return accessor(method, i);
+            }
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return descriptor.toString() + "@"
+                            + Integer.toHexString(System.identityHashCode(proxy));
+                default:
+                    throw new UnsupportedOperationException(String.format(
+                            "Method '%s' of '%s' is not an accessor.",
+                            method.getName(), type.getName()));
+            }
+        }
+
+        private Object accessor(Method method, int i) {
+            final Object r = resolved.get(i);
+            if (r != null) {
+                return r;
+            }
+            final String name = accessors.getAccessorNames().get(i);
+            final Object value;
+            try {
+                value = resolve(method.getReturnType(),
+                        instance.findComposite(name).orElse(null));
+            } catch (DomainInstantiationException ex) {
+                throw new IllegalStateException(String.format("Unable to "
+                        + "resolve composite '%s' of '%s'.", name,
+                        type.getName()), ex);
+            }
+            if (value == null) {
+                //null cannot be unboxed
+                return PRIMITIVE_DEFAULTS.get(method.getReturnType());
+            }
+            return resolved.compareAndSet(i, null, value) ? value : resolved.get(i);
+        }
+
+        private Object resolve(Class<?> returnType, Object composite)
+                throws DomainInstantiationException {
+            final Class<?> target = returnType.isPrimitive()
+                    ? PRIMITIVE_DEFAULTS.get(returnType).getClass()
+                    : returnType;
+            if (composite == null || target.isInstance(composite)) {
+                return composite;
+            }
+            if (composite instanceof TypeInstance) {
+                return instanceBinder.asObject((TypeInstance) composite);
+            }
+            if (composite instanceof ResourceLink) {
+                final ResourceLink link = (ResourceLink) composite;
+                return linkResolver.resolve(returnType, link)
+                        .orElseThrow(() -> new DomainInstantiationException(
+                                String.format("Linked resource '%s' is unknown.",
+                                        link)));
+            }
+            throw new DomainInstantiationException(String.format("Composite "
+                    + "of class '%s' cannot be returned as '%s'.",
+                    composite.getClass().getName(), returnType.getName()));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.bind;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Reference to a domain resource instance held as a link composite in place
+ * of the linked resource itself.
+ * <p>
+ * A link without a version refers to the latest version of the resource.
+ *
+ * @author steve_siebert
+ * @see ProxyBinder
+ */
+public final class ResourceLink {
+
+    private final String guid;
+    private final String version;
+
+    private ResourceLink(String guid, String version) {
+        this.guid = Objects.requireNonNull(guid, "Resource guid is required.");
+        this.version = version;
+    }
+
+    /**
+     * Link to the latest version of a resource.
+     *
+     * @param guid resource guid
+     * @return resource link
+     */
+    public static ResourceLink latest(String guid) {
+        return new ResourceLink(guid, null);
+    }
+
+    /**
+     * Link to a specific version of a resource.
+     *
+     * @param guid resource guid
+     * @param version resource version
+     * @return resource link
+     */
+    public static ResourceLink of(String guid, String version) {
+        return new ResourceLink(guid,
+                Objects.requireNonNull(version, "Resource version is required."));
+    }
+
+    public String getGuid() {
+        return guid;
+    }
+
+    /**
+     * Linked version.
+     *
+     * @return version or empty if the link refers to the latest version
+     */
+    public Optional<String> findVersion() {
+        return Optional.ofNullable(version);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * guid.hashCode() + Objects.hashCode(version);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ResourceLink)) {
+            return false;
+        }
+        final ResourceLink other = (ResourceLink) obj;
+        return guid.equals(other.guid) && Objects.equals(version, other.version);
+    }
+
+    @Override
+    public String toString() {
+        return (version == null) ? guid : guid + ":" + version;
+    }
+}
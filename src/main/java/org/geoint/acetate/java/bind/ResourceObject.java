@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.bind;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A version of a domain resource, bound to a java object.
+ *
+ * @author steve_siebert
+ * @param <T> java class representation of the domain resource
+ */
+public interface ResourceObject<T> {
+
+    /**
+     * Globally unique id of the resource instance, shared by all its versions.
+     *
+     * @return resource guid
+     */
+    String getGuid();
+
+    /**
+     * Version of this resource instance.
+     *
+     * @return resource version
+     */
+    String getVersion();
+
+    /**
+     * Version this version was derived from.
+     *
+     * @return previous version or empty if this is the first version
+     */
+    Optional<String> getPreviousVersion();
+
+    /**
+     * Java object representation of this resource version.
+     *
+     * @return resource object
+     */
+    T getObject();
+
+    /**
+     * Create an immutable resource object.
+     *
+     * @param <T> java class representation of the domain resource
+     * @param guid resource guid
+     * @param version resource version
+     * @param previousVersion previous version, may be null
+     * @param object resource object
+     * @return resource object
+     */
+    static <T> ResourceObject<T> newInstance(String guid, String version,
+            String previousVersion, T object) {
+        Objects.requireNonNull(guid, "Resource guid is required.");
+        Objects.requireNonNull(version, "Resource version is required.");
+        Objects.requireNonNull(object, "Resource object is required.");
+        return new ResourceObject<T>() {
+            @Override
+            public String getGuid() {
+                return guid;
+            }
+
+            @Override
+            public String getVersion() {
+                return version;
+            }
+
+            @Override
+            public Optional<String> getPreviousVersion() {
+                return Optional.ofNullable(previousVersion);
+            }
+
+            @Override
+            public T getObject() {
+                return object;
+            }
+
+            @Override
+            public String toString() {
+                return guid + ":" + version;
+            }
+        };
+    }
+}
@@ -19,6 +19,10 @@
  * Binders may be written to support generic data constructs, allowing one
  * binder to support numerous data types, or written to support a subset (or
  * specific) data type/class pair.
+ * <p>
+ * Domain classes registered without a {@link org.geoint.acetate.java.bind.Binder}
+ * are bound by an {@link org.geoint.acetate.java.bind.AccessorBinder} generated
+ * from the accessors of the class.
  * 
  * TODO explain various methods to designate binder preference
  */
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.format;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.format.Format;
+import org.geoint.acetate.format.TypeFormattingException;
+
+/**
+ * Formatter which writes directly into NIO buffers, avoiding the stream
+ * adapters and intermediate copies of {@link ObjectFormatter}.
+ * <p>
+ * Implementations need only implement
+ * {@link #format(Format, Object, TypeInstance, ByteBuffer)}; channel and
+ * stream output is provided by default. Formatters which already hold
+ * (parts of) their formatted output in buffers may override
+ * {@link #formatBuffers} to hand those buffers to a
+ * {@link GatheringByteChannel} without copying.
+ *
+ * @author steve_siebert
+ * @param <T> object type
+ */
+public interface BufferedObjectFormatter<T> extends ObjectFormatter<T> {
+
+    /**
+     * Size estimate returned when the formatted size is not known.
+     */
+    int UNKNOWN_SIZE = -1;
+
+    /**
+     * Buffer capacity used when the formatted size is not known.
+     */
+    int DEFAULT_CAPACITY = 512;
+
+    /**
+     * Estimate the formatted size of the object, used to size buffers.
+     * <p>
+     * An estimate too small is not an error, but causes the object to be
+     * formatted again into a larger buffer.
+     *
+     * @param format format
+     * @param obj object to format
+     * @param instance domain instance of the object
+     * @return estimated size in bytes, or {@link #UNKNOWN_SIZE}
+     */
+    default int estimateSize(Format format, T obj, TypeInstance instance) {
+        return UNKNOWN_SIZE;
+    }
+
+    /**
+     * Format the object into the remaining space of the buffer.
+     *
+     * @param format format
+     * @param obj object to format
+     * @param instance domain instance of the object
+     * @param buffer destination buffer
+     * @return true if the object was formatted, false if the buffer did not
+     * have enough remaining space (the buffer position is then undefined)
+     * @throws TypeFormattingException if the object could not be formatted
+     */
+    boolean format(Format format, T obj, TypeInstance instance,
+            ByteBuffer buffer) throws TypeFormattingException;
+
+    /**
+     * Format the object into one or more buffers, ready to be read.
+     *
+     * @param format format
+     * @param obj object to format
+     * @param instance domain instance of the object
+     * @return formatted buffers, in order
+     * @throws TypeFormattingException if the object could not be formatted
+     */
+    default ByteBuffer[] formatBuffers(Format format, T obj,
+            TypeInstance instance) throws TypeFormattingException {
+        final int estimate = estimateSize(format, obj, instance);
+        int capacity = (estimate > 0) ? estimate : DEFAULT_CAPACITY;
+        while (true) {
+            final ByteBuffer buffer = ByteBuffer.allocate(capacity);
+            if (format(format, obj, instance, buffer)) {
+                buffer.flip();
+                return new ByteBuffer[]{buffer};
+            }
+            if (capacity == Integer.MAX_VALUE - 8) {
+                throw new BufferOverflowException();
+            }
+            capacity = (int) Math.min(Integer.MAX_VALUE - 8, capacity * 2L);
+        }
+    }
+
+    /**
+     * Format the object to the channel, using a gathering write if the
+     * channel supports it.
+     *
+     * @param format format
+     * @param obj object to format
+     * @param instance domain instance of the object
+     * @param channel destination channel, not closed by this method
+     * @throws IOException if the channel could not be written
+     * @throws TypeFormattingException if the object could not be formatted
+     */
+    default void format(Format format, T obj, TypeInstance instance,
+            WritableByteChannel channel)
+            throws IOException, TypeFormattingException {
+        final ByteBuffer[] buffers = formatBuffers(format, obj, instance);
+        if (channel instanceof GatheringByteChannel) {
+            final GatheringByteChannel gathering = (GatheringByteChannel) channel;
+            long remaining = 0;
+            for (ByteBuffer b : buffers) {
+                remaining += b.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= gathering.write(buffers);
+            }
+            return;
+        }
+        for (ByteBuffer b : buffers) {
+            while (b.hasRemaining()) {
+                channel.write(b);
+            }
+        }
+    }
+
+    @Override
+    default void format(Format format, T obj, TypeInstance instance,
+            OutputStream out) throws IOException, TypeFormattingException {
+        for (ByteBuffer b : formatBuffers(format, obj, instance)) {
+            if (b.hasArray()) {
+                out.write(b.array(), b.arrayOffset() + b.position(),
+                        b.remaining());
+                b.position(b.limit());
+            } else {
+                final byte[] chunk = new byte[Math.min(b.remaining(), 8192)];
+                while (b.hasRemaining()) {
+                    final int n = Math.min(chunk.length, b.remaining());
+                    b.get(chunk, 0, n);
+                    out.write(chunk, 0, n);
+                }
+            }
+        }
+    }
+}
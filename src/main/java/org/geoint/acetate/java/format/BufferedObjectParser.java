@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.format;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import org.geoint.acetate.format.DomainFormatException;
+import org.geoint.acetate.format.FormattedType;
+import org.geoint.acetate.model.DomainType;
+
+/**
+ * Parser which reads directly from NIO buffers, such as slices of a memory
+ * mapped file, avoiding a copy of the formatted bytes onto the heap.
+ * <p>
+ * By default the buffer is read through an {@link InputStream} view of the
+ * buffer by {@link #parse(DomainType, FormattedType)}; parsers able to
+ * decode a buffer directly should override
+ * {@link #parse(DomainType, ByteBuffer)}.
+ *
+ * @author steve_siebert
+ * @param <T> object type
+ * @see MappedIngester
+ */
+public interface BufferedObjectParser<T> extends ObjectParser<T> {
+
+    /**
+     * Parse the object formatted in the remaining bytes of the buffer.
+     *
+     * @param type domain type of the object
+     * @param buffer formatted object, read from its position to its limit
+     * @return parsed object
+     * @throws DomainFormatException if the object could not be parsed
+     * @throws IOException if the buffer could not be read
+     */
+    default T parse(DomainType type, ByteBuffer buffer)
+            throws DomainFormatException, IOException {
+        return parse(type, formatted(buffer));
+    }
+
+    /**
+     * Parse the object formatted in the buffer with any parser, reading the
+     * buffer directly if the parser supports it.
+     *
+     * @param <T> object type
+     * @param parser parser
+     * @param type domain type of the object
+     * @param buffer formatted object, read from its position to its limit
+     * @return parsed object
+     * @throws DomainFormatException if the object could not be parsed
+     * @throws IOException if the buffer could not be read
+     */
+    static <T> T parse(ObjectParser<T> parser, DomainType type,
+            ByteBuffer buffer) throws DomainFormatException, IOException {
+        if (parser instanceof BufferedObjectParser) {
+            return ((BufferedObjectParser<T>) parser).parse(type, buffer);
+        }
+        return parser.parse(type, formatted(buffer));
+    }
+
+    /**
+     * Formatted type reading the remaining bytes of the buffer.
+     * <p>
+     * Each call to {@link FormattedType#getFormatted()} reads the buffer
+     * from its position at the time this method was called.
+     *
+     * @param buffer formatted bytes
+     * @return formatted type view of the buffer
+     */
+    static FormattedType formatted(ByteBuffer buffer) {
+        final ByteBuffer source = buffer.duplicate();
+        return new FormattedType() {
+            @Override
+            public InputStream getFormatted() {
+                return new ByteBufferInputStream(source.duplicate());
+            }
+        };
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.format;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import org.geoint.acetate.format.DomainFormatException;
+import org.geoint.acetate.model.DomainType;
+
+/**
+ * Bulk loads files of formatted records by memory mapping the file, splitting
+ * the mapped bytes at record boundaries and parsing the record slices, in
+ * parallel if an executor is provided.
+ * <p>
+ * Records are never copied onto the heap by the ingester; parsers
+ * implementing {@link BufferedObjectParser} read the mapped slices directly.
+ * Files are mapped in regions of at most {@link #DEFAULT_REGION_SIZE} bytes
+ * (or the region size provided), so a single record must not be larger than
+ * a region.
+ * <p>
+ * Parsed objects are delivered to the sink on the calling thread, in file
+ * order; the sink need not be thread-safe. The number of parsed records
+ * awaiting delivery is bounded, so memory use does not grow with the file.
+ * <p>
+ * Instances of this class are thread-safe if the parser is.
+ *
+ * @author steve_siebert
+ * @param <T> object type
+ */
+public class MappedIngester<T> {
+
+    /**
+     * Default maximum number of bytes mapped at a time.
+     */
+    public static final int DEFAULT_REGION_SIZE = 1 << 28;
+
+    /**
+     * Number of records parsed by each task submitted to the executor.
+     */
+    static final int CHUNK_SIZE = 512;
+
+    private static final int MAX_PENDING_PER_THREAD = 4;
+
+    private final ObjectParser<T> parser;
+    private final DomainType type;
+    private final RecordSplitter splitter;
+    private final Executor executor;
+    private final int regionSize;
+    private final int maxPending;
+
+    /**
+     * Ingester parsing on the calling thread.
+     *
+     * @param parser record parser
+     * @param type domain type of the records
+     * @param splitter record splitter
+     */
+    public MappedIngester(ObjectParser<T> parser, DomainType type,
+            RecordSplitter splitter) {
+        this(parser, type, splitter, null, DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     *
+     * @param parser record parser
+     * @param type domain type of the records
+     * @param splitter record splitter
+     * @param executor executor to parse records concurrently, or null to
+     * parse on the calling thread
+     * @param regionSize maximum number of bytes mapped at a time
+     */
+    public MappedIngester(ObjectParser<T> parser, DomainType type,
+            RecordSplitter splitter, Executor executor, int regionSize) {
+        if (regionSize <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid region "
+                    + "size %d.", regionSize));
+        }
+        this.parser = parser;
+        this.type = type;
+        this.splitter = splitter;
+        this.executor = executor;
+        this.regionSize = regionSize;
+        this.maxPending = MAX_PENDING_PER_THREAD
+                * Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Parse every record of the file.
+     *
+     * @param file formatted records
+     * @param sink receives each parsed object, in file order
+     * @return number of records parsed
+     * @throws DomainFormatException if a record could not be split or parsed;
+     * no further objects are delivered to the sink
+     * @throws IOException if the file could not be read
+     */
+    public long ingest(Path file, Consumer<? super T> sink)
+            throws DomainFormatException, IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            return ingest(channel, sink);
+        }
+    }
+
+    /**
+     * Parse every record of the channel, from its current position.
+     *
+     * @param channel formatted records, not closed by this method
+     * @param sink receives each parsed object, in file order
+     * @return number of records parsed
+     * @throws DomainFormatException if a record could not be split or parsed;
+     * no further objects are delivered to the sink
+     * @throws IOException if the channel could not be read
+     */
+    public long ingest(FileChannel channel, Consumer<? super T> sink)
+            throws DomainFormatException, IOException {
+        final Delivery delivery = new Delivery(sink);
+        try {
+            final long size = channel.size();
+            long position = channel.position();
+            List<ByteBuffer> chunk = new ArrayList<>(CHUNK_SIZE);
+            while (position < size) {
+                final int length = (int) Math.min(regionSize, size - position);
+                final boolean last = (position + length == size);
+                final MappedByteBuffer region = channel.map(
+                        FileChannel.MapMode.READ_ONLY, position, length);
+
+                for (ByteBuffer record = splitter.next(region, last);
+                        record != null; record = splitter.next(region, last)) {
+                    chunk.add(record);
+                    if (chunk.size() == CHUNK_SIZE) {
+                        delivery.submit(chunk);
+                        chunk = new ArrayList<>(CHUNK_SIZE);
+                    }
+                }
+
+                if (region.position() == 0 && region.hasRemaining()) {
+                    throw new DomainFormatException(String.format(last
+                            ? "Truncated record at offset %d."
+                            : "Record at offset %d exceeds the region size.",
+                            position));
+                }
+                if (last && region.hasRemaining()) {
+                    throw new DomainFormatException(String.format("Truncated "
+                            + "record at offset %d.",
+                            position + region.position()));
+                }
+                position += region.position();
+            }
+            if (!chunk.isEmpty()) {
+                delivery.submit(chunk);
+            }
+            return delivery.drain(0);
+        } finally {
+            delivery.cancel();
+        }
+    }
+
+    private List<T> parse(List<ByteBuffer> records)
+            throws DomainFormatException, IOException {
+        final List<T> parsed = new ArrayList<>(records.size());
+        for (ByteBuffer record : records) {
+            parsed.add(BufferedObjectParser.parse(parser, type, record));
+        }
+        return parsed;
+    }
+
+    /**
+     * Parses chunks, delivering the results to the sink in submission order.
+     */
+    private class Delivery {
+
+        private final Consumer<? super T> sink;
+        private final Deque<CompletableFuture<List<T>>> pending
+                = new ArrayDeque<>();
+        private final AtomicReference<Throwable> failure
+                = new AtomicReference<>();
+        private long count;
+
+        Delivery(Consumer<? super T> sink) {
+            this.sink = sink;
+        }
+
+        void submit(List<ByteBuffer> chunk)
+                throws DomainFormatException, IOException {
+            if (executor == null) {
+                deliver(parse(chunk));
+                return;
+            }
+            pending.add(CompletableFuture.supplyAsync(() -> {
+                if (failure.get() != null) {
+                    return null; //ingest already failed, skip
+                }
+                try {
+                    return parse(chunk);
+                } catch (DomainFormatException | IOException | RuntimeException
+                        | Error ex) {
+                    failure.compareAndSet(null, ex);
+                    return null;
+                }
+            }, executor));
+            drain(maxPending);
+        }
+
+        /**
+         * Deliver completed chunks until no more than {@code remaining} are
+         * pending.
+         *
+         * @return number of records delivered
+         */
+        long drain(int remaining) throws DomainFormatException, IOException {
+            while (pending.size() > remaining) {
+                final List<T> parsed = pending.remove().join();
+                if (parsed == null) {
+                    rethrow(failure.get()); //chunk skipped after a failure
+                }
+                deliver(parsed);
+            }
+            return count;
+        }
+
+        void cancel() {
+            failure.compareAndSet(null, new CancellationException());
+            pending.forEach((f) -> f.cancel(false));
+            pending.clear();
+        }
+
+        private void rethrow(Throwable cause)
+                throws DomainFormatException, IOException {
+            if (cause instanceof DomainFormatException) {
+                throw (DomainFormatException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new DomainFormatException("Record parsing failed.", cause);
+        }
+
+        private void deliver(List<T> parsed) {
+            parsed.forEach(sink);
+            count += parsed.size();
+        }
+    }
+}
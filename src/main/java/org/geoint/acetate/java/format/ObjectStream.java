@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.format;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.geoint.acetate.format.DomainFormatException;
+
+/**
+ * Pull-based sequence of parsed domain objects.
+ * <p>
+ * Objects are read from the underlying input one at a time, as they are
+ * requested. Closing the stream releases the input, so a caller may stop
+ * reading at any point. Parse failures during iteration are thrown as
+ * {@link ObjectStreamException}.
+ * <p>
+ * Object streams are not thread-safe.
+ *
+ * @author steve_siebert
+ * @param <T> object type
+ * @see StreamingObjectParser
+ */
+public abstract class ObjectStream<T> implements Iterator<T>, Closeable {
+
+    private final Closeable input;
+    private T next;
+    private boolean done;
+
+    /**
+     *
+     * @param input input the objects are read from, closed with the stream
+     */
+    protected ObjectStream(Closeable input) {
+        this.input = input;
+    }
+
+    /**
+     * Read the next object from the input.
+     *
+     * @return next object or null if the input is exhausted
+     * @throws DomainFormatException if the object could not be parsed
+     * @throws IOException if the input could not be read
+     */
+    protected abstract T read() throws DomainFormatException, IOException;
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (done) {
+            return false;
+        }
+        try {
+            next = read();
+        } catch (DomainFormatException | IOException ex) {
+            done = true;
+            throw new ObjectStreamException(ex);
+        }
+        if (next == null) {
+            done = true;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final T obj = next;
+        next = null;
+        return obj;
+    }
+
+    /**
+     * Ordered, non-null spliterator of the remaining objects.
+     *
+     * @return spliterator
+     */
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    /**
+     * Sequential stream of the remaining objects; closing the returned
+     * stream closes this object stream.
+     *
+     * @return stream
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (IOException ex) {
+                        throw new ObjectStreamException(ex);
+                    }
+                });
+    }
+
+    /**
+     * Stop reading and release the input.
+     *
+     * @throws IOException if the input could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        done = true;
+        next = null;
+        input.close();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.format;
+
+import java.nio.ByteBuffer;
+import org.geoint.acetate.format.DomainFormatException;
+
+/**
+ * Finds the boundaries of the formatted records in a buffer, so the records
+ * can be parsed independently.
+ * <p>
+ * Implementations must be thread-safe.
+ *
+ * @author steve_siebert
+ * @see MappedIngester
+ */
+@FunctionalInterface
+public interface RecordSplitter {
+
+    /**
+     * Read the next record of the buffer.
+     * <p>
+     * If a complete record is remaining the buffer position is advanced past
+     * the record, including any framing bytes, and the record is returned as
+     * a slice of the buffer. Otherwise the buffer position is not changed.
+     *
+     * @param buffer formatted records
+     * @param endOfInput true if no bytes follow the buffer limit
+     * @return record slice, or null if the buffer does not have a complete
+     * record remaining
+     * @throws DomainFormatException if the record framing is invalid
+     */
+    ByteBuffer next(ByteBuffer buffer, boolean endOfInput)
+            throws DomainFormatException;
+
+    /**
+     * Records terminated by a delimiter byte, such as newline delimited text.
+     * <p>
+     * The last record of the input need not be terminated. Empty records are
+     * skipped.
+     *
+     * @param delimiter record delimiter
+     * @return delimited record splitter
+     */
+    static RecordSplitter delimited(byte delimiter) {
+        return (buffer, endOfInput) -> {
+            int start = buffer.position();
+            for (int i = start; i < buffer.limit(); i++) {
+                if (buffer.get(i) != delimiter) {
+                    continue;
+                }
+                if (i == start) {
+                    start++; //empty record
+                    continue;
+                }
+                buffer.position(i + 1);
+                return slice(buffer, start, i);
+            }
+            if (endOfInput) {
+                buffer.position(buffer.limit());
+                return (start == buffer.limit())
+                        ? null
+                        : slice(buffer, start, buffer.limit());
+            }
+            return null;
+        };
+    }
+
+    /**
+     * Records prefixed with their length as a four byte big-endian integer.
+     *
+     * @return length prefixed record splitter
+     */
+    static RecordSplitter lengthPrefixed() {
+        return (buffer, endOfInput) -> {
+            final int start = buffer.position();
+            if (buffer.remaining() < Integer.BYTES) {
+                return null;
+            }
+            final int length = buffer.getInt(start);
+            if (length < 0) {
+                throw new DomainFormatException(String.format("Invalid "
+                        + "record length %d.", length));
+            }
+            final int from = start + Integer.BYTES;
+            if (buffer.limit() - from < length) {
+                return null;
+            }
+            buffer.position(from + length);
+            return slice(buffer, from, from + length);
+        };
+    }
+
+    /**
+     * Slice a range of the buffer, independent of the buffer position.
+     *
+     * @param buffer source buffer
+     * @param from start index, inclusive
+     * @param to end index, exclusive
+     * @return slice
+     */
+    static ByteBuffer slice(ByteBuffer buffer, int from, int to) {
+        final ByteBuffer d = buffer.duplicate();
+        d.limit(to).position(from);
+        return d.slice();
+    }
+}
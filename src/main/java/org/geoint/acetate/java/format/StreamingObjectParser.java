@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.format;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import org.geoint.acetate.format.DomainFormatException;
+import org.geoint.acetate.format.TypeFormat;
+import org.geoint.acetate.model.DomainType;
+
+/**
+ * Parser which reads a sequence of domain objects from a single input,
+ * binding each object only as it is requested.
+ * <p>
+ * Unlike {@link ObjectParser}, the input is not materialized: the returned
+ * stream holds only the object being read, so inputs of any size may be
+ * parsed in constant memory.
+ *
+ * @author steve_siebert
+ * @param <T> object type
+ * @see org.geoint.acetate.java.model.DomainClassRegistry#findStreamingParser
+ */
+public interface StreamingObjectParser<T> {
+
+    boolean supports(TypeFormat typeFormat);
+
+    /**
+     * Determine if the parsed objects are instances of the class.
+     * <p>
+     * Parsers which cannot tell the class of their objects return false (the
+     * default), so they are only found by format.
+     *
+     * @param objectClass class the objects are used as
+     * @return true if every parsed object is an instance of the class
+     */
+    default boolean produces(Class<?> objectClass) {
+        return false;
+    }
+
+    /**
+     * Open a stream of the objects formatted in the input.
+     * <p>
+     * The input is owned by the returned stream and is closed with it.
+     *
+     * @param type domain type of the formatted objects
+     * @param in formatted input
+     * @return object stream
+     * @throws DomainFormatException if the input is not of a supported format
+     * @throws IOException if the input could not be read
+     */
+    ObjectStream<T> open(DomainType type, InputStream in)
+            throws DomainFormatException, IOException;
+
+    /**
+     * Open a stream of the objects formatted in the channel.
+     * <p>
+     * The channel is owned by the returned stream and is closed with it.
+     *
+     * @param type domain type of the formatted objects
+     * @param channel formatted input
+     * @return object stream
+     * @throws DomainFormatException if the input is not of a supported format
+     * @throws IOException if the input could not be read
+     */
+    default ObjectStream<T> open(DomainType type, ReadableByteChannel channel)
+            throws DomainFormatException, IOException {
+        return open(type, Channels.newInputStream(channel));
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.format.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.geoint.acetate.DomainInstantiationException;
+import org.geoint.acetate.format.DomainFormatException;
+import org.geoint.acetate.format.FormattedType;
+import org.geoint.acetate.java.bind.ObjectTypeInstance;
+import org.geoint.acetate.java.format.ObjectParser;
+import org.geoint.acetate.java.model.DomainClassRegistry;
+import org.geoint.acetate.model.TypeDescriptor;
+import static org.geoint.acetate.java.format.binary.BinaryEncoder.*;
+
+/**
+ * Reads domain objects in the binary format.
+ *
+ * @author steve_siebert
+ * @see BinaryEncoder
+ */
+final class BinaryDecoder {
+
+    private static final int MAX_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final DomainClassRegistry registry;
+    private final BinarySchema schema;
+
+    BinaryDecoder(DomainClassRegistry registry, BinarySchema schema) {
+        this.registry = registry;
+        this.schema = schema;
+    }
+
+    /**
+     * Read the next domain object.
+     *
+     * @param in input, should be buffered
+     * @return domain object or null if the input is exhausted
+     * @throws DomainFormatException if the input is not a valid instance
+     * @throws IOException if the input could not be read
+     */
+    Object read(InputStream in) throws DomainFormatException, IOException {
+        final int first = in.read();
+        return (first == -1) ? null : bind(readInstance(in, first));
+    }
+
+    private ObjectTypeInstance<?> readInstance(InputStream in, int first)
+            throws DomainFormatException, IOException {
+        final TypeDescriptor td = readHeader(in, first);
+        final BinarySchema.Fields fields = schema.fields(td);
+        if (fields == null) {
+            throw new DomainFormatException(String.format("Type '%s' is not "
+                    + "known to the binary schema.", td));
+        }
+
+        final Map<String, Object> composites = new HashMap<>();
+        for (long tag = readVarint(in, in.read()); tag != 0;
+                tag = readVarint(in, in.read())) {
+            final long id = tag >>> KIND_BITS;
+            final int kind = (int) (tag & KIND_MASK);
+            final String name = (id > BinarySchema.MAX_FIELD_ID)
+                    ? null
+                    : fields.namesById.get((int) id);
+            if (name == null) {
+                //field unknown to this schema (ie since removed)
+                skipValue(in, kind);
+                continue;
+            }
+            composites.put(name, readValue(in, kind));
+        }
+        return ObjectTypeInstance.newInstance(td, composites);
+    }
+
+    /**
+     * Read past a value without binding it.
+     */
+    private static void skipValue(InputStream in, int kind)
+            throws DomainFormatException, IOException {
+        switch (kind) {
+            case KIND_NULL:
+            case KIND_FALSE:
+            case KIND_TRUE:
+                break;
+            case KIND_INT:
+            case KIND_LONG:
+            case KIND_SHORT:
+            case KIND_CHAR:
+                readVarint(in, in.read());
+                break;
+            case KIND_FLOAT:
+                readFixed(in, 4);
+                break;
+            case KIND_DOUBLE:
+                readFixed(in, 8);
+                break;
+            case KIND_BYTE:
+                readFixed(in, 1);
+                break;
+            case KIND_STRING:
+            case KIND_BYTES:
+                skipBytes(in);
+                break;
+            case KIND_INSTANCE:
+                skipHeader(in, in.read());
+                for (long tag = readVarint(in, in.read()); tag != 0;
+                        tag = readVarint(in, in.read())) {
+                    skipValue(in, (int) (tag & KIND_MASK));
+                }
+                break;
+            case KIND_LIST:
+                final int size = readLength(in);
+                for (int i = 0; i < size; i++) {
+                    skipValue(in, (int) readVarint(in, in.read()));
+                }
+                break;
+            case KIND_VALUE:
+                skipHeader(in, in.read());
+                skipBytes(in);
+                break;
+            default:
+                throw new DomainFormatException(String.format("Unknown binary "
+                        + "value kind %d.", kind));
+        }
+    }
+
+    private static void skipHeader(InputStream in, int first)
+            throws IOException {
+        if (readVarint(in, first) == 0) {
+            skipBytes(in);
+            skipBytes(in);
+            skipBytes(in);
+        }
+    }
+
+    private static void skipBytes(InputStream in) throws IOException {
+        long remaining = readLength(in);
+        while (remaining > 0) {
+            final long n = in.skip(remaining);
+            if (n <= 0) {
+                if (in.read() == -1) {
+                    throw new EOFException();
+                }
+                remaining--;
+            } else {
+                remaining -= n;
+            }
+        }
+    }
+
+    private TypeDescriptor readHeader(InputStream in, int first)
+            throws DomainFormatException, IOException {
+        final long header = readVarint(in, first);
+        if (header == 0) {
+            return new TypeDescriptor(readString(in), readString(in),
+                    readString(in));
+        }
+        return schema.findDescriptor((int) (header - 1))
+                .orElseThrow(() -> new DomainFormatException(String.format(
+                        "Unknown binary type id %d.", header - 1)));
+    }
+
+    /**
+     * Parse a domain value with the default parser of its class.
+     */
+    private Object readDomainValue(InputStream in)
+            throws DomainFormatException, IOException {
+        final TypeDescriptor td = readHeader(in, in.read());
+        final byte[] formatted = readBytes(in);
+        final Class<?> valueClass = registry.findClass(td)
+                .orElseThrow(() -> new DomainFormatException(String.format(
+                        "No class is registered for value type '%s'.", td)));
+        final ObjectParser<?> parser = registry.findObjectParser(valueClass)
+                .orElseThrow(() -> new DomainFormatException(String.format(
+                        "Class '%s' does not define a parser.",
+                        valueClass.getName())));
+        return parser.parse(registry.findType(valueClass).orElse(null),
+                new FormattedType() {
+            @Override
+            public InputStream getFormatted() {
+                return new ByteArrayInputStream(formatted);
+            }
+        });
+    }
+
+    private Object readValue(InputStream in, int kind)
+            throws DomainFormatException, IOException {
+        switch (kind) {
+            case KIND_NULL:
+                return null;
+            case KIND_FALSE:
+                return Boolean.FALSE;
+            case KIND_TRUE:
+                return Boolean.TRUE;
+            case KIND_INT:
+                return (int) unzigzag(readVarint(in, in.read()));
+            case KIND_LONG:
+                return unzigzag(readVarint(in, in.read()));
+            case KIND_FLOAT:
+                return Float.intBitsToFloat((int) readFixed(in, 4));
+            case KIND_DOUBLE:
+                return Double.longBitsToDouble(readFixed(in, 8));
+            case KIND_STRING:
+                return readString(in);
+            case KIND_BYTES:
+                return readBytes(in);
+            case KIND_INSTANCE:
+                return bind(readInstance(in, in.read()));
+            case KIND_LIST:
+                final int size = readLength(in);
+                final List<Object> elements = new ArrayList<>(Math.min(size, 1024));
+                for (int i = 0; i < size; i++) {
+                    elements.add(readValue(in, (int) readVarint(in, in.read())));
+                }
+                return elements;
+            case KIND_SHORT:
+                return (short) unzigzag(readVarint(in, in.read()));
+            case KIND_BYTE:
+                return (byte) readFixed(in, 1);
+            case KIND_CHAR:
+                return (char) readVarint(in, in.read());
+            case KIND_VALUE:
+                return readDomainValue(in);
+            default:
+                throw new DomainFormatException(String.format("Unknown binary "
+                        + "value kind %d.", kind));
+        }
+    }
+
+    private Object bind(ObjectTypeInstance<?> instance)
+            throws DomainFormatException {
+        try {
+            return registry.asObject(instance);
+        } catch (DomainInstantiationException ex) {
+            throw new DomainFormatException(String.format("Unable to bind "
+                    + "instance of type '%s'.", instance.getTypeDescriptor()), ex);
+        }
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(InputStream in) throws IOException {
+        final byte[] bytes = new byte[readLength(in)];
+        int read = 0;
+        while (read < bytes.length) {
+            final int n = in.read(bytes, read, bytes.length - read);
+            if (n == -1) {
+                throw new EOFException();
+            }
+            read += n;
+        }
+        return bytes;
+    }
+
+    private static int readLength(InputStream in) throws IOException {
+        final long length = readVarint(in, in.read());
+        if (length > MAX_LENGTH) {
+            throw new IOException(String.format("Binary length %d exceeds "
+                    + "maximum.", length));
+        }
+        return (int) length;
+    }
+
+    /**
+     * Read a big-endian fixed width value.
+     */
+    private static long readFixed(InputStream in, int bytes) throws IOException {
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            final int b = in.read();
+            if (b == -1) {
+                throw new EOFException();
+            }
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+
+    /**
+     * Read an unsigned LEB128 varint.
+     *
+     * @param first first byte, already read from the input
+     */
+    private static long readVarint(InputStream in, int first) throws IOException {
+        long value = 0;
+        int b = first;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (b == -1) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            b = in.read();
+        }
+        throw new IOException("Malformed binary varint.");
+    }
+}
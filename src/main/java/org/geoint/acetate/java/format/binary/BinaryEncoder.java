@@ -0,0 +1,252 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.format.binary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import org.geoint.acetate.DomainException;
+import org.geoint.acetate.DomainInstantiationException;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.format.Format;
+import org.geoint.acetate.format.TypeFormattingException;
+import org.geoint.acetate.java.bind.ObjectTypeInstance;
+import org.geoint.acetate.java.model.DomainClassRegistry;
+import org.geoint.acetate.model.TypeDescriptor;
+
+/**
+ * Writes domain instances in the binary format.
+ * <p>
+ * Composite tags are varints of {@code fieldId << 4 | kind}, with the field
+ * ids of the {@link BinarySchema}; a zero tag ends the instance. The instance
+ * header is the varint {@code typeId + 1}, or zero followed by the namespace,
+ * version and type name of the type. Fixed width values are big-endian,
+ * whatever the byte order of the destination buffer.
+ * <p>
+ * Composites whose class defines a default formatter (domain values) are
+ * written as a type header followed by the length-delimited output of that
+ * formatter.
+ *
+ * @author steve_siebert
+ */
+final class BinaryEncoder {
+
+    static final int KIND_NULL = 0; //list elements only
+    static final int KIND_FALSE = 1;
+    static final int KIND_TRUE = 2;
+    static final int KIND_INT = 3;
+    static final int KIND_LONG = 4;
+    static final int KIND_FLOAT = 5;
+    static final int KIND_DOUBLE = 6;
+    static final int KIND_STRING = 7;
+    static final int KIND_BYTES = 8;
+    static final int KIND_INSTANCE = 9;
+    static final int KIND_LIST = 10;
+    static final int KIND_SHORT = 11;
+    static final int KIND_BYTE = 12;
+    static final int KIND_CHAR = 13;
+    static final int KIND_VALUE = 14;
+    static final int KIND_BITS = 4;
+    static final int KIND_MASK = (1 << KIND_BITS) - 1;
+
+    private final DomainClassRegistry registry;
+    private final BinarySchema schema;
+
+    BinaryEncoder(DomainClassRegistry registry, BinarySchema schema) {
+        this.registry = registry;
+        this.schema = schema;
+    }
+
+    /**
+     * Write the instance.
+     *
+     * @param format format passed to the formatters of composite values
+     * @param instance domain instance
+     * @param buffer destination buffer
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     * @throws TypeFormattingException if the instance cannot be formatted
+     */
+    void write(Format format, TypeInstance instance, ByteBuffer buffer)
+            throws TypeFormattingException {
+        final ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        try {
+            writeInstance(format, instance, buffer);
+        } finally {
+            buffer.order(order);
+        }
+    }
+
+    private void writeInstance(Format format, TypeInstance instance,
+            ByteBuffer buffer) throws TypeFormattingException {
+        if (!(instance instanceof ObjectTypeInstance)) {
+            throw new TypeFormattingException(String.format("Unable to format "
+                    + "instance of type '%s', binary format requires an "
+                    + "ObjectTypeInstance.", instance.getTypeDescriptor()));
+        }
+        final ObjectTypeInstance<?> oi = (ObjectTypeInstance<?>) instance;
+        final TypeDescriptor td = oi.getTypeDescriptor();
+        final BinarySchema.Fields fields = schema.fields(td);
+        if (fields == null) {
+            throw new TypeFormattingException(String.format("Type '%s' is not "
+                    + "known to the binary schema.", td));
+        }
+
+        writeHeader(buffer, td);
+
+        final List<String> names = oi.getCompositeNames();
+        final boolean aligned = names.equals(fields.names);
+        for (int i = 0; i < names.size(); i++) {
+            final Optional<Object> value = oi.findComposite(names.get(i));
+            if (!value.isPresent()) {
+                continue;
+            }
+            final Integer id = aligned ? Integer.valueOf(fields.ids[i])
+                    : fields.idsByName.get(names.get(i));
+            if (id == null) {
+                throw new TypeFormattingException(String.format("Composite "
+                        + "'%s' of type '%s' is not known to the binary schema.",
+                        names.get(i), td));
+            }
+            final long tag = (long) id << KIND_BITS;
+            writeValue(format, buffer, tag, value.get());
+        }
+        buffer.put((byte) 0);
+    }
+
+    private void writeHeader(ByteBuffer buffer, TypeDescriptor td) {
+        final OptionalInt id = schema.findId(td);
+        if (id.isPresent()) {
+            writeVarint(buffer, id.getAsInt() + 1L);
+        } else {
+            buffer.put((byte) 0);
+            writeString(buffer, td.getNamespace());
+            writeString(buffer, td.getVersion());
+            writeString(buffer, td.getType());
+        }
+    }
+
+    /**
+     * Write a value prefixed by the tag (with the kind of the value added).
+     */
+    private void writeValue(Format format, ByteBuffer buffer, long tag,
+            Object value) throws TypeFormattingException {
+        if (value == null) {
+            writeVarint(buffer, tag | KIND_NULL);
+        } else if (value instanceof Boolean) {
+            writeVarint(buffer, tag | ((Boolean) value ? KIND_TRUE : KIND_FALSE));
+        } else if (value instanceof Integer) {
+            writeVarint(buffer, tag | KIND_INT);
+            writeVarint(buffer, zigzag((Integer) value));
+        } else if (value instanceof Long) {
+            writeVarint(buffer, tag | KIND_LONG);
+            writeVarint(buffer, zigzag((Long) value));
+        } else if (value instanceof Double) {
+            writeVarint(buffer, tag | KIND_DOUBLE);
+            buffer.putDouble((Double) value);
+        } else if (value instanceof Float) {
+            writeVarint(buffer, tag | KIND_FLOAT);
+            buffer.putFloat((Float) value);
+        } else if (value instanceof String) {
+            writeVarint(buffer, tag | KIND_STRING);
+            writeString(buffer, (String) value);
+        } else if (value instanceof byte[]) {
+            final byte[] bytes = (byte[]) value;
+            writeVarint(buffer, tag | KIND_BYTES);
+            writeVarint(buffer, bytes.length);
+            buffer.put(bytes);
+        } else if (value instanceof Short) {
+            writeVarint(buffer, tag | KIND_SHORT);
+            writeVarint(buffer, zigzag((Short) value));
+        } else if (value instanceof Byte) {
+            writeVarint(buffer, tag | KIND_BYTE);
+            buffer.put((Byte) value);
+        } else if (value instanceof Character) {
+            writeVarint(buffer, tag | KIND_CHAR);
+            writeVarint(buffer, (Character) value);
+        } else if (value instanceof Collection) {
+            final Collection<?> elements = (Collection<?>) value;
+            writeVarint(buffer, tag | KIND_LIST);
+            writeVarint(buffer, elements.size());
+            for (Object e : elements) {
+                writeValue(format, buffer, 0, e);
+            }
+        } else if (registry.findObjectFormatter(value.getClass()).isPresent()) {
+            writeVarint(buffer, tag | KIND_VALUE);
+            writeHeader(buffer, registry.findTypeDescriptor(value.getClass())
+                    .orElseThrow(() -> unsupported(value)));
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                registry.format(format, value, out);
+            } catch (IOException | DomainException ex) {
+                throw new TypeFormattingException(String.format("Unable to "
+                        + "format composite value of class '%s'.",
+                        value.getClass().getName()), ex);
+            }
+            writeVarint(buffer, out.size());
+            buffer.put(out.toByteArray());
+        } else {
+            final Optional<TypeInstance> nested;
+            try {
+                nested = registry.findTypeInstance(value);
+            } catch (DomainInstantiationException ex) {
+                throw new TypeFormattingException(String.format("Unable to "
+                        + "bind composite value of class '%s'.",
+                        value.getClass().getName()), ex);
+            }
+            writeVarint(buffer, tag | KIND_INSTANCE);
+            writeInstance(format, nested.orElseThrow(() -> unsupported(value)),
+                    buffer);
+        }
+    }
+
+    private static TypeFormattingException unsupported(Object value) {
+        return new TypeFormattingException(String.format("Values of class "
+                + "'%s' are not supported by the binary format.",
+                value.getClass().getName()));
+    }
+
+    static void writeString(ByteBuffer buffer, String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Write an unsigned LEB128 varint.
+     */
+    static void writeVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
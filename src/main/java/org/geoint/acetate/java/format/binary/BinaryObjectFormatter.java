@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.format.binary;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.format.Format;
+import org.geoint.acetate.format.TypeFormat;
+import org.geoint.acetate.format.TypeFormattingException;
+import org.geoint.acetate.java.format.BufferedObjectFormatter;
+import org.geoint.acetate.java.model.DomainClassRegistry;
+
+/**
+ * Formats domain objects in the compact binary format.
+ * <p>
+ * Domain values are written with the default formatter of their class, linked
+ * resources (and other domain objects known to the registry) as nested
+ * instances. Instances bound by custom binders may also hold java primitives
+ * (boxed), strings, byte arrays and collections of these.
+ * <p>
+ * Instances of this class are thread-safe.
+ *
+ * @author steve_siebert
+ * @param <T> object type
+ * @see BinaryObjectParser
+ */
+public class BinaryObjectFormatter<T> implements BufferedObjectFormatter<T> {
+
+    private final TypeFormat format;
+    private final BinaryEncoder encoder;
+    private volatile int lastSize = DEFAULT_CAPACITY;
+
+    /**
+     *
+     * @param format type format this formatter is registered as
+     * @param registry registry used to bind nested domain objects
+     * @param schema binary schema
+     */
+    public BinaryObjectFormatter(TypeFormat format, DomainClassRegistry registry,
+            BinarySchema schema) {
+        this.format = format;
+        this.encoder = new BinaryEncoder(registry, schema);
+    }
+
+    @Override
+    public boolean supports(TypeFormat format) {
+        return this.format.equals(format);
+    }
+
+    /**
+     * Estimates the size as the size of the last formatted object.
+     */
+    @Override
+    public int estimateSize(Format format, T obj, TypeInstance instance) {
+        return lastSize;
+    }
+
+    @Override
+    public boolean format(Format format, T obj, TypeInstance instance,
+            ByteBuffer buffer) throws TypeFormattingException {
+        final int start = buffer.position();
+        try {
+            encoder.write(format, instance, buffer);
+        } catch (BufferOverflowException ex) {
+            return false;
+        }
+        lastSize = buffer.position() - start;
+        return true;
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.format.binary;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.geoint.acetate.format.DomainFormatException;
+import org.geoint.acetate.format.FormattedType;
+import org.geoint.acetate.format.TypeFormat;
+import org.geoint.acetate.java.format.ObjectParser;
+import org.geoint.acetate.java.format.ObjectStream;
+import org.geoint.acetate.java.format.StreamingObjectParser;
+import org.geoint.acetate.java.model.DomainClassRegistry;
+import org.geoint.acetate.model.DomainType;
+
+/**
+ * Parses domain objects in the compact binary format, either one object at a
+ * time or as a stream of consecutive objects.
+ * <p>
+ * Instances of this class are thread-safe.
+ *
+ * @author steve_siebert
+ * @param <T> object type
+ * @see BinaryObjectFormatter
+ */
+public class BinaryObjectParser<T>
+        implements ObjectParser<T>, StreamingObjectParser<T> {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Class<T> type;
+    private final TypeFormat format;
+    private final BinaryDecoder decoder;
+
+    /**
+     *
+     * @param type class of the parsed objects
+     * @param format type format this parser is registered as
+     * @param registry registry used to bind the parsed instances
+     * @param schema binary schema
+     */
+    public BinaryObjectParser(Class<T> type, TypeFormat format,
+            DomainClassRegistry registry, BinarySchema schema) {
+        this.type = type;
+        this.format = format;
+        this.decoder = new BinaryDecoder(registry, schema);
+    }
+
+    @Override
+    public boolean supports(TypeFormat typeFormat) {
+        return format.equals(typeFormat);
+    }
+
+    @Override
+    public boolean produces(Class<?> objectClass) {
+        return objectClass.isAssignableFrom(type);
+    }
+
+    @Override
+    public T parse(DomainType domainType, FormattedType formatted)
+            throws DomainFormatException, IOException {
+        try (InputStream in = buffered(formatted.getFormatted())) {
+            final Object obj = decoder.read(in);
+            if (obj == null) {
+                throw new DomainFormatException("Binary input is empty.");
+            }
+            return cast(obj);
+        }
+    }
+
+    @Override
+    public ObjectStream<T> open(DomainType domainType, InputStream in)
+            throws DomainFormatException, IOException {
+        final InputStream bin = buffered(in);
+        return new ObjectStream<T>(bin) {
+            @Override
+            protected T read() throws DomainFormatException, IOException {
+                final Object obj = decoder.read(bin);
+                return (obj == null) ? null : cast(obj);
+            }
+        };
+    }
+
+    private T cast(Object obj) throws DomainFormatException {
+        if (!type.isInstance(obj)) {
+            throw new DomainFormatException(String.format("Expected binary "
+                    + "instance of class '%s' but was '%s'.", type.getName(),
+                    obj.getClass().getName()));
+        }
+        return type.cast(obj);
+    }
+
+    private static InputStream buffered(InputStream in) {
+        return (in instanceof BufferedInputStream)
+                ? in
+                : new BufferedInputStream(in, BUFFER_SIZE);
+    }
+}
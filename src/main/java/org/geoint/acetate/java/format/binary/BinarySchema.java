@@ -0,0 +1,237 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.format.binary;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.geoint.acetate.java.bind.AccessorBinder;
+import org.geoint.acetate.java.model.DomainClassRegistry;
+import org.geoint.acetate.model.TypeDescriptor;
+
+/**
+ * Composite layout and numeric type ids shared by the binary formatter and
+ * parser.
+ * <p>
+ * Each composite is tagged with a field id, either declared by its
+ * {@link org.geoint.acetate.java.model.Accessor#id() accessor} or derived
+ * from a hash of its name, so adding, removing or reordering composites does
+ * not change the tags of the others. Parsers skip fields whose ids are not
+ * known to their schema. Types not explicitly registered are resolved through
+ * the function the schema was created with.
+ * <p>
+ * Instances of this class are thread-safe.
+ *
+ * @author steve_siebert
+ */
+public final class BinarySchema {
+
+    /**
+     * Largest field id; field ids are between 1 and this value.
+     */
+    public static final int MAX_FIELD_ID = (1 << 24) - 1;
+
+    private final Function<TypeDescriptor, Optional<Fields>> resolver;
+    private final Map<TypeDescriptor, Fields> fields = new ConcurrentHashMap<>();
+    private final Map<TypeDescriptor, Integer> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, TypeDescriptor> descriptors
+            = new ConcurrentHashMap<>();
+
+    /**
+     * Create a schema which only knows explicitly registered types.
+     */
+    public BinarySchema() {
+        this((td) -> Optional.empty());
+    }
+
+    /**
+     *
+     * @param resolver resolves the composite names of types which were not
+     * explicitly registered
+     */
+    public BinarySchema(
+            Function<TypeDescriptor, Optional<List<String>>> resolver) {
+        this.resolver = (td) -> resolver.apply(td)
+                .map((names) -> new Fields(names, Collections.emptyMap()));
+    }
+
+    private BinarySchema(DomainClassRegistry registry) {
+        this.resolver = (td) -> registry.findBinder(td, AccessorBinder.class)
+                .map((b) -> new Fields(b.getAccessorNames(),
+                        b.getAccessorIds()));
+    }
+
+    /**
+     * Create a schema which resolves the composites of types bound by an
+     * {@link AccessorBinder} in the registry, using the ids declared by the
+     * accessors.
+     *
+     * @param registry domain class registry
+     * @return schema
+     */
+    public static BinarySchema forRegistry(DomainClassRegistry registry) {
+        return new BinarySchema(registry);
+    }
+
+    /**
+     * Register the composites of a domain type, deriving the field ids from
+     * the composite names.
+     *
+     * @param td domain type
+     * @param compositeNames composite names
+     * @throws IllegalArgumentException if two names derive the same id
+     */
+    public void register(TypeDescriptor td, List<String> compositeNames) {
+        register(td, compositeNames, Collections.emptyMap());
+    }
+
+    /**
+     * Register the composites of a domain type.
+     *
+     * @param td domain type
+     * @param compositeNames composite names
+     * @param fieldIds declared field ids by composite name; ids of composites
+     * not included are derived from their names
+     * @throws IllegalArgumentException if an id is out of range or used by
+     * two composites
+     */
+    public void register(TypeDescriptor td, List<String> compositeNames,
+            Map<String, Integer> fieldIds) {
+        fields.put(td, new Fields(compositeNames, fieldIds));
+    }
+    /**
+     * Register the numeric id written in place of the type descriptor.
+     *
+     * @param td domain type
+     * @param typeId non-negative type id
+     * @throws IllegalArgumentException if the type or id is already mapped
+     */
+    public synchronized void registerId(TypeDescriptor td, int typeId) {
+        if (typeId < 0) {
+            throw new IllegalArgumentException("Type id must not be negative.");
+        }
+        final Integer existingId = ids.get(td);
+        final TypeDescriptor existingType = descriptors.get(typeId);
+        if (existingId != null || existingType != null) {
+            if (td.equals(existingType)) {
+                return;
+            }
+            throw new IllegalArgumentException(String.format("Unable to map "
+                    + "type '%s' to id %d, already mapped to %s.", td, typeId,
+                    (existingId != null) ? "id " + existingId : existingType));
+        }
+        descriptors.put(typeId, td);
+        ids.put(td, typeId);
+    }
+
+    public OptionalInt findId(TypeDescriptor td) {
+        final Integer id = ids.get(td);
+        return (id == null) ? OptionalInt.empty() : OptionalInt.of(id);
+    }
+
+    public Optional<TypeDescriptor> findDescriptor(int typeId) {
+        return Optional.ofNullable(descriptors.get(typeId));
+    }
+
+    /**
+     * Composite names of the type.
+     *
+     * @param td domain type
+     * @return composite names or empty if the type is not known to the schema
+     */
+    public Optional<List<String>> findComposites(TypeDescriptor td) {
+        return Optional.ofNullable(fields(td)).map((f) -> f.names);
+    }
+
+    /**
+     * @return composite layout or null if the type is unknown
+     */
+    Fields fields(TypeDescriptor td) {
+        Fields f = fields.get(td);
+        if (f == null) {
+            f = resolver.apply(td).orElse(null);
+            if (f != null) {
+                final Fields existing = fields.putIfAbsent(td, f);
+                f = (existing == null) ? f : existing;
+            }
+        }
+        return f;
+    }
+
+    /**
+     * Field id derived from a composite name: the 32-bit FNV-1a hash of the
+     * UTF-8 name, reduced to the field id range.
+     *
+     * @param compositeName composite name
+     * @return field id
+     */
+    public static int fieldId(String compositeName) {
+        int hash = 0x811c9dc5;
+        for (byte b : compositeName.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x01000193;
+        }
+        return 1 + Integer.remainderUnsigned(hash, MAX_FIELD_ID);
+    }
+
+    /**
+     * Composite layout of a domain type.
+     */
+    static final class Fields {
+
+        final List<String> names;
+        final int[] ids; //field id of each name
+        final Map<String, Integer> idsByName;
+        final Map<Integer, String> namesById;
+
+        Fields(List<String> names, Map<String, Integer> declared) {
+            this.names = Collections.unmodifiableList(
+                    Arrays.asList(names.toArray(new String[0])));
+            this.ids = new int[names.size()];
+            final Map<String, Integer> byName = new HashMap<>();
+            final Map<Integer, String> byId = new HashMap<>();
+            for (int n = 0; n < names.size(); n++) {
+                final String name = names.get(n);
+                final Integer id = declared.containsKey(name)
+                        ? declared.get(name)
+                        : Integer.valueOf(fieldId(name));
+                if (id < 1 || id > MAX_FIELD_ID) {
+                    throw new IllegalArgumentException(String.format("Field "
+                            + "id %d of composite '%s' is not between 1 and "
+                            + "%d.", id, name, MAX_FIELD_ID));
+                }
+                final String existing = byId.putIfAbsent(id, name);
+                if (existing != null) {
+                    throw new IllegalArgumentException(String.format(
+                            "Composites '%s' and '%s' share field id %d; "
+                            + "declare an id for one of them.", existing,
+                            name, id));
+                }
+                ids[n] = id;
+                byName.put(name, id);
+            }
+            this.idsByName = Collections.unmodifiableMap(byName);
+            this.namesById = Collections.unmodifiableMap(byId);
+        }
+    }
+}
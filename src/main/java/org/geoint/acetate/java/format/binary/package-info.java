@@ -0,0 +1,32 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * Compact binary format for domain instances, using the composites of the
+ * domain type as the schema.
+ * <p>
+ * Each formatted instance is a header identifying the domain type (a numeric
+ * type id, or the namespace, version and type name) followed by the non-null
+ * composites of the instance, each prefixed by a varint tag holding the field
+ * id of the composite and the kind of the value. Composite names are never
+ * written; field ids are declared by the accessors or derived from the
+ * composite names, so both sides need only agree on the composites they share
+ * (see {@link org.geoint.acetate.java.format.binary.BinarySchema}).
+ * <p>
+ * Instances are self-delimiting, so a sequence of instances may be written to
+ * one stream and read back with
+ * {@link org.geoint.acetate.java.format.binary.BinaryObjectParser#open}.
+ */
+package org.geoint.acetate.java.format.binary;
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent latency histogram with power-of-two nanosecond buckets.
+ * <p>
+ * Bucket {@code i} counts latencies in {@code [2^(i-1), 2^i)} nanoseconds
+ * (bucket 0 counts latencies of 0). Recording is a single striped increment,
+ * so contended writers do not serialize; reads are approximate while writes
+ * are in progress.
+ *
+ * @author steve_siebert
+ */
+public final class LatencyHistogram {
+
+    static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder total = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos latency in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        final long n = Math.max(0, nanos);
+        buckets[BUCKETS - Long.numberOfLeadingZeros(n)].increment();
+        total.add(n);
+    }
+
+    /**
+     * Number of recorded latencies.
+     *
+     * @return count
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder b : buckets) {
+            count += b.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Mean of the recorded latencies.
+     *
+     * @return mean latency in nanoseconds, 0 if nothing was recorded
+     */
+    public long getMean() {
+        final long count = getCount();
+        return (count == 0) ? 0 : total.sum() / count;
+    }
+
+    /**
+     * Returns the upper bound of the bucket containing the percentile.
+     *
+     * @param percentile percentile, between 0 and 100
+     * @return latency upper bound in nanoseconds, 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        final long[] counts = getCounts();
+        long count = 0;
+        for (long c : counts) {
+            count += c;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = (long) Math.ceil(count * (percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return upperBound(i);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Counts of each power-of-two bucket.
+     *
+     * @return bucket counts
+     */
+    public long[] getCounts() {
+        final long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    public void reset() {
+        for (LongAdder b : buckets) {
+            b.reset();
+        }
+        total.reset();
+    }
+
+    /**
+     * Exclusive upper bound, in nanoseconds, of a bucket.
+     *
+     * @param bucket bucket index
+     * @return upper bound
+     */
+    static long upperBound(int bucket) {
+        return (bucket >= BUCKETS - 1) ? Long.MAX_VALUE : 1L << bucket;
+    }
+}
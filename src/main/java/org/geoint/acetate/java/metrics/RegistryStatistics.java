@@ -0,0 +1,261 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.geoint.acetate.java.bind.ObjectBinder;
+import org.geoint.acetate.model.TypeDescriptor;
+import org.geoint.acetate.spi.java.RegistryMetrics;
+
+/**
+ * Registry metrics collected into striped counters and latency histograms,
+ * cheap enough to leave enabled in production.
+ * <p>
+ * Install on a registry with
+ * {@link org.geoint.acetate.java.model.DomainClassRegistry#setMetrics} and
+ * optionally expose through JMX with {@link #registerMBean(String)}.
+ *
+ * @author steve_siebert
+ */
+public class RegistryStatistics implements RegistryMetrics,
+        RegistryStatisticsMXBean {
+
+    /**
+     * JMX domain of registered statistics.
+     */
+    public static final String JMX_DOMAIN = "org.geoint.acetate";
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder registrations = new LongAdder();
+    private final Map<TypeDescriptor, LongAdder> hitsByType
+            = new ConcurrentHashMap<>();
+    private final Map<TypeDescriptor, LongAdder> missesByType
+            = new ConcurrentHashMap<>();
+    private final Map<String, Long> registrationNanos
+            = new ConcurrentHashMap<>();
+    private final LatencyHistogram bindLatency = new LatencyHistogram();
+    private final LatencyHistogram formatLatency = new LatencyHistogram();
+    private final LatencyHistogram parseLatency = new LatencyHistogram();
+
+    /**
+     * Register the statistics with the platform MBean server.
+     *
+     * @param name value of the name key of the object name
+     * @return registered object name
+     * @throws JMException if the MBean could not be registered
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        final ObjectName on = new ObjectName(JMX_DOMAIN
+                + ":type=DomainClassRegistry,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+        return on;
+    }
+
+    /**
+     * Remove the statistics from the platform MBean server.
+     *
+     * @param name registered object name
+     * @throws JMException if the MBean could not be unregistered
+     */
+    public static void unregisterMBean(ObjectName name) throws JMException {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Override
+    public void binderHit(TypeDescriptor td) {
+        hits.increment();
+        counter(hitsByType, td).increment();
+    }
+
+    @Override
+    public void binderMiss(TypeDescriptor td) {
+        misses.increment();
+        if (td != null) {
+            counter(missesByType, td).increment();
+        }
+    }
+
+    @Override
+    public void defaultBinderFailure(ObjectBinder binder, Throwable ex) {
+        failures.increment();
+    }
+
+    @Override
+    public void registered(Class<?> domainClass, long nanos) {
+        registrations.increment();
+        registrationNanos.put(domainClass.getName(), nanos);
+    }
+
+    @Override
+    public void bound(long nanos) {
+        bindLatency.record(nanos);
+    }
+
+    @Override
+    public void formatted(long nanos) {
+        formatLatency.record(nanos);
+    }
+
+    @Override
+    public void parsed(long nanos) {
+        parseLatency.record(nanos);
+    }
+
+    public LatencyHistogram getBindLatency() {
+        return bindLatency;
+    }
+
+    public LatencyHistogram getFormatLatency() {
+        return formatLatency;
+    }
+
+    public LatencyHistogram getParseLatency() {
+        return parseLatency;
+    }
+
+    @Override
+    public long getBinderHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getBinderMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public Map<String, Long> getBinderHitsByType() {
+        return counts(hitsByType);
+    }
+
+    @Override
+    public Map<String, Long> getBinderMissesByType() {
+        return counts(missesByType);
+    }
+
+    @Override
+    public long getDefaultBinderFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public long getRegistrations() {
+        return registrations.sum();
+    }
+
+    @Override
+    public Map<String, Long> getRegistrationNanosByClass() {
+        return new TreeMap<>(registrationNanos);
+    }
+
+    @Override
+    public long getBindCount() {
+        return bindLatency.getCount();
+    }
+
+    @Override
+    public long getBindMeanNanos() {
+        return bindLatency.getMean();
+    }
+
+    @Override
+    public long getBind99thPercentileNanos() {
+        return bindLatency.getPercentile(99);
+    }
+
+    @Override
+    public long[] getBindHistogram() {
+        return bindLatency.getCounts();
+    }
+
+    @Override
+    public long getFormatCount() {
+        return formatLatency.getCount();
+    }
+
+    @Override
+    public long getFormatMeanNanos() {
+        return formatLatency.getMean();
+    }
+
+    @Override
+    public long getFormat99thPercentileNanos() {
+        return formatLatency.getPercentile(99);
+    }
+
+    @Override
+    public long[] getFormatHistogram() {
+        return formatLatency.getCounts();
+    }
+
+    @Override
+    public long getParseCount() {
+        return parseLatency.getCount();
+    }
+
+    @Override
+    public long getParseMeanNanos() {
+        return parseLatency.getMean();
+    }
+
+    @Override
+    public long getParse99thPercentileNanos() {
+        return parseLatency.getPercentile(99);
+    }
+
+    @Override
+    public long[] getParseHistogram() {
+        return parseLatency.getCounts();
+    }
+
+    @Override
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        failures.reset();
+        registrations.reset();
+        hitsByType.clear();
+        missesByType.clear();
+        registrationNanos.clear();
+        bindLatency.reset();
+        formatLatency.reset();
+        parseLatency.reset();
+    }
+
+    private static LongAdder counter(Map<TypeDescriptor, LongAdder> counters,
+            TypeDescriptor td) {
+        final LongAdder c = counters.get(td);
+        return (c != null) ? c : counters.computeIfAbsent(td, (k) -> new LongAdder());
+    }
+
+    private static Map<String, Long> counts(Map<TypeDescriptor, LongAdder> counters) {
+        final Map<String, Long> counts = new TreeMap<>();
+        counters.forEach((td, c) -> counts.put(td.toString(), c.sum()));
+        return counts;
+    }
+}
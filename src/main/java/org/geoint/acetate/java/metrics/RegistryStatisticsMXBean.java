@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX management interface of {@link RegistryStatistics}.
+ *
+ * @author steve_siebert
+ */
+public interface RegistryStatisticsMXBean {
+
+    long getBinderHits();
+
+    long getBinderMisses();
+
+    /**
+     * Registered binder hits by domain type.
+     *
+     * @return hit counts keyed by type descriptor
+     */
+    Map<String, Long> getBinderHitsByType();
+
+    /**
+     * Default binder fallbacks by domain type.
+     *
+     * @return miss counts keyed by type descriptor
+     */
+    Map<String, Long> getBinderMissesByType();
+
+    long getDefaultBinderFailures();
+
+    long getRegistrations();
+
+    /**
+     * Registration time of each registered class.
+     *
+     * @return registration nanoseconds keyed by class name
+     */
+    Map<String, Long> getRegistrationNanosByClass();
+
+    long getBindCount();
+
+    long getBindMeanNanos();
+
+    long getBind99thPercentileNanos();
+
+    /**
+     * Power-of-two nanosecond bucket counts of bind latencies.
+     *
+     * @return bucket counts
+     * @see LatencyHistogram#getCounts()
+     */
+    long[] getBindHistogram();
+
+    long getFormatCount();
+
+    long getFormatMeanNanos();
+
+    long getFormat99thPercentileNanos();
+
+    long[] getFormatHistogram();
+
+    long getParseCount();
+
+    long getParseMeanNanos();
+
+    long getParse99thPercentileNanos();
+
+    long[] getParseHistogram();
+
+    /**
+     * Reset all counters and histograms.
+     */
+    void reset();
+}
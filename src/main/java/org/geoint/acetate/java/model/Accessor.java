@@ -55,4 +55,15 @@ public @interface Accessor {
      * @return accessor description
      */
     String description() default "";
+
+    /**
+     * Optional positive id identifying the accessor in compact binary
+     * formats; zero (the default) derives the id from the accessor name.
+     * <p>
+     * Declaring an id allows the accessor to be renamed without changing
+     * the binary format.
+     *
+     * @return accessor id or zero
+     */
+    int id() default 0;
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.geoint.acetate.DomainInstantiationException;
+
+/**
+ * Converts a batch of sources in fixed-size chunks, optionally fanning the
+ * chunks out to an executor, collecting results in source order.
+ *
+ * @author steve_siebert
+ */
+final class BatchConversion {
+
+    /**
+     * Number of sources converted by each task submitted to an executor.
+     */
+    static final int CHUNK_SIZE = 1024;
+
+    private BatchConversion() {
+    }
+
+    /**
+     * Converts a contiguous range of sources.
+     *
+     * @param <S> source type
+     */
+    @FunctionalInterface
+    interface Chunk<S> {
+
+        /**
+         * Convert the sources, storing each result at the index of its source
+         * offset by {@code offset}.
+         */
+        void convert(List<S> sources, Object[] results, int offset)
+                throws DomainInstantiationException;
+    }
+
+    /**
+     * Returns the sources as a random access list, copying only if required.
+     */
+    @SuppressWarnings("unchecked")
+    static <S> List<S> toList(Iterable<? extends S> sources) {
+        if (sources instanceof List && sources instanceof RandomAccess) {
+            return (List<S>) sources;
+        }
+        final List<S> list = new ArrayList<>();
+        sources.forEach(list::add);
+        return list;
+    }
+
+    /**
+     * Convert the sources.
+     *
+     * @param sources random access list of sources
+     * @param chunk chunk conversion
+     * @param executor executor to convert chunks concurrently, or null to
+     * convert on the calling thread
+     * @return unmodifiable list of results, in source order
+     * @throws DomainInstantiationException the first conversion failure
+     */
+    @SuppressWarnings("unchecked")
+    static <S, R> List<R> convert(List<S> sources, Chunk<S> chunk,
+            Executor executor) throws DomainInstantiationException {
+        final int size = sources.size();
+        final Object[] results = new Object[size];
+        if (executor == null || size <= CHUNK_SIZE) {
+            chunk.convert(sources, results, 0);
+            return (List<R>) Collections.unmodifiableList(Arrays.asList(results));
+        }
+
+        final AtomicBoolean failed = new AtomicBoolean();
+        final CompletableFuture<?>[] tasks
+                = new CompletableFuture<?>[(size + CHUNK_SIZE - 1) / CHUNK_SIZE];
+        for (int t = 0; t < tasks.length; t++) {
+            final int from = t * CHUNK_SIZE;
+            final int to = Math.min(size, from + CHUNK_SIZE);
+            tasks[t] = CompletableFuture.runAsync(() -> {
+                if (failed.get()) {
+                    return; //batch already failed, skip
+                }
+                try {
+                    chunk.convert(sources.subList(from, to), results, from);
+                } catch (DomainInstantiationException | RuntimeException ex) {
+                    failed.set(true);
+                    throw new CompletionException(ex);
+                }
+            }, executor);
+        }
+        try {
+            CompletableFuture.allOf(tasks).join();
+        } catch (CompletionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof DomainInstantiationException) {
+                throw (DomainInstantiationException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new DomainInstantiationException("Batch conversion failed.",
+                    cause);
+        }
+        return (List<R>) Collections.unmodifiableList(Arrays.asList(results));
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import org.geoint.acetate.DomainInstantiationException;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.java.bind.ObjectBinder;
+import org.geoint.acetate.model.TypeDescriptor;
+import org.geoint.acetate.spi.java.RegistryMetrics;
+
+/**
+ * Dispatches conversions to the default binders of a registry, learning which
+ * binder handles each domain type and java class.
+ * <p>
+ * The first time a type (or class) is converted the default binders which
+ * {@link ObjectBinder#supports support} it are tried, in registration order,
+ * until one succeeds. The winning binder is indexed and used directly for all
+ * subsequent conversions of that type; if no binder succeeds the miss is
+ * indexed as well so the search is not repeated. Misses are forgotten when a
+ * new default binder is added.
+ * <p>
+ * Instances of this class are thread-safe.
+ *
+ * @author steve_siebert
+ */
+final class DefaultBinderIndex {
+
+    /**
+     * Indexed value for types/classes no default binder could convert.
+     */
+    private static final ObjectBinder NO_BINDER = new ObjectBinder() {
+        @Override
+        public Object asObject(TypeInstance instance)
+                throws DomainInstantiationException {
+            throw new DomainInstantiationException("No binder.");
+        }
+
+        @Override
+        public TypeInstance asType(Object object)
+                throws DomainInstantiationException {
+            throw new DomainInstantiationException("No binder.");
+        }
+    };
+
+    private final CopyOnWriteArrayList<ObjectBinder> binders
+            = new CopyOnWriteArrayList<>();
+    private final Map<TypeDescriptor, ObjectBinder> typeIndex
+            = new ConcurrentHashMap<>();
+    private final Map<Class<?>, ObjectBinder> classIndex
+            = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private volatile RegistryMetrics metrics = RegistryMetrics.NONE;
+
+    void setMetrics(RegistryMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Add a default binder, which will be tried after all previously added
+     * binders.
+     *
+     * @param binder default binder
+     */
+    void add(ObjectBinder binder) {
+        if (!binders.addIfAbsent(binder)) {
+            return;
+        }
+        generation.incrementAndGet();
+        //previously resolved binders still win, only misses may change
+        typeIndex.values().removeIf((b) -> b == NO_BINDER);
+        classIndex.values().removeIf((b) -> b == NO_BINDER);
+    }
+
+    /**
+     * Binds the type instance using the default binder indexed for the type,
+     * resolving the binder if it is not yet known.
+     *
+     * @param instance domain instance
+     * @return java object representation of the domain instance
+     * @throws DomainInstantiationException if no default binder could bind the
+     * type
+     */
+    Object asObject(TypeInstance instance) throws DomainInstantiationException {
+        final TypeDescriptor td = instance.getTypeDescriptor();
+        final ObjectBinder indexed = typeIndex.get(td);
+        if (indexed == NO_BINDER) {
+            throw unresolved(td);
+        } else if (indexed != null) {
+            return indexed.asObject(instance);
+        }
+
+        final long gen = generation.get();
+        for (ObjectBinder b : binders) {
+            if (!b.supports(td)) {
+                continue;
+            }
+            try {
+                Object obj = b.asObject(instance);
+                if (obj != null) {
+                    typeIndex.putIfAbsent(td, b);
+                    return obj;
+                }
+            } catch (DomainInstantiationException | RuntimeException ex) {
+                //binder cannot be used for this type, try the next
+                metrics.defaultBinderFailure(b, ex);
+            }
+        }
+        miss(typeIndex, td, gen);
+        throw unresolved(td);
+    }
+
+    /**
+     * Converts the object using the default binder indexed for its class,
+     * resolving the binder if it is not yet known.
+     *
+     * @param object source object
+     * @return domain type instance
+     * @throws DomainInstantiationException if no default binder could convert
+     * the object
+     */
+    @SuppressWarnings("unchecked")
+    TypeInstance asType(Object object) throws DomainInstantiationException {
+        final Class<?> objectClass = object.getClass();
+        final ObjectBinder indexed = classIndex.get(objectClass);
+        if (indexed == NO_BINDER) {
+            throw unresolved(objectClass);
+        } else if (indexed != null) {
+            return indexed.asType(object);
+        }
+
+        final long gen = generation.get();
+        for (ObjectBinder b : binders) {
+            if (!b.supports(objectClass)) {
+                continue;
+            }
+            try {
+                TypeInstance instance = b.asType(object);
+                if (instance != null) {
+                    classIndex.putIfAbsent(objectClass, b);
+                    return instance;
+                }
+            } catch (DomainInstantiationException | RuntimeException ex) {
+                //binder cannot be used for this class, try the next
+                metrics.defaultBinderFailure(b, ex);
+            }
+        }
+        miss(classIndex, objectClass, gen);
+        throw unresolved(objectClass);
+    }
+
+    /**
+     * Index a miss, unless a binder was added while resolving.
+     */
+    private <K> void miss(Map<K, ObjectBinder> index, K key, long gen) {
+        index.putIfAbsent(key, NO_BINDER);
+        if (generation.get() != gen) {
+            index.remove(key, NO_BINDER);
+        }
+    }
+
+    private static DomainInstantiationException unresolved(TypeDescriptor td) {
+        return new DomainInstantiationException(String.format("Unable to "
+                + "resolve ObjectBinder for type '%s'", td.toString()));
+    }
+
+    private static DomainInstantiationException unresolved(Class<?> c) {
+        return new DomainInstantiationException(String.format("Unable to "
+                + "resolve ObjectBinder for object class '%s'", c.getName()));
+    }
+}
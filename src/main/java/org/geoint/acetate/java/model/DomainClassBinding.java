@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.util.Collections;
+import java.util.List;
+import org.geoint.acetate.java.bind.ObjectBinder;
+import org.geoint.acetate.java.format.ObjectFormatter;
+import org.geoint.acetate.java.format.ObjectParser;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.TypeDescriptor;
+
+/**
+ * Everything a registry knows about a single java class, cached through a
+ * {@link ClassValue} so class lookups on the read path are lock-free.
+ * <p>
+ * The descriptor declared by the class annotations is determined once, when
+ * the binding is created. The remaining fields are published by the registry
+ * when the class is registered (or its binder replaced); the registered
+ * descriptor is written last so a reader which sees it also sees the model,
+ * binder, formatters and parsers it was registered with.
+ *
+ * @author steve_siebert
+ */
+final class DomainClassBinding {
+
+    private final Class<?> domainClass;
+    private final TypeDescriptor declared;
+    private volatile TypeDescriptor registered;
+    private volatile DomainType type;
+    private volatile ObjectBinder binder;
+    private volatile List<ObjectFormatter> formatters = Collections.emptyList();
+    private volatile List<ObjectParser> parsers = Collections.emptyList();
+
+    /**
+     *
+     * @param domainClass java class
+     * @param declared descriptor declared by the class annotations, or null if
+     * the class is not a domain class
+     */
+    DomainClassBinding(Class<?> domainClass, TypeDescriptor declared) {
+        this.domainClass = domainClass;
+        this.declared = declared;
+    }
+
+    Class<?> getDomainClass() {
+        return domainClass;
+    }
+
+    /**
+     * Descriptor the class was registered with, or declared by its
+     * annotations if not registered.
+     *
+     * @return descriptor or null if the class is not a domain class
+     */
+    TypeDescriptor getDescriptor() {
+        final TypeDescriptor td = registered;
+        return (td != null) ? td : declared;
+    }
+
+    boolean isRegistered() {
+        return registered != null;
+    }
+
+    DomainType getType() {
+        return type;
+    }
+
+    ObjectBinder getBinder() {
+        return binder;
+    }
+
+    /**
+     * @return default formatter or null if the class declares no formatters
+     */
+    ObjectFormatter getFormatter() {
+        final List<ObjectFormatter> f = formatters;
+        return f.isEmpty() ? null : f.get(0);
+    }
+
+    /**
+     * @return default parser or null if the class declares no parsers
+     */
+    ObjectParser getParser() {
+        final List<ObjectParser> p = parsers;
+        return p.isEmpty() ? null : p.get(0);
+    }
+
+    /**
+     * @return formatters of the class, the default formatter first
+     */
+    List<ObjectFormatter> getFormatters() {
+        return formatters;
+    }
+
+    /**
+     * @return parsers of the class, the default parser first
+     */
+    List<ObjectParser> getParsers() {
+        return parsers;
+    }
+
+    void setBinder(ObjectBinder binder) {
+        this.binder = binder;
+    }
+
+    /**
+     * Publish the registration of the class.
+     *
+     * @param td registered descriptor
+     * @param type domain model
+     * @param binder binder for the class, may be null
+     * @param formatters formatters, the default formatter first
+     * @param parsers parsers, the default parser first
+     */
+    void register(TypeDescriptor td, DomainType type, ObjectBinder binder,
+            List<ObjectFormatter> formatters, List<ObjectParser> parsers) {
+        this.type = type;
+        this.binder = binder;
+        this.formatters = Collections.unmodifiableList(formatters);
+        this.parsers = Collections.unmodifiableList(parsers);
+        this.registered = td;
+    }
+}
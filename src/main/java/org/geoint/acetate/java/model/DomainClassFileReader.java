@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * Reads just enough of a class file to determine if the class is annotated
+ * with a domain annotation, without loading the class.
+ *
+ * @author steve_siebert
+ */
+final class DomainClassFileReader {
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final String ANNOTATIONS_ATTRIBUTE
+            = "RuntimeVisibleAnnotations";
+    private static final String[] DOMAIN_ANNOTATIONS = {
+        descriptor(DomainResource.class),
+        descriptor(DomainValue.class),
+        descriptor(DomainEvent.class)
+    };
+
+    private DomainClassFileReader() {
+    }
+
+    /**
+     * Reads the class file, returning the binary name of the class if it is
+     * annotated with a domain annotation.
+     *
+     * @param classFile class file bytes, not closed by this method
+     * @return binary class name or empty if the class is not a domain class
+     * @throws IOException if the class file could not be read or is malformed
+     */
+    static Optional<String> readDomainClass(InputStream classFile)
+            throws IOException {
+        final DataInputStream in = new DataInputStream(classFile);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a class file.");
+        }
+        in.readUnsignedShort(); //minor
+        in.readUnsignedShort(); //major
+
+        //only utf8 and class constants are retained
+        final int cpCount = in.readUnsignedShort();
+        final String[] utf8 = new String[cpCount];
+        final int[] classNames = new int[cpCount];
+        for (int i = 1; i < cpCount; i++) {
+            final int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1: //utf8
+                    utf8[i] = in.readUTF();
+                    break;
+                case 7: //class
+                    classNames[i] = in.readUnsignedShort();
+                    break;
+                case 8: //string
+                case 16: //method type
+                case 19: //module
+                case 20: //package
+                    in.skipBytes(2);
+                    break;
+                case 15: //method handle
+                    in.skipBytes(3);
+                    break;
+                case 3: //integer
+                case 4: //float
+                case 9: //field ref
+                case 10: //method ref
+                case 11: //interface method ref
+                case 12: //name and type
+                case 17: //dynamic
+                case 18: //invoke dynamic
+                    in.skipBytes(4);
+                    break;
+                case 5: //long
+                case 6: //double
+                    in.skipBytes(8);
+                    i++; //takes two entries
+                    break;
+                default:
+                    throw new IOException(String.format("Unknown constant "
+                            + "pool tag '%d'", tag));
+            }
+        }
+
+        in.readUnsignedShort(); //access flags
+        final String internalName = utf8[classNames[in.readUnsignedShort()]];
+        in.readUnsignedShort(); //super class
+        in.skipBytes(2 * in.readUnsignedShort()); //interfaces
+        skipMembers(in); //fields
+        skipMembers(in); //methods
+
+        final int attributes = in.readUnsignedShort();
+        for (int a = 0; a < attributes; a++) {
+            final String name = utf8[in.readUnsignedShort()];
+            final int length = in.readInt();
+            if (!ANNOTATIONS_ATTRIBUTE.equals(name)) {
+                skip(in, length);
+                continue;
+            }
+            final int annotations = in.readUnsignedShort();
+            for (int i = 0; i < annotations; i++) {
+                final String type = utf8[in.readUnsignedShort()];
+                for (String domain : DOMAIN_ANNOTATIONS) {
+                    if (domain.equals(type)) {
+                        return Optional.of(internalName.replace('/', '.'));
+                    }
+                }
+                skipElementValuePairs(in);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static void skipMembers(DataInputStream in) throws IOException {
+        final int count = in.readUnsignedShort();
+        for (int m = 0; m < count; m++) {
+            in.skipBytes(6); //access flags, name, descriptor
+            final int attributes = in.readUnsignedShort();
+            for (int a = 0; a < attributes; a++) {
+                in.skipBytes(2);
+                skip(in, in.readInt());
+            }
+        }
+    }
+
+    private static void skipElementValuePairs(DataInputStream in)
+            throws IOException {
+        final int pairs = in.readUnsignedShort();
+        for (int p = 0; p < pairs; p++) {
+            in.skipBytes(2); //element name
+            skipElementValue(in);
+        }
+    }
+
+    private static void skipElementValue(DataInputStream in)
+            throws IOException {
+        final int tag = in.readUnsignedByte();
+        switch (tag) {
+            case 'e': //enum
+                in.skipBytes(4);
+                break;
+            case '@': //nested annotation
+                in.skipBytes(2);
+                skipElementValuePairs(in);
+                break;
+            case '[': //array
+                final int values = in.readUnsignedShort();
+                for (int v = 0; v < values; v++) {
+                    skipElementValue(in);
+                }
+                break;
+            default: //constant or class
+                in.skipBytes(2);
+        }
+    }
+
+    private static void skip(DataInputStream in, int length)
+            throws IOException {
+        if (in.skipBytes(length) != length) {
+            throw new IOException("Unexpected end of class file.");
+        }
+    }
+
+    private static String descriptor(Class<?> annotation) {
+        return "L" + annotation.getName().replace('.', '/') + ";";
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Finds the domain classes of a package without loading the classes of the
+ * package.
+ * <p>
+ * Classpath roots which contain a {@link #RESOURCE domain class index},
+ * written by the acetate-java annotation processor, are read from the index.
+ * Classpath roots without an index are scanned, reading the annotations of
+ * each class file directly from its bytes.
+ *
+ * @author steve_siebert
+ */
+public final class DomainClassIndex {
+
+    /**
+     * Classpath resource listing the binary names of the domain classes of a
+     * classpath root, one per line.
+     */
+    public static final String RESOURCE = "META-INF/acetate/domain.index";
+
+    private static final String CLASS_EXTENSION = ".class";
+
+    private DomainClassIndex() {
+    }
+
+    /**
+     * Returns the binary names of the domain classes of the package, and its
+     * sub-packages, visible to the class loader.
+     *
+     * @param packageName package name
+     * @param loader class loader
+     * @return domain class names, sorted
+     * @throws IOException if the classpath could not be read
+     */
+    public static Set<String> find(String packageName, ClassLoader loader)
+            throws IOException {
+        final String prefix = packageName.isEmpty() ? "" : packageName + ".";
+        final Set<String> found = new TreeSet<>();
+
+        //indexed roots
+        final Set<String> indexedRoots = new HashSet<>();
+        final Enumeration<URL> indexes = loader.getResources(RESOURCE);
+        while (indexes.hasMoreElements()) {
+            final URL index = indexes.nextElement();
+            indexedRoots.add(root(index, RESOURCE));
+            for (String name : readIndex(index)) {
+                if (name.startsWith(prefix)) {
+                    found.add(name);
+                }
+            }
+        }
+
+        //scan roots without an index
+        final String path = packageName.replace('.', '/');
+        final Enumeration<URL> dirs = loader.getResources(path);
+        while (dirs.hasMoreElements()) {
+            final URL dir = dirs.nextElement();
+            if (!indexedRoots.contains(root(dir, path))) {
+                scan(dir, path, found);
+            }
+        }
+        return found;
+    }
+
+    private static Set<String> readIndex(URL index) throws IOException {
+        final Set<String> names = new HashSet<>();
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(
+                open(index), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    names.add(line);
+                }
+            }
+        }
+        return names;
+    }
+
+    private static void scan(URL dir, String path, Set<String> found)
+            throws IOException {
+        switch (dir.getProtocol()) {
+            case "file":
+                scanDirectory(dir, found);
+                break;
+            case "jar":
+                scanJar(dir, path, found);
+                break;
+            default:
+            //unsupported classpath root, only indexed classes are found
+        }
+    }
+
+    private static void scanDirectory(URL dir, Set<String> found)
+            throws IOException {
+        final Path root;
+        try {
+            root = Paths.get(dir.toURI());
+        } catch (URISyntaxException ex) {
+            throw new IOException(String.format("Invalid classpath "
+                    + "directory '%s'", dir), ex);
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter((f) -> f.toString().endsWith(CLASS_EXTENSION))
+                    .forEach((f) -> {
+                        try (InputStream in = new BufferedInputStream(
+                                Files.newInputStream(f))) {
+                            DomainClassFileReader.readDomainClass(in)
+                                    .ifPresent(found::add);
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                    });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private static void scanJar(URL dir, String path, Set<String> found)
+            throws IOException {
+        final JarURLConnection conn = (JarURLConnection) dir.openConnection();
+        conn.setUseCaches(false);
+        final String entryPrefix = path.isEmpty() ? "" : path + "/";
+        try (JarFile jar = conn.getJarFile()) {
+            final Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                final JarEntry e = entries.nextElement();
+                if (e.isDirectory()
+                        || !e.getName().startsWith(entryPrefix)
+                        || !e.getName().endsWith(CLASS_EXTENSION)) {
+                    continue;
+                }
+                try (InputStream in = new BufferedInputStream(
+                        jar.getInputStream(e))) {
+                    DomainClassFileReader.readDomainClass(in)
+                            .ifPresent(found::add);
+                }
+            }
+        }
+    }
+
+    private static InputStream open(URL url) throws IOException {
+        final URLConnection conn = url.openConnection();
+        conn.setUseCaches(false); //don't hold jars open
+        return conn.getInputStream();
+    }
+
+    /**
+     * Classpath root of a resource URL.
+     *
+     * @param resource resource URL
+     * @param path classpath relative resource path
+     * @return root URL string
+     */
+    static String root(URL resource, String path) {
+        String url = trimSlash(resource.toExternalForm());
+        if (url.endsWith(path)) {
+            url = trimSlash(url.substring(0, url.length() - path.length()));
+        }
+        return url;
+    }
+
+    private static String trimSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
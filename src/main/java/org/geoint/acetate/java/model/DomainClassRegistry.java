@@ -15,26 +15,67 @@
  */
 package org.geoint.acetate.java.model;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.geoint.acetate.DomainInstantiationException;
 import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.format.DomainFormatException;
+import org.geoint.acetate.format.Format;
 import org.geoint.acetate.format.TypeFormat;
 import org.geoint.acetate.format.TypeFormatter;
+import org.geoint.acetate.format.TypeFormattingException;
 import org.geoint.acetate.format.TypeParser;
 import org.geoint.acetate.format.UnsupportedFormatException;
 import org.geoint.acetate.format.spi.FormatFactory;
+import org.geoint.acetate.format.spi.FormatProvider;
 import org.geoint.acetate.format.spi.FormatServiceLoaderProvider;
+import org.geoint.acetate.java.bind.AccessorBinder;
 import org.geoint.acetate.java.bind.ObjectBinder;
+import org.geoint.acetate.java.bind.ProxyBinder;
+import org.geoint.acetate.java.bind.ResourceLink;
+import org.geoint.acetate.java.bind.ResourceObject;
+import org.geoint.acetate.java.format.BufferedObjectFormatter;
+import org.geoint.acetate.java.format.MappedIngester;
 import org.geoint.acetate.java.format.ObjectFormatter;
 import org.geoint.acetate.java.format.ObjectParser;
+import org.geoint.acetate.java.format.RecordSplitter;
+import org.geoint.acetate.java.format.StreamingObjectParser;
+import org.geoint.acetate.java.model.reflect.ClassNotDomainTypeException;
 import org.geoint.acetate.java.model.reflect.ClassTypeReflector;
+import org.geoint.acetate.java.model.reflect.ComponentFactory;
+import org.geoint.acetate.java.repo.ResourceRepository;
 import org.geoint.acetate.model.DomainBuilder;
 import org.geoint.acetate.model.DomainType;
 import org.geoint.acetate.model.DuplicateNamedTypeException;
@@ -43,35 +84,82 @@ import org.geoint.acetate.model.TypeDescriptor;
 import org.geoint.acetate.model.resolve.DomainTypeResolver;
 import org.geoint.acetate.model.resolve.HierarchicalTypeResolver;
 import org.geoint.acetate.model.resolve.MapTypeResolver;
+import org.geoint.acetate.spi.java.DomainTypeFactory;
+import org.geoint.acetate.spi.java.RegistryMetrics;
 import org.geoint.acetate.util.BidirectionalMap;
 
 /**
  * Class-aware domain model registry.
+ * <p>
+ * Domain classes processed by the acetate-java annotation processor are
+ * modeled by their generated {@link DomainTypeFactory}, discovered through the
+ * {@link ServiceLoader}; all other classes are modeled using reflection.
+ * <p>
+ * Class lookups ({@link #findType(Class)}, {@link #findClass(TypeDescriptor)},
+ * {@link #asType(Object)}) read from a per-class {@link ClassValue} cache and
+ * do not take locks once a class is registered; locks are only used when
+ * registering. Read-mostly registries may be {@link #freeze() frozen}, serving
+ * lookups from an immutable {@link RegistrySnapshot}.
  *
  * @author steve_siebert
  */
 public class DomainClassRegistry {
 
     private final BidirectionalMap<Class<?>, TypeDescriptor> classDescriptors;
+    //only a map provided by the caller may know classes the bindings do not
+    private final boolean providedDescriptors;
     protected final MapTypeResolver<TypeDescriptor> localRegistry;  //write
     protected final HierarchicalTypeResolver<TypeDescriptor> typeResolver; //read
     private final Map<TypeDescriptor, ObjectBinder> typeBinders;
-    private final Set<ObjectBinder> defaultBinders;
+    private final DefaultBinderIndex defaultBinders;
     private final FormatFactory formatFactory;
-    private final Map<Class<?>, ObjectFormatter> objectFormatters;
-    private final Map<Class<?>, ObjectParser> objectParsers;
+    private final Map<Class<?>, DomainTypeFactory> generatedTypes;
+    private final Map<TypeDescriptor, Class<?>> descriptorClasses;
+    private final ClassValue<DomainClassBinding> classBindings;
+    private final FormatResolutionCache formatCache;
+    private final BufferPool formatBuffers = ParallelFormatter.newPool();
+    private final ComponentFactory components = new ComponentFactory();
+    private final Map<Class<?>, ResourceRepository<?>> repositories
+            = new ConcurrentHashMap<>();
+    private final List<StreamingObjectParser<?>> streamingParsers
+            = new CopyOnWriteArrayList<>(loadStreamingParsers());
+    private final AtomicReference<RegistrySnapshot> frozen
+            = new AtomicReference<>();
+    private final AtomicLong epoch = new AtomicLong();
+    //held apart from the registry so metered components cached in the class
+    //bindings do not reference (and pin) the registry
+    private final AtomicReference<RegistryMetrics> metrics
+            = new AtomicReference<>(RegistryMetrics.NONE);
+    private final ObjectBinder defaultBinder = new ObjectBinder() {
+        @Override
+        public Object asObject(TypeInstance instance)
+                throws DomainInstantiationException {
+            return defaultBinders.asObject(instance);
+        }
+
+        @Override
+        public TypeInstance asType(Object object)
+                throws DomainInstantiationException {
+            return defaultBinders.asType(object);
+        }
+    };
 
     public DomainClassRegistry() {
         this.localRegistry = new MapTypeResolver<>(new ConcurrentHashMap<>());
         this.typeResolver = HierarchicalTypeResolver.newHierarchy(localRegistry);
         this.classDescriptors = BidirectionalMap.newMap(() -> new HashMap<>());
+        this.providedDescriptors = false;
         typeBinders = new ConcurrentHashMap<>();
-        defaultBinders = Collections.synchronizedSet(new HashSet<>());
-        this.objectFormatters = new ConcurrentHashMap<>();
-        this.objectParsers = new ConcurrentHashMap<>();
+        defaultBinders = new DefaultBinderIndex();
+        this.generatedTypes = loadGeneratedTypes();
+        this.descriptorClasses = new ConcurrentHashMap<>();
+        this.classBindings = newClassBindings();
 
         this.formatFactory = FormatFactory.getDefaultFactory();
+        //the service loader provides the same formats to every registry, other
+        //registries sharing the factory need not discard their resolutions
         this.formatFactory.addProvider(new FormatServiceLoaderProvider());
+        this.formatCache = new FormatResolutionCache(this.formatFactory);
     }
 
     public DomainClassRegistry(BidirectionalMap<Class<?>, TypeDescriptor> classDescriptors,
@@ -86,18 +174,51 @@ public class DomainClassRegistry {
         this.typeResolver = HierarchicalTypeResolver.newHierarchy(typeResolver)
                 .addChild(localRegistry);
         this.classDescriptors = classDescriptors;
+        this.providedDescriptors = true;
         typeBinders = new ConcurrentHashMap<>();
-        defaultBinders = Collections.synchronizedSet(new HashSet<>());
-        this.objectFormatters = new ConcurrentHashMap<>();
-        this.objectParsers = new ConcurrentHashMap<>();
+        defaultBinders = new DefaultBinderIndex();
+        this.generatedTypes = loadGeneratedTypes();
+        this.descriptorClasses = new ConcurrentHashMap<>();
+        this.classBindings = newClassBindings();
 
         this.formatFactory = formatFactory;
         this.formatFactory.addProvider(new FormatServiceLoaderProvider());
+        this.formatCache = new FormatResolutionCache(this.formatFactory);
     }
 
     public void register(Class<?> domainClass) throws InvalidModelException {
+        if (classBindings.get(domainClass).isRegistered()) {
+            return;
+        }
+        try {
+            registerClass(domainClass);
+        } finally {
+            republish();
+        }
+    }
+
+    public void register(Class<?> domainClass, DomainType model)
+            throws DuplicateNamedTypeException, InvalidModelException {
+        try {
+            registerModel(domainClass, model);
+        } finally {
+            republish();
+        }
+    }
+
+    private void registerClass(Class<?> domainClass)
+            throws InvalidModelException {
+
+        final DomainClassBinding binding = classBindings.get(domainClass);
+        if (binding.isRegistered()) {
+            return;
+        }
+        final long start = System.nanoTime();
 
-        TypeDescriptor td = ClassTypeReflector.getTypeDescriptor(domainClass);
+        TypeDescriptor td = binding.getDescriptor();
+        if (td == null) {
+            td = describe(domainClass); //throws ClassNotDomainTypeException
+        }
 
         synchronized (classDescriptors) {
             if (classDescriptors.containsKey(domainClass)) {
@@ -108,25 +229,229 @@ public class DomainClassRegistry {
             classDescriptors.put(domainClass, td);
         }
 
-        //if there isn't a model for this class, try using reflection
+        //if there isn't a model for this class, use the generated model 
+        //factory or fall back to reflection
         synchronized (localRegistry) {
             if (!typeResolver.resolveType(td).isPresent()) {
-                localRegistry.getTypes()
-                        .put(td, ClassTypeReflector.model(domainClass,
-                                new DomainBuilder(td.getNamespace(),
-                                        td.getVersion(), typeResolver))
-                        );
+                localRegistry.getTypes().put(td, model(domainClass, td));
             }
         }
 
-        ClassTypeReflector.binder(domainClass, (b) -> typeBinders.putIfAbsent(td, b));
-        ClassTypeReflector.formatters(domainClass, (f) -> objectFormatters.put(domainClass, f));
-        ClassTypeReflector.parsers(domainClass, (p) -> objectParsers.put(domainClass, p));
+        bind(binding, td);
+        metrics.get().registered(domainClass, System.nanoTime() - start);
+    }
+
+    /**
+     * Register a set of domain classes, and any domain classes they refer to,
+     * in a single pass.
+     * <p>
+     * The classes are first scanned (in parallel) for the domain classes they
+     * depend on, then modeled in dependency order; classes whose dependencies
+     * are all registered are modeled in parallel with each other. Dependency
+     * cycles are broken by modeling the classes of the cycle one at a time.
+     * <p>
+     * Classes are registered in dependency order as they are modeled, so if a
+     * class fails to model the classes modeled before it remain registered.
+     *
+     * @param domainClasses domain classes to register
+     * @throws InvalidModelException if a class is not a domain class or
+     * defines an invalid model
+     */
+    public void registerAll(Collection<Class<?>> domainClasses)
+            throws InvalidModelException {
 
+        //dependency graph of the unregistered classes
+        final Map<Class<?>, Set<Class<?>>> graph = new HashMap<>();
+        Collection<Class<?>> scan = new HashSet<>(domainClasses);
+        while (!scan.isEmpty()) {
+            final Map<Class<?>, Set<Class<?>>> scanned = scan.parallelStream()
+                    .filter((c) -> !classBindings.get(c).isRegistered())
+                    .collect(Collectors.toMap(Function.identity(),
+                            ClassTypeReflector::dependencies));
+            graph.putAll(scanned);
+            scan = scanned.values().stream()
+                    .flatMap(Set::stream)
+                    .filter((c) -> !graph.containsKey(c))
+                    .collect(Collectors.toSet());
+        }
+
+        try {
+            for (List<Class<?>> level : dependencyLevels(graph)) {
+                registerLevel(level);
+            }
+        } finally {
+            republish();
+        }
     }
 
-    public void register(Class<?> domainClass, DomainType model)
-            throws DuplicateNamedTypeException, InvalidModelException {
+    /**
+     * Register the domain classes of a package, and its sub-packages, visible
+     * to the context class loader.
+     *
+     * @param packageName package name
+     * @throws InvalidModelException if the package could not be read or a
+     * class defines an invalid model
+     * @see #registerPackage(String, ClassLoader)
+     */
+    public void registerPackage(String packageName)
+            throws InvalidModelException {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        registerPackage(packageName, (loader != null)
+                ? loader
+                : DomainClassRegistry.class.getClassLoader());
+    }
+
+    /**
+     * Register the domain classes of a package, and its sub-packages, visible
+     * to the class loader.
+     * <p>
+     * Domain classes are found using the {@link DomainClassIndex}, only the
+     * domain classes themselves (and the domain classes they refer to) are
+     * loaded.
+     * Indexed classes which no longer exist (ie removed since the index was
+     * written by an incremental compilation) are skipped.
+     *
+     * @param packageName package name
+     * @param loader class loader
+     * @throws InvalidModelException if the package could not be read or a
+     * class defines an invalid model
+     */
+    public void registerPackage(String packageName, ClassLoader loader)
+            throws InvalidModelException {
+        final List<Class<?>> domainClasses = new ArrayList<>();
+        try {
+            for (String name : DomainClassIndex.find(packageName, loader)) {
+                try {
+                    domainClasses.add(Class.forName(name, false, loader));
+                } catch (ClassNotFoundException ex) {
+                    //skip stale index entry of a removed class
+                }
+            }
+        } catch (IOException | LinkageError ex) {
+            throw new InvalidModelException(String.format("Unable to read "
+                    + "domain classes of package '%s'", packageName), ex);
+        }
+        registerAll(domainClasses);
+    }
+
+    /**
+     * Models a set of classes which do not depend on each other in parallel,
+     * then registers them.
+     *
+     * @param level independent domain classes
+     * @throws InvalidModelException if a class is not a domain class or
+     * defines an invalid model
+     */
+    private void registerLevel(List<Class<?>> level)
+            throws InvalidModelException {
+        final Map<Class<?>, DomainType> models = new ConcurrentHashMap<>();
+        final Map<Class<?>, Long> modelNanos = new ConcurrentHashMap<>();
+        final AtomicReference<InvalidModelException> failure
+                = new AtomicReference<>();
+        level.parallelStream().forEach((c) -> {
+            final DomainClassBinding binding = classBindings.get(c);
+            try {
+                TypeDescriptor td = binding.getDescriptor();
+                if (td == null) {
+                    td = describe(c); //throws ClassNotDomainTypeException
+                }
+                if (!binding.isRegistered()
+                        && !typeResolver.resolveType(td).isPresent()) {
+                    final long start = System.nanoTime();
+                    models.put(c, model(c, td));
+                    modelNanos.put(c, System.nanoTime() - start);
+                }
+            } catch (InvalidModelException ex) {
+                failure.compareAndSet(null, ex);
+            }
+        });
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        //publish sequentially, in the deterministic order of the level
+        for (Class<?> c : level) {
+            final DomainType model = models.get(c);
+            if (model != null) {
+                //include the time the class was modeled in parallel
+                registerModel(c, model, System.nanoTime() - modelNanos.get(c));
+            } else {
+                registerClass(c);
+            }
+        }
+    }
+
+    /**
+     * Orders a dependency graph into levels, where each class depends only on
+     * classes of previous levels (or classes outside of the graph).
+     * <p>
+     * Classes are ordered by name within each level. Dependency cycles are
+     * broken by placing the first class (by name) of the cycle in its own
+     * level.
+     *
+     * @param graph dependencies of each class
+     * @return dependency levels
+     */
+    static List<List<Class<?>>> dependencyLevels(
+            Map<Class<?>, Set<Class<?>>> graph) {
+        final Comparator<Class<?>> byName = Comparator.comparing(Class::getName);
+
+        //count of unresolved dependencies and reverse edges
+        final Map<Class<?>, Integer> pending = new HashMap<>();
+        final Map<Class<?>, List<Class<?>>> dependents = new HashMap<>();
+        graph.forEach((c, deps) -> {
+            int count = 0;
+            for (Class<?> d : deps) {
+                if (graph.containsKey(d) && !d.equals(c)) {
+                    dependents.computeIfAbsent(d, (k) -> new ArrayList<>()).add(c);
+                    count++;
+                }
+            }
+            pending.put(c, count);
+        });
+
+        final List<List<Class<?>>> levels = new ArrayList<>();
+        List<Class<?>> level = pending.entrySet().stream()
+                .filter((e) -> e.getValue() == 0)
+                .map(Map.Entry::getKey)
+                .sorted(byName)
+                .collect(Collectors.toList());
+        while (!pending.isEmpty()) {
+            if (level.isEmpty()) {
+                //only cycles remain, break one with its first class
+                level = Collections.singletonList(
+                        pending.keySet().stream().min(byName).get());
+            }
+            levels.add(level);
+            final List<Class<?>> next = new ArrayList<>();
+            for (Class<?> c : level) {
+                pending.remove(c);
+            }
+            for (Class<?> c : level) {
+                for (Class<?> d : dependents.getOrDefault(c,
+                        Collections.emptyList())) {
+                    if (pending.containsKey(d)
+                            && pending.merge(d, -1, Integer::sum) == 0) {
+                        next.add(d);
+                    }
+                }
+            }
+            next.sort(byName);
+            level = next;
+        }
+        return levels;
+    }
+
+    private void registerModel(Class<?> domainClass, DomainType model)
+            throws InvalidModelException {
+        registerModel(domainClass, model, System.nanoTime());
+    }
+
+    /**
+     * @param start nano time the registration of the class started
+     */
+    private void registerModel(Class<?> domainClass, DomainType model,
+            long start) throws InvalidModelException {
 
         TypeDescriptor td = model.getTypeDescriptor();
 
@@ -145,17 +470,306 @@ public class DomainClassRegistry {
             classDescriptors.put(domainClass, td);
         }
 
-        ClassTypeReflector.binder(domainClass, (b) -> typeBinders.putIfAbsent(td, b));
-        ClassTypeReflector.formatters(domainClass, (f) -> objectFormatters.put(domainClass, f));
-        ClassTypeReflector.parsers(domainClass, (p) -> objectParsers.put(domainClass, p));
+        bind(classBindings.get(domainClass), td);
+        metrics.get().registered(domainClass, System.nanoTime() - start);
+    }
+
+    /**
+     * Resolves the binder, formatter and parser of a newly registered class and
+     * publishes them, with the model, to the class binding cache.
+     *
+     * @param binding class binding
+     * @param td descriptor the class is registered as
+     * @throws InvalidModelException if the class defines invalid binding
+     * components
+     */
+    private void bind(DomainClassBinding binding, TypeDescriptor td)
+            throws InvalidModelException {
+        final Class<?> domainClass = binding.getDomainClass();
+
+        ClassTypeReflector.binder(domainClass, components,
+                (b) -> typeBinders.putIfAbsent(td, b));
+        //no explicit binder, proxy interfaces or bind through the accessors;
+        //proxies reach the registry weakly as they are cached in the class
+        //bindings, which must not reference the registry
+        final WeakReference<DomainClassRegistry> registry
+                = new WeakReference<>(this);
+        typeBinders.computeIfAbsent(td, (d) -> domainClass.isInterface()
+                ? ProxyBinder.forInterface(domainClass, d,
+                        (i) -> live(registry).asObject(i),
+                        (c, l) -> live(registry).resolveLink(c, l))
+                : AccessorBinder.forClass(domainClass, d));
+
+        //interned values are canonicalized by their binder and parsers
+        final int internCapacity = ClassTypeReflector.internCapacity(domainClass);
+        final ValueInterner interner = (internCapacity > 0)
+                ? new ValueInterner<>(internCapacity)
+                : null;
+        if (interner != null) {
+            typeBinders.computeIfPresent(td,
+                    (d, b) -> (b instanceof ValueInterner.InterningBinder)
+                            ? b
+                            : interner.binder(b));
+        }
+
+        final List<ObjectFormatter> formatters = new ArrayList<>();
+        final List<ObjectParser> parsers = new ArrayList<>();
+        ClassTypeReflector.formatters(domainClass, components,
+                (f) -> formatters.add(MeteredObjectFormatter.wrap(f,
+                        metrics::get)));
+        ClassTypeReflector.parsers(domainClass, components,
+                (p) -> parsers.add(new MeteredObjectParser<>(
+                        (interner == null) ? p : interner.parser(p),
+                        metrics::get)));
+
+        descriptorClasses.putIfAbsent(td, domainClass);
+        binding.register(td, typeResolver.resolveType(td).orElse(null),
+                typeBinders.get(td), formatters, parsers);
+        formatCache.invalidate();
+    }
+
+    /**
+     * @return the registry of a proxy binder
+     * @throws DomainInstantiationException if the registry was discarded
+     */
+    private static DomainClassRegistry live(
+            WeakReference<DomainClassRegistry> registry)
+            throws DomainInstantiationException {
+        final DomainClassRegistry r = registry.get();
+        if (r == null) {
+            throw new DomainInstantiationException("Unable to resolve proxy "
+                    + "composite, the registry of the proxy was discarded.");
+        }
+        return r;
+    }
+
+    /**
+     * Create the class binding cache, which determines the declared
+     * descriptor of each class the first time the class is seen.
+     * <p>
+     * Classes which are not domain classes are cached as well (without a
+     * descriptor), so they are only inspected once.
+     *
+     * @return class binding cache
+     */
+    private ClassValue<DomainClassBinding> newClassBindings() {
+        return new ClassValue<DomainClassBinding>() {
+            @Override
+            protected DomainClassBinding computeValue(Class<?> type) {
+                return new DomainClassBinding(type,
+                        findDeclaredDescriptor(type).orElse(null));
+            }
+        };
+    }
+
+    /**
+     * Returns the type descriptor declared by the domain class, preferring the
+     * descriptor of a generated model factory over reflection.
+     *
+     * @param domainClass class
+     * @return type descriptor or empty if the class is not a domain type
+     */
+    private Optional<TypeDescriptor> findDeclaredDescriptor(Class<?> domainClass) {
+        DomainTypeFactory generated = generatedTypes.get(domainClass);
+        return (generated != null)
+                ? Optional.of(generated.getTypeDescriptor())
+                : ClassTypeReflector.findTypeDescriptor(domainClass);
+    }
+
+    /**
+     * Returns the type descriptor of the domain class, preferring the
+     * descriptor of a generated model factory over reflection.
+     *
+     * @param domainClass domain class
+     * @return type descriptor
+     * @throws InvalidModelException if the class is not a domain type
+     */
+    private TypeDescriptor describe(Class<?> domainClass)
+            throws InvalidModelException {
+        DomainTypeFactory generated = generatedTypes.get(domainClass);
+        return (generated != null)
+                ? generated.getTypeDescriptor()
+                : ClassTypeReflector.getTypeDescriptor(domainClass);
+    }
+
+    /**
+     * Models the domain class, preferring a generated model factory over
+     * reflection.
+     *
+     * @param domainClass domain class
+     * @param td type descriptor of the domain class
+     * @return domain type model
+     * @throws InvalidModelException if the class defines an invalid model
+     */
+    private DomainType model(Class<?> domainClass, TypeDescriptor td)
+            throws InvalidModelException {
+        DomainBuilder builder = new DomainBuilder(td.getNamespace(),
+                td.getVersion(), typeResolver);
+        DomainTypeFactory generated = generatedTypes.get(domainClass);
+        return (generated != null)
+                ? generated.model(builder)
+                : ClassTypeReflector.model(domainClass, builder);
+    }
+
+    /**
+     * Index the generated domain model factories available to the
+     * ServiceLoader by domain class.
+     * <p>
+     * Factories which cannot be loaded (ie a stale index entry) are skipped,
+     * their classes will be modeled using reflection.
+     *
+     * @return generated model factories by domain class
+     */
+    private static Map<Class<?>, DomainTypeFactory> loadGeneratedTypes() {
+        Map<Class<?>, DomainTypeFactory> factories = new HashMap<>();
+        Iterator<DomainTypeFactory> loaded
+                = ServiceLoader.load(DomainTypeFactory.class).iterator();
+        while (true) {
+            try {
+                if (!loaded.hasNext()) {
+                    break;
+                }
+                DomainTypeFactory f = loaded.next();
+                factories.putIfAbsent(f.getDomainClass(), f);
+            } catch (ServiceConfigurationError ex) {
+                //skip, class will be modeled using reflection
+            }
+        }
+        return Collections.unmodifiableMap(factories);
+    }
+
+    /**
+     * Load the streaming parsers available to the ServiceLoader; parsers
+     * which cannot be loaded are skipped.
+     *
+     * @return streaming parsers
+     */
+    private static List<StreamingObjectParser<?>> loadStreamingParsers() {
+        List<StreamingObjectParser<?>> parsers = new ArrayList<>();
+        Iterator<StreamingObjectParser> loaded
+                = ServiceLoader.load(StreamingObjectParser.class).iterator();
+        while (true) {
+            try {
+                if (!loaded.hasNext()) {
+                    break;
+                }
+                parsers.add(loaded.next());
+            } catch (ServiceConfigurationError ex) {
+                //skip
+            }
+        }
+        return parsers;
     }
 
+    /**
+     * Format factory of the registry.
+     * <p>
+     * Providers must be added through {@link #addFormatProvider} so
+     * previously resolved formatters and parsers are invalidated. The factory
+     * cannot be observed: formatters, parsers and unsupported formats resolved
+     * by any registry using the factory remain cached, and stale, if a
+     * provider is added to the factory directly (the default factory is
+     * global).
+     *
+     * @return format factory
+     */
     public FormatFactory getFormatFactory() {
         return formatFactory;
     }
 
+    /**
+     * Install the metrics which receive the instrumentation events of this
+     * registry.
+     *
+     * @param metrics registry metrics, or {@link RegistryMetrics#NONE} to
+     * disable instrumentation
+     * @see org.geoint.acetate.java.metrics.RegistryStatistics
+     */
+    public void setMetrics(RegistryMetrics metrics) {
+        this.metrics.set(Objects.requireNonNull(metrics));
+        defaultBinders.setMetrics(metrics);
+    }
+
+    public RegistryMetrics getMetrics() {
+        return metrics.get();
+    }
+
     public void register(TypeDescriptor td, ObjectBinder binder) {
+        //replacement binders of interned values keep interning them
+        final ObjectBinder current = typeBinders.get(td);
+        if (current instanceof ValueInterner.InterningBinder
+                && !(binder instanceof ValueInterner.InterningBinder)) {
+            binder = ((ValueInterner.InterningBinder) current).getInterner()
+                    .binder(binder);
+        }
         typeBinders.put(td, binder);
+
+        final Class<?> domainClass = descriptorClasses.get(td);
+        if (domainClass != null) {
+            classBindings.get(domainClass).setBinder(binder);
+        }
+        republish();
+    }
+
+    /**
+     * Compile the current registrations into an immutable snapshot and serve
+     * all subsequent lookups of registered classes from it.
+     * <p>
+     * The registry remains writable; each later registration compiles and
+     * atomically publishes a new snapshot epoch, so readers never observe a
+     * partially applied registration. Registrations are more expensive while
+     * frozen, so this is intended for registries which are read-mostly after
+     * startup.
+     *
+     * @return the published snapshot
+     */
+    public RegistrySnapshot freeze() {
+        synchronized (frozen) {
+            final RegistrySnapshot snap = compileSnapshot();
+            frozen.set(snap);
+            return snap;
+        }
+    }
+
+    /**
+     * Determine if lookups are served from a snapshot.
+     *
+     * @return true if the registry is frozen
+     */
+    public boolean isFrozen() {
+        return frozen.get() != null;
+    }
+
+    /**
+     * Returns an immutable snapshot of the current registrations.
+     * <p>
+     * If the registry is frozen the current epoch is returned, otherwise a new
+     * snapshot is compiled (but not used by the registry).
+     *
+     * @return registry snapshot
+     */
+    public RegistrySnapshot snapshot() {
+        final RegistrySnapshot snap = frozen.get();
+        return (snap != null) ? snap : compileSnapshot();
+    }
+
+    /**
+     * Publish a new snapshot epoch if the registry is frozen.
+     */
+    private void republish() {
+        if (frozen.get() == null) {
+            return;
+        }
+        synchronized (frozen) {
+            frozen.set(compileSnapshot());
+        }
+    }
+
+    private RegistrySnapshot compileSnapshot() {
+        return RegistrySnapshot.compile(epoch.incrementAndGet(),
+                new HashMap<>(descriptorClasses),
+                new HashMap<>(typeBinders),
+                typeResolver::resolveType);
     }
 
     public void registerDefaultBinder(ObjectBinder binder) {
@@ -163,22 +777,612 @@ public class DomainClassRegistry {
     }
 
     public Optional<Class<?>> findClass(TypeDescriptor td) {
-        return classDescriptors.findKey(td);
+        final RegistrySnapshot snap = frozen.get();
+        if (snap != null) {
+            final Optional<Class<?>> c = snap.findClass(td);
+            if (c.isPresent()) {
+                return c;
+            }
+        }
+
+        final Class<?> domainClass = descriptorClasses.get(td);
+        if (domainClass != null) {
+            return Optional.of(domainClass);
+        }
+
+        //class may only be known to a provided class descriptor map
+        if (!providedDescriptors) {
+            return Optional.empty();
+        }
+        synchronized (classDescriptors) {
+            return classDescriptors.findKey(td);
+        }
+    }
+
+    /**
+     * Returns the type descriptor of a class, whether it is registered or only
+     * declares a domain type.
+     * <p>
+     * The result is cached for each class; classes which are not domain
+     * classes are rejected without creating an exception.
+     *
+     * @param domainClass class
+     * @return type descriptor or empty if the class is not a domain type
+     */
+    public Optional<TypeDescriptor> findTypeDescriptor(Class<?> domainClass) {
+        return Optional.ofNullable(classBindings.get(domainClass).getDescriptor());
     }
 
     public Optional<DomainType> findType(Class<?> domainClass) {
-        return classDescriptors.findValue(domainClass)
-                .map((td) -> typeResolver.resolveType(td).orElse(null));
+        final RegistrySnapshot snap = frozen.get();
+        if (snap != null) {
+            final Optional<DomainType> t = snap.findType(domainClass);
+            if (t.isPresent()) {
+                return t;
+            }
+        }
+
+        final DomainType type = classBindings.get(domainClass).getType();
+        if (type != null) {
+            return Optional.of(type);
+        }
+
+        return providedDescriptor(domainClass)
+                .flatMap(typeResolver::resolveType);
+    }
+
+    /**
+     * Returns the default formatter of a registered domain class.
+     *
+     * @param domainClass domain class
+     * @return default formatter or empty if the class did not define one
+     */
+    public Optional<ObjectFormatter> findObjectFormatter(Class<?> domainClass) {
+        return Optional.ofNullable(classBindings.get(domainClass).getFormatter());
+    }
+
+    /**
+     * Returns the default parser of a registered domain class.
+     *
+     * @param domainClass domain class
+     * @return default parser or empty if the class did not define one
+     */
+    public Optional<ObjectParser> findObjectParser(Class<?> domainClass) {
+        return Optional.ofNullable(classBindings.get(domainClass).getParser());
+    }
+
+    /**
+     * Returns the first formatter of a registered domain class which supports
+     * the format.
+     * <p>
+     * The resolved formatter (or its absence) is cached until a format
+     * provider or domain class is added.
+     *
+     * @param domainClass domain class
+     * @param format type format
+     * @return formatter or empty if the class defines no formatter supporting
+     * the format
+     */
+    public Optional<ObjectFormatter> findObjectFormatter(Class<?> domainClass,
+            TypeFormat format) {
+        final DomainClassBinding binding = classBindings.get(domainClass);
+        if (!binding.isRegistered()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable((ObjectFormatter) formatCache.resolve(
+                FormatResolutionCache.Kind.OBJECT_FORMATTER, domainClass, format,
+                () -> binding.getFormatters().stream()
+                        .filter((f) -> f.supports(format))
+                        .findFirst().orElse(null)));
+    }
+
+    /**
+     * Returns the formatter of the class registered for a type which supports
+     * the format.
+     *
+     * @param td domain type
+     * @param format type format
+     * @return formatter or empty if the type is not registered or defines no
+     * formatter supporting the format
+     * @see #findObjectFormatter(Class, TypeFormat)
+     */
+    public Optional<ObjectFormatter> findObjectFormatter(TypeDescriptor td,
+            TypeFormat format) {
+        return findClass(td).flatMap((c) -> findObjectFormatter(c, format));
+    }
+
+    /**
+     * Returns the first parser of a registered domain class which supports the
+     * format.
+     * <p>
+     * The resolved parser (or its absence) is cached until a format provider
+     * or domain class is added.
+     *
+     * @param domainClass domain class
+     * @param format type format
+     * @return parser or empty if the class defines no parser supporting the
+     * format
+     */
+    public Optional<ObjectParser> findObjectParser(Class<?> domainClass,
+            TypeFormat format) {
+        final DomainClassBinding binding = classBindings.get(domainClass);
+        if (!binding.isRegistered()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable((ObjectParser) formatCache.resolve(
+                FormatResolutionCache.Kind.OBJECT_PARSER, domainClass, format,
+                () -> binding.getParsers().stream()
+                        .filter((p) -> p.supports(format))
+                        .findFirst().orElse(null)));
+    }
+
+    /**
+     * Returns the parser of the class registered for a type which supports
+     * the format.
+     *
+     * @param td domain type
+     * @param format type format
+     * @return parser or empty if the type is not registered or defines no
+     * parser supporting the format
+     * @see #findObjectParser(Class, TypeFormat)
+     */
+    public Optional<ObjectParser> findObjectParser(TypeDescriptor td,
+            TypeFormat format) {
+        return findClass(td).flatMap((c) -> findObjectParser(c, format));
+    }
+
+    /**
+     * Register the repository used to resolve {@link ResourceLink resource
+     * links} to resources of the class.
+     * <p>
+     * Registered domain interfaces are bound to proxies which resolve their
+     * link composites on first access, through this repository.
+     *
+     * @param <T> resource class type
+     * @param resourceClass resource class
+     * @param repository resource repository
+     * @see ProxyBinder
+     */
+    public <T> void registerRepository(Class<T> resourceClass,
+            ResourceRepository<T> repository) {
+        repositories.put(resourceClass, Objects.requireNonNull(repository));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Optional<ResourceRepository<T>> findRepository(
+            Class<T> resourceClass) {
+        return Optional.ofNullable(
+                (ResourceRepository<T>) repositories.get(resourceClass));
+    }
+
+    /**
+     * Resolve a link through the repository of the resource class.
+     *
+     * @return linked resource object or empty if the resource is unknown
+     * @throws DomainInstantiationException if no repository is registered for
+     * the class
+     */
+    private Optional<?> resolveLink(Class<?> resourceClass, ResourceLink link)
+            throws DomainInstantiationException {
+        final ResourceRepository<?> repository = repositories.get(resourceClass);
+        if (repository == null) {
+            throw new DomainInstantiationException(String.format("Unable to "
+                    + "resolve link '%s', no repository is registered for "
+                    + "class '%s'.", link, resourceClass.getName()));
+        }
+        final Optional<? extends ResourceObject<?>> resource
+                = link.findVersion().isPresent()
+                ? repository.find(link.getGuid(), link.findVersion().get())
+                : repository.findLatest(link.getGuid());
+        return resource.map(ResourceObject::getObject);
+    }
+
+    /**
+     * Add a streaming parser, which is preferred over previously added
+     * parsers supporting the same format.
+     *
+     * @param parser streaming parser
+     */
+    public void addStreamingParser(StreamingObjectParser<?> parser) {
+        streamingParsers.add(0, Objects.requireNonNull(parser));
+    }
+
+    /**
+     * Returns a streaming parser which supports the format.
+     *
+     * @param format type format
+     * @return streaming parser or empty if no parser supports the format
+     */
+    public Optional<StreamingObjectParser<?>> findStreamingParser(
+            TypeFormat format) {
+        for (StreamingObjectParser<?> p : streamingParsers) {
+            if (p.supports(format)) {
+                return Optional.of(p);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns a streaming parser for objects of a domain class, preferring
+     * the default parser of the class if it is able to stream.
+     * <p>
+     * Other streaming parsers are only returned if they
+     * {@link StreamingObjectParser#produces produce} instances of the class.
+     *
+     * @param <T> domain class type
+     * @param domainClass domain class
+     * @param format type format
+     * @return streaming parser or empty if no parser supports the format
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Optional<StreamingObjectParser<T>> findStreamingParser(
+            Class<T> domainClass, TypeFormat format) {
+        ObjectParser<?> parser = classBindings.get(domainClass).getParser();
+        if (parser instanceof MeteredObjectParser) {
+            parser = ((MeteredObjectParser<?>) parser).getParser();
+        }
+        //streamed values of interned classes are interned as well
+        ValueInterner<T> interner = null;
+        if (parser instanceof ValueInterner.InterningParser) {
+            interner = ((ValueInterner.InterningParser<T>) parser)
+                    .getInterner();
+            parser = ((ValueInterner.InterningParser<?>) parser).getParser();
+        }
+        if (parser instanceof StreamingObjectParser
+                && ((StreamingObjectParser<?>) parser).supports(format)) {
+            return Optional.of(interned(interner,
+                    (StreamingObjectParser<T>) parser));
+        }
+        for (StreamingObjectParser<?> p : streamingParsers) {
+            if (p.supports(format) && p.produces(domainClass)) {
+                return Optional.of(interned(interner,
+                        (StreamingObjectParser<T>) p));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static <T> StreamingObjectParser<T> interned(
+            ValueInterner<T> interner, StreamingObjectParser<T> parser) {
+        return (interner == null) ? parser : interner.streamingParser(parser);
+    }
+
+    /**
+     * Memory map a file of formatted records and parse each record with the
+     * parser of the domain class supporting the format.
+     *
+     * @param <T> domain class type
+     * @param domainClass domain class of the records
+     * @param format type format of the records
+     * @param splitter record splitter
+     * @param file formatted records
+     * @param sink receives each parsed object, in file order
+     * @param executor executor to parse records concurrently, or null to
+     * parse on the calling thread
+     * @return number of records parsed
+     * @throws DomainFormatException if the class has no parser supporting the
+     * format or a record could not be parsed
+     * @throws IOException if the file could not be read
+     * @see MappedIngester
+     */
+    @SuppressWarnings("unchecked")
+    public <T> long ingest(Class<T> domainClass, TypeFormat format,
+            RecordSplitter splitter, Path file, Consumer<? super T> sink,
+            Executor executor) throws DomainFormatException, IOException {
+        final ObjectParser<T> parser = findObjectParser(domainClass, format)
+                .orElseThrow(() -> new DomainFormatException(String.format(
+                        "Class '%s' does not define a parser supporting "
+                        + "format '%s'.", domainClass.getName(), format)));
+        return new MappedIngester<>(parser, findType(domainClass).orElse(null),
+                splitter, executor, MappedIngester.DEFAULT_REGION_SIZE)
+                .ingest(file, sink);
+    }
+
+    /**
+     * Format a domain object to a stream using the default formatter of its
+     * class.
+     *
+     * @param format format
+     * @param obj domain object
+     * @param out destination stream, not closed by this method
+     * @throws IOException if the stream could not be written
+     * @throws TypeFormattingException if the object could not be formatted
+     * @throws DomainInstantiationException if the object could not be
+     * converted to a domain instance
+     * @throws InvalidModelException if the object is not a domain object or
+     * its class does not define a formatter
+     */
+    public void format(Format format, Object obj, OutputStream out)
+            throws IOException, TypeFormattingException,
+            DomainInstantiationException, InvalidModelException {
+        final ObjectFormatter<Object> formatter = objectFormatter(obj);
+        final TypeInstance instance = asType(obj);
+        final long start = (metrics.get() == RegistryMetrics.NONE) ? 0 : System.nanoTime();
+        formatter.format(format, obj, instance, out);
+        formatted(start);
     }
 
+    /**
+     * Format a domain object to a channel using the default formatter of its
+     * class.
+     * <p>
+     * If the formatter is a {@link BufferedObjectFormatter} the object is
+     * written to the channel directly from its buffers (a gathering write if
+     * the channel is a {@link GatheringByteChannel}), otherwise through a
+     * stream adapter.
+     *
+     * @param format format
+     * @param obj domain object
+     * @param channel destination channel, not closed by this method
+     * @throws IOException if the channel could not be written
+     * @throws TypeFormattingException if the object could not be formatted
+     * @throws DomainInstantiationException if the object could not be
+     * converted to a domain instance
+     * @throws InvalidModelException if the object is not a domain object or
+     * its class does not define a formatter
+     */
+    public void format(Format format, Object obj, WritableByteChannel channel)
+            throws IOException, TypeFormattingException,
+            DomainInstantiationException, InvalidModelException {
+        final ObjectFormatter<Object> formatter = objectFormatter(obj);
+        final TypeInstance instance = asType(obj);
+        final long start = (metrics.get() == RegistryMetrics.NONE) ? 0 : System.nanoTime();
+        if (formatter instanceof BufferedObjectFormatter) {
+            ((BufferedObjectFormatter<Object>) formatter)
+                    .format(format, obj, instance, channel);
+        } else {
+            formatter.format(format, obj, instance,
+                    Channels.newOutputStream(channel));
+        }
+        formatted(start);
+    }
+
+    /**
+     * Format a domain object into the remaining space of a buffer using the
+     * default formatter of its class.
+     * <p>
+     * If the formatter is a {@link BufferedObjectFormatter} the object is
+     * formatted directly into the buffer, otherwise it is formatted to a
+     * temporary array and copied.
+     *
+     * @param format format
+     * @param obj domain object
+     * @param buffer destination buffer
+     * @return true if the object was formatted, false if the buffer did not
+     * have enough remaining space, in which case the buffer position is not
+     * changed
+     * @throws IOException if the formatter failed to write
+     * @throws TypeFormattingException if the object could not be formatted
+     * @throws DomainInstantiationException if the object could not be
+     * converted to a domain instance
+     * @throws InvalidModelException if the object is not a domain object or
+     * its class does not define a formatter
+     */
+    public boolean format(Format format, Object obj, ByteBuffer buffer)
+            throws IOException, TypeFormattingException,
+            DomainInstantiationException, InvalidModelException {
+        final ObjectFormatter<Object> formatter = objectFormatter(obj);
+        final TypeInstance instance = asType(obj);
+        final long start = (metrics.get() == RegistryMetrics.NONE) ? 0 : System.nanoTime();
+        final int position = buffer.position();
+        boolean written;
+        if (formatter instanceof BufferedObjectFormatter) {
+            written = ((BufferedObjectFormatter<Object>) formatter)
+                    .format(format, obj, instance, buffer);
+        } else {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            formatter.format(format, obj, instance, out);
+            written = out.size() <= buffer.remaining();
+            if (written) {
+                buffer.put(out.toByteArray());
+            }
+        }
+        if (!written) {
+            buffer.position(position);
+        }
+        formatted(start);
+        return written;
+    }
+
+    /**
+     * Format a collection of domain objects to a channel, in chunks formatted
+     * concurrently on the common fork-join pool.
+     *
+     * @param format format
+     * @param objects domain objects
+     * @param channel destination channel, not closed by this method
+     * @return number of objects formatted
+     * @throws IOException if the channel could not be written
+     * @throws TypeFormattingException if an object could not be formatted
+     * @throws DomainInstantiationException if an object could not be
+     * converted to a domain instance
+     * @throws InvalidModelException if an object is not a domain object or
+     * its class does not define a formatter
+     * @see #formatAll(Format, Iterable, WritableByteChannel, Executor)
+     */
+    public long formatAll(Format format, Iterable<?> objects,
+            WritableByteChannel channel) throws IOException,
+            TypeFormattingException, DomainInstantiationException,
+            InvalidModelException {
+        return formatAll(format, objects, channel, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Format a collection of domain objects to a channel using the default
+     * formatter of each object class.
+     * <p>
+     * Objects are formatted in chunks into pooled buffers, concurrently on
+     * the executor, and the chunks are written to the channel in iteration
+     * order. The objects are read from the iterable only as fast as formatted
+     * chunks are written, so the formatted output held in memory is bounded
+     * regardless of the size of the collection. If an object fails to format
+     * the chunks preceding it may already have been written.
+     *
+     * @param format format
+     * @param objects domain objects
+     * @param channel destination channel, not closed by this method
+     * @param executor executor to format chunks concurrently, or null to
+     * format on the calling thread
+     * @return number of objects formatted
+     * @throws IOException if the channel could not be written
+     * @throws TypeFormattingException if an object could not be formatted
+     * @throws DomainInstantiationException if an object could not be
+     * converted to a domain instance
+     * @throws InvalidModelException if an object is not a domain object or
+     * its class does not define a formatter
+     */
+    public long formatAll(Format format, Iterable<?> objects,
+            WritableByteChannel channel, Executor executor)
+            throws IOException, TypeFormattingException,
+            DomainInstantiationException, InvalidModelException {
+        return new ParallelFormatter((obj, out) -> format(format, obj, out),
+                executor, formatBuffers).format(objects.iterator(), channel);
+    }
+
+    /**
+     * Format a collection of domain objects to a stream.
+     *
+     * @param format format
+     * @param objects domain objects
+     * @param out destination stream, not closed by this method
+     * @param executor executor to format chunks concurrently, or null to
+     * format on the calling thread
+     * @return number of objects formatted
+     * @throws IOException if the stream could not be written
+     * @throws TypeFormattingException if an object could not be formatted
+     * @throws DomainInstantiationException if an object could not be
+     * converted to a domain instance
+     * @throws InvalidModelException if an object is not a domain object or
+     * its class does not define a formatter
+     * @see #formatAll(Format, Iterable, WritableByteChannel, Executor)
+     */
+    public long formatAll(Format format, Iterable<?> objects, OutputStream out,
+            Executor executor) throws IOException, TypeFormattingException,
+            DomainInstantiationException, InvalidModelException {
+        return formatAll(format, objects, Channels.newChannel(out), executor);
+    }
+
+    /**
+     * Format a domain object into pooled output, directly into the pooled
+     * buffers if the formatter is a {@link BufferedObjectFormatter}.
+     */
+    private void format(Format format, Object obj, PooledOutput out)
+            throws IOException, TypeFormattingException,
+            DomainInstantiationException, InvalidModelException {
+        final ObjectFormatter<Object> formatter = objectFormatter(obj);
+        final TypeInstance instance = asType(obj);
+        final long start = (metrics.get() == RegistryMetrics.NONE) ? 0 : System.nanoTime();
+        if (formatter instanceof BufferedObjectFormatter) {
+            final BufferedObjectFormatter<Object> buffered
+                    = (BufferedObjectFormatter<Object>) formatter;
+            if (!formatInto(buffered, format, obj, instance, out.current())) {
+                out.next();
+                if (!formatInto(buffered, format, obj, instance, out.current())) {
+                    //larger than a pooled buffer
+                    out.append(buffered.formatBuffers(format, obj, instance));
+                }
+            }
+        } else {
+            formatter.format(format, obj, instance, out);
+        }
+        formatted(start);
+    }
+
+    private static boolean formatInto(BufferedObjectFormatter<Object> formatter,
+            Format format, Object obj, TypeInstance instance, ByteBuffer buffer)
+            throws TypeFormattingException {
+        final int position = buffer.position();
+        if (formatter.format(format, obj, instance, buffer)) {
+            return true;
+        }
+        buffer.position(position);
+        return false;
+    }
+
+    /**
+     * Returns the (unmetered) default formatter of the object class; the
+     * format methods of the registry report format metrics themselves.
+     */
+    @SuppressWarnings("unchecked")
+    private ObjectFormatter<Object> objectFormatter(Object obj)
+            throws InvalidModelException {
+        ObjectFormatter<?> formatter
+                = classBindings.get(obj.getClass()).getFormatter();
+        if (formatter instanceof MeteredObjectFormatter) {
+            formatter = ((MeteredObjectFormatter<?>) formatter).getFormatter();
+        }
+        if (formatter == null) {
+            throw new InvalidModelException(String.format("Class '%s' is not "
+                    + "registered with a formatter.", obj.getClass().getName()));
+        }
+        return (ObjectFormatter<Object>) formatter;
+    }
+
+    private void formatted(long start) {
+        if (start != 0) {
+            metrics.get().formatted(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Add a format provider to the format factory of the registry.
+     * <p>
+     * Cached format resolutions of all registries sharing the format factory
+     * are discarded; this is the only way providers added after resolution
+     * are seen.
+     *
+     * @param provider format provider
+     */
+    public void addFormatProvider(FormatProvider provider) {
+        formatFactory.addProvider(provider);
+        FormatResolutionCache.providerAdded(formatFactory);
+    }
+
+    /**
+     * Returns the parser of the format factory for the format.
+     * <p>
+     * The resolved parser (or the unsupported format) is cached until a
+     * format provider is added through {@link #addFormatProvider} or a domain
+     * class is registered; see {@link #getFormatFactory()}.
+     *
+     * @param format type format
+     * @return parser
+     * @throws UnsupportedFormatException if the format is not supported
+     */
     public TypeParser findParser(TypeFormat format)
             throws UnsupportedFormatException {
-        return formatFactory.getParser(format);
+        return (TypeParser) FormatResolutionCache.supported(formatCache.resolve(
+                FormatResolutionCache.Kind.TYPE_PARSER, null, format, () -> {
+                    try {
+                        return formatFactory.getParser(format);
+                    } catch (UnsupportedFormatException ex) {
+                        return FormatResolutionCache.unsupported(ex);
+                    }
+                }));
     }
 
+    /**
+     * Returns the formatter of the format factory for the format.
+     * <p>
+     * The resolved formatter (or the unsupported format) is cached until a
+     * format provider is added through {@link #addFormatProvider} or a domain
+     * class is registered; see {@link #getFormatFactory()}.
+     *
+     * @param format type format
+     * @return formatter
+     * @throws UnsupportedFormatException if the format is not supported
+     */
     public TypeFormatter findFormatter(TypeFormat format)
             throws UnsupportedFormatException {
-        return formatFactory.getFormatter(format);
+        return (TypeFormatter) FormatResolutionCache.supported(formatCache.resolve(
+                FormatResolutionCache.Kind.TYPE_FORMATTER, null, format, () -> {
+                    try {
+                        return formatFactory.getFormatter(format);
+                    } catch (UnsupportedFormatException ex) {
+                        return FormatResolutionCache.unsupported(ex);
+                    }
+                }));
     }
 
     /**
@@ -190,9 +1394,39 @@ public class DomainClassRegistry {
      * @return
      */
     public Optional<ObjectBinder> findBinder(TypeDescriptor td) {
+        final RegistrySnapshot snap = frozen.get();
+        if (snap != null) {
+            final Optional<ObjectBinder> b = snap.findBinder(td);
+            if (b.isPresent()) {
+                return b;
+            }
+        }
         return Optional.ofNullable(typeBinders.get(td));
     }
 
+    /**
+     * Returns the binder of a type if it is, or is decorated by the registry
+     * from, a binder of the requested class.
+     * <p>
+     * Binders registered for interned values are decorated by the registry,
+     * this returns the binder they decorate.
+     *
+     * @param <B> binder type
+     * @param td domain type
+     * @param binderClass binder class
+     * @return binder or empty if the type has no binder of the class
+     * @see #findBinder(TypeDescriptor)
+     */
+    public <B extends ObjectBinder> Optional<B> findBinder(TypeDescriptor td,
+            Class<B> binderClass) {
+        return findBinder(td)
+                .map((b) -> (b instanceof ValueInterner.InterningBinder)
+                        ? ((ValueInterner.InterningBinder<?>) b).getBinder()
+                        : b)
+                .filter(binderClass::isInstance)
+                .map(binderClass::cast);
+    }
+
     /**
      * Attempts to bind the type instance to a java object using the best binder
      * known to the registry.
@@ -203,26 +1437,122 @@ public class DomainClassRegistry {
      * type type instance/class
      */
     public Object asObject(TypeInstance instance) throws DomainInstantiationException {
-        Optional<ObjectBinder> binder = findBinder(instance.getTypeDescriptor());
+        final RegistryMetrics m = metrics.get();
+        if (m == RegistryMetrics.NONE) {
+            return bindObject(instance, m);
+        }
+        final long start = System.nanoTime();
+        try {
+            return bindObject(instance, m);
+        } finally {
+            m.bound(System.nanoTime() - start);
+        }
+    }
+
+    private Object bindObject(TypeInstance instance, RegistryMetrics m)
+            throws DomainInstantiationException {
+        return objectBinder(instance.getTypeDescriptor(), m).asObject(instance);
+    }
+
+    /**
+     * @return binder registered for the type, or the default binders
+     */
+    private ObjectBinder objectBinder(TypeDescriptor td, RegistryMetrics m) {
+        Optional<ObjectBinder> binder = findBinder(td);
         if (binder.isPresent()) {
-            return binder.get().asObject(instance);
+            m.binderHit(td);
+            return binder.get();
         }
+        m.binderMiss(td);
+        return defaultBinder;
+    }
 
-        //TODO make this default binder process better than trial and error
-        return defaultBinders.parallelStream()
-                .map((b) -> {
-                    try {
-                        return b.asObject(instance);
-                    } catch (Throwable ex) {
-                        return null;
-                    }
-                })
-                .filter(Objects::nonNull)
-                .findFirst()
-                .orElseThrow(() -> new DomainInstantiationException(
-                        String.format("Unable to resolve ObjectBinder for "
-                                + "type '%s'",
-                                instance.getTypeDescriptor().toString())));
+    /**
+     * Converts type instances to java objects using the best binder known to
+     * the registry for each type.
+     *
+     * @param instances domain instances
+     * @return java objects, in the order of the instances
+     * @throws DomainInstantiationException if an instance could not be bound
+     * @see #asObjects(Iterable, Executor)
+     */
+    public List<Object> asObjects(Iterable<? extends TypeInstance> instances)
+            throws DomainInstantiationException {
+        return asObjects(instances, null);
+    }
+
+    /**
+     * Converts type instances to java objects using the best binder known to
+     * the registry for each type.
+     * <p>
+     * The binder of each distinct type is resolved once for the batch (and
+     * binder hits/misses are reported once per type). If all instances share
+     * a binder, the instances are converted through the bulk method of the
+     * binder. If an executor is provided, large batches are converted
+     * concurrently in chunks.
+     *
+     * @param instances domain instances
+     * @param executor executor used to convert chunks concurrently, or null
+     * to convert on the calling thread
+     * @return java objects, in the order of the instances
+     * @throws DomainInstantiationException if an instance could not be bound
+     */
+    public List<Object> asObjects(Iterable<? extends TypeInstance> instances,
+            Executor executor) throws DomainInstantiationException {
+        final RegistryMetrics m = metrics.get();
+        final List<TypeInstance> sources = BatchConversion.toList(instances);
+        final Map<TypeDescriptor, ObjectBinder> binders = new HashMap<>();
+        for (TypeInstance i : sources) {
+            binders.computeIfAbsent(i.getTypeDescriptor(),
+                    (td) -> objectBinder(td, m));
+        }
+        final ObjectBinder shared = (binders.size() == 1)
+                ? binders.values().iterator().next()
+                : null;
+        return BatchConversion.convert(sources, (chunk, results, offset) -> {
+            if (shared != null) {
+                final List<?> objects = shared.asObjects(chunk);
+                for (int i = 0; i < objects.size(); i++) {
+                    results[offset + i] = objects.get(i);
+                }
+                return;
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                final TypeInstance instance = chunk.get(i);
+                results[offset + i] = binders.get(instance.getTypeDescriptor())
+                        .asObject(instance);
+            }
+        }, executor);
+    }
+
+    /**
+     * Converts a stream of type instances to java objects.
+     *
+     * @param instances domain instances
+     * @param executor executor used to convert chunks concurrently, or null
+     * to convert on the calling thread
+     * @return java objects, in the encounter order of the instances
+     * @throws DomainInstantiationException if an instance could not be bound
+     * @see #asObjects(Iterable, Executor)
+     */
+    public List<Object> asObjects(Stream<? extends TypeInstance> instances,
+            Executor executor) throws DomainInstantiationException {
+        return asObjects(instances.collect(Collectors.toList()), executor);
+    }
+
+    /**
+     * Converts an array of type instances to java objects.
+     *
+     * @param instances domain instances
+     * @param executor executor used to convert chunks concurrently, or null
+     * to convert on the calling thread
+     * @return java objects, in the order of the instances
+     * @throws DomainInstantiationException if an instance could not be bound
+     * @see #asObjects(Iterable, Executor)
+     */
+    public List<Object> asObjects(TypeInstance[] instances, Executor executor)
+            throws DomainInstantiationException {
+        return asObjects(Arrays.asList(instances), executor);
     }
 
     /**
@@ -237,31 +1567,204 @@ public class DomainClassRegistry {
      */
     public TypeInstance asType(Object object)
             throws DomainInstantiationException, InvalidModelException {
-        Optional<TypeDescriptor> desc = classDescriptors.findValue(object.getClass());
+        final TypeInstance instance = asTypeIfDomain(object);
+        if (instance == null) {
+            throw new ClassNotDomainTypeException(object.getClass(),
+                    "Class does not describe its domain affiliation through "
+                    + "a supported domain annotation.");
+        }
+        return instance;
+    }
 
-        if (!desc.isPresent()) {
-            TypeDescriptor td = ClassTypeReflector.getTypeDescriptor(object.getClass());
+    /**
+     * Converts a java object to a TypeInstance if the object is a domain
+     * object.
+     * <p>
+     * Unlike {@link #asType(Object)} objects which are not domain objects are
+     * rejected without creating an exception.
+     *
+     * @param object source object
+     * @return domain type instance or empty if the object class is not a
+     * domain class
+     * @throws DomainInstantiationException if the binder cannot be used for
+     * the object
+     */
+    public Optional<TypeInstance> findTypeInstance(Object object)
+            throws DomainInstantiationException {
+        return Optional.ofNullable(asTypeIfDomain(object));
+    }
 
-            Optional<ObjectBinder> binder = findBinder(td);
-            if (binder.isPresent()) {
-                return binder.get().asType(object);
+    /**
+     * @return type instance or null if the object class is not a domain class
+     */
+    private TypeInstance asTypeIfDomain(Object object)
+            throws DomainInstantiationException {
+        final RegistryMetrics m = metrics.get();
+        if (m == RegistryMetrics.NONE) {
+            return bindType(object, m);
+        }
+        final long start = System.nanoTime();
+        try {
+            return bindType(object, m);
+        } finally {
+            m.bound(System.nanoTime() - start);
+        }
+    }
+
+    private TypeInstance bindType(Object object, RegistryMetrics m)
+            throws DomainInstantiationException {
+        final ObjectBinder binder = typeBinder(object.getClass(), m);
+        return (binder == null) ? null : binder.asType(object);
+    }
+
+    /**
+     * @return binder registered for the class, the default binders, or null
+     * if the class is not a domain class
+     */
+    private ObjectBinder typeBinder(Class<?> objectClass, RegistryMetrics m) {
+        final RegistrySnapshot snap = frozen.get();
+        if (snap != null) {
+            final Optional<TypeDescriptor> td = snap.findDescriptor(objectClass);
+            final Optional<ObjectBinder> b = td.flatMap(snap::findBinder);
+            if (b.isPresent()) {
+                m.binderHit(td.get());
+                return b.get();
             }
         }
 
-        //TODO make this default binder process better than trial and error
-        return defaultBinders.parallelStream()
-                .map((b) -> {
-                    try {
-                        return b.asType(object);
-                    } catch (Throwable ex) {
-                        return null;
-                    }
-                })
-                .filter(Objects::nonNull)
-                .findFirst()
-                .orElseThrow(() -> new DomainInstantiationException(
-                        String.format("Unable to resolve ObjectBinder for "
-                                + "object class '%s'",
-                                object.getClass().getName())));
+        final DomainClassBinding binding = classBindings.get(objectClass);
+        final ObjectBinder registered = binding.getBinder();
+        if (registered != null) {
+            m.binderHit(binding.getDescriptor());
+            return registered;
+        }
+
+        TypeDescriptor td = binding.getDescriptor();
+        if (td == null) {
+            td = providedDescriptor(objectClass).orElse(null);
+            if (td == null) {
+                return null; //not a domain class
+            }
+        }
+        return objectBinder(td, m);
+    }
+
+    /**
+     * Returns the descriptor of a class only known to a class descriptor map
+     * provided to the constructor.
+     * <p>
+     * The default map only holds registered classes, which the class bindings
+     * already know, so it is not consulted and lookups of non-domain classes
+     * remain lock-free.
+     *
+     * @param objectClass class
+     * @return descriptor or empty if the class is not in a provided map
+     */
+    private Optional<TypeDescriptor> providedDescriptor(Class<?> objectClass) {
+        if (!providedDescriptors) {
+            return Optional.empty();
+        }
+        synchronized (classDescriptors) {
+            return classDescriptors.findValue(objectClass);
+        }
+    }
+
+    /**
+     * Converts java objects to TypeInstances using the best binder known to
+     * the registry for each class.
+     *
+     * @param objects source objects
+     * @return domain type instances, in the order of the objects
+     * @throws DomainInstantiationException if an object could not be bound
+     * @throws InvalidModelException if an object is not a type representation
+     * @see #asTypes(Iterable, Executor)
+     */
+    public List<TypeInstance> asTypes(Iterable<?> objects)
+            throws DomainInstantiationException, InvalidModelException {
+        return asTypes(objects, null);
+    }
+
+    /**
+     * Converts java objects to TypeInstances using the best binder known to
+     * the registry for each class.
+     * <p>
+     * The binder of each distinct class is resolved once for the batch (and
+     * binder hits/misses are reported once per class). If all objects share a
+     * binder, the objects are converted through the bulk method of the
+     * binder. If an executor is provided, large batches are converted
+     * concurrently in chunks.
+     *
+     * @param objects source objects
+     * @param executor executor used to convert chunks concurrently, or null
+     * to convert on the calling thread
+     * @return domain type instances, in the order of the objects
+     * @throws DomainInstantiationException if an object could not be bound
+     * @throws InvalidModelException if an object is not a type representation
+     */
+    public List<TypeInstance> asTypes(Iterable<?> objects, Executor executor)
+            throws DomainInstantiationException, InvalidModelException {
+        final RegistryMetrics m = metrics.get();
+        final List<Object> sources = BatchConversion.toList(objects);
+        final Map<Class<?>, ObjectBinder> binders = new HashMap<>();
+        for (Object o : sources) {
+            final Class<?> objectClass = o.getClass();
+            if (!binders.containsKey(objectClass)) {
+                final ObjectBinder binder = typeBinder(objectClass, m);
+                if (binder == null) {
+                    throw new ClassNotDomainTypeException(objectClass,
+                            "Class does not describe its domain affiliation "
+                            + "through a supported domain annotation.");
+                }
+                binders.put(objectClass, binder);
+            }
+        }
+        final ObjectBinder shared = (binders.size() == 1)
+                ? binders.values().iterator().next()
+                : null;
+        return BatchConversion.convert(sources, (chunk, results, offset) -> {
+            if (shared != null) {
+                final List<TypeInstance> instances = shared.asTypes(chunk);
+                for (int i = 0; i < instances.size(); i++) {
+                    results[offset + i] = instances.get(i);
+                }
+                return;
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                final Object o = chunk.get(i);
+                results[offset + i] = binders.get(o.getClass()).asType(o);
+            }
+        }, executor);
+    }
+
+    /**
+     * Converts a stream of java objects to TypeInstances.
+     *
+     * @param objects source objects
+     * @param executor executor used to convert chunks concurrently, or null
+     * to convert on the calling thread
+     * @return domain type instances, in the encounter order of the objects
+     * @throws DomainInstantiationException if an object could not be bound
+     * @throws InvalidModelException if an object is not a type representation
+     * @see #asTypes(Iterable, Executor)
+     */
+    public List<TypeInstance> asTypes(Stream<?> objects, Executor executor)
+            throws DomainInstantiationException, InvalidModelException {
+        return asTypes(objects.collect(Collectors.toList()), executor);
+    }
+
+    /**
+     * Converts an array of java objects to TypeInstances.
+     *
+     * @param objects source objects
+     * @param executor executor used to convert chunks concurrently, or null
+     * to convert on the calling thread
+     * @return domain type instances, in the order of the objects
+     * @throws DomainInstantiationException if an object could not be bound
+     * @throws InvalidModelException if an object is not a type representation
+     * @see #asTypes(Iterable, Executor)
+     */
+    public List<TypeInstance> asTypes(Object[] objects, Executor executor)
+            throws DomainInstantiationException, InvalidModelException {
+        return asTypes(Arrays.asList(objects), executor);
     }
 }
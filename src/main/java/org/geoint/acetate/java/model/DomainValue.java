@@ -61,7 +61,50 @@ public @interface DomainValue {
      */
     String description() default "";
 
-//    Class<? extends ObjectFormatter> defaultFormatter();
-//
-//    Class<? extends ObjectParser> defaultParser();
+    /**
+     * Default formatter of the value.
+     * <p>
+     * {@link ObjectFormatter} itself (the default) indicates the value does
+     * not declare a default formatter.
+     *
+     * @return default formatter class
+     */
+    Class<? extends ObjectFormatter> defaultFormatter() default ObjectFormatter.class;
+
+    /**
+     * Default parser of the value.
+     * <p>
+     * {@link ObjectParser} itself (the default) indicates the value does not
+     * declare a default parser.
+     *
+     * @return default parser class
+     */
+    Class<? extends ObjectParser> defaultParser() default ObjectParser.class;
+
+    /**
+     * Additional formatters of the value, chosen by the format they support.
+     *
+     * @return formatter classes
+     */
+    Class<? extends ObjectFormatter>[] formatters() default {};
+
+    /**
+     * Additional parsers of the value, chosen by the format they support.
+     *
+     * @return parser classes
+     */
+    Class<? extends ObjectParser>[] parsers() default {};
+
+    /**
+     * Maximum number of canonical instances of the value kept by a registry;
+     * zero (the default) disables interning.
+     * <p>
+     * Objects of an interned value are replaced by an equal, previously
+     * bound or parsed instance where one is retained, so repeated values
+     * share a single object. Interned value classes must be immutable and
+     * implement {@code equals} and {@code hashCode} over their content.
+     *
+     * @return intern table capacity
+     */
+    int internCapacity() default 0;
 }
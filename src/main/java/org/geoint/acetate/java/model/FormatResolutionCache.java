@@ -0,0 +1,220 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.geoint.acetate.format.TypeFormat;
+import org.geoint.acetate.format.UnsupportedFormatException;
+
+/**
+ * Remembers the formatter or parser resolved for a (domain class or type,
+ * format) pair, including pairs for which nothing could be resolved.
+ * <p>
+ * The cache is invalidated as a whole when the components it was resolved
+ * from change (ie a format provider or domain class is added); a resolution
+ * which races with an invalidation is not cached. Format factories may be
+ * shared between registries, so providers added to a factory through
+ * {@link #providerAdded(Object)} invalidate the caches of every registry
+ * using that factory. Providers added to a factory directly are not
+ * observed, resolutions cached before remain until the next invalidation.
+ *
+ * @author steve_siebert
+ */
+final class FormatResolutionCache {
+
+    /**
+     * Component resolved for a pair.
+     */
+    enum Kind {
+        OBJECT_FORMATTER,
+        OBJECT_PARSER,
+        TYPE_FORMATTER,
+        TYPE_PARSER
+    }
+
+    /**
+     * Cached value for pairs nothing could be resolved for.
+     */
+    private static final Object NONE = new Object();
+
+    /**
+     * Generation of each format factory, incremented when a provider is added.
+     */
+    private static final Map<Object, AtomicLong> FACTORY_GENERATIONS
+            = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Map<Key, Object> resolved = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong factoryGeneration;
+    private volatile long factorySeen;
+
+    /**
+     * Cache which is not invalidated by format factory changes.
+     */
+    FormatResolutionCache() {
+        this.factoryGeneration = new AtomicLong();
+    }
+
+    /**
+     * @param factory format factory the type formatters and parsers are
+     * resolved from
+     */
+    FormatResolutionCache(Object factory) {
+        this.factoryGeneration = generationOf(factory);
+        this.factorySeen = factoryGeneration.get();
+    }
+
+    /**
+     * Invalidates the caches of all registries using the format factory.
+     *
+     * @param factory format factory a provider was added to
+     */
+    static void providerAdded(Object factory) {
+        generationOf(factory).incrementAndGet();
+    }
+
+    private static AtomicLong generationOf(Object factory) {
+        return FACTORY_GENERATIONS.computeIfAbsent(factory,
+                (f) -> new AtomicLong());
+    }
+
+    /**
+     * Returns the cached component of a pair, resolving it if not cached.
+     *
+     * @param kind component kind
+     * @param owner domain class or type descriptor, null if the component is
+     * resolved by format alone
+     * @param format type format
+     * @param resolver resolves the component, returning null if there is none
+     * @return component or null if there is none
+     */
+    Object resolve(Kind kind, Object owner, TypeFormat format,
+            Supplier<?> resolver) {
+        final long factoryGen = factoryGeneration.get();
+        if (factoryGen != factorySeen) {
+            synchronized (this) {
+                if (factoryGen != factorySeen) {
+                    invalidate();
+                    factorySeen = factoryGen;
+                }
+            }
+        }
+
+        final Key key = new Key(kind, owner, format);
+        final Object cached = resolved.get(key);
+        if (cached != null) {
+            return (cached == NONE) ? null : cached;
+        }
+
+        final long gen = generation.get();
+        final Object r = resolver.get();
+        final Object value = (r == null) ? NONE : r;
+        resolved.putIfAbsent(key, value);
+        if (generation.get() != gen
+                || factoryGeneration.get() != factoryGen) {
+            resolved.remove(key, value);
+        }
+        return r;
+    }
+
+    /**
+     * Returns the value to cache for a format which is not supported.
+     *
+     * @param ex exception raised resolving the format
+     * @return negative result
+     */
+    static Object unsupported(UnsupportedFormatException ex) {
+        return new Unsupported(ex.getMessage());
+    }
+
+    /**
+     * Throws a new exception if a resolved value is an unsupported format.
+     *
+     * @param resolved resolved value
+     * @return resolved value
+     * @throws UnsupportedFormatException if the format is not supported
+     */
+    static Object supported(Object resolved) throws UnsupportedFormatException {
+        if (resolved instanceof Unsupported) {
+            //new exception each time, exceptions are mutable and carry the
+            //stack of the first caller
+            throw new UnsupportedFormatException(
+                    ((Unsupported) resolved).message);
+        }
+        return resolved;
+    }
+
+    /**
+     * Discard all cached resolutions.
+     */
+    void invalidate() {
+        generation.incrementAndGet();
+        resolved.clear();
+    }
+
+    int size() {
+        return resolved.size();
+    }
+
+    private static final class Unsupported {
+
+        private final String message;
+
+        Unsupported(String message) {
+            this.message = message;
+        }
+    }
+
+    private static final class Key {
+
+        private final Kind kind;
+        private final Object owner;
+        private final TypeFormat format;
+        private final int hash;
+
+        Key(Kind kind, Object owner, TypeFormat format) {
+            this.kind = kind;
+            this.owner = owner;
+            this.format = format;
+            this.hash = Objects.hash(kind, owner, format);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return kind == other.kind
+                    && Objects.equals(owner, other.owner)
+                    && Objects.equals(format, other.format);
+        }
+    }
+}
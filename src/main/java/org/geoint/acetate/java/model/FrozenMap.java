@@ -0,0 +1,228 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable map using a perfect hash (hash and displace) over densely packed
+ * key/value arrays; a lookup is a bucket read, a slot read and one equals
+ * check.
+ * <p>
+ * Keys are distributed into small buckets, each bucket is assigned a seed
+ * which places all its keys into free slots. Keys whose hash code is shared
+ * by another key cannot be separated by a seed and are kept in a small
+ * overflow map instead.
+ *
+ * @author steve_siebert
+ * @param <K> key type
+ * @param <V> value type
+ */
+final class FrozenMap<K, V> {
+
+    private static final int KEYS_PER_BUCKET = 4;
+    private static final int MAX_SEED = 1 << 16;
+    private static final FrozenMap<?, ?> EMPTY = new FrozenMap<>(new int[1],
+            new Object[0], new Object[0], Collections.emptyMap(), 0);
+
+    private final int[] seeds; //seed, or -(slot+1) for single key buckets
+    private final Object[] keys;
+    private final Object[] values;
+    private final Map<K, V> overflow;
+    private final int size;
+
+    private FrozenMap(int[] seeds, Object[] keys, Object[] values,
+            Map<K, V> overflow, int size) {
+        this.seeds = seeds;
+        this.keys = keys;
+        this.values = values;
+        this.overflow = overflow;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> FrozenMap<K, V> empty() {
+        return (FrozenMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Compile a map, null keys and values are not supported.
+     *
+     * @param <K> key type
+     * @param <V> value type
+     * @param map source map
+     * @return immutable copy of the map
+     */
+    static <K, V> FrozenMap<K, V> of(Map<? extends K, ? extends V> map) {
+        if (map.isEmpty()) {
+            return empty();
+        }
+
+        //keys sharing a hash code cannot be perfect hashed
+        final Map<Integer, List<Map.Entry<? extends K, ? extends V>>> byHash
+                = new HashMap<>();
+        for (Map.Entry<? extends K, ? extends V> e : map.entrySet()) {
+            byHash.computeIfAbsent(e.getKey().hashCode(),
+                    (h) -> new ArrayList<>(1)).add(e);
+        }
+        final List<Map.Entry<? extends K, ? extends V>> hashed
+                = new ArrayList<>(byHash.size());
+        final Map<K, V> overflow = new HashMap<>();
+        for (List<Map.Entry<? extends K, ? extends V>> entries : byHash.values()) {
+            if (entries.size() == 1) {
+                hashed.add(entries.get(0));
+            } else {
+                entries.forEach((e) -> overflow.put(e.getKey(), e.getValue()));
+            }
+        }
+
+        final int n = hashed.size();
+        final int buckets = Math.max(1, n / KEYS_PER_BUCKET);
+        for (int slots = Math.max(1, n);; slots += slots / 8 + 1) {
+            FrozenMap<K, V> m = place(hashed, buckets, slots,
+                    overflow.isEmpty()
+                            ? Collections.emptyMap()
+                            : Collections.unmodifiableMap(overflow),
+                    map.size());
+            if (m != null) {
+                return m;
+            }
+        }
+    }
+
+    /**
+     * Attempt to place all keys into the given number of slots.
+     *
+     * @return map or null if a bucket could not be placed
+     */
+    private static <K, V> FrozenMap<K, V> place(
+            List<Map.Entry<? extends K, ? extends V>> entries, int bucketCount,
+            int slotCount, Map<K, V> overflow, int size) {
+
+        final List<List<Map.Entry<? extends K, ? extends V>>> buckets
+                = new ArrayList<>(bucketCount);
+        for (int b = 0; b < bucketCount; b++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (Map.Entry<? extends K, ? extends V> e : entries) {
+            buckets.get(bucket(e.getKey().hashCode(), bucketCount)).add(e);
+        }
+        final Integer[] order = new Integer[bucketCount];
+        for (int b = 0; b < bucketCount; b++) {
+            order[b] = b;
+        }
+        //place the largest buckets while the most slots are free
+        Arrays.sort(order,
+                (a, b) -> buckets.get(b).size() - buckets.get(a).size());
+
+        final int[] seeds = new int[bucketCount];
+        final Object[] keys = new Object[slotCount];
+        final Object[] values = new Object[slotCount];
+        final int[] placed = new int[KEYS_PER_BUCKET * 8];
+        int free = 0; //next candidate free slot for single key buckets
+
+        for (int b : order) {
+            final List<Map.Entry<? extends K, ? extends V>> bucket
+                    = buckets.get(b);
+            if (bucket.isEmpty()) {
+                break;
+            }
+            if (bucket.size() == 1) {
+                while (keys[free] != null) {
+                    free++;
+                }
+                keys[free] = bucket.get(0).getKey();
+                values[free] = bucket.get(0).getValue();
+                seeds[b] = -(free + 1);
+                continue;
+            }
+
+            final int[] slots = (bucket.size() <= placed.length)
+                    ? placed
+                    : new int[bucket.size()];
+            int seed = 1;
+            search:
+            for (; seed < MAX_SEED; seed++) {
+                for (int i = 0; i < bucket.size(); i++) {
+                    final int s = slot(bucket.get(i).getKey().hashCode(),
+                            seed, slotCount);
+                    if (keys[s] != null) {
+                        continue search;
+                    }
+                    for (int j = 0; j < i; j++) {
+                        if (slots[j] == s) {
+                            continue search;
+                        }
+                    }
+                    slots[i] = s;
+                }
+                break;
+            }
+            if (seed == MAX_SEED) {
+                return null;
+            }
+            for (int i = 0; i < bucket.size(); i++) {
+                keys[slots[i]] = bucket.get(i).getKey();
+                values[slots[i]] = bucket.get(i).getValue();
+            }
+            seeds[b] = seed;
+        }
+        return new FrozenMap<>(seeds, keys, values, overflow, size);
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(Object key) {
+        if (keys.length != 0) {
+            final int h = key.hashCode();
+            final int seed = seeds[bucket(h, seeds.length)];
+            final int slot = (seed < 0) ? -seed - 1 : slot(h, seed, keys.length);
+            final Object k = keys[slot];
+            if (k != null && k.equals(key)) {
+                return (V) values[slot];
+            }
+        }
+        return overflow.isEmpty() ? null : overflow.get(key);
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static int bucket(int hash, int buckets) {
+        return Math.floorMod(mix(hash), buckets);
+    }
+
+    private static int slot(int hash, int seed, int slots) {
+        return Math.floorMod(mix(hash ^ (seed * 0x9E3779B9)), slots);
+    }
+
+    /**
+     * murmur3 finalizer.
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares how instances of an {@link org.geoint.acetate.java.bind.ObjectBinder},
+ * {@link org.geoint.acetate.java.format.ObjectFormatter} or
+ * {@link org.geoint.acetate.java.format.ObjectParser} implementation are
+ * shared by the domain classes which declare it.
+ * <p>
+ * Implementations not annotated are {@link Scope#SHARED shared}.
+ *
+ * @see org.geoint.acetate.java.model.reflect.ComponentFactory
+ * @author steve_siebert
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Documented
+public @interface Lifecycle {
+
+    /**
+     * Instance scope of the implementation.
+     *
+     * @return scope
+     */
+    Scope value() default Scope.SHARED;
+
+    /**
+     * Maximum number of instances of a {@link Scope#POOLED pooled}
+     * implementation; zero for the number of available processors.
+     *
+     * @return pool size
+     */
+    int poolSize() default 0;
+
+    enum Scope {
+
+        /**
+         * The implementation is thread-safe; a single instance is used by all
+         * domain classes declaring it.
+         */
+        SHARED,
+        /**
+         * The implementation is not thread-safe; each thread uses its own
+         * instance.
+         */
+        THREAD,
+        /**
+         * The implementation is not thread-safe; each call borrows an
+         * instance from a bounded pool, waiting if all instances are in use.
+         */
+        POOLED
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.Supplier;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.format.Format;
+import org.geoint.acetate.format.TypeFormat;
+import org.geoint.acetate.format.TypeFormattingException;
+import org.geoint.acetate.java.format.BufferedObjectFormatter;
+import org.geoint.acetate.java.format.ObjectFormatter;
+import org.geoint.acetate.spi.java.RegistryMetrics;
+
+/**
+ * Reports the format latency of a registered formatter to the metrics of its
+ * registry.
+ * <p>
+ * {@link BufferedObjectFormatter Buffered formatters} are wrapped by a
+ * metered formatter which is itself buffered.
+ *
+ * @author steve_siebert
+ * @param <T> object type
+ */
+class MeteredObjectFormatter<T> implements ObjectFormatter<T> {
+
+    private final ObjectFormatter<T> formatter;
+    private final Supplier<RegistryMetrics> metrics;
+
+    private MeteredObjectFormatter(ObjectFormatter<T> formatter,
+            Supplier<RegistryMetrics> metrics) {
+        this.formatter = formatter;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Meter a formatter, preserving its buffered capability.
+     *
+     * @param <T> object type
+     * @param formatter formatter to meter
+     * @param metrics supplies the current registry metrics
+     * @return metered formatter
+     */
+    static <T> MeteredObjectFormatter<T> wrap(ObjectFormatter<T> formatter,
+            Supplier<RegistryMetrics> metrics) {
+        return (formatter instanceof BufferedObjectFormatter)
+                ? new Buffered<>((BufferedObjectFormatter<T>) formatter, metrics)
+                : new MeteredObjectFormatter<>(formatter, metrics);
+    }
+
+    /**
+     * Formatter reporting to the registry metrics.
+     *
+     * @return metered formatter
+     */
+    ObjectFormatter<T> getFormatter() {
+        return formatter;
+    }
+
+    @Override
+    public boolean supports(TypeFormat format) {
+        return formatter.supports(format);
+    }
+
+    /**
+     * Current metrics of the registry.
+     *
+     * @return registry metrics
+     */
+    RegistryMetrics getMetrics() {
+        return metrics.get();
+    }
+
+    @Override
+    public void format(Format format, T obj, TypeInstance instance,
+            OutputStream out) throws IOException, TypeFormattingException {
+        final RegistryMetrics m = metrics.get();
+        if (m == RegistryMetrics.NONE) {
+            formatter.format(format, obj, instance, out);
+            return;
+        }
+        final long start = System.nanoTime();
+        try {
+            formatter.format(format, obj, instance, out);
+        } finally {
+            m.formatted(System.nanoTime() - start);
+        }
+    }
+
+    private static final class Buffered<T> extends MeteredObjectFormatter<T>
+            implements BufferedObjectFormatter<T> {
+
+        private final BufferedObjectFormatter<T> buffered;
+
+        private Buffered(BufferedObjectFormatter<T> formatter,
+                Supplier<RegistryMetrics> metrics) {
+            super(formatter, metrics);
+            this.buffered = formatter;
+        }
+
+        @Override
+        public int estimateSize(Format format, T obj, TypeInstance instance) {
+            return buffered.estimateSize(format, obj, instance);
+        }
+
+        @Override
+        public boolean format(Format format, T obj, TypeInstance instance,
+                ByteBuffer buffer) throws TypeFormattingException {
+            final RegistryMetrics m = getMetrics();
+            if (m == RegistryMetrics.NONE) {
+                return buffered.format(format, obj, instance, buffer);
+            }
+            final long start = System.nanoTime();
+            try {
+                return buffered.format(format, obj, instance, buffer);
+            } finally {
+                m.formatted(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public ByteBuffer[] formatBuffers(Format format, T obj,
+                TypeInstance instance) throws TypeFormattingException {
+            final RegistryMetrics m = getMetrics();
+            if (m == RegistryMetrics.NONE) {
+                return buffered.formatBuffers(format, obj, instance);
+            }
+            final long start = System.nanoTime();
+            try {
+                return buffered.formatBuffers(format, obj, instance);
+            } finally {
+                m.formatted(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void format(Format format, T obj, TypeInstance instance,
+                WritableByteChannel channel)
+                throws IOException, TypeFormattingException {
+            final RegistryMetrics m = getMetrics();
+            if (m == RegistryMetrics.NONE) {
+                buffered.format(format, obj, instance, channel);
+                return;
+            }
+            final long start = System.nanoTime();
+            try {
+                buffered.format(format, obj, instance, channel);
+            } finally {
+                m.formatted(System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.Supplier;
+import org.geoint.acetate.format.DomainFormatException;
+import org.geoint.acetate.format.FormattedType;
+import org.geoint.acetate.format.TypeFormat;
+import org.geoint.acetate.java.format.BufferedObjectParser;
+import org.geoint.acetate.java.format.ObjectParser;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.spi.java.RegistryMetrics;
+
+/**
+ * Reports the parse latency of a registered parser to the metrics of its
+ * registry.
+ * <p>
+ * Buffers are handed to the metered parser directly if it is a
+ * {@link BufferedObjectParser}.
+ *
+ * @author steve_siebert
+ * @param <T> object type
+ */
+final class MeteredObjectParser<T> implements BufferedObjectParser<T> {
+
+    private final ObjectParser<T> parser;
+    private final Supplier<RegistryMetrics> metrics;
+
+    MeteredObjectParser(ObjectParser<T> parser,
+            Supplier<RegistryMetrics> metrics) {
+        this.parser = parser;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Parser reporting to the registry metrics.
+     *
+     * @return metered parser
+     */
+    ObjectParser<T> getParser() {
+        return parser;
+    }
+
+    @Override
+    public boolean supports(TypeFormat typeFormat) {
+        return parser.supports(typeFormat);
+    }
+
+    @Override
+    public T parse(DomainType type, FormattedType formatted)
+            throws DomainFormatException, IOException {
+        final RegistryMetrics m = metrics.get();
+        if (m == RegistryMetrics.NONE) {
+            return parser.parse(type, formatted);
+        }
+        final long start = System.nanoTime();
+        try {
+            return parser.parse(type, formatted);
+        } finally {
+            m.parsed(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public T parse(DomainType type, ByteBuffer buffer)
+            throws DomainFormatException, IOException {
+        final RegistryMetrics m = metrics.get();
+        if (m == RegistryMetrics.NONE) {
+            return BufferedObjectParser.parse(parser, type, buffer);
+        }
+        final long start = System.nanoTime();
+        try {
+            return BufferedObjectParser.parse(parser, type, buffer);
+        } finally {
+            m.parsed(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import org.geoint.acetate.DomainInstantiationException;
+import org.geoint.acetate.format.TypeFormattingException;
+import org.geoint.acetate.model.InvalidModelException;
+
+/**
+ * Formats objects in chunks, concurrently on an executor, into pooled
+ * buffers which are written to the output in the original object order.
+ * <p>
+ * The calling thread reads the objects, submits chunks and writes completed
+ * chunks; once {@link #MAX_PENDING_PER_THREAD} chunks per processor are
+ * pending it waits for the oldest before reading further objects, bounding
+ * the memory held by formatted output.
+ * <p>
+ * Instances format a single collection.
+ *
+ * @author steve_siebert
+ */
+final class ParallelFormatter {
+
+    /**
+     * Number of objects formatted by each task submitted to the executor.
+     */
+    static final int CHUNK_SIZE = 256;
+
+    /**
+     * Capacity of the pooled output buffers.
+     */
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Number of chunks per processor formatted ahead of the output.
+     */
+    static final int MAX_PENDING_PER_THREAD = 2;
+
+    /**
+     * Formats a single object.
+     */
+    @FunctionalInterface
+    interface ObjectFormat {
+
+        void format(Object obj, PooledOutput out) throws IOException,
+                TypeFormattingException, DomainInstantiationException,
+                InvalidModelException;
+    }
+
+    private final ObjectFormat format;
+    private final Executor executor;
+    private final int maxPending;
+    private final BufferPool pool;
+    private final Deque<CompletableFuture<PooledOutput>> pending
+            = new ArrayDeque<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     *
+     * @param format object format
+     * @param executor executor to format chunks concurrently, or null to
+     * format on the calling thread
+     * @param pool pool of the output buffers
+     */
+    ParallelFormatter(ObjectFormat format, Executor executor, BufferPool pool) {
+        this.format = format;
+        this.executor = executor;
+        this.pool = pool;
+        this.maxPending = MAX_PENDING_PER_THREAD
+                * Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Buffer pool sized for the output of concurrently formatted chunks.
+     */
+    static BufferPool newPool() {
+        return new BufferPool(BUFFER_SIZE, 4 * MAX_PENDING_PER_THREAD
+                * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Format the objects to the channel.
+     *
+     * @param objects objects to format
+     * @param channel destination channel, not closed by this method
+     * @return number of objects formatted
+     */
+    long format(Iterator<?> objects, WritableByteChannel channel)
+            throws IOException, TypeFormattingException,
+            DomainInstantiationException, InvalidModelException {
+        long count = 0;
+        try {
+            while (objects.hasNext()) {
+                final List<Object> chunk = new ArrayList<>(CHUNK_SIZE);
+                while (chunk.size() < CHUNK_SIZE && objects.hasNext()) {
+                    chunk.add(objects.next());
+                }
+                count += chunk.size();
+                if (executor == null) {
+                    write(formatChunk(chunk), channel);
+                } else {
+                    pending.add(CompletableFuture.supplyAsync(
+                            () -> formatAsync(chunk), executor));
+                    drain(maxPending, channel);
+                }
+            }
+            drain(0, channel);
+            return count;
+        } finally {
+            failure.compareAndSet(null, new CancellationException());
+            pending.forEach((f) -> f.cancel(false));
+            pending.clear();
+        }
+    }
+
+    private PooledOutput formatAsync(List<Object> chunk) {
+        if (failure.get() != null) {
+            return null; //already failed, skip
+        }
+        try {
+            return formatChunk(chunk);
+        } catch (IOException | TypeFormattingException
+                | DomainInstantiationException | InvalidModelException
+                | RuntimeException | Error ex) {
+            failure.compareAndSet(null, ex);
+            return null;
+        }
+    }
+
+    private PooledOutput formatChunk(List<Object> chunk)
+            throws IOException, TypeFormattingException,
+            DomainInstantiationException, InvalidModelException {
+        final PooledOutput out = new PooledOutput(pool);
+        try {
+            for (Object obj : chunk) {
+                format.format(obj, out);
+            }
+            return out;
+        } catch (IOException | TypeFormattingException
+                | DomainInstantiationException | InvalidModelException
+                | RuntimeException ex) {
+            out.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Write completed chunks until no more than {@code remaining} are pending.
+     */
+    private void drain(int remaining, WritableByteChannel channel)
+            throws IOException, TypeFormattingException,
+            DomainInstantiationException, InvalidModelException {
+        while (pending.size() > remaining) {
+            final PooledOutput out = pending.remove().join();
+            if (out == null) {
+                rethrow(failure.get()); //chunk skipped after a failure
+            }
+            write(out, channel);
+        }
+    }
+
+    private static void rethrow(Throwable cause) throws IOException,
+            TypeFormattingException, DomainInstantiationException,
+            InvalidModelException {
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        if (cause instanceof TypeFormattingException) {
+            throw (TypeFormattingException) cause;
+        }
+        if (cause instanceof DomainInstantiationException) {
+            throw (DomainInstantiationException) cause;
+        }
+        if (cause instanceof InvalidModelException) {
+            throw (InvalidModelException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new TypeFormattingException("Parallel formatting failed.", cause);
+    }
+
+    private static void write(PooledOutput out, WritableByteChannel channel)
+            throws IOException {
+        try {
+            final ByteBuffer[] buffers = out.buffers();
+            if (channel instanceof GatheringByteChannel) {
+                final GatheringByteChannel gathering
+                        = (GatheringByteChannel) channel;
+                long remaining = 0;
+                for (ByteBuffer b : buffers) {
+                    remaining += b.remaining();
+                }
+                while (remaining > 0) {
+                    remaining -= gathering.write(buffers);
+                }
+                return;
+            }
+            for (ByteBuffer b : buffers) {
+                while (b.hasRemaining()) {
+                    channel.write(b);
+                }
+            }
+        } finally {
+            out.release();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Output collected into buffers of a {@link BufferPool}.
+ * <p>
+ * Data may be written either through the stream methods or directly into
+ * the {@link #current() current buffer}. Instances are not thread-safe.
+ *
+ * @author steve_siebert
+ */
+final class PooledOutput extends OutputStream {
+
+    private final BufferPool pool;
+    private final List<ByteBuffer> buffers = new ArrayList<>(); //ready to read
+    private final List<ByteBuffer> pooled = new ArrayList<>();
+    private ByteBuffer current;
+
+    PooledOutput(BufferPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Buffer currently written to, never full when returned.
+     */
+    ByteBuffer current() {
+        if (current == null || !current.hasRemaining()) {
+            next();
+        }
+        return current;
+    }
+
+    /**
+     * Retire the current buffer and continue in an empty pooled buffer.
+     */
+    void next() {
+        retire();
+        current = pool.acquire();
+        pooled.add(current);
+    }
+
+    /**
+     * Append buffers, ready to be read, which were not acquired from the
+     * pool.
+     */
+    void append(ByteBuffer... ready) {
+        retire();
+        for (ByteBuffer b : ready) {
+            buffers.add(b);
+        }
+    }
+
+    @Override
+    public void write(int b) {
+        current().put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        while (len > 0) {
+            final ByteBuffer buffer = current();
+            final int n = Math.min(len, buffer.remaining());
+            buffer.put(b, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Written buffers, ready to be read; no further data may be written.
+     */
+    ByteBuffer[] buffers() {
+        retire();
+        return buffers.toArray(new ByteBuffer[buffers.size()]);
+    }
+
+    /**
+     * Return the pooled buffers to the pool.
+     */
+    void release() {
+        pooled.forEach(pool::release);
+        pooled.clear();
+        buffers.clear();
+        current = null;
+    }
+
+    private void retire() {
+        if (current != null) {
+            if (current.position() > 0) {
+                current.flip();
+                buffers.add(current);
+            }
+            current = null;
+        }
+    }
+}
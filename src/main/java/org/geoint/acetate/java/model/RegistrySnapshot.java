@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import org.geoint.acetate.java.bind.ObjectBinder;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.TypeDescriptor;
+
+/**
+ * Immutable, point-in-time view of the classes, models and binders of a
+ * {@link DomainClassRegistry}.
+ * <p>
+ * Lookup tables are compiled into perfect-hashed arrays when the snapshot is
+ * created. Each snapshot of a registry is stamped with an epoch, incremented
+ * every time the registry publishes a new snapshot.
+ *
+ * @author steve_siebert
+ * @see DomainClassRegistry#freeze()
+ * @see DomainClassRegistry#snapshot()
+ */
+public final class RegistrySnapshot {
+
+    private final long epoch;
+    private final FrozenMap<TypeDescriptor, Class<?>> classes;
+    private final FrozenMap<Class<?>, TypeDescriptor> descriptors;
+    private final FrozenMap<TypeDescriptor, DomainType> types;
+    private final FrozenMap<TypeDescriptor, ObjectBinder> binders;
+
+    private RegistrySnapshot(long epoch,
+            FrozenMap<TypeDescriptor, Class<?>> classes,
+            FrozenMap<Class<?>, TypeDescriptor> descriptors,
+            FrozenMap<TypeDescriptor, DomainType> types,
+            FrozenMap<TypeDescriptor, ObjectBinder> binders) {
+        this.epoch = epoch;
+        this.classes = classes;
+        this.descriptors = descriptors;
+        this.types = types;
+        this.binders = binders;
+    }
+
+    /**
+     * Compile a snapshot.
+     *
+     * @param epoch snapshot epoch
+     * @param classes registered classes by descriptor
+     * @param binders binders by descriptor
+     * @param resolver resolves the model of a registered class
+     * @return snapshot
+     */
+    static RegistrySnapshot compile(long epoch,
+            Map<TypeDescriptor, Class<?>> classes,
+            Map<TypeDescriptor, ObjectBinder> binders,
+            Function<TypeDescriptor, Optional<DomainType>> resolver) {
+        final Map<Class<?>, TypeDescriptor> descriptors = new HashMap<>();
+        final Map<TypeDescriptor, DomainType> types = new HashMap<>();
+        classes.forEach((td, c) -> {
+            descriptors.put(c, td);
+            resolver.apply(td).ifPresent((t) -> types.put(td, t));
+        });
+        return new RegistrySnapshot(epoch,
+                FrozenMap.of(classes),
+                FrozenMap.of(descriptors),
+                FrozenMap.of(types),
+                FrozenMap.of(binders));
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Number of classes in the snapshot.
+     *
+     * @return registered class count
+     */
+    public int size() {
+        return classes.size();
+    }
+
+    public Optional<Class<?>> findClass(TypeDescriptor td) {
+        return Optional.ofNullable(classes.get(td));
+    }
+
+    public Optional<TypeDescriptor> findDescriptor(Class<?> domainClass) {
+        return Optional.ofNullable(descriptors.get(domainClass));
+    }
+
+    public Optional<DomainType> findType(TypeDescriptor td) {
+        return Optional.ofNullable(types.get(td));
+    }
+
+    public Optional<DomainType> findType(Class<?> domainClass) {
+        final TypeDescriptor td = descriptors.get(domainClass);
+        return (td == null) ? Optional.empty() : findType(td);
+    }
+
+    public Optional<ObjectBinder> findBinder(TypeDescriptor td) {
+        return Optional.ofNullable(binders.get(td));
+    }
+
+    /**
+     * Binder of a registered class.
+     *
+     * @param domainClass registered class
+     * @return binder or empty if the class is not registered or has no binder
+     */
+    public Optional<ObjectBinder> findBinder(Class<?> domainClass) {
+        final TypeDescriptor td = descriptors.get(domainClass);
+        return (td == null) ? Optional.empty() : findBinder(td);
+    }
+
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.geoint.acetate.DomainInstantiationException;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.format.DomainFormatException;
+import org.geoint.acetate.format.FormattedType;
+import org.geoint.acetate.format.TypeFormat;
+import org.geoint.acetate.java.bind.ObjectBinder;
+import org.geoint.acetate.java.format.BufferedObjectParser;
+import org.geoint.acetate.java.format.ObjectParser;
+import org.geoint.acetate.java.format.ObjectStream;
+import org.geoint.acetate.java.format.StreamingObjectParser;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.TypeDescriptor;
+
+/**
+ * Bounded table of canonical instances of an immutable domain value, keyed
+ * by the content ({@code equals}/{@code hashCode}) of the value.
+ * <p>
+ * The table is direct mapped: each value hashes to a single slot, which holds
+ * the last value interned to it. Interning is lock-free and never grows the
+ * table; values colliding with a different value replace it, so equal values
+ * usually, but not always, share an instance. Callers must not rely on the
+ * identity of interned values.
+ *
+ * @author steve_siebert
+ * @param <T> value type
+ * @see DomainValue#internCapacity()
+ */
+final class ValueInterner<T> {
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final AtomicReferenceArray<T> table;
+    private final int mask;
+
+    /**
+     *
+     * @param capacity maximum number of retained values, rounded up to a
+     * power of two
+     */
+    ValueInterner(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid intern "
+                    + "capacity %d.", capacity));
+        }
+        final int size = (capacity >= MAX_CAPACITY)
+                ? MAX_CAPACITY
+                : (capacity == 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.table = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the canonical instance equal to the value, retaining the value
+     * as the canonical instance if none is.
+     *
+     * @param value value
+     * @return canonical instance, or null if the value is null
+     */
+    T intern(T value) {
+        if (value == null) {
+            return null;
+        }
+        int h = value.hashCode();
+        h ^= h >>> 16;
+        final int slot = h & mask;
+        final T canonical = table.get(slot);
+        if (canonical != null && canonical.equals(value)) {
+            return canonical;
+        }
+        table.set(slot, value);
+        return value;
+    }
+
+    /**
+     * Number of slots of the table.
+     */
+    int capacity() {
+        return table.length();
+    }
+
+    /**
+     * Binder returning canonical instances of the objects bound by the
+     * binder.
+     */
+    ObjectBinder<T> binder(ObjectBinder<T> binder) {
+        return new InterningBinder<>(binder, this);
+    }
+
+    /**
+     * Parser returning canonical instances of the objects parsed by the
+     * parser.
+     */
+    ObjectParser<T> parser(ObjectParser<T> parser) {
+        return new InterningParser<>(parser, this);
+    }
+
+    /**
+     * Streaming parser returning canonical instances of the objects parsed by
+     * the parser.
+     */
+    StreamingObjectParser<T> streamingParser(StreamingObjectParser<T> parser) {
+        return new InterningStreamingParser<>(parser, this);
+    }
+
+    static final class InterningBinder<T> implements ObjectBinder<T> {
+
+        private final ObjectBinder<T> binder;
+        private final ValueInterner<T> interner;
+
+        private InterningBinder(ObjectBinder<T> binder,
+                ValueInterner<T> interner) {
+            this.binder = binder;
+            this.interner = interner;
+        }
+
+        /**
+         * Binder the interned objects are bound by.
+         */
+        ObjectBinder<T> getBinder() {
+            return binder;
+        }
+
+        ValueInterner<T> getInterner() {
+            return interner;
+        }
+
+        @Override
+        public T asObject(TypeInstance instance)
+                throws DomainInstantiationException {
+            return interner.intern(binder.asObject(instance));
+        }
+
+        @Override
+        public List<T> asObjects(List<? extends TypeInstance> instances)
+                throws DomainInstantiationException {
+            final List<T> objects = binder.asObjects(instances);
+            final List<T> interned = new ArrayList<>(objects.size());
+            for (T o : objects) {
+                interned.add(interner.intern(o));
+            }
+            return interned;
+        }
+
+        @Override
+        public TypeInstance asType(T object)
+                throws DomainInstantiationException {
+            return binder.asType(object);
+        }
+
+        @Override
+        public List<TypeInstance> asTypes(List<? extends T> objects)
+                throws DomainInstantiationException {
+            return binder.asTypes(objects);
+        }
+
+        @Override
+        public boolean supports(TypeDescriptor type) {
+            return binder.supports(type);
+        }
+
+        @Override
+        public boolean supports(Class<?> objectClass) {
+            return binder.supports(objectClass);
+        }
+    }
+
+    static final class InterningParser<T> implements BufferedObjectParser<T> {
+
+        private final ObjectParser<T> parser;
+        private final ValueInterner<T> interner;
+
+        private InterningParser(ObjectParser<T> parser,
+                ValueInterner<T> interner) {
+            this.parser = parser;
+            this.interner = interner;
+        }
+
+        /**
+         * Parser the interned objects are parsed by.
+         */
+        ObjectParser<T> getParser() {
+            return parser;
+        }
+
+        ValueInterner<T> getInterner() {
+            return interner;
+        }
+
+        @Override
+        public boolean supports(TypeFormat typeFormat) {
+            return parser.supports(typeFormat);
+        }
+
+        @Override
+        public T parse(DomainType type, FormattedType formatted)
+                throws DomainFormatException, IOException {
+            return interner.intern(parser.parse(type, formatted));
+        }
+
+        @Override
+        public T parse(DomainType type, ByteBuffer buffer)
+                throws DomainFormatException, IOException {
+            return interner.intern(
+                    BufferedObjectParser.parse(parser, type, buffer));
+        }
+    }
+
+    static final class InterningStreamingParser<T>
+            implements StreamingObjectParser<T> {
+
+        private final StreamingObjectParser<T> parser;
+        private final ValueInterner<T> interner;
+
+        private InterningStreamingParser(StreamingObjectParser<T> parser,
+                ValueInterner<T> interner) {
+            this.parser = parser;
+            this.interner = interner;
+        }
+
+        @Override
+        public boolean supports(TypeFormat typeFormat) {
+            return parser.supports(typeFormat);
+        }
+
+        @Override
+        public boolean produces(Class<?> objectClass) {
+            return parser.produces(objectClass);
+        }
+
+        @Override
+        public ObjectStream<T> open(DomainType type, InputStream in)
+                throws DomainFormatException, IOException {
+            return intern(parser.open(type, in));
+        }
+
+        @Override
+        public ObjectStream<T> open(DomainType type,
+                ReadableByteChannel channel)
+                throws DomainFormatException, IOException {
+            return intern(parser.open(type, channel));
+        }
+
+        private ObjectStream<T> intern(ObjectStream<T> stream) {
+            return new ObjectStream<T>(stream) {
+                @Override
+                protected T read() {
+                    return stream.hasNext()
+                            ? interner.intern(stream.next())
+                            : null;
+                }
+            };
+        }
+    }
+}
@@ -20,8 +20,12 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Consumer;
 import org.geoint.acetate.functional.ThrowingConsumer;
 import org.geoint.acetate.java.bind.Binder;
@@ -60,31 +64,80 @@ public class ClassTypeReflector {
 
     public static TypeDescriptor getTypeDescriptor(Class<?> domainClass)
             throws InvalidModelException {
-        if (domainClass.isAnnotationPresent(DomainResource.class)) {
-            DomainResource ann = domainClass.getAnnotation(DomainResource.class);
-            return new TypeDescriptor(ann.namespace(),
-                    ann.version(),
-                    ann.type());
-        } else if (domainClass.isAnnotationPresent(DomainValue.class)) {
-            DomainValue ann = domainClass.getAnnotation(DomainValue.class);
-            return new TypeDescriptor(ann.namespace(),
-                    ann.version(),
-                    ann.type());
-        } else if (domainClass.isAnnotationPresent(DomainEvent.class)) {
-            DomainEvent ann = domainClass.getAnnotation(DomainEvent.class);
-            return new TypeDescriptor(ann.namespace(),
-                    ann.version(),
-                    ann.type());
-        } else {
-            //TODO support collection/array return type
-            //TODO support map return type
-            //TODO support generic "type" (non-resource/non-event/non-value) return type
-            //TODO verify recursive definitions work
-            throw new ClassNotDomainTypeException(domainClass, String.format(
-                    "Class does not describe its domain affiliation through "
-                    + "a supported domain annotation."));
+        //TODO support collection/array return type
+        //TODO support map return type
+        //TODO support generic "type" (non-resource/non-event/non-value) return type
+        //TODO verify recursive definitions work
+        return findTypeDescriptor(domainClass)
+                .orElseThrow(() -> new ClassNotDomainTypeException(domainClass,
+                        String.format("Class does not describe its domain "
+                                + "affiliation through a supported domain "
+                                + "annotation.")));
+    }
+
+    /**
+     * Returns the type descriptor declared by the domain annotation of the
+     * class.
+     * <p>
+     * Unlike {@link #getTypeDescriptor(Class)} this method does not create an
+     * exception for classes which are not domain classes.
+     *
+     * @param domainClass class
+     * @return type descriptor or empty if the class is not annotated as a
+     * domain type
+     */
+    public static Optional<TypeDescriptor> findTypeDescriptor(
+            Class<?> domainClass) {
+        final DomainResource resource = domainClass.getAnnotation(DomainResource.class);
+        if (resource != null) {
+            return Optional.of(new TypeDescriptor(resource.namespace(),
+                    resource.version(),
+                    resource.type()));
+        }
+        final DomainValue value = domainClass.getAnnotation(DomainValue.class);
+        if (value != null) {
+            return Optional.of(new TypeDescriptor(value.namespace(),
+                    value.version(),
+                    value.type()));
+        }
+        final DomainEvent event = domainClass.getAnnotation(DomainEvent.class);
+        if (event != null) {
+            return Optional.of(new TypeDescriptor(event.namespace(),
+                    event.version(),
+                    event.type()));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the other domain classes the model of this class refers to;
+     * accessor return types, operation parameters and operation events.
+     * <p>
+     * Only classes annotated as domain types are returned, the model of the
+     * class is not validated.
+     *
+     * @param domainClass domain class
+     * @return domain classes referenced by the class, not including itself
+     */
+    public static Set<Class<?>> dependencies(Class<?> domainClass) {
+        Set<Class<?>> dependencies = new HashSet<>();
+        for (Method m : domainClass.getMethods()) {
+            if (m.isAnnotationPresent(Accessor.class)) {
+                dependencies.add(m.getReturnType());
+            } else if (m.isAnnotationPresent(Operation.class)) {
+                dependencies.add(m.getReturnType());
+                dependencies.addAll(Arrays.asList(m.getParameterTypes()));
+            }
         }
+        dependencies.remove(domainClass);
+        dependencies.removeIf((c) -> !isDomainClass(c));
+        return dependencies;
+    }
 
+    private static boolean isDomainClass(Class<?> c) {
+        return c.isAnnotationPresent(DomainResource.class)
+                || c.isAnnotationPresent(DomainValue.class)
+                || c.isAnnotationPresent(DomainEvent.class);
     }
 
     /**
@@ -96,50 +149,126 @@ public class ClassTypeReflector {
      */
     public static void binder(Class<?> typeClass, Consumer<ObjectBinder> consumer)
             throws InvalidModelException {
+        binder(typeClass, new ComponentFactory(), consumer);
+    }
+
+    /**
+     * Check the class definition for any ObjectBinder definitions, obtaining
+     * the binder instance from the component factory.
+     *
+     * @param typeClass domain class
+     * @param components component factory
+     * @param consumer receives the binder
+     * @throws InvalidModelException if the binder could not be instantiated
+     */
+    public static void binder(Class<?> typeClass, ComponentFactory components,
+            Consumer<ObjectBinder> consumer) throws InvalidModelException {
         if (!typeClass.isAnnotationPresent(Binder.class)) {
             return;
         }
         Binder binderAnn = typeClass.getAnnotation(Binder.class);
-        try {
-            ObjectBinder binder = binderAnn.value().newInstance();
-            consumer.accept(binder);
-        } catch (InstantiationException | IllegalAccessException ex) {
-            throw new InvalidModelException(String.format("Unable to initialize "
-                    + "ObjectBinder type '%s' for class '%s'",
-                    binderAnn.value().getName(), typeClass.getName()), ex);
-        }
+        consumer.accept(instantiate(typeClass, components, binderAnn.value(),
+                ObjectBinder.class));
     }
 
+    /**
+     * Instantiates the formatters declared by a domain value class, the
+     * default formatter first.
+     *
+     * @param typeClass domain class
+     * @param consumer receives each formatter
+     * @throws InvalidModelException if a formatter could not be instantiated
+     */
     public static void formatters(Class<?> typeClass, Consumer<ObjectFormatter> consumer)
             throws InvalidModelException {
+        formatters(typeClass, new ComponentFactory(), consumer);
+    }
+
+    /**
+     * Obtains the formatters declared by a domain value class from the
+     * component factory, the default formatter first.
+     *
+     * @param typeClass domain class
+     * @param components component factory
+     * @param consumer receives each formatter
+     * @throws InvalidModelException if a formatter could not be instantiated
+     */
+    public static void formatters(Class<?> typeClass,
+            ComponentFactory components, Consumer<ObjectFormatter> consumer)
+            throws InvalidModelException {
         if (!typeClass.isAnnotationPresent(DomainValue.class)) {
             return;
         }
         DomainValue valueAnn = typeClass.getAnnotation(DomainValue.class);
-        Class<? extends ObjectFormatter> fClass = valueAnn.defaultFormatter();
-        try {
-            ObjectFormatter formatter = fClass.newInstance();
-            consumer.accept(formatter);
-        } catch (InstantiationException | IllegalAccessException ex) {
-            throw new InvalidModelException(String.format("Unable to initialize "
-                    + "ObjectFormatter type '%s' for class '%s'",
-                    fClass.getName(), typeClass.getName()), ex);
+        if (valueAnn.defaultFormatter() != ObjectFormatter.class) {
+            consumer.accept(instantiate(typeClass, components,
+                    valueAnn.defaultFormatter(), ObjectFormatter.class));
+        }
+        for (Class<? extends ObjectFormatter> fClass : valueAnn.formatters()) {
+            consumer.accept(instantiate(typeClass, components, fClass,
+                    ObjectFormatter.class));
         }
     }
 
-    public static void parsers(Class<?> typeClass, Consumer<ObjectParser> consumer) throws InvalidModelException {
+    /**
+     * Instantiates the parsers declared by a domain value class, the default
+     * parser first.
+     *
+     * @param typeClass domain class
+     * @param consumer receives each parser
+     * @throws InvalidModelException if a parser could not be instantiated
+     */
+    public static void parsers(Class<?> typeClass, Consumer<ObjectParser> consumer)
+            throws InvalidModelException {
+        parsers(typeClass, new ComponentFactory(), consumer);
+    }
+
+    /**
+     * Obtains the parsers declared by a domain value class from the component
+     * factory, the default parser first.
+     *
+     * @param typeClass domain class
+     * @param components component factory
+     * @param consumer receives each parser
+     * @throws InvalidModelException if a parser could not be instantiated
+     */
+    public static void parsers(Class<?> typeClass, ComponentFactory components,
+            Consumer<ObjectParser> consumer) throws InvalidModelException {
         if (!typeClass.isAnnotationPresent(DomainValue.class)) {
             return;
         }
         DomainValue valueAnn = typeClass.getAnnotation(DomainValue.class);
-        Class<? extends ObjectParser> pClass = valueAnn.defaultParser();
+        if (valueAnn.defaultParser() != ObjectParser.class) {
+            consumer.accept(instantiate(typeClass, components,
+                    valueAnn.defaultParser(), ObjectParser.class));
+        }
+        for (Class<? extends ObjectParser> pClass : valueAnn.parsers()) {
+            consumer.accept(instantiate(typeClass, components, pClass,
+                    ObjectParser.class));
+        }
+    }
+
+    /**
+     * Returns the intern capacity declared by a domain value class.
+     *
+     * @param typeClass domain class
+     * @return intern capacity, zero if the class is not an interned value
+     * @see DomainValue#internCapacity()
+     */
+    public static int internCapacity(Class<?> typeClass) {
+        final DomainValue valueAnn = typeClass.getAnnotation(DomainValue.class);
+        return (valueAnn == null) ? 0 : Math.max(0, valueAnn.internCapacity());
+    }
+
+    private static <T> T instantiate(Class<?> typeClass,
+            ComponentFactory components, Class<? extends T> componentClass,
+            Class<T> kind) throws InvalidModelException {
         try {
-            ObjectParser parser = pClass.newInstance();
-            consumer.accept(parser);
-        } catch (InstantiationException | IllegalAccessException ex) {
+            return components.getInstance(componentClass, kind);
+        } catch (InvalidModelException ex) {
             throw new InvalidModelException(String.format("Unable to initialize "
-                    + "ObjectParser type '%s' for class '%s'",
-                    pClass.getName(), typeClass.getName()), ex);
+                    + "%s type '%s' for class '%s'", kind.getSimpleName(),
+                    componentClass.getName(), typeClass.getName()), ex);
         }
     }
 
@@ -374,7 +503,7 @@ public class ClassTypeReflector {
         }
 
         final Class<?> returnClass = m.getReturnType();
-        if (returnClass.isAnnotationPresent(DomainEvent.class)) {
+        if (!returnClass.isAnnotationPresent(DomainEvent.class)) {
             throw new InvalidDomainMethodException(m,
                     "Domain operation method must return a domain event type.");
         }
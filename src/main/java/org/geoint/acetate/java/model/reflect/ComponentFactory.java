@@ -0,0 +1,296 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.geoint.acetate.java.model.Lifecycle;
+import org.geoint.acetate.model.InvalidModelException;
+
+/**
+ * Provides instances of binder, formatter and parser implementations
+ * according to their {@link Lifecycle}.
+ * <p>
+ * A factory keeps one instance of each {@link Lifecycle.Scope#SHARED shared}
+ * implementation. {@link Lifecycle.Scope#THREAD Thread} and
+ * {@link Lifecycle.Scope#POOLED pooled} implementations are provided as a
+ * single proxy implementing all the interfaces of the implementation, which
+ * delegates each call to the instance of the calling thread or to an instance
+ * borrowed from the pool for the duration of the call. Objects returned by a
+ * call, such as an {@link org.geoint.acetate.java.format.ObjectStream}, must
+ * therefore not depend on the implementation instance after the call
+ * returns.
+ * <p>
+ * Implementations are constructed through their no-argument constructor,
+ * using a constructor handle cached per implementation class.
+ * <p>
+ * Instances of this class are thread-safe.
+ *
+ * @author steve_siebert
+ */
+public final class ComponentFactory {
+
+    private static final MethodType CONSTRUCTOR_TYPE
+            = MethodType.methodType(Object.class);
+    private static final ClassValue<Object> CONSTRUCTORS
+            = new ClassValue<Object>() {
+        @Override
+        protected Object computeValue(Class<?> type) {
+            try {
+                final Constructor<?> c = type.getDeclaredConstructor();
+                c.setAccessible(true);
+                return MethodHandles.lookup().unreflectConstructor(c)
+                        .asType(CONSTRUCTOR_TYPE);
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                return ex; //reported on each instantiation attempt
+            }
+        }
+    };
+
+    private final Map<Class<?>, Object> components = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the instance of the implementation, creating it on first use.
+     *
+     * @param <T> component type
+     * @param implementation implementation class
+     * @param kind component interface
+     * @return component instance
+     * @throws InvalidModelException if the implementation could not be
+     * instantiated
+     */
+    public <T> T getInstance(Class<? extends T> implementation, Class<T> kind)
+            throws InvalidModelException {
+        Object component = components.get(implementation);
+        if (component == null) {
+            component = create(implementation);
+            final Object existing
+                    = components.putIfAbsent(implementation, component);
+            if (existing != null) {
+                component = existing;
+            }
+        }
+        return kind.cast(component);
+    }
+
+    /**
+     * Number of implementations instantiated by this factory.
+     *
+     * @return implementation count
+     */
+    public int size() {
+        return components.size();
+    }
+
+    /**
+     * Construct a new instance of a class through its cached no-argument
+     * constructor handle.
+     *
+     * @param <T> class type
+     * @param type class to instantiate
+     * @return new instance
+     * @throws InvalidModelException if the class could not be instantiated
+     */
+    public static <T> T newInstance(Class<T> type)
+            throws InvalidModelException {
+        final Object constructor = CONSTRUCTORS.get(type);
+        try {
+            if (constructor instanceof Throwable) {
+                throw (Throwable) constructor;
+            }
+            return type.cast(((MethodHandle) constructor).invokeExact());
+        } catch (Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new InvalidModelException(String.format("Unable to "
+                    + "instantiate class '%s'.", type.getName()), ex);
+        }
+    }
+
+    private static Object create(Class<?> implementation)
+            throws InvalidModelException {
+        final Lifecycle lifecycle = implementation.getAnnotation(Lifecycle.class);
+        final Lifecycle.Scope scope = (lifecycle == null)
+                ? Lifecycle.Scope.SHARED
+                : lifecycle.value();
+        switch (scope) {
+            case THREAD:
+                final ThreadInstances perThread
+                        = new ThreadInstances(implementation);
+                perThread.acquire(); //fail on registration, not first use
+                return proxy(implementation, perThread);
+            case POOLED:
+                final int size = (lifecycle.poolSize() > 0)
+                        ? lifecycle.poolSize()
+                        : Runtime.getRuntime().availableProcessors();
+                return proxy(implementation, new PooledInstances(
+                        implementation, size));
+            default:
+                return newInstance(implementation);
+        }
+    }
+
+    private static Object proxy(Class<?> implementation, Instances instances)
+            throws InvalidModelException {
+        final Set<Class<?>> interfaces = new LinkedHashSet<>();
+        for (Class<?> c = implementation; c != null; c = c.getSuperclass()) {
+            for (Class<?> i : c.getInterfaces()) {
+                interfaces.add(i);
+            }
+        }
+        try {
+            return Proxy.newProxyInstance(implementation.getClassLoader(),
+                    interfaces.toArray(new Class<?>[interfaces.size()]),
+                    new ScopedHandler(implementation, instances));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidModelException(String.format("Unable to proxy "
+                    + "scoped component '%s'.", implementation.getName()), ex);
+        }
+    }
+
+    /**
+     * Source of the instance a proxied call is delegated to.
+     */
+    private interface Instances {
+
+        Object acquire() throws InvalidModelException;
+
+        void release(Object instance);
+    }
+
+    private static final class ThreadInstances implements Instances {
+
+        private final Class<?> implementation;
+        private final ThreadLocal<Object> instances = new ThreadLocal<>();
+
+        ThreadInstances(Class<?> implementation) {
+            this.implementation = implementation;
+        }
+
+        @Override
+        public Object acquire() throws InvalidModelException {
+            Object instance = instances.get();
+            if (instance == null) {
+                instance = newInstance(implementation);
+                instances.set(instance);
+            }
+            return instance;
+        }
+
+        @Override
+        public void release(Object instance) {
+        }
+    }
+
+    private static final class PooledInstances implements Instances {
+
+        private final Class<?> implementation;
+        private final int size;
+        private final BlockingQueue<Object> idle;
+        private final AtomicInteger created = new AtomicInteger(1);
+
+        PooledInstances(Class<?> implementation, int size)
+                throws InvalidModelException {
+            this.implementation = implementation;
+            this.size = size;
+            this.idle = new ArrayBlockingQueue<>(size);
+            idle.add(newInstance(implementation)); //fail on registration
+        }
+
+        @Override
+        public Object acquire() throws InvalidModelException {
+            final Object instance = idle.poll();
+            if (instance != null) {
+                return instance;
+            }
+            if (created.incrementAndGet() <= size) {
+                try {
+                    return newInstance(implementation);
+                } catch (InvalidModelException | RuntimeException ex) {
+                    created.decrementAndGet();
+                    throw ex;
+                }
+            }
+            created.decrementAndGet();
+            try {
+                return idle.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(String.format("Interrupted "
+                        + "waiting for a pooled '%s'.",
+                        implementation.getName()), ex);
+            }
+        }
+
+        @Override
+        public void release(Object instance) {
+            idle.offer(instance);
+        }
+    }
+
+    private static final class ScopedHandler implements InvocationHandler {
+
+        private final Class<?> implementation;
+        private final Instances instances;
+
+        ScopedHandler(Class<?> implementation, Instances instances) {
+            this.implementation = implementation;
+            this.instances = instances;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "scoped " + implementation.getName();
+                    default:
+                }
+            }
+            final Object instance;
+            try {
+                instance = instances.acquire();
+            } catch (InvalidModelException ex) {
+                throw new IllegalStateException(ex.getMessage(), ex);
+            }
+            try {
+                return method.invoke(instance, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            } finally {
+                instances.release(instance);
+            }
+        }
+    }
+}
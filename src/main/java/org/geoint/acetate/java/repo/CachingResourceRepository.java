@@ -0,0 +1,465 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.repo;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+import org.geoint.acetate.java.bind.ResourceObject;
+
+/**
+ * Decorates a resource repository with a bounded cache of resource objects.
+ * <p>
+ * Specific resource versions are immutable and stay cached until evicted.
+ * The latest version of a resource is cached separately and expires after
+ * the latest expiry, or when {@link #invalidate(java.lang.String) invalidated}
+ * after a new version is saved to the decorated repository. Unknown resources
+ * are not cached.
+ * <p>
+ * The cache is bounded by weight (one per entry by default) and uses the
+ * W-TinyLFU policy: new entries enter a small LRU window, and an entry leaving
+ * the window is only admitted to the main segmented LRU space if it has been
+ * accessed more often, per a {@link FrequencySketch}, than the entry it would
+ * evict. Reads are lock-free; accesses are recorded only when the policy lock
+ * is free, so a hot entry under contention can miss some recency updates.
+ *
+ * @author steve_siebert
+ * @param <T> java class representation of a domain resource
+ */
+public class CachingResourceRepository<T> implements ResourceRepository<T> {
+
+    public static final Duration DEFAULT_LATEST_EXPIRY = Duration.ofSeconds(1);
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final ResourceRepository<T> delegate;
+    private final ToIntFunction<? super ResourceObject<T>> weigher;
+    private final long latestExpiryNanos;
+    private final Map<Key, Node<T>> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    //policy, guarded by the lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final AccessQueue<T> window = new AccessQueue<>();
+    private final AccessQueue<T> probation = new AccessQueue<>();
+    private final AccessQueue<T> protect = new AccessQueue<>();
+    private final long maximum;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private long weight;
+
+    /**
+     * Cache up to the maximum number of entries, latest versions expire after
+     * {@link #DEFAULT_LATEST_EXPIRY}.
+     *
+     * @param delegate decorated repository
+     * @param maximumSize maximum number of cached entries
+     */
+    public CachingResourceRepository(ResourceRepository<T> delegate,
+            long maximumSize) {
+        this(delegate, maximumSize, (r) -> 1, DEFAULT_LATEST_EXPIRY);
+    }
+
+    /**
+     *
+     * @param delegate decorated repository
+     * @param maximumWeight maximum total weight of the cached entries
+     * @param weigher weight of a resource object, must be positive
+     * @param latestExpiry time the latest version of a resource is cached,
+     * zero to not cache latest versions
+     */
+    public CachingResourceRepository(ResourceRepository<T> delegate,
+            long maximumWeight, ToIntFunction<? super ResourceObject<T>> weigher,
+            Duration latestExpiry) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid "
+                    + "maximum weight %d.", maximumWeight));
+        }
+        this.delegate = Objects.requireNonNull(delegate);
+        this.weigher = Objects.requireNonNull(weigher);
+        this.latestExpiryNanos = latestExpiry.toNanos();
+        this.maximum = maximumWeight;
+        this.windowMaximum = Math.max(1, maximumWeight * WINDOW_PERCENT / 100);
+        this.protectedMaximum = (maximumWeight - windowMaximum)
+                * PROTECTED_PERCENT / 100;
+        this.sketch = new FrequencySketch(maximumWeight);
+    }
+
+    @Override
+    public Optional<ResourceObject<T>> findLatest(String guid) {
+        final ResourceObject<T> cached = cached(new Key(guid, null));
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        final Optional<ResourceObject<T>> loaded = delegate.findLatest(guid);
+        loaded.ifPresent(this::cacheLatest);
+        return loaded;
+    }
+
+    @Override
+    public Optional<ResourceObject<T>> find(String guid, String version) {
+        final ResourceObject<T> cached = cached(new Key(guid, version));
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        final Optional<ResourceObject<T>> loaded = delegate.find(guid, version);
+        loaded.ifPresent((r) -> put(new Key(guid, version), r, Long.MAX_VALUE));
+        return loaded;
+    }
+
+    @Override
+    public ResourceObject<T> getLatest(String guid)
+            throws UnknownResourceException {
+        final ResourceObject<T> cached = cached(new Key(guid, null));
+        if (cached != null) {
+            return cached;
+        }
+        final ResourceObject<T> loaded = delegate.getLatest(guid);
+        cacheLatest(loaded);
+        return loaded;
+    }
+
+    @Override
+    public ResourceObject<T> get(String guid, String version)
+            throws UnknownResourceException, InvalidResourceVersionException {
+        final ResourceObject<T> cached = cached(new Key(guid, version));
+        if (cached != null) {
+            return cached;
+        }
+        final ResourceObject<T> loaded = delegate.get(guid, version);
+        put(new Key(guid, version), loaded, Long.MAX_VALUE);
+        return loaded;
+    }
+
+    /**
+     * Discard the cached latest version of the resource; call after saving a
+     * new version to the decorated repository.
+     *
+     * @param guid resource instance guid
+     */
+    public void invalidate(String guid) {
+        final Key key = new Key(guid, null);
+        if (entries.containsKey(key)) {
+            lock.lock();
+            try {
+                final Node<T> node = entries.remove(key);
+                if (node != null) {
+                    unlink(node);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Number of lookups answered from the cache.
+     *
+     * @return hit count
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Number of lookups passed to the decorated repository.
+     *
+     * @return miss count
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Number of entries evicted, or rejected by the admission policy, to stay
+     * within the maximum weight.
+     *
+     * @return eviction count
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Number of cached entries.
+     *
+     * @return entry count
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Total weight of the cached entries.
+     *
+     * @return weight
+     */
+    public long weight() {
+        lock.lock();
+        try {
+            return weight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ResourceObject<T> cached(Key key) {
+        final Node<T> node = entries.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        if (node.expiresAt != Long.MAX_VALUE
+                && node.expiresAt - System.nanoTime() <= 0) {
+            lock.lock();
+            try {
+                if (entries.remove(key, node)) {
+                    unlink(node);
+                }
+            } finally {
+                lock.unlock();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        if (lock.tryLock()) {
+            try {
+                onAccess(node);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node.value;
+    }
+
+    private void cacheLatest(ResourceObject<T> resource) {
+        put(new Key(resource.getGuid(), resource.getVersion()), resource,
+                Long.MAX_VALUE);
+        if (latestExpiryNanos > 0) {
+            put(new Key(resource.getGuid(), null), resource,
+                    System.nanoTime() + latestExpiryNanos);
+        }
+    }
+
+    private void put(Key key, ResourceObject<T> value, long expiresAt) {
+        final int w = weigher.applyAsInt(value);
+        if (w <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid weight "
+                    + "%d for resource '%s'.", w, key.guid));
+        }
+        if (w > maximum) {
+            return;
+        }
+        lock.lock();
+        try {
+            final Node<T> existing = entries.get(key);
+            if (existing != null) {
+                if (key.version != null) {
+                    onAccess(existing); //immutable, already cached
+                    return;
+                }
+                entries.remove(key);
+                unlink(existing);
+            }
+            final Node<T> node = new Node<>(key, value, w, expiresAt);
+            entries.put(key, node);
+            sketch.increment(key.hashCode());
+            window.addLast(node);
+            weight += w;
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Policy, called holding the lock
+     */
+    private void onAccess(Node<T> node) {
+        sketch.increment(node.key.hashCode());
+        if (node.queue == window || node.queue == protect) {
+            node.queue.moveToLast(node);
+        } else if (node.queue == probation) {
+            probation.remove(node);
+            protect.addLast(node);
+            while (protect.weight > protectedMaximum) {
+                final Node<T> demoted = protect.pollFirst();
+                probation.addLast(demoted);
+            }
+        } //else removed concurrently
+    }
+
+    private void evict() {
+        //window victims become admission candidates at the probation tail
+        int candidates = 0;
+        while (window.weight > windowMaximum) {
+            probation.addLast(window.pollFirst());
+            candidates++;
+        }
+        while (weight > maximum) {
+            Node<T> victim = probation.first();
+            Node<T> candidate = (candidates > 0) ? probation.last() : null;
+            if (victim == null) {
+                victim = (protect.first() != null)
+                        ? protect.first()
+                        : window.first();
+            }
+            final Node<T> evicted;
+            if (candidate == null || candidate == victim) {
+                evicted = victim;
+            } else {
+                evicted = (sketch.frequency(candidate.key.hashCode())
+                        > sketch.frequency(victim.key.hashCode()))
+                                ? victim
+                                : candidate;
+            }
+            if (evicted == candidate) {
+                candidates--;
+            }
+            entries.remove(evicted.key, evicted);
+            unlink(evicted);
+            evictions.increment();
+        }
+    }
+
+    private void unlink(Node<T> node) {
+        if (node.queue != null) {
+            node.queue.remove(node);
+            weight -= node.weight;
+        }
+    }
+
+    /**
+     * Cache key, a null version is the latest version.
+     */
+    private static final class Key {
+
+        final String guid;
+        final String version;
+        final int hash;
+
+        Key(String guid, String version) {
+            this.guid = Objects.requireNonNull(guid);
+            this.version = version;
+            this.hash = 31 * guid.hashCode() + Objects.hashCode(version);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return hash == other.hash && guid.equals(other.guid)
+                    && Objects.equals(version, other.version);
+        }
+    }
+
+    private static final class Node<T> {
+
+        final Key key;
+        final ResourceObject<T> value;
+        final int weight;
+        final long expiresAt;
+        AccessQueue<T> queue;
+        Node<T> prev;
+        Node<T> next;
+
+        Node(Key key, ResourceObject<T> value, int weight, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Weighted doubly-linked access order queue, least recent first.
+     */
+    private static final class AccessQueue<T> {
+
+        private Node<T> head;
+        private Node<T> tail;
+        long weight;
+
+        Node<T> first() {
+            return head;
+        }
+
+        Node<T> last() {
+            return tail;
+        }
+
+        void addLast(Node<T> node) {
+            node.queue = this;
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            weight += node.weight;
+        }
+
+        Node<T> pollFirst() {
+            final Node<T> node = head;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+
+        void moveToLast(Node<T> node) {
+            if (node != tail) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void remove(Node<T> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.queue = null;
+            weight -= node.weight;
+        }
+    }
+}
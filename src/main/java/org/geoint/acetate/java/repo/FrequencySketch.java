@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.repo;
+
+/**
+ * Approximate access frequency of keys: a count-min sketch of four rows of
+ * 4-bit counters packed into longs.
+ * <p>
+ * Counters are halved once the number of recorded accesses reaches ten times
+ * the table width, so the estimate follows recent popularity. Instances are
+ * not thread-safe.
+ *
+ * @author steve_siebert
+ */
+final class FrequencySketch {
+
+    static final int MAX_FREQUENCY = 15;
+    private static final int MAX_TABLE = 1 << 20;
+    private static final long[] SEEDS = {0xC3A5C85C97CB3127L,
+        0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+    private static final long HALF_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param capacity expected number of distinct keys tracked
+     */
+    FrequencySketch(long capacity) {
+        final int length = (int) Math.min(MAX_TABLE,
+                Long.highestOneBit(Math.max(16, capacity) - 1) << 1);
+        this.table = new long[length];
+        this.mask = length - 1;
+        this.sampleSize = 10 * length;
+    }
+
+    /**
+     * Estimated number of recent accesses of the key.
+     *
+     * @param hashCode key hash code
+     * @return frequency, at most {@link #MAX_FREQUENCY}
+     */
+    int frequency(int hashCode) {
+        final int h = spread(hashCode);
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, (int) ((table[indexOf(h, i)]
+                    >>> offsetOf(h, i)) & 0xF));
+        }
+        return frequency;
+    }
+
+    /**
+     * Record an access of the key.
+     *
+     * @param hashCode key hash code
+     */
+    void increment(int hashCode) {
+        final int h = spread(hashCode);
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            final int index = indexOf(h, i);
+            final int offset = offsetOf(h, i);
+            if (((table[index] >>> offset) & 0xF) < MAX_FREQUENCY) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Halve all counters.
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & HALF_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int indexOf(int h, int row) {
+        long hash = (h + SEEDS[row]) * SEEDS[row];
+        hash += hash >>> 32;
+        return (int) hash & mask;
+    }
+
+    /**
+     * Bit offset of the row counter within its long.
+     */
+    private static int offsetOf(int h, int row) {
+        return ((h >>> (row << 2)) & 0xF) << 2;
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
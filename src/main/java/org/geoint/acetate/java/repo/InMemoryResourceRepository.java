@@ -0,0 +1,251 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.repo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.geoint.acetate.java.bind.ResourceObject;
+import org.geoint.acetate.java.repo.VersionChain.Version;
+import org.geoint.acetate.model.TypeDescriptor;
+
+/**
+ * Multi-version, in-memory resource repository.
+ * <p>
+ * Each resource guid has a chain of its versions, newest first. Reads never
+ * lock: the latest version is a single volatile read of the chain head.
+ * Writes to the same guid are serialized by a lock on its chain, writes to
+ * different guids proceed concurrently.
+ * <p>
+ * Every saved version is stamped with a commit sequence. Reads see the
+ * versions committed when the read started, and {@link #snapshot() snapshots}
+ * pin a commit sequence to provide repeatable, point-in-time reads across many
+ * resources. A version is published before it is stamped; a read which
+ * finds an unstamped version stamps it past its own snapshot, so reads never
+ * wait for a writer and writers never wait on each other across resources.
+ * <p>
+ * Instances of this class are thread-safe.
+ *
+ * @author steve_siebert
+ * @param <T> java class representation of a domain resource
+ */
+public class InMemoryResourceRepository<T> implements ResourceRepository<T> {
+
+    private final Class<T> resourceClass;
+    private final TypeDescriptor type;
+    private final Map<String, VersionChain<ResourceObject<T>>> chains
+            = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     *
+     * @param resourceClass resource class
+     * @param type domain type of the resource class
+     */
+    public InMemoryResourceRepository(Class<T> resourceClass,
+            TypeDescriptor type) {
+        this.resourceClass = Objects.requireNonNull(resourceClass);
+        this.type = Objects.requireNonNull(type);
+    }
+
+    /**
+     * Save a new version of a resource.
+     * <p>
+     * The previous version of the resource must be the latest version in the
+     * repository, or empty if the resource is new to the repository.
+     *
+     * @param resource resource version
+     * @return saved resource version
+     * @throws InvalidResourceVersionException if the previous version of the
+     * resource is not the latest version, or the version already exists
+     */
+    public ResourceObject<T> save(ResourceObject<T> resource)
+            throws InvalidResourceVersionException {
+        final String guid = resource.getGuid();
+        final String previous = resource.getPreviousVersion().orElse(null);
+        VersionChain<ResourceObject<T>> chain = chains.get(guid);
+        if (chain == null) {
+            //only new resources create a chain, so rejected saves of unknown
+            //resources leave no empty chain behind
+            if (previous != null) {
+                throw conflict(guid, null, resource.getVersion(),
+                        String.format("Previous version '%s' is not the "
+                                + "latest version.", previous));
+            }
+            chain = chains.computeIfAbsent(guid,
+                    (g) -> new VersionChain<>(sequence));
+        }
+        synchronized (chain) {
+            final Version<ResourceObject<T>> head = chain.head();
+            final String latest = (head == null) ? null : head.version;
+            if (!Objects.equals(latest, previous)) {
+                throw conflict(guid, latest, resource.getVersion(),
+                        String.format("Previous version '%s' is not the "
+                                + "latest version.", previous));
+            }
+            if (chain.find(resource.getVersion(), Long.MAX_VALUE) != null) {
+                throw conflict(guid, latest, resource.getVersion(),
+                        "Version already exists.");
+            }
+            chain.appendPending(resource.getVersion(), resource)
+                    .stamp(sequence);
+        }
+        return resource;
+    }
+
+    @Override
+    public Optional<ResourceObject<T>> findLatest(String guid) {
+        return findLatest(guid, sequence.get());
+    }
+
+    @Override
+    public Optional<ResourceObject<T>> find(String guid, String version) {
+        return find(guid, version, sequence.get());
+    }
+
+    @Override
+    public ResourceObject<T> getLatest(String guid)
+            throws UnknownResourceException {
+        return getLatest(guid, sequence.get());
+    }
+
+    @Override
+    public ResourceObject<T> get(String guid, String version)
+            throws UnknownResourceException, InvalidResourceVersionException {
+        return get(guid, version, sequence.get());
+    }
+
+    /**
+     * Versions of a resource, newest first.
+     *
+     * @param guid resource guid
+     * @return resource versions, empty if the resource is unknown
+     */
+    public List<ResourceObject<T>> history(String guid) {
+        final long snapshot = sequence.get();
+        final VersionChain<ResourceObject<T>> chain = chains.get(guid);
+        if (chain == null) {
+            return Collections.emptyList();
+        }
+        final List<ResourceObject<T>> versions = new ArrayList<>();
+        for (Version<ResourceObject<T>> v = chain.latest(snapshot); v != null;
+                v = v.previous) {
+            versions.add(v.value);
+        }
+        return versions;
+    }
+
+    /**
+     * Number of resources (guids) in the repository.
+     *
+     * @return resource count
+     */
+    public int size() {
+        return chains.size();
+    }
+
+    /**
+     * Read-only view of the repository as of the last commit; versions saved
+     * afterwards are not visible through the snapshot.
+     *
+     * @return repository snapshot
+     */
+    public ResourceRepository<T> snapshot() {
+        final long snapshot = sequence.get();
+        return new ResourceRepository<T>() {
+            @Override
+            public Optional<ResourceObject<T>> findLatest(String guid) {
+                return InMemoryResourceRepository.this.findLatest(guid,
+                        snapshot);
+            }
+
+            @Override
+            public Optional<ResourceObject<T>> find(String guid,
+                    String version) {
+                return InMemoryResourceRepository.this.find(guid, version,
+                        snapshot);
+            }
+
+            @Override
+            public ResourceObject<T> getLatest(String guid)
+                    throws UnknownResourceException {
+                return InMemoryResourceRepository.this.getLatest(guid,
+                        snapshot);
+            }
+
+            @Override
+            public ResourceObject<T> get(String guid, String version)
+                    throws UnknownResourceException,
+                    InvalidResourceVersionException {
+                return InMemoryResourceRepository.this.get(guid, version,
+                        snapshot);
+            }
+        };
+    }
+
+    private Optional<ResourceObject<T>> findLatest(String guid, long snapshot) {
+        final VersionChain<ResourceObject<T>> chain = chains.get(guid);
+        final Version<ResourceObject<T>> v = (chain == null)
+                ? null
+                : chain.latest(snapshot);
+        return (v == null) ? Optional.empty() : Optional.of(v.value);
+    }
+
+    private Optional<ResourceObject<T>> find(String guid, String version,
+            long snapshot) {
+        final VersionChain<ResourceObject<T>> chain = chains.get(guid);
+        final Version<ResourceObject<T>> v = (chain == null)
+                ? null
+                : chain.find(version, snapshot);
+        return (v == null) ? Optional.empty() : Optional.of(v.value);
+    }
+
+    private ResourceObject<T> getLatest(String guid, long snapshot)
+            throws UnknownResourceException {
+        return findLatest(guid, snapshot).orElseThrow(
+                () -> new UnknownResourceException(resourceClass, guid, null));
+    }
+
+    private ResourceObject<T> get(String guid, String version, long snapshot)
+            throws UnknownResourceException, InvalidResourceVersionException {
+        final VersionChain<ResourceObject<T>> chain = chains.get(guid);
+        final Version<ResourceObject<T>> latest = (chain == null)
+                ? null
+                : chain.latest(snapshot);
+        if (latest == null) {
+            throw new UnknownResourceException(resourceClass, guid, version);
+        }
+        final Version<ResourceObject<T>> v
+                = chain.find(version, snapshot);
+        if (v == null) {
+            throw conflict(guid, latest.version, version,
+                    "Version is not known.");
+        }
+        return v.value;
+    }
+
+    private InvalidResourceVersionException conflict(String guid,
+            String current, String requested, String message) {
+        return new InvalidResourceVersionException(type.getNamespace(),
+                type.getType(), type.getVersion(), guid,
+                String.valueOf(current), requested, message);
+    }
+}
@@ -0,0 +1,953 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.repo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import org.geoint.acetate.java.bind.ResourceObject;
+import org.geoint.acetate.java.repo.VersionChain.Version;
+import org.geoint.acetate.model.TypeDescriptor;
+
+/**
+ * Persistent resource repository storing resource versions in an append-only
+ * log of segment files within a directory.
+ * <p>
+ * Each saved version is appended to the current segment as a checksummed
+ * record; segments are rolled at {@link #DEFAULT_SEGMENT_SIZE} (or the
+ * segment size provided). An in-memory index maps each guid to the segment
+ * and offset of its versions, records are read back on demand.
+ * <p>
+ * Saves are group committed: a single writer thread appends all versions
+ * queued since its last write and forces the segment to disk once per batch,
+ * so concurrent writers share the cost of each sync. A save returns once its
+ * version is durable and visible to readers.
+ * <p>
+ * The index is checkpointed to the directory every
+ * {@link #DEFAULT_CHECKPOINT_INTERVAL} versions (or the interval provided)
+ * and when the repository is closed. Interval checkpoints are written by a
+ * background thread from the immutable version chains, so saves do not wait
+ * for the index to be written; a failed interval checkpoint is retried at the
+ * next interval. On open the checkpoint is loaded and
+ * only the segments written after it are scanned, in parallel; a partially
+ * written record at the end of the last segment is truncated.
+ * <p>
+ * Read methods throw {@link UncheckedIOException} if a record could not be
+ * read. Instances of this class are thread-safe.
+ *
+ * @author steve_siebert
+ * @param <T> java class representation of a domain resource
+ */
+public class LogResourceRepository<T>
+        implements ResourceRepository<T>, Closeable {
+
+    public static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 100_000;
+
+    /**
+     * Maximum number of versions written per group commit.
+     */
+    static final int MAX_BATCH = 4096;
+
+    static final String CHECKPOINT_FILE = "index.checkpoint";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_HEADER = 8; //length, crc
+    private static final int MIN_RECORD = 9; //guid, version lengths, flag
+    private static final int CHECKPOINT_MAGIC = 0x4143544C;
+    private static final int OFFSET_BITS = 40;
+    private static final Append CLOSE = new Append(null, null, null);
+
+    private final Class<T> resourceClass;
+    private final TypeDescriptor type;
+    private final ResourceCodec<T> codec;
+    private final Path directory;
+    private final long segmentSize;
+    private final int checkpointInterval;
+    private final Map<String, VersionChain<Long>> chains
+            = new ConcurrentHashMap<>();
+    private final Map<Integer, FileChannel> segments = new ConcurrentHashMap<>();
+    private final BlockingQueue<Append> queue = new LinkedBlockingQueue<>();
+    private final ReadWriteLock lifecycle = new ReentrantReadWriteLock();
+    private final Thread writer;
+    private volatile long committed;
+    private volatile IOException failure;
+    private boolean closed; //guarded by lifecycle
+
+    //writer thread state
+    private int segment;
+    private long position;
+    private long seq;
+    private int uncheckpointed;
+    private ExecutorService checkpointer; //created on first checkpoint
+    private Future<?> checkpointing;
+
+    private LogResourceRepository(Class<T> resourceClass, TypeDescriptor type,
+            ResourceCodec<T> codec, Path directory, long segmentSize,
+            int checkpointInterval) {
+        this.resourceClass = Objects.requireNonNull(resourceClass);
+        this.type = Objects.requireNonNull(type);
+        this.codec = Objects.requireNonNull(codec);
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.checkpointInterval = checkpointInterval;
+        this.writer = new Thread(this::writeLoop,
+                "resource-log-" + directory.getFileName());
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Open, or create, a repository in the directory.
+     *
+     * @param <T> resource class type
+     * @param directory repository directory, created if it does not exist
+     * @param resourceClass resource class
+     * @param type domain type of the resource class
+     * @param codec resource codec
+     * @return open repository
+     * @throws IOException if the repository could not be opened or is
+     * corrupt
+     */
+    public static <T> LogResourceRepository<T> open(Path directory,
+            Class<T> resourceClass, TypeDescriptor type, ResourceCodec<T> codec)
+            throws IOException {
+        return open(directory, resourceClass, type, codec,
+                DEFAULT_SEGMENT_SIZE, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * Open, or create, a repository in the directory.
+     *
+     * @param <T> resource class type
+     * @param directory repository directory, created if it does not exist
+     * @param resourceClass resource class
+     * @param type domain type of the resource class
+     * @param codec resource codec
+     * @param segmentSize size at which segments are rolled
+     * @param checkpointInterval number of versions saved between index
+     * checkpoints
+     * @return open repository
+     * @throws IOException if the repository could not be opened or is
+     * corrupt
+     */
+    public static <T> LogResourceRepository<T> open(Path directory,
+            Class<T> resourceClass, TypeDescriptor type, ResourceCodec<T> codec,
+            long segmentSize, int checkpointInterval) throws IOException {
+        if (segmentSize <= RECORD_HEADER || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("Invalid "
+                    + "segment size %d.", segmentSize));
+        }
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid "
+                    + "checkpoint interval %d.", checkpointInterval));
+        }
+        Files.createDirectories(directory);
+        final LogResourceRepository<T> repo = new LogResourceRepository<>(
+                resourceClass, type, codec, directory, segmentSize,
+                checkpointInterval);
+        try {
+            repo.recover();
+        } catch (IOException | RuntimeException ex) {
+            repo.closeSegments();
+            throw ex;
+        }
+        repo.writer.start();
+        return repo;
+    }
+
+    /**
+     * Save a new version of a resource, returning once it is durable.
+     * <p>
+     * The previous version of the resource must be the latest version in the
+     * repository, or empty if the resource is new to the repository.
+     *
+     * @param resource resource version
+     * @return saved resource version
+     * @throws InvalidResourceVersionException if the previous version of the
+     * resource is not the latest version, or the version already exists
+     * @throws IOException if the version could not be written or the
+     * repository is closed
+     */
+    public ResourceObject<T> save(ResourceObject<T> resource)
+            throws InvalidResourceVersionException, IOException {
+        final ByteBuffer record = encode(resource);
+        final String guid = resource.getGuid();
+        final String previous = resource.getPreviousVersion().orElse(null);
+        while (true) {
+            VersionChain<Long> chain = chains.get(guid);
+            if (chain == null) {
+                if (previous != null) {
+                    throw conflict(guid, null, resource.getVersion(),
+                            String.format("Previous version '%s' is not "
+                                    + "known.", previous));
+                }
+                chain = chains.computeIfAbsent(guid,
+                        (g) -> new VersionChain<>());
+            }
+
+            synchronized (chain) {
+                if (chains.get(guid) != chain) {
+                    continue; //discarded by a failed save, retry
+                }
+                try {
+                    append(chain, resource, previous, record);
+                } finally {
+                    //a failed first save leaves no empty chain behind
+                    if (chain.head() == null) {
+                        chains.remove(guid, chain);
+                    }
+                }
+            }
+            return resource;
+        }
+    }
+
+    /**
+     * Validate and append a version, returning once it is durable; called
+     * holding the chain lock.
+     */
+    private void append(VersionChain<Long> chain, ResourceObject<T> resource,
+            String previous, ByteBuffer record)
+            throws InvalidResourceVersionException, IOException {
+        final String guid = resource.getGuid();
+        final Version<Long> head = chain.head();
+        final String latest = (head == null) ? null : head.version;
+        if (!Objects.equals(latest, previous)) {
+            throw conflict(guid, latest, resource.getVersion(),
+                    String.format("Previous version '%s' is not the "
+                            + "latest version.", previous));
+        }
+        if (chain.find(resource.getVersion(), Long.MAX_VALUE) != null) {
+            throw conflict(guid, latest, resource.getVersion(),
+                    "Version already exists.");
+        }
+        final Append append = new Append(chain, resource.getVersion(),
+                record);
+        enqueue(append);
+        try {
+            append.done.join();
+        } catch (CompletionException ex) {
+            throw (ex.getCause() instanceof IOException)
+                    ? (IOException) ex.getCause()
+                    : new IOException("Unable to save resource.",
+                            ex.getCause());
+        }
+    }
+
+    @Override
+    public Optional<ResourceObject<T>> findLatest(String guid) {
+        final VersionChain<Long> chain = chains.get(guid);
+        final Version<Long> v = (chain == null)
+                ? null
+                : chain.latest(committed);
+        return (v == null) ? Optional.empty() : Optional.of(read(v.value));
+    }
+
+    @Override
+    public Optional<ResourceObject<T>> find(String guid, String version) {
+        final VersionChain<Long> chain = chains.get(guid);
+        final Version<Long> v = (chain == null)
+                ? null
+                : chain.find(version, committed);
+        return (v == null) ? Optional.empty() : Optional.of(read(v.value));
+    }
+
+    @Override
+    public ResourceObject<T> getLatest(String guid)
+            throws UnknownResourceException {
+        return findLatest(guid).orElseThrow(
+                () -> new UnknownResourceException(resourceClass, guid, null));
+    }
+
+    @Override
+    public ResourceObject<T> get(String guid, String version)
+            throws UnknownResourceException, InvalidResourceVersionException {
+        final long snapshot = committed;
+        final VersionChain<Long> chain = chains.get(guid);
+        final Version<Long> latest = (chain == null)
+                ? null
+                : chain.latest(snapshot);
+        if (latest == null) {
+            throw new UnknownResourceException(resourceClass, guid, version);
+        }
+        final Version<Long> v = chain.find(version, snapshot);
+        if (v == null) {
+            throw conflict(guid, latest.version, version,
+                    "Version is not known.");
+        }
+        return read(v.value);
+    }
+
+    /**
+     * Number of resources (guids) in the repository.
+     *
+     * @return resource count
+     */
+    public int size() {
+        return chains.size();
+    }
+
+    /**
+     * Stop accepting saves, write the queued versions and an index
+     * checkpoint, and close the segment files.
+     *
+     * @throws IOException if the final checkpoint could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        lifecycle.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(CLOSE);
+        } finally {
+            lifecycle.writeLock().unlock();
+        }
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        closeSegments();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void enqueue(Append append) throws IOException {
+        lifecycle.readLock().lock();
+        try {
+            if (closed) {
+                throw new IOException("Repository is closed.");
+            }
+            if (failure != null) {
+                throw new IOException("Repository failed.", failure);
+            }
+            queue.add(append);
+        } finally {
+            lifecycle.readLock().unlock();
+        }
+    }
+
+    /*
+     * Records
+     */
+    private ByteBuffer encode(ResourceObject<T> resource) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(0); //header placeholder
+        writeString(out, resource.getGuid());
+        writeString(out, resource.getVersion());
+        final Optional<String> previous = resource.getPreviousVersion();
+        out.writeBoolean(previous.isPresent());
+        if (previous.isPresent()) {
+            writeString(out, previous.get());
+        }
+        codec.encode(resource.getObject(), out);
+        out.flush();
+
+        final ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        final int length = record.limit() - RECORD_HEADER;
+        if (RECORD_HEADER + (long) length > segmentSize) {
+            throw new IOException(String.format("Resource '%s' of %d bytes "
+                    + "exceeds the segment size.", resource.getGuid(), length));
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER, length);
+        record.putInt(0, length);
+        record.putInt(4, (int) crc.getValue());
+        return record;
+    }
+
+    private ResourceObject<T> read(long location) {
+        final FileChannel channel = segments.get(segmentOf(location));
+        try {
+            final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+            readFully(channel, header, offsetOf(location));
+            final ByteBuffer body = ByteBuffer.allocate(header.getInt(0));
+            readFully(channel, body, offsetOf(location) + RECORD_HEADER);
+            if (crc(body) != header.getInt(4)) {
+                throw new IOException(String.format("Corrupt record at "
+                        + "segment %d offset %d.", segmentOf(location),
+                        offsetOf(location)));
+            }
+            body.flip();
+            final String guid = readString(body);
+            final String version = readString(body);
+            final String previous = (body.get() != 0) ? readString(body) : null;
+            return ResourceObject.newInstance(guid, version, previous,
+                    codec.decode(body));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer,
+            long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static int crc(ByteBuffer buffer) {
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), buffer.arrayOffset(), buffer.limit());
+        return (int) crc.getValue();
+    }
+
+    private static void writeString(DataOutputStream out, String value)
+            throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        final int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Invalid record string length.");
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long location(int segment, long offset) {
+        return ((long) segment << OFFSET_BITS) | offset;
+    }
+
+    private static int segmentOf(long location) {
+        return (int) (location >>> OFFSET_BITS);
+    }
+
+    private static long offsetOf(long location) {
+        return location & ((1L << OFFSET_BITS) - 1);
+    }
+
+    /*
+     * Group commit
+     */
+    private void writeLoop() {
+        final List<Append> batch = new ArrayList<>();
+        boolean closing = false;
+        while (!closing) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException ex) {
+                continue; //only stopped by close
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            if (batch.get(batch.size() - 1) == CLOSE) {
+                batch.remove(batch.size() - 1);
+                closing = true;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+        awaitCheckpoint();
+        if (checkpointer != null) {
+            checkpointer.shutdown();
+        }
+        if (failure == null) {
+            try {
+                checkpoint(segment, position, seq);
+            } catch (IOException ex) {
+                failure = ex;
+            }
+        }
+    }
+
+    private void write(List<Append> batch) {
+        if (failure != null) {
+            final IOException ex = new IOException("Repository failed.",
+                    failure);
+            batch.forEach((a) -> a.done.completeExceptionally(ex));
+            return;
+        }
+        try {
+            final List<ByteBuffer> pending = new ArrayList<>(batch.size());
+            final long[] locations = new long[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                final ByteBuffer record = batch.get(i).record;
+                if (position > 0 && position + record.remaining() > segmentSize) {
+                    flush(pending);
+                    roll();
+                }
+                locations[i] = location(segment, position);
+                position += record.remaining();
+                pending.add(record);
+            }
+            flush(pending);
+            segments.get(segment).force(false);
+
+            for (int i = 0; i < batch.size(); i++) {
+                final Append a = batch.get(i);
+                a.chain.append(a.version, locations[i], ++seq);
+            }
+            committed = seq;
+            batch.forEach((a) -> a.done.complete(null));
+
+            uncheckpointed += batch.size();
+            if (uncheckpointed >= checkpointInterval
+                    && (checkpointing == null || checkpointing.isDone())) {
+                startCheckpoint();
+            }
+        } catch (IOException | RuntimeException ex) {
+            failure = (ex instanceof IOException)
+                    ? (IOException) ex
+                    : new IOException(ex);
+            batch.forEach((a) -> a.done.completeExceptionally(failure));
+        }
+    }
+
+    private void flush(List<ByteBuffer> records) throws IOException {
+        final FileChannel channel = segments.get(segment);
+        final ByteBuffer[] buffers = records.toArray(
+                new ByteBuffer[records.size()]);
+        long remaining = 0;
+        for (ByteBuffer b : buffers) {
+            remaining += b.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+        records.clear();
+    }
+
+    /**
+     * Make the current segment durable and continue in a new segment.
+     */
+    private void roll() throws IOException {
+        segments.get(segment).force(false);
+        segment++;
+        position = 0;
+        segments.put(segment, FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE));
+    }
+
+    private void closeSegments() {
+        for (FileChannel channel : segments.values()) {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                //closing read-only data, nothing to recover
+            }
+        }
+    }
+
+    private Path segmentPath(int id) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, id,
+                SEGMENT_SUFFIX));
+    }
+
+    /*
+     * Checkpoints and recovery
+     */
+    /**
+     * Checkpoint the versions written so far in the background; called by the
+     * writer thread.
+     */
+    private void startCheckpoint() {
+        if (checkpointer == null) {
+            checkpointer = Executors.newSingleThreadExecutor((r) -> {
+                final Thread t = new Thread(r, "resource-log-checkpoint-"
+                        + directory.getFileName());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        final int cpSegment = segment;
+        final long cpPosition = position;
+        final long cpSeq = seq;
+        uncheckpointed = 0;
+        checkpointing = checkpointer.submit(() -> {
+            checkpoint(cpSegment, cpPosition, cpSeq);
+            return null;
+        });
+    }
+
+    /**
+     * Wait for a background checkpoint to complete; a failed checkpoint is
+     * superseded by the next one.
+     */
+    private void awaitCheckpoint() {
+        if (checkpointing == null) {
+            return;
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                checkpointing.get();
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            } catch (ExecutionException ex) {
+                break;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write the index as of a commit sequence and the log position it covers.
+     * <p>
+     * Versions are immutable and appended to their chains before they are
+     * committed, so the index may be read while the writer thread continues;
+     * versions committed after the sequence are recovered from the log.
+     */
+    private void checkpoint(int cpSegment, long cpPosition, long cpSeq)
+            throws IOException {
+        final Path tmp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(8)); //checksum placeholder
+            final CRC32 crc = new CRC32();
+            final DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new CheckedOutputStream(
+                            Channels.newOutputStream(channel), crc)));
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeInt(cpSegment);
+            out.writeLong(cpPosition);
+            out.writeLong(cpSeq);
+            final List<Version<Long>> versions = new ArrayList<>();
+            for (Map.Entry<String, VersionChain<Long>> e : chains.entrySet()) {
+                for (Version<Long> v = e.getValue().latest(cpSeq); v != null;
+                        v = v.previous) {
+                    versions.add(v);
+                }
+                if (versions.isEmpty()) {
+                    continue;
+                }
+                Collections.reverse(versions);
+                out.writeBoolean(true);
+                writeString(out, e.getKey());
+                out.writeInt(versions.size());
+                for (Version<Long> v : versions) {
+                    writeString(out, v.version);
+                    out.writeLong(v.seq);
+                    out.writeLong(v.value);
+                }
+                versions.clear();
+            }
+            out.writeBoolean(false);
+            out.flush();
+            final ByteBuffer checksum = ByteBuffer.allocate(8);
+            checksum.putLong(0, crc.getValue());
+            channel.write(checksum, 0);
+            channel.force(true);
+        }
+        Files.move(tmp, directory.resolve(CHECKPOINT_FILE),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Load the checkpoint.
+     *
+     * @return true if a valid checkpoint was loaded
+     */
+    private boolean loadCheckpoint(List<Integer> ids) throws IOException {
+        final Path path = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(path)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ)) {
+            final ByteBuffer checksum = ByteBuffer.allocate(8);
+            readFully(channel, checksum, 0);
+            channel.position(8);
+            final CRC32 crc = new CRC32();
+            final DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new CheckedInputStream(
+                            Channels.newInputStream(channel), crc)));
+            if (in.readInt() != CHECKPOINT_MAGIC) {
+                return false;
+            }
+            final int cpSegment = in.readInt();
+            final long cpPosition = in.readLong();
+            final long cpSeq = in.readLong();
+            if (!ids.contains(cpSegment) && !(ids.isEmpty() && cpSegment == 0)) {
+                return false; //does not match the segments
+            }
+            final Map<String, VersionChain<Long>> loaded = new HashMap<>();
+            while (in.readBoolean()) {
+                final String guid = readString(in);
+                final VersionChain<Long> chain = new VersionChain<>();
+                for (int n = in.readInt(); n > 0; n--) {
+                    final String version = readString(in);
+                    final long vSeq = in.readLong();
+                    chain.append(version, in.readLong(), vSeq);
+                }
+                loaded.put(guid, chain);
+            }
+            if (crc.getValue() != checksum.getLong(0)) {
+                return false;
+            }
+            chains.putAll(loaded);
+            segment = cpSegment;
+            position = cpPosition;
+            seq = cpSeq;
+            return true;
+        } catch (EOFException ex) {
+            return false; //incomplete checkpoint
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            throw new EOFException();
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void recover() throws IOException {
+        final List<Integer> ids = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path p : files) {
+                final String name = p.getFileName().toString();
+                try {
+                    ids.add(Integer.parseInt(name.substring(
+                            SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException ex) {
+                    //not a segment
+                }
+            }
+        }
+        Collections.sort(ids);
+        for (int id : ids) {
+            segments.put(id, FileChannel.open(segmentPath(id),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE));
+        }
+
+        if (!loadCheckpoint(ids)) {
+            chains.clear();
+            segment = ids.isEmpty() ? 0 : ids.get(0);
+            position = 0;
+            seq = 0;
+        }
+
+        //scan the segments written after the checkpoint in parallel
+        final int first = segment;
+        final long from = position;
+        final List<CompletableFuture<Scan>> scans = new ArrayList<>();
+        for (int id : ids) {
+            if (id >= first) {
+                final long offset = (id == first) ? from : 0;
+                scans.add(CompletableFuture.supplyAsync(
+                        () -> scan(id, offset)));
+            }
+        }
+        for (int i = 0; i < scans.size(); i++) {
+            final Scan scan;
+            try {
+                scan = scans.get(i).join();
+            } catch (CompletionException ex) {
+                throw (ex.getCause() instanceof UncheckedIOException)
+                        ? ((UncheckedIOException) ex.getCause()).getCause()
+                        : new IOException("Unable to scan segment.",
+                                ex.getCause());
+            }
+            for (Scan.Entry e : scan.entries) {
+                final VersionChain<Long> chain = chains.computeIfAbsent(e.guid,
+                        (g) -> new VersionChain<>());
+                if (chain.find(e.version, Long.MAX_VALUE) == null) {
+                    chain.append(e.version, e.location, ++seq);
+                }
+            }
+            final boolean last = (i == scans.size() - 1);
+            if (scan.end < scan.size) {
+                if (!last) {
+                    throw new IOException(String.format("Segment %d is "
+                            + "corrupt at offset %d.", scan.segment, scan.end));
+                }
+                segments.get(scan.segment).truncate(scan.end); //torn write
+            }
+            segment = scan.segment;
+            position = scan.end;
+        }
+
+        if (!segments.containsKey(segment)) {
+            segments.put(segment, FileChannel.open(segmentPath(segment),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE));
+        }
+        segments.get(segment).position(position);
+        committed = seq;
+    }
+
+    /**
+     * Read the index entries of the valid records of a segment.
+     * <p>
+     * The scan ends at the first record which is incomplete, fails its
+     * checksum or cannot be parsed; the caller truncates the last segment
+     * there and treats any other segment as corrupt.
+     */
+    private Scan scan(int id, long offset) {
+        try {
+            final FileChannel channel = segments.get(id);
+            final long size = channel.size();
+            final Scan scan = new Scan(id, size);
+            if (offset >= size) {
+                scan.end = offset;
+                return scan;
+            }
+            final MappedByteBuffer mapped = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, size);
+            int pos = (int) offset;
+            while (mapped.limit() - pos >= RECORD_HEADER) {
+                final int length = mapped.getInt(pos);
+                if (length < MIN_RECORD
+                        || length > mapped.limit() - pos - RECORD_HEADER) {
+                    break; //includes zero filled tails, crc32 of nothing is 0
+                }
+                final ByteBuffer body = mapped.duplicate();
+                body.limit(pos + RECORD_HEADER + length)
+                        .position(pos + RECORD_HEADER);
+                final ByteBuffer record = body.slice();
+                final CRC32 crc = new CRC32();
+                crc.update(record.duplicate());
+                if ((int) crc.getValue() != mapped.getInt(pos + 4)) {
+                    break;
+                }
+                final Scan.Entry entry;
+                try {
+                    entry = new Scan.Entry(readString(record),
+                            readString(record), location(id, pos));
+                } catch (IOException | BufferUnderflowException ex) {
+                    break; //unreadable record ends the valid data
+                }
+                scan.entries.add(entry);
+                pos += RECORD_HEADER + length;
+            }
+            scan.end = pos;
+            return scan;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private InvalidResourceVersionException conflict(String guid,
+            String current, String requested, String message) {
+        return new InvalidResourceVersionException(type.getNamespace(),
+                type.getType(), type.getVersion(), guid,
+                String.valueOf(current), requested, message);
+    }
+
+    /**
+     * Version queued for the writer thread.
+     */
+    private static final class Append {
+
+        final VersionChain<Long> chain;
+        final String version;
+        final ByteBuffer record;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Append(VersionChain<Long> chain, String version, ByteBuffer record) {
+            this.chain = chain;
+            this.version = version;
+            this.record = record;
+        }
+    }
+
+    /**
+     * Index entries of a scanned segment.
+     */
+    private static final class Scan {
+
+        final int segment;
+        final long size;
+        final List<Entry> entries = new ArrayList<>();
+        long end;
+
+        Scan(int segment, long size) {
+            this.segment = segment;
+            this.size = size;
+        }
+
+        static final class Entry {
+
+            final String guid;
+            final String version;
+            final long location;
+
+            Entry(String guid, String version, long location) {
+                this.guid = guid;
+                this.version = version;
+                this.location = location;
+            }
+        }
+    }
+}
@@ -0,0 +1,474 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.repo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.geoint.acetate.java.bind.ResourceObject;
+import org.geoint.acetate.model.TypeDescriptor;
+
+/**
+ * Resource repository storing serialized resource versions outside of the
+ * java heap, in memory-mapped segments of a scratch file.
+ * <p>
+ * Each version is written as a record linking to the record of its previous
+ * version. The guid index is an open-addressing hash table of primitive
+ * arrays referencing the record of the latest version, so the heap holds no
+ * objects per resource; records are decoded by the {@link ResourceCodec}
+ * only when read.
+ * <p>
+ * The scratch file is deleted when the repository is closed, contents are
+ * not retained between instances (see {@link LogResourceRepository} for
+ * persistent storage). Read methods throw {@link UncheckedIOException} if a
+ * record could not be decoded. Instances of this class are thread-safe.
+ *
+ * @author steve_siebert
+ * @param <T> java class representation of a domain resource
+ */
+public class OffHeapResourceRepository<T>
+        implements ResourceRepository<T>, Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 28;
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final int OFFSET_BITS = 32;
+    private static final int RECORD_HEADER = 4 + 8; //length, previous
+    private static final int GUID_AT = 8; //after the previous location
+    private static final long NONE = -1;
+
+    private final Class<T> resourceClass;
+    private final TypeDescriptor type;
+    private final ResourceCodec<T> codec;
+    private final Path file;
+    private final FileChannel channel;
+    private final int segmentSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private int position; //of the last segment
+    //index, a head of 0 is an empty slot, otherwise location + 1
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private long[] heads = new long[INITIAL_CAPACITY];
+    private int size;
+    private boolean closed;
+
+    private OffHeapResourceRepository(Class<T> resourceClass,
+            TypeDescriptor type, ResourceCodec<T> codec, Path file,
+            FileChannel channel, int segmentSize) {
+        this.resourceClass = Objects.requireNonNull(resourceClass);
+        this.type = Objects.requireNonNull(type);
+        this.codec = Objects.requireNonNull(codec);
+        this.file = file;
+        this.channel = channel;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Create a repository backed by a scratch file in the default temporary
+     * directory.
+     *
+     * @param <T> resource class type
+     * @param resourceClass resource class
+     * @param type domain type of the resource class
+     * @param codec resource codec
+     * @return empty repository
+     * @throws IOException if the scratch file could not be created
+     */
+    public static <T> OffHeapResourceRepository<T> create(
+            Class<T> resourceClass, TypeDescriptor type, ResourceCodec<T> codec)
+            throws IOException {
+        return create(Files.createTempFile("resources", ".dat"),
+                resourceClass, type, codec, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Create a repository backed by the scratch file.
+     *
+     * @param <T> resource class type
+     * @param file scratch file, replaced if it exists
+     * @param resourceClass resource class
+     * @param type domain type of the resource class
+     * @param codec resource codec
+     * @param segmentSize size of each mapped segment, the maximum size of a
+     * serialized version
+     * @return empty repository
+     * @throws IOException if the scratch file could not be created
+     */
+    public static <T> OffHeapResourceRepository<T> create(Path file,
+            Class<T> resourceClass, TypeDescriptor type, ResourceCodec<T> codec,
+            int segmentSize) throws IOException {
+        if (segmentSize <= RECORD_HEADER) {
+            throw new IllegalArgumentException(String.format("Invalid "
+                    + "segment size %d.", segmentSize));
+        }
+        final FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new OffHeapResourceRepository<>(resourceClass, type, codec,
+                file, channel, segmentSize);
+    }
+
+    /**
+     * Save a new version of a resource.
+     * <p>
+     * The previous version of the resource must be the latest version in the
+     * repository, or empty if the resource is new to the repository.
+     *
+     * @param resource resource version
+     * @return saved resource version
+     * @throws InvalidResourceVersionException if the previous version of the
+     * resource is not the latest version, or the version already exists
+     * @throws IOException if the version could not be serialized or stored
+     */
+    public ResourceObject<T> save(ResourceObject<T> resource)
+            throws InvalidResourceVersionException, IOException {
+        final ByteArrayOutputStream object = new ByteArrayOutputStream();
+        codec.encode(resource.getObject(), object);
+        final byte[] guid = bytes(resource.getGuid());
+        final byte[] version = bytes(resource.getVersion());
+        final String previous = resource.getPreviousVersion().orElse(null);
+        final int hash = hash(resource.getGuid());
+
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            final int slot = slot(hash, guid);
+            final long head = heads[slot] - 1;
+            final String latest = (head == NONE)
+                    ? null
+                    : string(record(head), versionAt(record(head)));
+            if (!Objects.equals(latest, previous)) {
+                throw conflict(resource.getGuid(), latest,
+                        resource.getVersion(), String.format("Previous "
+                                + "version '%s' is not the latest version.",
+                                previous));
+            }
+            if (head != NONE && findVersion(head, version) != NONE) {
+                throw conflict(resource.getGuid(), latest,
+                        resource.getVersion(), "Version already exists.");
+            }
+
+            final long location = append(head, guid, version,
+                    (previous == null) ? null : bytes(previous), object);
+            if (head == NONE) {
+                hashes[slot] = hash;
+                heads[slot] = location + 1;
+                if (++size * 2 > heads.length) {
+                    resize();
+                }
+            } else {
+                heads[slot] = location + 1;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return resource;
+    }
+
+    @Override
+    public Optional<ResourceObject<T>> findLatest(String guid) {
+        final byte[] record;
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            final long head = heads[slot(hash(guid), bytes(guid))] - 1;
+            record = (head == NONE) ? null : copy(head);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return (record == null) ? Optional.empty() : Optional.of(decode(record));
+    }
+
+    @Override
+    public Optional<ResourceObject<T>> find(String guid, String version) {
+        final byte[] record;
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            final long head = heads[slot(hash(guid), bytes(guid))] - 1;
+            final long location = (head == NONE)
+                    ? NONE
+                    : findVersion(head, bytes(version));
+            record = (location == NONE) ? null : copy(location);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return (record == null) ? Optional.empty() : Optional.of(decode(record));
+    }
+
+    @Override
+    public ResourceObject<T> getLatest(String guid)
+            throws UnknownResourceException {
+        return findLatest(guid).orElseThrow(
+                () -> new UnknownResourceException(resourceClass, guid, null));
+    }
+
+    @Override
+    public ResourceObject<T> get(String guid, String version)
+            throws UnknownResourceException, InvalidResourceVersionException {
+        final byte[] record;
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            final long head = heads[slot(hash(guid), bytes(guid))] - 1;
+            if (head == NONE) {
+                throw new UnknownResourceException(resourceClass, guid,
+                        version);
+            }
+            final long location = findVersion(head, bytes(version));
+            if (location == NONE) {
+                throw conflict(guid, string(record(head),
+                        versionAt(record(head))), version,
+                        "Version is not known.");
+            }
+            record = copy(location);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return decode(record);
+    }
+
+    /**
+     * Number of resources (guids) in the repository.
+     *
+     * @return resource count
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Release the mapped segments and delete the scratch file.
+     *
+     * @throws IOException if the scratch file could not be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            segments.clear();
+            hashes = null;
+            heads = null;
+            channel.close();
+            Files.deleteIfExists(file);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Repository is closed.");
+        }
+    }
+
+    /*
+     * Index
+     */
+    /**
+     * Slot of the guid, or the empty slot where it would be placed.
+     */
+    private int slot(int hash, byte[] guid) {
+        final int mask = heads.length - 1;
+        for (int i = hash & mask;; i = (i + 1) & mask) {
+            if (heads[i] == 0) {
+                return i;
+            }
+            if (hashes[i] == hash
+                    && matches(record(heads[i] - 1), GUID_AT, guid)) {
+                return i;
+            }
+        }
+    }
+
+    private void resize() {
+        final int[] oldHashes = hashes;
+        final long[] oldHeads = heads;
+        hashes = new int[oldHeads.length * 2];
+        heads = new long[oldHeads.length * 2];
+        final int mask = heads.length - 1;
+        for (int o = 0; o < oldHeads.length; o++) {
+            if (oldHeads[o] != 0) {
+                int i = oldHashes[o] & mask;
+                while (heads[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                hashes[i] = oldHashes[o];
+                heads[i] = oldHeads[o];
+            }
+        }
+    }
+
+    /**
+     * murmur3 finalizer over the guid hash code.
+     */
+    private static int hash(String guid) {
+        int h = guid.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /*
+     * Records: [int length][long previous][guid][version][previous version]
+     * [object], strings are int length prefixed, a missing previous version
+     * has a length of -1.
+     */
+    private long append(long previous, byte[] guid, byte[] version,
+            byte[] previousVersion, ByteArrayOutputStream object)
+            throws IOException {
+        final long length = 8 + 4L + guid.length + 4 + version.length + 4
+                + ((previousVersion == null) ? 0 : previousVersion.length)
+                + object.size();
+        if (4 + length > segmentSize) {
+            throw new IOException(String.format("Resource of %d bytes "
+                    + "exceeds the segment size.", length));
+        }
+        if (segments.isEmpty() || position + 4 + length > segmentSize) {
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE,
+                    (long) segments.size() * segmentSize, segmentSize));
+            position = 0;
+        }
+        final int segment = segments.size() - 1;
+        final ByteBuffer buffer = segments.get(segment).duplicate();
+        buffer.position(position);
+        buffer.putInt((int) length);
+        buffer.putLong(previous);
+        buffer.putInt(guid.length).put(guid);
+        buffer.putInt(version.length).put(version);
+        if (previousVersion == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(previousVersion.length).put(previousVersion);
+        }
+        buffer.put(object.toByteArray());
+
+        final long location = ((long) segment << OFFSET_BITS) | position;
+        position = buffer.position();
+        return location;
+    }
+
+    /**
+     * Record without its length, positioned at the previous location.
+     */
+    private ByteBuffer record(long location) {
+        final ByteBuffer buffer = segments.get(
+                (int) (location >>> OFFSET_BITS)).duplicate();
+        final int offset = (int) location;
+        buffer.limit(offset + 4 + buffer.getInt(offset)).position(offset + 4);
+        return buffer.slice();
+    }
+
+    private byte[] copy(long location) {
+        final ByteBuffer record = record(location);
+        final byte[] copy = new byte[record.remaining()];
+        record.get(copy);
+        return copy;
+    }
+
+    private long findVersion(long head, byte[] version) {
+        for (long location = head; location != NONE;) {
+            final ByteBuffer record = record(location);
+            if (matches(record, versionAt(record), version)) {
+                return location;
+            }
+            location = record.getLong(0);
+        }
+        return NONE;
+    }
+
+    private ResourceObject<T> decode(byte[] bytes) {
+        final ByteBuffer record = ByteBuffer.wrap(bytes);
+        final int versionAt = versionAt(record);
+        final int previousAt = skip(record, versionAt);
+        record.position(skip(record, previousAt));
+        try {
+            return ResourceObject.newInstance(string(record, GUID_AT),
+                    string(record, versionAt), string(record, previousAt),
+                    codec.decode(record.slice()));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static int versionAt(ByteBuffer record) {
+        return skip(record, GUID_AT);
+    }
+
+    private static int skip(ByteBuffer record, int at) {
+        return at + 4 + Math.max(0, record.getInt(at));
+    }
+
+    private static boolean matches(ByteBuffer record, int at, byte[] expected) {
+        if (record.getInt(at) != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (record.get(at + 4 + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String string(ByteBuffer record, int at) {
+        final int length = record.getInt(at);
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = record.get(at + 4 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private InvalidResourceVersionException conflict(String guid,
+            String current, String requested, String message) {
+        return new InvalidResourceVersionException(type.getNamespace(),
+                type.getType(), type.getVersion(), guid,
+                String.valueOf(current), requested, message);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.repo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import org.geoint.acetate.DomainInstantiationException;
+import org.geoint.acetate.format.DomainFormatException;
+import org.geoint.acetate.format.Format;
+import org.geoint.acetate.format.TypeFormattingException;
+import org.geoint.acetate.java.format.BufferedObjectParser;
+import org.geoint.acetate.java.format.ObjectFormatter;
+import org.geoint.acetate.java.format.ObjectParser;
+import org.geoint.acetate.java.model.DomainClassRegistry;
+import org.geoint.acetate.model.InvalidModelException;
+
+/**
+ * Serializes resource objects for storage by a persistent repository.
+ * <p>
+ * Implementations must be thread-safe.
+ *
+ * @author steve_siebert
+ * @param <T> java class representation of a domain resource
+ * @see LogResourceRepository
+ */
+public interface ResourceCodec<T> {
+
+    /**
+     * Write the serialized object.
+     *
+     * @param object resource object
+     * @param out destination, not closed by this method
+     * @throws IOException if the object could not be serialized
+     */
+    void encode(T object, OutputStream out) throws IOException;
+
+    /**
+     * Read a serialized object.
+     *
+     * @param serialized remaining bytes of the buffer
+     * @return resource object
+     * @throws IOException if the object could not be deserialized
+     */
+    T decode(ByteBuffer serialized) throws IOException;
+
+    /**
+     * Codec serializing resources with a formatter and parser, such as the
+     * {@link org.geoint.acetate.java.format.binary binary format}.
+     *
+     * @param <T> resource class type
+     * @param registry registry of the resource class
+     * @param resourceClass resource class
+     * @param format format passed to the formatter
+     * @param formatter resource formatter
+     * @param parser resource parser
+     * @return resource codec
+     */
+    static <T> ResourceCodec<T> formatted(DomainClassRegistry registry,
+            Class<T> resourceClass, Format format, ObjectFormatter<T> formatter,
+            ObjectParser<T> parser) {
+        return new ResourceCodec<T>() {
+            @Override
+            public void encode(T object, OutputStream out) throws IOException {
+                try {
+                    formatter.format(format, object, registry.asType(object),
+                            out);
+                } catch (TypeFormattingException | DomainInstantiationException
+                        | InvalidModelException ex) {
+                    throw new IOException(String.format("Unable to format "
+                            + "resource of class '%s'.",
+                            resourceClass.getName()), ex);
+                }
+            }
+
+            @Override
+            public T decode(ByteBuffer serialized) throws IOException {
+                try {
+                    return BufferedObjectParser.parse(parser,
+                            registry.findType(resourceClass).orElse(null),
+                            serialized);
+                } catch (DomainFormatException ex) {
+                    throw new IOException(String.format("Unable to parse "
+                            + "resource of class '%s'.",
+                            resourceClass.getName()), ex);
+                }
+            }
+        };
+    }
+}
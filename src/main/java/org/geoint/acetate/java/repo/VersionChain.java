@@ -0,0 +1,186 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.repo;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Versions of a single resource, newest first.
+ * <p>
+ * Versions are appended by one writer at a time (callers serialize appends,
+ * typically by locking the chain) and read without locking. Each version is
+ * stamped with a commit sequence, reads only see versions committed at or
+ * before their snapshot sequence.
+ * <p>
+ * Chains created with a commit sequence may publish a version before it is
+ * stamped (see {@link #appendPending}). The first reader or writer to reach
+ * a pending version stamps it with the next sequence, which is after the
+ * snapshot of any reader that found it pending, so reads never wait for a
+ * writer and every read of a snapshot agrees on the versions it contains.
+ *
+ * @author steve_siebert
+ * @param <R> version payload
+ */
+final class VersionChain<R> {
+
+    /**
+     * Chain depth from which versions are indexed by version string.
+     */
+    static final int INDEX_DEPTH = 8;
+
+    /**
+     * Sequence of a version which has not been stamped.
+     */
+    static final long PENDING = -1;
+
+    private final AtomicLong sequence; //null if versions are never pending
+    private volatile Version<R> head;
+    private volatile Map<String, Version<R>> index; //created at INDEX_DEPTH
+
+    /**
+     * Chain of versions which are stamped when appended.
+     */
+    VersionChain() {
+        this(null);
+    }
+
+    /**
+     *
+     * @param sequence commit sequence pending versions are stamped from
+     */
+    VersionChain(AtomicLong sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Version node; immutable once stamped.
+     *
+     * @param <R> version payload
+     */
+    static final class Version<R> {
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicLongFieldUpdater<Version> SEQ
+                = AtomicLongFieldUpdater.newUpdater(Version.class, "seq");
+
+        final String version;
+        final R value;
+        volatile long seq;
+        final Version<R> previous;
+        final int depth;
+
+        private Version(String version, R value, long seq,
+                Version<R> previous) {
+            this.version = version;
+            this.value = value;
+            this.seq = seq;
+            this.previous = previous;
+            this.depth = (previous == null) ? 1 : previous.depth + 1;
+        }
+
+        /**
+         * Stamp a pending version with the next sequence.
+         *
+         * @return commit sequence of the version
+         */
+        long stamp(AtomicLong sequence) {
+            final long s = seq;
+            if (s != PENDING) {
+                return s;
+            }
+            SEQ.compareAndSet(this, PENDING, sequence.incrementAndGet());
+            return seq;
+        }
+    }
+
+    /**
+     * Latest version, regardless of commit sequence.
+     */
+    Version<R> head() {
+        return head;
+    }
+
+    /**
+     * Append a new latest version; versions are indexed before the head is
+     * published so an indexed lookup never misses a reachable version.
+     */
+    void append(String version, R value, long seq) {
+        publish(new Version<>(version, value, seq, head));
+    }
+
+    /**
+     * Append a new latest version which is stamped by the caller, once the
+     * version is published, or by the first reader to find it.
+     *
+     * @return the pending version
+     */
+    Version<R> appendPending(String version, R value) {
+        final Version<R> v = new Version<>(version, value, PENDING, head);
+        publish(v);
+        return v;
+    }
+
+    private void publish(Version<R> v) {
+        Map<String, Version<R>> i = index;
+        if (i == null && v.depth >= INDEX_DEPTH) {
+            i = new ConcurrentHashMap<>();
+            for (Version<R> p = v; p != null; p = p.previous) {
+                i.put(p.version, p);
+            }
+            index = i;
+        } else if (i != null) {
+            i.put(v.version, v);
+        }
+        head = v;
+    }
+
+    /**
+     * Latest version committed at or before the snapshot.
+     */
+    Version<R> latest(long snapshot) {
+        Version<R> v = head;
+        while (v != null && seq(v) > snapshot) {
+            v = v.previous;
+        }
+        return v;
+    }
+
+    /**
+     * Requested version if committed at or before the snapshot.
+     */
+    Version<R> find(String version, long snapshot) {
+        final Map<String, Version<R>> i = index;
+        if (i != null) {
+            //versions are indexed before they are committed
+            final Version<R> v = i.get(version);
+            return (v != null && seq(v) <= snapshot) ? v : null;
+        }
+        for (Version<R> v = latest(snapshot); v != null; v = v.previous) {
+            if (v.version.equals(version)) {
+                return v;
+            }
+        }
+        return null;
+    }
+
+    private long seq(Version<R> v) {
+        final long s = v.seq;
+        return (s == PENDING) ? v.stamp(sequence) : s;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.spi.java;
+
+import java.util.ServiceLoader;
+import org.geoint.acetate.model.DomainBuilder;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.InvalidModelException;
+import org.geoint.acetate.model.TypeDescriptor;
+
+/**
+ * Instances of this extension describe the domain model of a single annotated
+ * java class without the need to reflect on the class at runtime.
+ * <p>
+ * Implementations are typically generated at compile time by the acetate-java
+ * annotation processor and made available in accordance with the
+ * {@link ServiceLoader} specification. Classes without a factory are modeled
+ * using reflection.
+ *
+ * @author steve_siebert
+ */
+public interface DomainTypeFactory {
+
+    /**
+     * Java class representation of the domain type.
+     *
+     * @return domain class
+     */
+    Class<?> getDomainClass();
+
+    /**
+     * Domain type descriptor of the domain class.
+     *
+     * @return type descriptor
+     */
+    TypeDescriptor getTypeDescriptor();
+
+    /**
+     * Define the domain type model using the provided builder.
+     *
+     * @param builder domain builder for the namespace/version of the type
+     * @return domain type model
+     * @throws InvalidModelException if the definition creates an invalid model
+     */
+    DomainType model(DomainBuilder builder) throws InvalidModelException;
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.spi.java;
+
+import org.geoint.acetate.java.bind.ObjectBinder;
+import org.geoint.acetate.model.TypeDescriptor;
+
+/**
+ * Receives instrumentation events from a
+ * {@link org.geoint.acetate.java.model.DomainClassRegistry}.
+ * <p>
+ * Methods are called inline on the conversion path, so implementations must
+ * be thread-safe, must not block, and should be cheap. All methods do nothing
+ * by default.
+ *
+ * @author steve_siebert
+ */
+public interface RegistryMetrics {
+
+    /**
+     * Metrics implementation which discards all events; the registry skips
+     * timing entirely when this instance is used.
+     */
+    RegistryMetrics NONE = new RegistryMetrics() {
+    };
+
+    /**
+     * A conversion used the binder registered for the type.
+     *
+     * @param td domain type
+     */
+    default void binderHit(TypeDescriptor td) {
+    }
+
+    /**
+     * No binder was registered for the type, the conversion fell back to the
+     * default binders.
+     *
+     * @param td domain type, null if the object class does not declare a
+     * domain type
+     */
+    default void binderMiss(TypeDescriptor td) {
+    }
+
+    /**
+     * A default binder failed while searching for a binder which supports a
+     * type; the exception was not propagated to the caller.
+     *
+     * @param binder default binder
+     * @param ex exception thrown by the binder
+     */
+    default void defaultBinderFailure(ObjectBinder binder, Throwable ex) {
+    }
+
+    /**
+     * A domain class was registered.
+     *
+     * @param domainClass domain class
+     * @param nanos time taken to model and bind the class
+     */
+    default void registered(Class<?> domainClass, long nanos) {
+    }
+
+    /**
+     * An object or type instance was converted by the registry.
+     *
+     * @param nanos conversion time
+     */
+    default void bound(long nanos) {
+    }
+
+    /**
+     * An object was formatted by a registered formatter.
+     *
+     * @param nanos format time
+     */
+    default void formatted(long nanos) {
+    }
+
+    /**
+     * An object was parsed by a registered parser.
+     *
+     * @param nanos parse time
+     */
+    default void parsed(long nanos) {
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.bind;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.geoint.acetate.DomainInstantiationException;
+import org.geoint.acetate.java.model.Accessor;
+import org.geoint.acetate.java.model.MockValidEvent;
+import org.geoint.acetate.java.model.MockValidValue;
+import org.geoint.acetate.java.model.reflect.ClassTypeReflector;
+import org.geoint.acetate.model.TypeDescriptor;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class AccessorBinderTest {
+
+    @Test
+    public void testAsType() throws Exception {
+        AccessorBinder<MockValidEvent> binder = newEventBinder();
+        MockValidValue value = new MockValidValue(42);
+        MockValidEvent event = new MockValidEvent(value);
+
+        ObjectTypeInstance<MockValidEvent> instance = binder.asType(event);
+        assertEquals(binder.getTypeDescriptor(), instance.getTypeDescriptor());
+        assertEquals(Collections.singletonList(MockValidEvent.EVENT_COMPOSITE_NAME),
+                instance.getCompositeNames());
+        assertSame(value, instance.findComposite(
+                MockValidEvent.EVENT_COMPOSITE_NAME).get());
+        assertSame(event, instance.getSource().get());
+    }
+
+    /**
+     * Accessors are not invoked until the composite is read, and only once.
+     */
+    @Test
+    public void testLazyAsType() throws Exception {
+        AccessorBinder<CountingEvent> binder = AccessorBinder.forClass(
+                CountingEvent.class, new TypeDescriptor("ns", "1", "counting"));
+        CountingEvent event = new CountingEvent();
+
+        LazyObjectTypeInstance<CountingEvent> instance = binder.asType(event);
+        assertEquals(0, event.reads.get());
+        assertFalse(instance.isRead("value"));
+
+        MockValidValue value = (MockValidValue) instance.findComposite("value").get();
+        assertSame(value, instance.findComposite("value").get());
+        assertEquals(1, event.reads.get());
+        assertTrue(instance.isRead("value"));
+        instance.readAll();
+        assertEquals(1, event.reads.get());
+    }
+
+    @Test(expected = DomainInstantiationException.class)
+    public void testLazyReadAllFailure() throws Exception {
+        AccessorBinder<CountingEvent> binder = AccessorBinder.forClass(
+                CountingEvent.class, new TypeDescriptor("ns", "1", "counting"));
+        CountingEvent event = new CountingEvent();
+        event.fail = true;
+        binder.asType(event).readAll();
+    }
+
+    @Test
+    public void testAsObjectFromSource() throws Exception {
+        AccessorBinder<MockValidEvent> binder = newEventBinder();
+        MockValidEvent event = new MockValidEvent();
+        assertSame(event, binder.asObject(binder.asType(event)));
+    }
+
+    @Test
+    public void testAsObjectConstructor() throws Exception {
+        AccessorBinder<MockValidEvent> binder = newEventBinder();
+        MockValidValue value = new MockValidValue(7);
+
+        MockValidEvent event = binder.asObject(ObjectTypeInstance.newInstance(
+                binder.getTypeDescriptor(),
+                Collections.singletonMap(MockValidEvent.EVENT_COMPOSITE_NAME, value)));
+        assertSame(value, event.getMyValue());
+    }
+
+    @Test(expected = DomainInstantiationException.class)
+    public void testAsObjectWrongType() throws Exception {
+        AccessorBinder<MockValidEvent> binder = newEventBinder();
+        binder.asObject(ObjectTypeInstance.newInstance(
+                new TypeDescriptor("other", "1.0", "other"),
+                Collections.emptyMap()));
+    }
+
+    private AccessorBinder<MockValidEvent> newEventBinder() throws Exception {
+        return AccessorBinder.forClass(MockValidEvent.class,
+                ClassTypeReflector.getTypeDescriptor(MockValidEvent.class));
+    }
+
+    public static class CountingEvent {
+
+        private final AtomicInteger reads = new AtomicInteger();
+        private final MockValidValue value = new MockValidValue();
+        private boolean fail;
+
+        @Accessor(name = "value")
+        public MockValidValue getValue() {
+            reads.incrementAndGet();
+            if (fail) {
+                throw new IllegalStateException("accessor failure");
+            }
+            return value;
+        }
+    }
+}
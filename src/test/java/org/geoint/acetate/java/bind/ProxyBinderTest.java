@@ -0,0 +1,202 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.bind;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.geoint.acetate.java.model.Accessor;
+import org.geoint.acetate.java.model.DomainClassRegistry;
+import org.geoint.acetate.java.model.DomainResource;
+import org.geoint.acetate.java.model.MockDomainConstants;
+import org.geoint.acetate.java.model.MockValidValue;
+import org.geoint.acetate.java.repo.ResourceRepository;
+import org.geoint.acetate.model.TypeDescriptor;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class ProxyBinderTest {
+
+    private static final TypeDescriptor NODE_TYPE = new TypeDescriptor(
+            MockDomainConstants.MOCK_NAMESPACE,
+            MockDomainConstants.MOCK_VERSION, "Node");
+    private static final TypeDescriptor COUNTER_TYPE = new TypeDescriptor(
+            MockDomainConstants.MOCK_NAMESPACE,
+            MockDomainConstants.MOCK_VERSION, "Counter");
+
+    /**
+     * Links are resolved through the repository on first access only.
+     */
+    @Test
+    public void testLazyLink() throws Exception {
+        DomainClassRegistry registry = new DomainClassRegistry();
+        registry.register(MockValidValue.class);
+        registry.register(Node.class);
+
+        MockValidValue rootValue = new MockValidValue(1);
+        Node root = (Node) registry.asObject(node(rootValue, null));
+        CountingRepository repository = new CountingRepository();
+        repository.resources.put("root", root);
+        registry.registerRepository(Node.class, repository);
+
+        MockValidValue childValue = new MockValidValue(2);
+        Node child = (Node) registry.asObject(
+                node(childValue, ResourceLink.latest("root")));
+        assertSame(childValue, child.getValue());
+        assertEquals(0, repository.lookups.get());
+
+        assertSame(root, child.getParent());
+        assertSame(root, child.getParent());
+        assertEquals(1, repository.lookups.get());
+        assertSame(rootValue, child.getParent().getValue());
+        assertNull(root.getParent());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnknownLink() throws Exception {
+        DomainClassRegistry registry = new DomainClassRegistry();
+        registry.register(MockValidValue.class);
+        registry.register(Node.class);
+        registry.registerRepository(Node.class, new CountingRepository());
+
+        Node child = (Node) registry.asObject(
+                node(new MockValidValue(), ResourceLink.latest("missing")));
+        child.getParent();
+    }
+
+    /**
+     * Proxies convert back to the instance they were created from.
+     */
+    @Test
+    public void testAsType() throws Exception {
+        ProxyBinder<Node> binder = ProxyBinder.forInterface(Node.class,
+                NODE_TYPE, (i) -> null, (c, l) -> Optional.empty());
+        ObjectTypeInstance<Node> instance = node(new MockValidValue(), null);
+        assertSame(instance, binder.asType(binder.asObject(instance)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotInterface() {
+        ProxyBinder.forInterface(MockValidValue.class, NODE_TYPE, (i) -> null,
+                (c, l) -> Optional.empty());
+    }
+
+    /**
+     * Boxed composites are returned from primitive accessors, unset
+     * composites as the default value of the primitive.
+     */
+    @Test
+    public void testPrimitiveAccessors() throws Exception {
+        ProxyBinder<Counter> binder = ProxyBinder.forInterface(Counter.class,
+                COUNTER_TYPE, (i) -> null, (c, l) -> Optional.empty());
+        Map<String, Object> composites = new HashMap<>();
+        composites.put("count", 3);
+        composites.put("enabled", true);
+        Counter counter = binder.asObject(
+                ObjectTypeInstance.newInstance(COUNTER_TYPE, composites));
+
+        assertEquals(3, counter.getCount());
+        assertEquals(3, counter.getCount());
+        assertTrue(counter.isEnabled());
+        assertEquals(0L, counter.getTotal());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPrimitiveAccessorMismatch() throws Exception {
+        ProxyBinder<Counter> binder = ProxyBinder.forInterface(Counter.class,
+                COUNTER_TYPE, (i) -> null, (c, l) -> Optional.empty());
+        binder.asObject(ObjectTypeInstance.newInstance(COUNTER_TYPE,
+                Collections.singletonMap("count", "three"))).getCount();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testVoidAccessor() {
+        ProxyBinder.forInterface(Broken.class, COUNTER_TYPE, (i) -> null,
+                (c, l) -> Optional.empty());
+    }
+
+    private static ObjectTypeInstance<Node> node(MockValidValue value,
+            ResourceLink parent) {
+        Map<String, Object> composites = new HashMap<>();
+        composites.put("value", value);
+        composites.put("parent", parent);
+        return ObjectTypeInstance.newInstance(NODE_TYPE, composites);
+    }
+
+    @DomainResource(namespace = MockDomainConstants.MOCK_NAMESPACE,
+            version = MockDomainConstants.MOCK_VERSION,
+            type = "Node")
+    public interface Node {
+
+        @Accessor(name = "value")
+        MockValidValue getValue();
+
+        @Accessor(name = "parent")
+        Node getParent();
+    }
+
+    public interface Counter {
+
+        @Accessor(name = "count")
+        int getCount();
+
+        @Accessor(name = "total")
+        long getTotal();
+
+        @Accessor(name = "enabled")
+        boolean isEnabled();
+    }
+
+    public interface Broken {
+
+        @Accessor(name = "nothing")
+        void getNothing();
+    }
+
+    private static class CountingRepository implements ResourceRepository<Node> {
+
+        private final Map<String, Node> resources = new HashMap<>();
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        @Override
+        public Optional<ResourceObject<Node>> findLatest(String guid) {
+            lookups.incrementAndGet();
+            return Optional.ofNullable(resources.get(guid))
+                    .map((n) -> ResourceObject.newInstance(guid, "1", null, n));
+        }
+
+        @Override
+        public Optional<ResourceObject<Node>> find(String guid, String version) {
+            return findLatest(guid);
+        }
+
+        @Override
+        public ResourceObject<Node> getLatest(String guid) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ResourceObject<Node> get(String guid, String version) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.format;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.format.Format;
+import org.geoint.acetate.format.TypeFormat;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class BufferedObjectFormatterTest {
+
+    /**
+     * Buffers grow until the object fits.
+     */
+    @Test
+    public void testFormatBuffersGrow() throws Exception {
+        String value = repeat('x', BufferedObjectFormatter.DEFAULT_CAPACITY * 3);
+        ByteBuffer[] buffers = new StringFormatter()
+                .formatBuffers(null, value, null);
+        assertEquals(1, buffers.length);
+        assertEquals(value.length(), buffers[0].remaining());
+    }
+
+    @Test
+    public void testFormatStream() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new StringFormatter().format(null, "acetate", null, out);
+        assertEquals("acetate", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void testFormatChannel() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new StringFormatter().format(null, "acetate", null,
+                Channels.newChannel(out));
+        assertEquals("acetate", out.toString("UTF-8"));
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder sb = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static class StringFormatter
+            implements BufferedObjectFormatter<String> {
+
+        @Override
+        public boolean supports(TypeFormat format) {
+            return true;
+        }
+
+        @Override
+        public boolean format(Format format, String obj, TypeInstance instance,
+                ByteBuffer buffer) {
+            final byte[] bytes = obj.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > buffer.remaining()) {
+                return false;
+            }
+            buffer.put(bytes);
+            return true;
+        }
+    }
+}
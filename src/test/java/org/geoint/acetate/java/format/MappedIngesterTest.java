@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.format;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.geoint.acetate.format.DomainFormatException;
+import org.geoint.acetate.format.FormattedType;
+import org.geoint.acetate.format.TypeFormat;
+import org.geoint.acetate.model.DomainType;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class MappedIngesterTest {
+
+    /**
+     * Records spanning region boundaries are remapped with the next region.
+     */
+    @Test
+    public void testDelimitedRegions() throws Exception {
+        final List<String> expected = new ArrayList<>();
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            expected.add("record-" + i);
+            sb.append("record-").append(i).append('\n');
+            if (i % 100 == 0) {
+                sb.append('\n'); //empty record
+            }
+        }
+        sb.setLength(sb.length() - 1); //last record is not terminated
+        final Path file = write(sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        final List<String> parsed = new ArrayList<>();
+        final long count = new MappedIngester<>(new StringParser(), null,
+                RecordSplitter.delimited((byte) '\n'), null, 100)
+                .ingest(file, parsed::add);
+        assertEquals(expected.size(), count);
+        assertEquals(expected, parsed);
+    }
+
+    /**
+     * Records parsed concurrently are delivered in file order.
+     */
+    @Test
+    public void testParallelOrder() throws Exception {
+        final List<String> expected = new ArrayList<>();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        for (int i = 0; i < 10000; i++) {
+            final byte[] record = ("r" + i).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(record.length);
+            out.write(record);
+            expected.add("r" + i);
+        }
+        final Path file = write(bytes.toByteArray());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<String> parsed = new ArrayList<>();
+            new MappedIngester<>(new StringParser(), null,
+                    RecordSplitter.lengthPrefixed(), executor, 4096)
+                    .ingest(file, parsed::add);
+            assertEquals(expected, parsed);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * A record failing to parse concurrently fails the ingest.
+     */
+    @Test(expected = DomainFormatException.class)
+    public void testParallelFailure() throws Exception {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append(i == 4000 ? "invalid" : "record").append('\n');
+        }
+        final Path file = write(sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            new MappedIngester<>(new StringParser() {
+                @Override
+                public String parse(DomainType type, FormattedType formatted)
+                        throws DomainFormatException, IOException {
+                    final String record = super.parse(type, formatted);
+                    if (record.equals("invalid")) {
+                        throw new DomainFormatException("invalid record");
+                    }
+                    return record;
+                }
+            }, null, RecordSplitter.delimited((byte) '\n'), executor,
+                    MappedIngester.DEFAULT_REGION_SIZE)
+                    .ingest(file, (s) -> {
+                    });
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = DomainFormatException.class)
+    public void testTruncatedRecord() throws Exception {
+        final ByteBuffer bytes = ByteBuffer.allocate(10);
+        bytes.putInt(20).put(new byte[6]);
+        new MappedIngester<>(new StringParser(), null,
+                RecordSplitter.lengthPrefixed())
+                .ingest(write(bytes.array()), (s) -> fail());
+    }
+
+    @Test(expected = DomainFormatException.class)
+    public void testRecordExceedsRegion() throws Exception {
+        new MappedIngester<>(new StringParser(), null,
+                RecordSplitter.delimited((byte) '\n'), null, 4)
+                .ingest(write("too long\nrecord".getBytes(
+                        StandardCharsets.UTF_8)), (s) -> {
+                });
+    }
+
+    private Path write(byte[] bytes) throws IOException {
+        final Path file = Files.createTempFile("records", ".dat");
+        file.toFile().deleteOnExit();
+        Files.write(file, bytes);
+        return file;
+    }
+
+    /**
+     * Parses records as UTF-8 strings.
+     */
+    private static class StringParser implements ObjectParser<String> {
+
+        @Override
+        public boolean supports(TypeFormat typeFormat) {
+            return true;
+        }
+
+        @Override
+        public String parse(DomainType type, FormattedType formatted)
+                throws DomainFormatException, IOException {
+            try (InputStream in = formatted.getFormatted()) {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                for (int b = in.read(); b != -1; b = in.read()) {
+                    out.write(b);
+                }
+                return new String(out.toByteArray(), StandardCharsets.UTF_8);
+            }
+        }
+    }
+}
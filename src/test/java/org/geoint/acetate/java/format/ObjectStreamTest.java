@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.format;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class ObjectStreamTest {
+
+    @Test
+    public void testIterate() throws Exception {
+        try (ObjectStream<String> s = lines("a\nb\nc", new AtomicBoolean())) {
+            List<String> read = s.stream().collect(Collectors.toList());
+            assertEquals(Arrays.asList("a", "b", "c"), read);
+            assertFalse(s.hasNext());
+        }
+    }
+
+    /**
+     * Closing a partially read stream releases the input.
+     */
+    @Test
+    public void testEarlyTermination() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        ObjectStream<String> s = lines("a\nb\nc", closed);
+        assertEquals("a", s.next());
+        s.close();
+        assertTrue(closed.get());
+        assertFalse(s.hasNext());
+    }
+
+    @Test(expected = ObjectStreamException.class)
+    public void testReadFailure() throws Exception {
+        ObjectStream<String> s = new ObjectStream<String>(() -> {
+        }) {
+            @Override
+            protected String read() throws IOException {
+                throw new IOException("unreadable");
+            }
+        };
+        s.hasNext();
+    }
+
+    private static ObjectStream<String> lines(String content,
+            AtomicBoolean closed) {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8));
+        return new ObjectStream<String>(() -> {
+            closed.set(true);
+            reader.close();
+        }) {
+            @Override
+            protected String read() throws IOException {
+                return reader.readLine();
+            }
+        };
+    }
+}
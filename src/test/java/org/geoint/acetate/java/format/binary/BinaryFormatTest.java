@@ -0,0 +1,348 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.format.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.format.DomainFormatException;
+import org.geoint.acetate.format.Format;
+import org.geoint.acetate.format.FormattedType;
+import org.geoint.acetate.format.TypeFormat;
+import org.geoint.acetate.java.bind.ObjectBinder;
+import org.geoint.acetate.java.bind.ObjectTypeInstance;
+import org.geoint.acetate.java.format.ObjectFormatter;
+import org.geoint.acetate.java.format.ObjectParser;
+import org.geoint.acetate.java.format.ObjectStream;
+import org.geoint.acetate.java.model.Accessor;
+import org.geoint.acetate.java.model.DomainClassRegistry;
+import org.geoint.acetate.java.model.DomainResource;
+import org.geoint.acetate.java.model.DomainValue;
+import org.geoint.acetate.java.model.Param;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.TypeDescriptor;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class BinaryFormatTest {
+
+    private static final String NAMESPACE = "org.geoint.acetate.test.binary";
+    private static final String VERSION = "1.0";
+    private static final TypeDescriptor READING
+            = new TypeDescriptor(NAMESPACE, VERSION, "Reading");
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        DomainClassRegistry registry = newRegistry();
+        BinarySchema schema = BinarySchema.forRegistry(registry);
+        Place place = new Place(new Label("office"),
+                new Place(new Label("building"), null));
+
+        Place parsed = parse(registry, schema, format(registry, schema, place))
+                .next();
+        assertEquals("office", parsed.getName().getText());
+        assertEquals("building", parsed.getParent().getName().getText());
+        assertNull(parsed.getParent().getParent());
+    }
+
+    /**
+     * Numeric type ids replace the type descriptor strings.
+     */
+    @Test
+    public void testTypeIds() throws Exception {
+        DomainClassRegistry registry = newRegistry();
+        BinarySchema schema = BinarySchema.forRegistry(registry);
+        Place place = new Place(new Label("a"), null);
+        int described = format(registry, schema, place).length;
+
+        schema.registerId(new TypeDescriptor(NAMESPACE, VERSION, "Place"), 1);
+        schema.registerId(new TypeDescriptor(NAMESPACE, VERSION, "Label"), 2);
+        byte[] formatted = format(registry, schema, place);
+        assertTrue(formatted.length < described / 4);
+
+        Place parsed = parse(registry, schema, formatted).next();
+        assertEquals("a", parsed.getName().getText());
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        DomainClassRegistry registry = newRegistry();
+        BinarySchema schema = BinarySchema.forRegistry(registry);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < 100; i++) {
+            out.write(format(registry, schema,
+                    new Place(new Label(String.valueOf(i)), null)));
+        }
+        try (ObjectStream<Place> s = parse(registry, schema, out.toByteArray())) {
+            int count = 0;
+            while (s.hasNext()) {
+                assertEquals(String.valueOf(count++),
+                        s.next().getName().getText());
+            }
+            assertEquals(100, count);
+        }
+    }
+
+    @Test
+    public void testProduces() throws Exception {
+        BinaryObjectParser<Place> parser = new BinaryObjectParser<>(
+                Place.class, null, newRegistry(), new BinarySchema());
+        assertTrue(parser.produces(Place.class));
+        assertTrue(parser.produces(Object.class));
+        assertFalse(parser.produces(Label.class));
+    }
+
+    /**
+     * Fields unknown to the reading schema are skipped; fields the writer did
+     * not know are absent.
+     */
+    @Test
+    public void testSchemaEvolution() throws Exception {
+        DomainClassRegistry registry = instanceRegistry();
+        BinarySchema writer = new BinarySchema();
+        writer.register(READING, Arrays.asList("added", "kept", "nested",
+                "removed"));
+        BinarySchema reader = new BinarySchema();
+        reader.register(READING, Arrays.asList("kept", "unwritten"));
+
+        writer.register(new TypeDescriptor(NAMESPACE, VERSION, "Place"),
+                Arrays.asList("name", "parent"));
+
+        Map<String, Object> composites = new HashMap<>();
+        composites.put("added", 2.5d);
+        composites.put("kept", 42);
+        composites.put("nested", new Place(new Label("inner"), null));
+        composites.put("removed", Arrays.asList("a", 1L, null));
+
+        ObjectTypeInstance<?> read = read(registry, reader,
+                write(registry, writer, composites, ByteOrder.BIG_ENDIAN));
+        assertEquals(Integer.valueOf(42), read.findComposite("kept").get());
+        assertFalse(read.findComposite("unwritten").isPresent());
+        assertFalse(read.findComposite("added").isPresent());
+        assertFalse(read.findComposite("removed").isPresent());
+    }
+
+    /**
+     * Declared field ids allow a composite to be renamed.
+     */
+    @Test
+    public void testDeclaredFieldId() throws Exception {
+        DomainClassRegistry registry = instanceRegistry();
+        BinarySchema writer = new BinarySchema();
+        writer.register(READING, Arrays.asList("name"),
+                Collections.singletonMap("name", 3));
+        BinarySchema reader = new BinarySchema();
+        reader.register(READING, Arrays.asList("title"),
+                Collections.singletonMap("title", 3));
+
+        ObjectTypeInstance<?> read = read(registry, reader,
+                write(registry, writer, Collections.singletonMap("name",
+                        "renamed"), ByteOrder.BIG_ENDIAN));
+        assertEquals("renamed", read.findComposite("title").get());
+    }
+
+    /**
+     * Schemas resolved from a registry use the ids declared by accessors.
+     */
+    @Test
+    public void testAccessorFieldIds() throws Exception {
+        BinarySchema schema = BinarySchema.forRegistry(newRegistry());
+        BinarySchema.Fields fields = schema.fields(
+                new TypeDescriptor(NAMESPACE, VERSION, "Place"));
+        assertEquals(Integer.valueOf(1), fields.idsByName.get("name"));
+        assertEquals(Integer.valueOf(BinarySchema.fieldId("parent")),
+                fields.idsByName.get("parent"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateFieldId() {
+        Map<String, Integer> ids = new HashMap<>();
+        ids.put("a", 5);
+        ids.put("b", 5);
+        new BinarySchema().register(READING, Arrays.asList("a", "b"), ids);
+    }
+
+    /**
+     * Fixed width values are written big-endian whatever the order of the
+     * destination buffer.
+     */
+    @Test
+    public void testByteOrder() throws Exception {
+        DomainClassRegistry registry = instanceRegistry();
+        BinarySchema schema = new BinarySchema();
+        schema.register(READING, Arrays.asList("value", "ratio"));
+        Map<String, Object> composites = new HashMap<>();
+        composites.put("value", 1.5d);
+        composites.put("ratio", 0.25f);
+
+        byte[] little = write(registry, schema, composites,
+                ByteOrder.LITTLE_ENDIAN);
+        assertArrayEquals(write(registry, schema, composites,
+                ByteOrder.BIG_ENDIAN), little);
+        ObjectTypeInstance<?> read = read(registry, schema, little);
+        assertEquals(1.5d, (Double) read.findComposite("value").get(), 0);
+        assertEquals(0.25f, (Float) read.findComposite("ratio").get(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateTypeId() {
+        BinarySchema schema = new BinarySchema();
+        schema.registerId(new TypeDescriptor(NAMESPACE, VERSION, "Place"), 1);
+        schema.registerId(new TypeDescriptor(NAMESPACE, VERSION, "Label"), 1);
+    }
+
+    /**
+     * Registry binding the test type to its type instances, with the places
+     * and labels registered.
+     */
+    private static DomainClassRegistry instanceRegistry() throws Exception {
+        DomainClassRegistry registry = newRegistry();
+        registry.register(READING, new ObjectBinder() {
+            @Override
+            public Object asObject(TypeInstance instance) {
+                return instance;
+            }
+
+            @Override
+            public TypeInstance asType(Object object) {
+                return (TypeInstance) object;
+            }
+        });
+        return registry;
+    }
+
+    private static byte[] write(DomainClassRegistry registry,
+            BinarySchema schema, Map<String, Object> composites,
+            ByteOrder order) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(256).order(order);
+        new BinaryEncoder(registry, schema).write(null,
+                ObjectTypeInstance.newInstance(READING, composites), buffer);
+        assertEquals(order, buffer.order());
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static ObjectTypeInstance<?> read(DomainClassRegistry registry,
+            BinarySchema schema, byte[] formatted) throws Exception {
+        return (ObjectTypeInstance<?>) new BinaryDecoder(registry, schema)
+                .read(new ByteArrayInputStream(formatted));
+    }
+
+    private static DomainClassRegistry newRegistry() throws Exception {
+        DomainClassRegistry registry = new DomainClassRegistry();
+        registry.register(Label.class);
+        registry.register(Place.class);
+        return registry;
+    }
+
+    private static byte[] format(DomainClassRegistry registry,
+            BinarySchema schema, Place place) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BinaryObjectFormatter<Place>(null, registry, schema)
+                .format(null, place, registry.asType(place), out);
+        return out.toByteArray();
+    }
+
+    private static ObjectStream<Place> parse(DomainClassRegistry registry,
+            BinarySchema schema, byte[] formatted) throws Exception {
+        return new BinaryObjectParser<>(Place.class, null, registry, schema)
+                .open(null, new ByteArrayInputStream(formatted));
+    }
+
+    @DomainValue(namespace = NAMESPACE, version = VERSION, type = "Label",
+            defaultFormatter = LabelFormatter.class,
+            defaultParser = LabelParser.class)
+    public static class Label {
+
+        private final String text;
+
+        public Label(String text) {
+            this.text = text;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    public static class LabelFormatter implements ObjectFormatter<Label> {
+
+        @Override
+        public boolean supports(TypeFormat format) {
+            return true;
+        }
+
+        @Override
+        public void format(Format format, Label obj, TypeInstance instance,
+                OutputStream out) throws IOException {
+            new DataOutputStream(out).writeUTF(obj.getText());
+        }
+    }
+
+    public static class LabelParser implements ObjectParser<Label> {
+
+        @Override
+        public boolean supports(TypeFormat typeFormat) {
+            return true;
+        }
+
+        @Override
+        public Label parse(DomainType type, FormattedType formatted)
+                throws DomainFormatException, IOException {
+            return new Label(new DataInputStream(formatted.getFormatted())
+                    .readUTF());
+        }
+    }
+
+    @DomainResource(namespace = NAMESPACE, version = VERSION, type = "Place")
+    public static class Place {
+
+        private final Label name;
+        private final Place parent;
+
+        public Place(@Param(name = "name") Label name,
+                @Param(name = "parent") Place parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+
+        @Accessor(name = "name", id = 1)
+        public Label getName() {
+            return name;
+        }
+
+        @Accessor(name = "parent")
+        public Place getParent() {
+            return parent;
+        }
+    }
+}
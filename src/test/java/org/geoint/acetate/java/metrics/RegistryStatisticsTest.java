@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.metrics;
+
+import java.lang.management.ManagementFactory;
+import javax.management.ObjectName;
+import org.geoint.acetate.model.TypeDescriptor;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class RegistryStatisticsTest {
+
+    @Test
+    public void testHistogramBuckets() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(0);
+        h.record(1);
+        h.record(1000); //bucket [512, 1024)
+        h.record(1000);
+        assertEquals(4, h.getCount());
+        assertEquals(1, h.getCounts()[0]);
+        assertEquals(1, h.getCounts()[1]);
+        assertEquals(2, h.getCounts()[10]);
+        assertEquals(1024, h.getPercentile(99));
+        assertEquals(2, h.getPercentile(50));
+        assertEquals(500, h.getMean());
+
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getPercentile(99));
+    }
+
+    @Test
+    public void testBinderCounts() {
+        TypeDescriptor td = new TypeDescriptor("ns", "1", "type");
+        RegistryStatistics stats = new RegistryStatistics();
+        stats.binderHit(td);
+        stats.binderHit(td);
+        stats.binderMiss(td);
+        stats.binderMiss(null);
+        assertEquals(2, stats.getBinderHits());
+        assertEquals(2, stats.getBinderMisses());
+        assertEquals(Long.valueOf(2),
+                stats.getBinderHitsByType().get(td.toString()));
+        assertEquals(Long.valueOf(1),
+                stats.getBinderMissesByType().get(td.toString()));
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        RegistryStatistics stats = new RegistryStatistics();
+        stats.registered(String.class, 42);
+        ObjectName name = stats.registerMBean("test");
+        try {
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(name, "Registrations"));
+        } finally {
+            RegistryStatistics.unregisterMBean(name);
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer()
+                .isRegistered(name));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.geoint.acetate.DomainInstantiationException;
+import org.geoint.acetate.java.model.reflect.ClassNotDomainTypeException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class BatchConversionTest {
+
+    /**
+     * Results of chunks converted concurrently keep the source order.
+     */
+    @Test
+    public void testConcurrentOrder() throws Exception {
+        List<Integer> sources = new ArrayList<>();
+        for (int i = 0; i < BatchConversion.CHUNK_SIZE * 10 + 7; i++) {
+            sources.add(i);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<String> results = BatchConversion.convert(sources,
+                    BatchConversionTest::convert, executor);
+            assertEquals(sources.size(), results.size());
+            for (int i = 0; i < sources.size(); i++) {
+                assertEquals(String.valueOf(i), results.get(i));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = DomainInstantiationException.class)
+    public void testConcurrentFailure() throws Exception {
+        List<Integer> sources = new ArrayList<>();
+        for (int i = 0; i < BatchConversion.CHUNK_SIZE * 4; i++) {
+            sources.add(i == BatchConversion.CHUNK_SIZE * 2 ? -1 : i);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            BatchConversion.convert(sources, BatchConversionTest::convert,
+                    executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = ClassNotDomainTypeException.class)
+    public void testAsTypesNotDomain() throws Exception {
+        new DomainClassRegistry().asTypes(Arrays.asList("not", "domain"));
+    }
+
+    private static void convert(List<Integer> sources, Object[] results,
+            int offset) throws DomainInstantiationException {
+        for (int i = 0; i < sources.size(); i++) {
+            if (sources.get(i) < 0) {
+                throw new DomainInstantiationException("negative");
+            }
+            results[offset + i] = String.valueOf(sources.get(i));
+        }
+    }
+}
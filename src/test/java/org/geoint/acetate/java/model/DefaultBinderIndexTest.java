@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.geoint.acetate.DomainInstantiationException;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.java.bind.ObjectBinder;
+import org.geoint.acetate.java.bind.ObjectTypeInstance;
+import org.geoint.acetate.model.TypeDescriptor;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class DefaultBinderIndexTest {
+
+    /**
+     * The binder which first succeeds is used for subsequent conversions
+     * without trying the others again.
+     */
+    @Test
+    public void testWinnerIndexed() throws Exception {
+        DefaultBinderIndex index = new DefaultBinderIndex();
+        CountingBinder failing = new CountingBinder(false);
+        CountingBinder binding = new CountingBinder(true);
+        index.add(failing);
+        index.add(binding);
+
+        TypeInstance first = index.asType("a");
+        TypeInstance second = index.asType("b");
+        assertNotNull(first);
+        assertNotNull(second);
+        assertEquals(1, failing.attempts.get());
+        assertEquals(2, binding.attempts.get());
+    }
+
+    /**
+     * A miss is indexed until a new binder is added.
+     */
+    @Test
+    public void testMissIndexed() throws Exception {
+        DefaultBinderIndex index = new DefaultBinderIndex();
+        CountingBinder failing = new CountingBinder(false);
+        index.add(failing);
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                index.asType("a");
+                fail();
+            } catch (DomainInstantiationException ex) {
+                //expected
+            }
+        }
+        assertEquals(1, failing.attempts.get());
+
+        index.add(new CountingBinder(true));
+        assertNotNull(index.asType("a"));
+    }
+
+    /**
+     * Binders which do not support a class are not tried.
+     */
+    @Test
+    public void testUnsupportedSkipped() throws Exception {
+        DefaultBinderIndex index = new DefaultBinderIndex();
+        CountingBinder unsupported = new CountingBinder(true) {
+            @Override
+            public boolean supports(Class<?> objectClass) {
+                return false;
+            }
+        };
+        CountingBinder binding = new CountingBinder(true);
+        index.add(unsupported);
+        index.add(binding);
+
+        index.asType("a");
+        assertEquals(0, unsupported.attempts.get());
+        assertEquals(1, binding.attempts.get());
+    }
+
+    private static class CountingBinder implements ObjectBinder<Object> {
+
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final boolean binds;
+
+        public CountingBinder(boolean binds) {
+            this.binds = binds;
+        }
+
+        @Override
+        public Object asObject(TypeInstance instance)
+                throws DomainInstantiationException {
+            throw new DomainInstantiationException("not supported");
+        }
+
+        @Override
+        public TypeInstance asType(Object object)
+                throws DomainInstantiationException {
+            attempts.incrementAndGet();
+            if (!binds) {
+                throw new DomainInstantiationException("not supported");
+            }
+            return ObjectTypeInstance.newInstance(new TypeDescriptor(
+                    MockDomainConstants.MOCK_NAMESPACE,
+                    MockDomainConstants.MOCK_VERSION, "counted"),
+                    Collections.emptyMap());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.io.InputStream;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class DomainClassIndexTest {
+
+    @Test
+    public void testReadDomainClass() throws Exception {
+        assertEquals(Optional.of(MockValidValue.class.getName()),
+                read(MockValidValue.class));
+        assertEquals(Optional.of(MockValidEvent.class.getName()),
+                read(MockValidEvent.class));
+        assertFalse(read(MockDomainConstants.class).isPresent());
+    }
+
+    /**
+     * Mock classes are not indexed, so are found by scanning.
+     */
+    @Test
+    public void testFindScanned() throws Exception {
+        Set<String> found = DomainClassIndex.find(
+                MockValidResource.class.getPackage().getName(),
+                getClass().getClassLoader());
+        assertTrue(found.contains(MockValidResource.class.getName()));
+        assertTrue(found.contains(MockValidEvent.class.getName()));
+        assertTrue(found.contains(MockValidValue.class.getName()));
+        assertFalse(found.contains(MockDomainConstants.class.getName()));
+    }
+
+    private static Optional<String> read(Class<?> c) throws Exception {
+        try (InputStream in = c.getResourceAsStream(
+                c.getSimpleName() + ".class")) {
+            return DomainClassFileReader.readDomainClass(in);
+        }
+    }
+}
@@ -0,0 +1,380 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.format.Format;
+import org.geoint.acetate.format.TypeFormat;
+import org.geoint.acetate.java.bind.ObjectBinder;
+import org.geoint.acetate.java.bind.ObjectTypeInstance;
+import org.geoint.acetate.java.format.BufferedObjectFormatter;
+import org.geoint.acetate.java.format.ObjectFormatter;
+import org.geoint.acetate.java.format.ObjectStream;
+import org.geoint.acetate.java.format.StreamingObjectParser;
+import org.geoint.acetate.java.metrics.RegistryStatistics;
+import org.geoint.acetate.java.model.reflect.ClassNotDomainTypeException;
+import org.geoint.acetate.java.model.reflect.ClassTypeReflector;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.InvalidModelException;
+import org.geoint.acetate.model.TypeDescriptor;
+import org.geoint.acetate.model.resolve.MapTypeResolver;
+import org.geoint.acetate.util.BidirectionalMap;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class DomainClassRegistryTest {
+
+    @Test
+    public void testDependencies() {
+        assertEquals(Collections.singleton(MockValidValue.class),
+                ClassTypeReflector.dependencies(MockValidEvent.class));
+        assertTrue(ClassTypeReflector.dependencies(MockValidValue.class)
+                .isEmpty());
+    }
+
+    @Test
+    public void testFindTypeDescriptor() {
+        assertEquals(MockValidValue.MOCK_VALUE_TYPE, ClassTypeReflector
+                .findTypeDescriptor(MockValidValue.class).get().getType());
+        assertFalse(ClassTypeReflector.findTypeDescriptor(String.class)
+                .isPresent());
+
+        DomainClassRegistry registry = new DomainClassRegistry();
+        assertTrue(registry.findTypeDescriptor(MockValidEvent.class)
+                .isPresent());
+        assertFalse(registry.findTypeDescriptor(String.class).isPresent());
+    }
+
+    /**
+     * Non-domain objects are rejected without an exception.
+     */
+    @Test
+    public void testFindTypeInstanceNotDomain() throws Exception {
+        DomainClassRegistry registry = new DomainClassRegistry();
+        assertFalse(registry.findTypeInstance("not a domain object")
+                .isPresent());
+    }
+
+    @Test(expected = ClassNotDomainTypeException.class)
+    public void testAsTypeNotDomain() throws Exception {
+        new DomainClassRegistry().asType("not a domain object");
+    }
+
+    /**
+     * Independent classes share a level, dependents follow their
+     * dependencies.
+     */
+    @Test
+    public void testDependencyLevels() {
+        Map<Class<?>, Set<Class<?>>> graph = new HashMap<>();
+        graph.put(MockValidResource.class, deps(MockValidEvent.class));
+        graph.put(MockValidEvent.class, deps(MockValidValue.class));
+        graph.put(MockValidValue.class, deps());
+        graph.put(String.class, deps(Object.class)); //outside the graph
+
+        List<List<Class<?>>> levels = DomainClassRegistry.dependencyLevels(graph);
+        assertEquals(3, levels.size());
+        assertEquals(Arrays.asList(String.class, MockValidValue.class),
+                levels.get(0));
+        assertEquals(Collections.singletonList(MockValidEvent.class),
+                levels.get(1));
+        assertEquals(Collections.singletonList(MockValidResource.class),
+                levels.get(2));
+    }
+
+    /**
+     * Cycles are broken and classes depending on the cycle still follow it.
+     */
+    @Test
+    public void testDependencyCycle() {
+        Map<Class<?>, Set<Class<?>>> graph = new HashMap<>();
+        graph.put(MockValidEvent.class, deps(MockValidValue.class));
+        graph.put(MockValidValue.class, deps(MockValidEvent.class));
+        graph.put(MockValidResource.class, deps(MockValidValue.class));
+
+        List<List<Class<?>>> levels = DomainClassRegistry.dependencyLevels(graph);
+        assertEquals(3, levels.size());
+        assertEquals(Collections.singletonList(MockValidEvent.class),
+                levels.get(0));
+        assertEquals(Collections.singletonList(MockValidValue.class),
+                levels.get(1));
+        assertEquals(Collections.singletonList(MockValidResource.class),
+                levels.get(2));
+    }
+
+    /**
+     * Classes are registered with the classes they depend on, including
+     * classes not passed to the registry and self references.
+     */
+    @Test
+    public void testRegisterAll() throws Exception {
+        DomainClassRegistry registry = new DomainClassRegistry();
+        registry.registerAll(Arrays.asList(Holder.class, MockValidEvent.class));
+
+        assertTrue(registry.findType(Holder.class).isPresent());
+        assertTrue(registry.findType(MockValidEvent.class).isPresent());
+        assertTrue(registry.findType(MockValidValue.class).isPresent());
+        assertEquals(MockValidValue.class, registry.findClass(registry
+                .findTypeDescriptor(MockValidValue.class).get()).get());
+
+        //registered classes are skipped
+        registry.registerAll(Arrays.asList(MockValidValue.class,
+                MockValidEvent.class));
+
+        //each dependency level was bound, not only modeled
+        for (Class<?> c : Arrays.asList(MockValidValue.class,
+                MockValidEvent.class, Holder.class)) {
+            assertTrue(c.getName(), registry.findBinder(
+                    registry.findTypeDescriptor(c).get()).isPresent());
+        }
+
+        //an instance without a source object is bound by the registered binder
+        TypeInstance instance = ObjectTypeInstance.newInstance(
+                registry.findTypeDescriptor(MockValidEvent.class).get(),
+                Collections.singletonMap(MockValidEvent.EVENT_COMPOSITE_NAME,
+                        new MockValidValue(3)));
+        MockValidEvent bound = (MockValidEvent) registry.asObject(instance);
+        assertEquals(3, bound.getMyValue().getIntValue());
+    }
+
+    @Test(expected = InvalidModelException.class)
+    public void testRegisterAllNotDomain() throws Exception {
+        new DomainClassRegistry().registerAll(
+                Arrays.asList(MockValidEvent.class, String.class));
+    }
+
+    /**
+     * Index entries of classes which no longer exist are skipped.
+     */
+    @Test
+    public void testRegisterPackageStaleIndex() throws Exception {
+        final Path index = Files.createTempFile("domain", ".index");
+        try {
+            Files.write(index, Arrays.asList(MockValidEvent.class.getName(),
+                    MockValidEvent.class.getPackage().getName() + ".Removed"),
+                    StandardCharsets.UTF_8);
+            ClassLoader loader = new ClassLoader(getClass().getClassLoader()) {
+                @Override
+                public Enumeration<URL> getResources(String name)
+                        throws IOException {
+                    return DomainClassIndex.RESOURCE.equals(name)
+                            ? Collections.enumeration(Collections.singleton(
+                                    index.toUri().toURL()))
+                            : Collections.emptyEnumeration();
+                }
+            };
+
+            DomainClassRegistry registry = new DomainClassRegistry();
+            registry.registerPackage(
+                    MockValidEvent.class.getPackage().getName(), loader);
+            assertTrue(registry.findType(MockValidEvent.class).isPresent());
+            assertTrue(registry.findType(MockValidValue.class).isPresent());
+        } finally {
+            Files.delete(index);
+        }
+    }
+
+    /**
+     * Components cached for a (still loaded) class do not keep a discarded
+     * registry reachable.
+     */
+    @Test
+    public void testRegistryCollected() throws Exception {
+        DomainClassRegistry registry = new DomainClassRegistry();
+        registry.registerAll(Arrays.asList(MockValidEvent.class,
+                MockValidValue.class, Holder.class));
+        assertTrue(registry.findObjectFormatter(MockValidValue.class)
+                .isPresent());
+        assertTrue(registry.findBinder(registry.findTypeDescriptor(
+                Holder.class).get()).isPresent());
+
+        WeakReference<DomainClassRegistry> ref = new WeakReference<>(registry);
+        registry = null;
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(ref.get());
+    }
+
+    /**
+     * Classes known only to a provided class descriptor map are bound like
+     * registered classes.
+     */
+    @Test
+    public void testAsTypeProvidedDescriptor() throws Exception {
+        final TypeDescriptor td = new TypeDescriptor(
+                MockDomainConstants.MOCK_NAMESPACE,
+                MockDomainConstants.MOCK_VERSION, "Plain");
+        BidirectionalMap<Class<?>, TypeDescriptor> classes
+                = BidirectionalMap.newMap(() -> new HashMap<>());
+        classes.put(Plain.class, td);
+        DomainClassRegistry registry = new DomainClassRegistry(classes,
+                new MapTypeResolver<>(new HashMap<>()));
+        registry.register(td, new ObjectBinder() {
+            @Override
+            public Object asObject(TypeInstance instance) {
+                return new Plain();
+            }
+
+            @Override
+            public TypeInstance asType(Object object) {
+                return ObjectTypeInstance.newInstance(td,
+                        Collections.emptyMap());
+            }
+        });
+
+        assertEquals(Plain.class, registry.findClass(td).get());
+        assertEquals(td, registry.asType(new Plain()).getTypeDescriptor());
+        assertTrue(registry.findTypeInstance(new Plain()).isPresent());
+        assertFalse(registry.findTypeInstance("not a domain object")
+                .isPresent());
+    }
+
+    /**
+     * Registered buffered formatters can be used through their buffers and
+     * still report to the registry metrics.
+     */
+    @Test
+    public void testBufferedFormatter() throws Exception {
+        DomainClassRegistry registry = new DomainClassRegistry();
+        RegistryStatistics stats = new RegistryStatistics();
+        registry.setMetrics(stats);
+        registry.register(Label.class);
+        registry.register(MockValidValue.class);
+
+        ObjectFormatter formatter
+                = registry.findObjectFormatter(Label.class).get();
+        assertTrue(formatter instanceof BufferedObjectFormatter);
+
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        assertTrue(((BufferedObjectFormatter<Label>) formatter)
+                .format(null, new Label("abc"), null, buffer));
+        buffer.flip();
+        assertEquals("abc", StandardCharsets.UTF_8.decode(buffer).toString());
+        assertEquals(1, stats.getFormatCount());
+
+        //stream formatters are not reported as buffered
+        assertFalse(registry.findObjectFormatter(MockValidValue.class).get()
+                instanceof BufferedObjectFormatter);
+    }
+
+    /**
+     * Streaming parsers of other classes are not returned for a class.
+     */
+    @Test
+    public void testFindStreamingParserByClass() throws Exception {
+        DomainClassRegistry registry = new DomainClassRegistry();
+        registry.register(MockValidEvent.class);
+        StreamingObjectParser<MockValidValue> values
+                = new StreamingObjectParser<MockValidValue>() {
+            @Override
+            public boolean supports(TypeFormat typeFormat) {
+                return true;
+            }
+
+            @Override
+            public boolean produces(Class<?> objectClass) {
+                return objectClass.isAssignableFrom(MockValidValue.class);
+            }
+
+            @Override
+            public ObjectStream<MockValidValue> open(DomainType type,
+                    InputStream in) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        registry.addStreamingParser(values);
+
+        assertSame(values, registry.findStreamingParser(MockValidValue.class,
+                null).get());
+        assertFalse(registry.findStreamingParser(MockValidEvent.class, null)
+                .isPresent());
+        assertSame(values, registry.findStreamingParser(null).get());
+    }
+
+    private static Set<Class<?>> deps(Class<?>... classes) {
+        return new HashSet<>(Arrays.asList(classes));
+    }
+
+    public static class Plain {
+    }
+
+    @DomainValue(namespace = MockDomainConstants.MOCK_NAMESPACE,
+            version = MockDomainConstants.MOCK_VERSION,
+            type = "Label",
+            defaultFormatter = LabelFormatter.class)
+    public static class Label {
+
+        private final String text;
+
+        public Label(String text) {
+            this.text = text;
+        }
+    }
+
+    public static class LabelFormatter
+            implements BufferedObjectFormatter<Label> {
+
+        @Override
+        public boolean supports(TypeFormat format) {
+            return true;
+        }
+
+        @Override
+        public boolean format(Format format, Label obj, TypeInstance instance,
+                ByteBuffer buffer) {
+            final byte[] bytes = obj.text.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > buffer.remaining()) {
+                return false;
+            }
+            buffer.put(bytes);
+            return true;
+        }
+    }
+
+    @DomainResource(namespace = MockDomainConstants.MOCK_NAMESPACE,
+            version = MockDomainConstants.MOCK_VERSION,
+            type = "Holder")
+    public interface Holder {
+
+        @Accessor(name = "value")
+        MockValidValue getValue();
+
+        @Accessor(name = "parent")
+        Holder getParent();
+    }
+}
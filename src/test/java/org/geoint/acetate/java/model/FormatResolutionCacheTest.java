@@ -0,0 +1,195 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.geoint.acetate.format.TypeFormat;
+import org.geoint.acetate.format.TypeParser;
+import org.geoint.acetate.format.UnsupportedFormatException;
+import org.geoint.acetate.format.spi.FormatFactory;
+import org.geoint.acetate.java.format.ObjectFormatter;
+import org.geoint.acetate.java.model.MockValidValue.MockValidValueBinaryFormatter;
+import org.geoint.acetate.model.resolve.MapTypeResolver;
+import org.geoint.acetate.util.BidirectionalMap;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class FormatResolutionCacheTest {
+
+    /**
+     * Both resolved and missing components are resolved once.
+     */
+    @Test
+    public void testResolveOnce() {
+        FormatResolutionCache cache = new FormatResolutionCache();
+        AtomicInteger resolutions = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("parser", cache.resolve(
+                    FormatResolutionCache.Kind.OBJECT_PARSER, String.class,
+                    null, () -> {
+                        resolutions.incrementAndGet();
+                        return "parser";
+                    }));
+            assertNull(cache.resolve(
+                    FormatResolutionCache.Kind.OBJECT_FORMATTER, String.class,
+                    null, () -> {
+                        resolutions.incrementAndGet();
+                        return null;
+                    }));
+        }
+        assertEquals(2, resolutions.get());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testInvalidate() {
+        FormatResolutionCache cache = new FormatResolutionCache();
+        cache.resolve(FormatResolutionCache.Kind.TYPE_PARSER, null, null,
+                () -> null);
+        cache.invalidate();
+        assertEquals(0, cache.size());
+        assertEquals("parser", cache.resolve(
+                FormatResolutionCache.Kind.TYPE_PARSER, null, null,
+                () -> "parser"));
+    }
+
+    /**
+     * A resolution racing with an invalidation is not cached.
+     */
+    @Test
+    public void testInvalidateWhileResolving() {
+        FormatResolutionCache cache = new FormatResolutionCache();
+        cache.resolve(FormatResolutionCache.Kind.TYPE_PARSER, null, null,
+                () -> {
+                    cache.invalidate();
+                    return null;
+                });
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Adding a provider to a shared format factory invalidates every cache
+     * resolving from it.
+     */
+    @Test
+    public void testProviderAdded() {
+        Object factory = new Object();
+        FormatResolutionCache first = new FormatResolutionCache(factory);
+        FormatResolutionCache second = new FormatResolutionCache(factory);
+        FormatResolutionCache other = new FormatResolutionCache(new Object());
+        for (FormatResolutionCache cache : Arrays.asList(first, second, other)) {
+            cache.resolve(FormatResolutionCache.Kind.TYPE_PARSER, null, null,
+                    () -> null);
+        }
+
+        FormatResolutionCache.providerAdded(factory);
+        assertEquals("parser", first.resolve(
+                FormatResolutionCache.Kind.TYPE_PARSER, null, null,
+                () -> "parser"));
+        assertEquals("parser", second.resolve(
+                FormatResolutionCache.Kind.TYPE_PARSER, null, null,
+                () -> "parser"));
+        assertNull(other.resolve(
+                FormatResolutionCache.Kind.TYPE_PARSER, null, null,
+                () -> "parser"));
+    }
+
+    /**
+     * Each lookup of a cached unsupported format throws its own exception.
+     */
+    @Test
+    public void testUnsupported() {
+        FormatResolutionCache cache = new FormatResolutionCache();
+        UnsupportedFormatException first = unsupported(cache);
+        UnsupportedFormatException second = unsupported(cache);
+        assertNotSame(first, second);
+        assertEquals("unsupported", second.getMessage());
+    }
+
+    private static UnsupportedFormatException unsupported(
+            FormatResolutionCache cache) {
+        try {
+            FormatResolutionCache.supported(cache.resolve(
+                    FormatResolutionCache.Kind.TYPE_FORMATTER, null, null,
+                    () -> FormatResolutionCache.unsupported(
+                            new UnsupportedFormatException("unsupported"))));
+        } catch (UnsupportedFormatException ex) {
+            return ex;
+        }
+        fail("expected unsupported format");
+        return null;
+    }
+
+    /**
+     * Creating a registry on a shared format factory does not discard the
+     * resolutions of the registries already using it.
+     */
+    @Test
+    public void testNewRegistryKeepsResolutions() throws Exception {
+        AtomicInteger lookups = new AtomicInteger();
+        FormatFactory factory = new FormatFactory() {
+            @Override
+            public TypeParser getParser(TypeFormat format)
+                    throws UnsupportedFormatException {
+                lookups.incrementAndGet();
+                throw new UnsupportedFormatException("unsupported");
+            }
+        };
+        DomainClassRegistry registry = newRegistry(factory);
+        assertUnsupported(registry);
+        newRegistry(factory);
+        assertUnsupported(registry);
+        assertEquals(1, lookups.get());
+    }
+
+    private static DomainClassRegistry newRegistry(FormatFactory factory) {
+        return new DomainClassRegistry(
+                BidirectionalMap.newMap(() -> new HashMap<>()),
+                new MapTypeResolver<>(new HashMap<>()), factory);
+    }
+
+    private static void assertUnsupported(DomainClassRegistry registry) {
+        try {
+            registry.findParser(null);
+            fail("expected unsupported format");
+        } catch (UnsupportedFormatException ex) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testRegistryFormatter() throws Exception {
+        DomainClassRegistry registry = new DomainClassRegistry();
+        assertFalse(registry.findObjectFormatter(MockValidValue.class, null)
+                .isPresent());
+
+        registry.register(MockValidValue.class);
+        ObjectFormatter f = registry.findObjectFormatter(MockValidValue.class,
+                null).get();
+        assertTrue(((MeteredObjectFormatter<?>) f).getFormatter()
+                instanceof MockValidValueBinaryFormatter);
+        assertSame(f, registry.findObjectFormatter(
+                registry.findTypeDescriptor(MockValidValue.class).get(),
+                null).get());
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class FrozenMapTest {
+
+    @Test
+    public void testLookup() {
+        for (int size : new int[]{1, 2, 7, 100, 5000}) {
+            Map<String, Integer> source = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                source.put("key" + i, i);
+            }
+            FrozenMap<String, Integer> frozen = FrozenMap.of(source);
+            assertEquals(size, frozen.size());
+            for (int i = 0; i < size; i++) {
+                assertEquals(Integer.valueOf(i), frozen.get("key" + i));
+            }
+            assertNull(frozen.get("missing"));
+            assertNull(frozen.get("key" + size));
+        }
+    }
+
+    /**
+     * Keys with identical hash codes are still found.
+     */
+    @Test
+    public void testHashCollisions() {
+        Map<String, String> source = new HashMap<>();
+        source.put("Aa", "first");
+        source.put("BB", "second"); //same hash code as "Aa"
+        source.put("other", "third");
+        FrozenMap<String, String> frozen = FrozenMap.of(source);
+        assertEquals("first", frozen.get("Aa"));
+        assertEquals("second", frozen.get("BB"));
+        assertEquals("third", frozen.get("other"));
+        assertNull(frozen.get("C#")); //also the same hash code
+    }
+
+    @Test
+    public void testEmpty() {
+        FrozenMap<String, String> frozen = FrozenMap.of(Collections.emptyMap());
+        assertEquals(0, frozen.size());
+        assertNull(frozen.get("key"));
+    }
+}
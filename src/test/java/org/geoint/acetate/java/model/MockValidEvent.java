@@ -31,7 +31,7 @@ public class MockValidEvent {
         this.myValue = new MockValidValue();
     }
 
-    public MockValidEvent(MockValidValue myValue) {
+    public MockValidEvent(@Param(name = EVENT_COMPOSITE_NAME) MockValidValue myValue) {
         this.myValue = myValue;
     }
 
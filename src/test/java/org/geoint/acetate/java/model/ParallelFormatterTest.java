@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.geoint.acetate.format.TypeFormattingException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class ParallelFormatterTest {
+
+    /**
+     * Chunks formatted concurrently are written in the original order.
+     */
+    @Test
+    public void testOrder() throws Exception {
+        final List<Integer> objects = new ArrayList<>();
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            objects.add(i);
+            expected.append(i).append(',');
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final BufferPool pool = ParallelFormatter.newPool();
+            final long count = new ParallelFormatter((obj, o) -> o.write(
+                    (obj + ",").getBytes(StandardCharsets.UTF_8)),
+                    executor, pool)
+                    .format(objects.iterator(), Channels.newChannel(out));
+            assertEquals(objects.size(), count);
+            assertEquals(expected.toString(),
+                    new String(out.toByteArray(), StandardCharsets.UTF_8));
+            assertTrue(pool.size() > 0); //buffers were returned
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Output larger than a pooled buffer spans several buffers.
+     */
+    @Test
+    public void testLargeObject() throws Exception {
+        final byte[] large = new byte[ParallelFormatter.BUFFER_SIZE * 2 + 7];
+        Arrays.fill(large, (byte) 'a');
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ParallelFormatter((obj, o) -> o.write(large), null,
+                ParallelFormatter.newPool())
+                .format(Arrays.asList(1, 2).iterator(),
+                        Channels.newChannel(out));
+        assertEquals(large.length * 2, out.size());
+    }
+
+    @Test(expected = TypeFormattingException.class)
+    public void testFailure() throws Exception {
+        final List<Integer> objects = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            objects.add(i);
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            new ParallelFormatter((obj, o) -> {
+                if ((Integer) obj == 3000) {
+                    throw new TypeFormattingException("failed");
+                }
+                o.write(1);
+            }, executor, ParallelFormatter.newPool())
+                    .format(objects.iterator(),
+                            Channels.newChannel(new ByteArrayOutputStream()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testRegistryFormatAll() throws Exception {
+        final DomainClassRegistry registry = new DomainClassRegistry();
+        registry.register(MockValidValue.class);
+        final List<MockValidValue> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            values.add(new MockValidValue(i));
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(values.size(), registry.formatAll(null, values, out,
+                null));
+        final DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(out.toByteArray()));
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(i, in.readInt());
+        }
+        assertEquals(-1, in.read());
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.format.Format;
+import org.geoint.acetate.format.FormattedType;
+import org.geoint.acetate.format.TypeFormat;
+import org.geoint.acetate.java.bind.AccessorBinder;
+import org.geoint.acetate.java.bind.ObjectBinder;
+import org.geoint.acetate.java.format.ObjectFormatter;
+import org.geoint.acetate.java.format.ObjectParser;
+import org.geoint.acetate.java.format.ObjectStream;
+import org.geoint.acetate.java.format.StreamingObjectParser;
+import org.geoint.acetate.java.format.binary.BinarySchema;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.TypeDescriptor;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class ValueInternerTest {
+
+    @Test
+    public void testIntern() {
+        ValueInterner<String> interner = new ValueInterner<>(16);
+        String first = new String("USA");
+        assertSame(first, interner.intern(first));
+        assertSame(first, interner.intern(new String("USA")));
+        assertNull(interner.intern(null));
+    }
+
+    @Test
+    public void testCapacity() {
+        assertEquals(1, new ValueInterner<>(1).capacity());
+        assertEquals(16, new ValueInterner<>(16).capacity());
+        assertEquals(32, new ValueInterner<>(17).capacity());
+    }
+
+    /**
+     * A full table replaces values rather than growing.
+     */
+    @Test
+    public void testBounded() {
+        ValueInterner<Integer> interner = new ValueInterner<>(4);
+        for (int i = 0; i < 1000; i++) {
+            interner.intern(i);
+        }
+        Integer canonical = interner.intern(Integer.valueOf(100000));
+        assertSame(canonical, interner.intern(Integer.valueOf(100000)));
+    }
+
+    @Test
+    public void testBinder() throws Exception {
+        ObjectBinder<String> binder = new ValueInterner<String>(16)
+                .binder(new ObjectBinder<String>() {
+                    @Override
+                    public String asObject(TypeInstance instance) {
+                        return new String("USA");
+                    }
+
+                    @Override
+                    public TypeInstance asType(String object) {
+                        return null;
+                    }
+                });
+        List<String> objects = binder.asObjects(Arrays.asList(null, null));
+        assertSame(objects.get(0), objects.get(1));
+        assertSame(objects.get(0), binder.asObject(null));
+    }
+
+    /**
+     * Registered parsers of an interned value return canonical instances.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRegistryParser() throws Exception {
+        DomainClassRegistry registry = new DomainClassRegistry();
+        registry.register(CountryCode.class);
+        ObjectParser<CountryCode> parser
+                = registry.findObjectParser(CountryCode.class).get();
+        CountryCode first = parser.parse(null, formatted("USA"));
+        assertSame(first, parser.parse(null, formatted("USA")));
+        assertNotSame(first, parser.parse(null, formatted("CAN")));
+    }
+
+    /**
+     * The binary schema of a registry sees through the interning binder.
+     */
+    @Test
+    public void testRegistrySchema() throws Exception {
+        DomainClassRegistry registry = new DomainClassRegistry();
+        registry.register(CountryCode.class);
+        TypeDescriptor td
+                = registry.findTypeDescriptor(CountryCode.class).get();
+        assertTrue(registry.findBinder(td, AccessorBinder.class).isPresent());
+        assertTrue(BinarySchema.forRegistry(registry).findComposites(td)
+                .isPresent());
+    }
+
+    /**
+     * Streamed values of an interned class are interned.
+     */
+    @Test
+    public void testRegistryStreamingParser() throws Exception {
+        DomainClassRegistry registry = new DomainClassRegistry();
+        registry.register(CountryCode.class);
+        registry.addStreamingParser(new CountryCodeStreamingParser());
+        StreamingObjectParser<CountryCode> parser = registry
+                .findStreamingParser(CountryCode.class, null).get();
+        try (ObjectStream<CountryCode> codes = parser.open(null,
+                new ByteArrayInputStream(
+                        "USAUSA".getBytes(StandardCharsets.UTF_8)))) {
+            assertSame(codes.next(), codes.next());
+            assertFalse(codes.hasNext());
+        }
+    }
+
+    /**
+     * A binder registered for an interned type keeps interning.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRegisterBinder() throws Exception {
+        DomainClassRegistry registry = new DomainClassRegistry();
+        registry.register(CountryCode.class);
+        TypeDescriptor td
+                = registry.findTypeDescriptor(CountryCode.class).get();
+        registry.register(td, new ObjectBinder<CountryCode>() {
+            @Override
+            public CountryCode asObject(TypeInstance instance) {
+                return new CountryCode("USA");
+            }
+
+            @Override
+            public TypeInstance asType(CountryCode object) {
+                return null;
+            }
+        });
+        ObjectBinder<CountryCode> binder = registry.findBinder(td).get();
+        assertSame(binder.asObject(null), binder.asObject(null));
+    }
+
+    private static FormattedType formatted(String value) {
+        return new FormattedType() {
+            @Override
+            public InputStream getFormatted() {
+                return new ByteArrayInputStream(
+                        value.getBytes(StandardCharsets.UTF_8));
+            }
+        };
+    }
+
+    @DomainValue(namespace = MockDomainConstants.MOCK_NAMESPACE,
+            version = MockDomainConstants.MOCK_VERSION,
+            type = "CountryCode",
+            defaultFormatter = CountryCodeFormatter.class,
+            defaultParser = CountryCodeParser.class,
+            internCapacity = 256)
+    public static class CountryCode {
+
+        private final String code;
+
+        public CountryCode(String code) {
+            this.code = code;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof CountryCode
+                    && ((CountryCode) obj).code.equals(code);
+        }
+
+        @Override
+        public int hashCode() {
+            return code.hashCode();
+        }
+    }
+
+    public static class CountryCodeFormatter
+            implements ObjectFormatter<CountryCode> {
+
+        @Override
+        public boolean supports(TypeFormat format) {
+            return true;
+        }
+
+        @Override
+        public void format(Format format, CountryCode obj,
+                TypeInstance instance, OutputStream out) throws IOException {
+            out.write(obj.code.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    public static class CountryCodeStreamingParser
+            implements StreamingObjectParser<CountryCode> {
+
+        @Override
+        public boolean supports(TypeFormat typeFormat) {
+            return true;
+        }
+
+        @Override
+        public boolean produces(Class<?> objectClass) {
+            return objectClass.equals(CountryCode.class);
+        }
+
+        @Override
+        public ObjectStream<CountryCode> open(DomainType type,
+                InputStream in) {
+            return new ObjectStream<CountryCode>(in) {
+                @Override
+                protected CountryCode read() throws IOException {
+                    byte[] code = new byte[3];
+                    int read = 0;
+                    while (read < code.length) {
+                        int r = in.read(code, read, code.length - read);
+                        if (r < 0) {
+                            return null;
+                        }
+                        read += r;
+                    }
+                    return new CountryCode(new String(code,
+                            StandardCharsets.UTF_8));
+                }
+            };
+        }
+    }
+
+    public static class CountryCodeParser implements ObjectParser<CountryCode> {
+
+        @Override
+        public boolean supports(TypeFormat typeFormat) {
+            return true;
+        }
+
+        @Override
+        public CountryCode parse(DomainType type, FormattedType formatted)
+                throws IOException {
+            try (InputStream in = formatted.getFormatted()) {
+                byte[] code = new byte[3];
+                int read = 0;
+                while (read < code.length) {
+                    read += in.read(code, read, code.length - read);
+                }
+                return new CountryCode(new String(code,
+                        StandardCharsets.UTF_8));
+            }
+        }
+    }
+}
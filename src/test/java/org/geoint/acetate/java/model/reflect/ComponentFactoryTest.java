@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.model.reflect;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.geoint.acetate.format.FormattedType;
+import org.geoint.acetate.format.TypeFormat;
+import org.geoint.acetate.java.format.ObjectParser;
+import org.geoint.acetate.java.model.Lifecycle;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.InvalidModelException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class ComponentFactoryTest {
+
+    @Test
+    public void testShared() throws Exception {
+        ComponentFactory components = new ComponentFactory();
+        ObjectParser<?> parser
+                = components.getInstance(SharedParser.class, ObjectParser.class);
+        assertTrue(parser instanceof SharedParser);
+        assertSame(parser, components.getInstance(SharedParser.class,
+                ObjectParser.class));
+        assertEquals(1, components.size());
+    }
+
+    /**
+     * Each thread calls its own instance through the same proxy.
+     */
+    @Test
+    public void testThread() throws Exception {
+        ComponentFactory components = new ComponentFactory();
+        ObjectParser<?> parser
+                = components.getInstance(ThreadParser.class, ObjectParser.class);
+        assertFalse(parser instanceof ThreadParser);
+        assertSame(parser, components.getInstance(ThreadParser.class,
+                ObjectParser.class));
+
+        Object local = parser.parse(null, null);
+        assertSame(local, parser.parse(null, null));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Object other = executor.submit(() -> parser.parse(null, null)).get();
+            assertTrue(other instanceof ThreadParser);
+            assertNotSame(local, other);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Calls to a pooled component wait for a free instance.
+     */
+    @Test
+    public void testPooled() throws Exception {
+        ComponentFactory components = new ComponentFactory();
+        ObjectParser<?> parser
+                = components.getInstance(PooledParser.class, ObjectParser.class);
+
+        PooledParser.ACTIVE.set(0);
+        PooledParser.MAX_ACTIVE.set(0);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            Future<?>[] calls = new Future<?>[8];
+            for (int i = 0; i < calls.length; i++) {
+                calls[i] = executor.submit(() -> {
+                    start.await();
+                    return parser.parse(null, null);
+                });
+            }
+            start.countDown();
+            for (Future<?> call : calls) {
+                assertTrue(call.get(10, TimeUnit.SECONDS) instanceof PooledParser);
+            }
+            assertTrue(PooledParser.MAX_ACTIVE.get() <= 2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = InvalidModelException.class)
+    public void testNoDefaultConstructor() throws Exception {
+        new ComponentFactory().getInstance(NoDefaultConstructorParser.class,
+                ObjectParser.class);
+    }
+
+    public static class SharedParser implements ObjectParser<Object> {
+
+        @Override
+        public boolean supports(TypeFormat typeFormat) {
+            return true;
+        }
+
+        @Override
+        public Object parse(DomainType type, FormattedType formatted) {
+            return this;
+        }
+    }
+
+    @Lifecycle(Lifecycle.Scope.THREAD)
+    public static class ThreadParser extends SharedParser {
+    }
+
+    /**
+     * Records the number of instances in use concurrently.
+     */
+    @Lifecycle(value = Lifecycle.Scope.POOLED, poolSize = 2)
+    public static class PooledParser extends SharedParser {
+
+        static final AtomicInteger ACTIVE = new AtomicInteger();
+        static final AtomicInteger MAX_ACTIVE = new AtomicInteger();
+
+        @Override
+        public Object parse(DomainType type, FormattedType formatted) {
+            final int active = ACTIVE.incrementAndGet();
+            MAX_ACTIVE.accumulateAndGet(active, Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            ACTIVE.decrementAndGet();
+            return this;
+        }
+    }
+
+    public static class NoDefaultConstructorParser extends SharedParser {
+
+        public NoDefaultConstructorParser(String config) {
+        }
+    }
+}
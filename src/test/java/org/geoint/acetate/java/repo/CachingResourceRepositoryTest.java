@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.repo;
+
+import java.time.Duration;
+import org.geoint.acetate.java.bind.ResourceObject;
+import org.geoint.acetate.model.TypeDescriptor;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class CachingResourceRepositoryTest {
+
+    private static final TypeDescriptor TYPE
+            = new TypeDescriptor("org.geoint.test", "1.0", "Note");
+
+    @Test
+    public void testVersionHits() throws Exception {
+        InMemoryResourceRepository<String> backing = newBacking();
+        backing.save(ResourceObject.newInstance("a", "1", null, "first"));
+        CachingResourceRepository<String> cache
+                = new CachingResourceRepository<>(backing, 100);
+
+        assertEquals("first", cache.get("a", "1").getObject());
+        assertEquals("first", cache.find("a", "1").get().getObject());
+        assertFalse(cache.find("a", "2").isPresent());
+        assertEquals(1, cache.hitCount());
+        assertEquals(2, cache.missCount());
+        assertEquals(1, cache.size());
+    }
+
+    /**
+     * Latest versions are served from the cache until invalidated, and
+     * populate the version entry.
+     */
+    @Test
+    public void testLatestInvalidation() throws Exception {
+        InMemoryResourceRepository<String> backing = newBacking();
+        backing.save(ResourceObject.newInstance("a", "1", null, "first"));
+        CachingResourceRepository<String> cache
+                = new CachingResourceRepository<>(backing, 100, (r) -> 1,
+                        Duration.ofHours(1));
+
+        assertEquals("first", cache.getLatest("a").getObject());
+        backing.save(ResourceObject.newInstance("a", "2", "1", "second"));
+        assertEquals("first", cache.getLatest("a").getObject());
+        assertEquals("first", cache.get("a", "1").getObject());
+        assertEquals(2, cache.hitCount());
+
+        cache.invalidate("a");
+        assertEquals("second", cache.findLatest("a").get().getObject());
+    }
+
+    @Test
+    public void testLatestNotCached() throws Exception {
+        InMemoryResourceRepository<String> backing = newBacking();
+        backing.save(ResourceObject.newInstance("a", "1", null, "first"));
+        CachingResourceRepository<String> cache
+                = new CachingResourceRepository<>(backing, 100, (r) -> 1,
+                        Duration.ZERO);
+
+        cache.getLatest("a");
+        backing.save(ResourceObject.newInstance("a", "2", "1", "second"));
+        assertEquals("second", cache.getLatest("a").getObject());
+        assertEquals(0, cache.hitCount());
+    }
+
+    @Test(expected = UnknownResourceException.class)
+    public void testUnknownResource() throws Exception {
+        new CachingResourceRepository<>(newBacking(), 100).getLatest("a");
+    }
+
+    @Test
+    public void testWeightBound() throws Exception {
+        InMemoryResourceRepository<String> backing = newBacking();
+        for (int i = 0; i < 1000; i++) {
+            backing.save(ResourceObject.newInstance("r" + i, "1", null,
+                    "value" + i));
+        }
+        CachingResourceRepository<String> cache
+                = new CachingResourceRepository<>(backing, 1000,
+                        (r) -> r.getObject().length(), Duration.ZERO);
+        for (int i = 0; i < 1000; i++) {
+            cache.get("r" + i, "1");
+        }
+        assertTrue(cache.weight() <= 1000);
+        assertTrue(cache.evictionCount() > 0);
+        assertEquals(1000, cache.size() + cache.evictionCount());
+    }
+
+    /**
+     * Frequently read resources survive a scan of resources read once.
+     */
+    @Test
+    public void testScanResistance() throws Exception {
+        InMemoryResourceRepository<String> backing = newBacking();
+        for (int i = 0; i < 10000; i++) {
+            backing.save(ResourceObject.newInstance("r" + i, "1", null,
+                    "value" + i));
+        }
+        CachingResourceRepository<String> cache
+                = new CachingResourceRepository<>(backing, 100);
+        for (int round = 0; round < 5; round++) {
+            for (int hot = 0; hot < 20; hot++) {
+                cache.get("r" + hot, "1");
+            }
+        }
+        for (int i = 20; i < 10000; i++) {
+            cache.get("r" + i, "1");
+            if (i % 100 == 0) {
+                for (int hot = 0; hot < 20; hot++) {
+                    cache.get("r" + hot, "1");
+                }
+            }
+        }
+        final long misses = cache.missCount();
+        for (int hot = 0; hot < 20; hot++) {
+            cache.get("r" + hot, "1");
+        }
+        assertEquals(misses, cache.missCount());
+        assertTrue(cache.size() <= 100);
+    }
+
+    private static InMemoryResourceRepository<String> newBacking() {
+        return new InMemoryResourceRepository<>(String.class, TYPE);
+    }
+}
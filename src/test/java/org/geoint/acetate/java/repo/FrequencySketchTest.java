@@ -0,0 +1,56 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.repo;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class FrequencySketchTest {
+
+    @Test
+    public void testIncrement() {
+        FrequencySketch sketch = new FrequencySketch(512);
+        assertEquals(0, sketch.frequency("a".hashCode()));
+        for (int i = 0; i < 5; i++) {
+            sketch.increment("a".hashCode());
+        }
+        assertEquals(5, sketch.frequency("a".hashCode()));
+        for (int i = 0; i < 100; i++) {
+            sketch.increment("a".hashCode());
+        }
+        assertEquals(FrequencySketch.MAX_FREQUENCY,
+                sketch.frequency("a".hashCode()));
+    }
+
+    /**
+     * Counters are halved once enough accesses are recorded.
+     */
+    @Test
+    public void testAging() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 10; i++) {
+            sketch.increment("hot".hashCode());
+        }
+        for (int i = 0; i < 160; i++) {
+            sketch.increment(("key" + i).hashCode());
+        }
+        assertTrue(sketch.frequency("hot".hashCode()) < 10);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.repo;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.geoint.acetate.java.bind.ResourceObject;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class InMemoryResourceRepositoryTest
+        extends ResourceRepositoryContract<InMemoryResourceRepository<String>> {
+
+    @Override
+    protected InMemoryResourceRepository<String> newRepository() {
+        return new InMemoryResourceRepository<>(String.class, TYPE);
+    }
+
+    @Override
+    protected ResourceObject<String> save(
+            InMemoryResourceRepository<String> repo,
+            ResourceObject<String> resource) throws Exception {
+        return repo.save(resource);
+    }
+
+    @Override
+    protected int size(InMemoryResourceRepository<String> repo) {
+        return repo.size();
+    }
+
+    @Test
+    public void testHistory() throws Exception {
+        InMemoryResourceRepository<String> repo = newRepository();
+        repo.save(ResourceObject.newInstance("a", "1", null, "first"));
+        repo.save(ResourceObject.newInstance("a", "2", "1", "second"));
+
+        List<ResourceObject<String>> history = repo.history("a");
+        assertEquals(2, history.size());
+        assertEquals("second", history.get(0).getObject());
+        assertEquals("first", history.get(1).getObject());
+        assertTrue(repo.history("b").isEmpty());
+    }
+
+    /**
+     * Versions saved after a snapshot are not visible through it, including
+     * versions found through the version index of long chains.
+     */
+    @Test
+    public void testSnapshot() throws Exception {
+        InMemoryResourceRepository<String> repo = newRepository();
+        repo.save(ResourceObject.newInstance("a", "1", null, "v1"));
+        ResourceRepository<String> snapshot = repo.snapshot();
+
+        for (int v = 2; v <= VersionChain.INDEX_DEPTH * 2; v++) {
+            repo.save(ResourceObject.newInstance("a", String.valueOf(v),
+                    String.valueOf(v - 1), "v" + v));
+        }
+        repo.save(ResourceObject.newInstance("b", "1", null, "b1"));
+
+        assertEquals("v1", snapshot.getLatest("a").getObject());
+        assertFalse(snapshot.find("a", "5").isPresent());
+        assertFalse(snapshot.findLatest("b").isPresent());
+        assertEquals("v5", repo.get("a", "5").getObject());
+        assertEquals("v1", repo.get("a", "1").getObject());
+    }
+
+    /**
+     * Saves rejected for an unknown resource do not add the resource.
+     */
+    @Test
+    public void testRejectedSaveOfUnknownResource() throws Exception {
+        InMemoryResourceRepository<String> repo = newRepository();
+        try {
+            repo.save(ResourceObject.newInstance("a", "2", "1", "second"));
+            fail("expected stale previous version");
+        } catch (InvalidResourceVersionException ex) {
+            //expected
+        }
+        assertEquals(0, repo.size());
+        assertFalse(repo.findLatest("a").isPresent());
+    }
+
+    /**
+     * A writer stalled while saving one resource does not hold up saves of
+     * other resources, or reads.
+     */
+    @Test
+    public void testStalledWriter() throws Exception {
+        InMemoryResourceRepository<String> repo = newRepository();
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ResourceObject<String> slow = new StalledResource(
+                ResourceObject.newInstance("a", "1", null, "a1"),
+                stalled, release);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ResourceObject<String>> first
+                    = executor.submit(() -> repo.save(slow));
+            assertTrue(stalled.await(5, TimeUnit.SECONDS));
+            try {
+                executor.submit(() -> repo.save(ResourceObject.newInstance(
+                        "b", "1", null, "b1"))).get(5, TimeUnit.SECONDS);
+                assertEquals("b1", repo.getLatest("b").getObject());
+                assertFalse(executor.submit(() -> repo.findLatest("a"))
+                        .get(5, TimeUnit.SECONDS).isPresent());
+            } finally {
+                release.countDown();
+            }
+            assertSame(slow, first.get(5, TimeUnit.SECONDS));
+            assertEquals("a1", repo.getLatest("a").getObject());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Resource which stalls its save once the repository has validated it.
+     */
+    private static class StalledResource implements ResourceObject<String> {
+
+        private final ResourceObject<String> resource;
+        private final CountDownLatch stalled;
+        private final CountDownLatch release;
+        private final AtomicInteger versionReads = new AtomicInteger();
+
+        StalledResource(ResourceObject<String> resource,
+                CountDownLatch stalled, CountDownLatch release) {
+            this.resource = resource;
+            this.stalled = stalled;
+            this.release = release;
+        }
+
+        @Override
+        public String getGuid() {
+            return resource.getGuid();
+        }
+
+        @Override
+        public String getVersion() {
+            //read once validating the save, again appending it
+            if (versionReads.incrementAndGet() == 2) {
+                stalled.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return resource.getVersion();
+        }
+
+        @Override
+        public Optional<String> getPreviousVersion() {
+            return resource.getPreviousVersion();
+        }
+
+        @Override
+        public String getObject() {
+            return resource.getObject();
+        }
+    }
+}
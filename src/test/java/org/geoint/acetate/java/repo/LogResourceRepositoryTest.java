@@ -0,0 +1,312 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.repo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import org.geoint.acetate.java.bind.ResourceObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class LogResourceRepositoryTest
+        extends ResourceRepositoryContract<LogResourceRepository<String>> {
+
+    private static final ResourceCodec<String> CODEC
+            = new ResourceCodec<String>() {
+
+        @Override
+        public void encode(String object, OutputStream out)
+                throws IOException {
+            out.write(object.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String decode(ByteBuffer buffer) {
+            return StandardCharsets.UTF_8.decode(buffer).toString();
+        }
+    };
+
+    private Path dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("resource-log");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder())
+                    .forEach((p) -> p.toFile().delete());
+        }
+    }
+
+    @Override
+    protected LogResourceRepository<String> newRepository()
+            throws IOException {
+        return open(1024, 1000);
+    }
+
+    @Override
+    protected ResourceObject<String> save(LogResourceRepository<String> repo,
+            ResourceObject<String> resource) throws Exception {
+        return repo.save(resource);
+    }
+
+    @Override
+    protected int size(LogResourceRepository<String> repo) {
+        return repo.size();
+    }
+
+    @Override
+    protected void close(LogResourceRepository<String> repo)
+            throws IOException {
+        repo.close();
+    }
+
+    /**
+     * Versions spread across segments are recovered without a checkpoint.
+     */
+    @Test
+    public void testRecoverFromSegments() throws Exception {
+        try (LogResourceRepository<String> repo = open(128, 1000)) {
+            saveVersions(repo, 20, 5);
+        }
+        Files.delete(dir.resolve(LogResourceRepository.CHECKPOINT_FILE));
+        assertTrue(segmentCount() > 1);
+
+        try (LogResourceRepository<String> repo = open(128, 1000)) {
+            assertVersions(repo, 20, 5);
+        }
+    }
+
+    /**
+     * Versions written after a checkpoint are recovered from the log, those
+     * before it from the checkpoint.
+     */
+    @Test
+    public void testRecoverFromCheckpoint() throws Exception {
+        try (LogResourceRepository<String> repo = open(256, 10)) {
+            saveVersions(repo, 7, 3);
+        }
+        assertTrue(Files.exists(dir.resolve(
+                LogResourceRepository.CHECKPOINT_FILE)));
+        try (LogResourceRepository<String> repo = open(256, 10)) {
+            assertVersions(repo, 7, 3);
+            repo.save(ResourceObject.newInstance("r0", "v3", "v2", "r0-3"));
+        }
+        try (LogResourceRepository<String> repo = open(256, 10)) {
+            assertEquals("r0-3", repo.getLatest("r0").getObject());
+            assertEquals("r1-2", repo.getLatest("r1").getObject());
+        }
+    }
+
+    /**
+     * Checkpoints written in the background while saves continue cover a
+     * consistent prefix of the log; the rest is recovered from the segments.
+     */
+    @Test
+    public void testBackgroundCheckpoint() throws Exception {
+        final Path copy = Files.createTempDirectory("resource-log-copy");
+        try {
+            try (LogResourceRepository<String> repo = open(256, 3)) {
+                saveVersions(repo, 5, 6);
+                final Path checkpoint
+                        = dir.resolve(LogResourceRepository.CHECKPOINT_FILE);
+                for (int i = 0; i < 500 && !Files.exists(checkpoint); i++) {
+                    Thread.sleep(10);
+                }
+                //state of the directory while the repository is open
+                try (Stream<Path> files = Files.list(dir)) {
+                    for (Path p : (Iterable<Path>) files::iterator) {
+                        if (!p.toString().endsWith(".tmp")) {
+                            Files.copy(p, copy.resolve(p.getFileName()));
+                        }
+                    }
+                }
+            }
+            assertTrue(Files.exists(copy.resolve(
+                    LogResourceRepository.CHECKPOINT_FILE)));
+            try (LogResourceRepository<String> repo
+                    = LogResourceRepository.open(copy, String.class, TYPE,
+                            CODEC, 256, 3)) {
+                assertVersions(repo, 5, 6);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(copy)) {
+                files.sorted(Comparator.reverseOrder())
+                        .forEach((p) -> p.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * A partially written record at the end of the log is discarded.
+     */
+    @Test
+    public void testTornWrite() throws Exception {
+        try (LogResourceRepository<String> repo = open(1 << 20, 1000)) {
+            saveVersions(repo, 3, 2);
+        }
+        Files.delete(dir.resolve(LogResourceRepository.CHECKPOINT_FILE));
+        final Path segment = dir.resolve("segment-00000000.log");
+        try (FileChannel channel = FileChannel.open(segment,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 100, 1, 2}));
+        }
+        final long size = Files.size(segment);
+        try (LogResourceRepository<String> repo = open(1 << 20, 1000)) {
+            assertVersions(repo, 3, 2);
+            assertEquals(size - 6, Files.size(segment));
+            repo.save(ResourceObject.newInstance("r0", "v2", "v1", "after"));
+            assertEquals("after", repo.getLatest("r0").getObject());
+        }
+    }
+
+    /**
+     * A zero filled tail, as left by a crash after the segment was extended,
+     * is discarded rather than read as empty records.
+     */
+    @Test
+    public void testZeroFilledTail() throws Exception {
+        try (LogResourceRepository<String> repo = open(1 << 20, 1000)) {
+            saveVersions(repo, 3, 2);
+        }
+        Files.delete(dir.resolve(LogResourceRepository.CHECKPOINT_FILE));
+        final Path segment = dir.resolve("segment-00000000.log");
+        try (FileChannel channel = FileChannel.open(segment,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(64));
+        }
+        final long size = Files.size(segment);
+        try (LogResourceRepository<String> repo = open(1 << 20, 1000)) {
+            assertVersions(repo, 3, 2);
+            assertEquals(size - 64, Files.size(segment));
+            repo.save(ResourceObject.newInstance("r0", "v2", "v1", "after"));
+            assertEquals("after", repo.getLatest("r0").getObject());
+        }
+    }
+
+    @Test
+    public void testConcurrentSaves() throws Exception {
+        final int threads = 8;
+        final int versions = 50;
+        try (LogResourceRepository<String> repo = open(4096, 100)) {
+            ExecutorService exec = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> results = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    final String guid = "r" + t;
+                    results.add(exec.submit(() -> {
+                        String previous = null;
+                        for (int v = 0; v < versions; v++) {
+                            repo.save(ResourceObject.newInstance(guid, "v" + v,
+                                    previous, guid + "-" + v));
+                            previous = "v" + v;
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> f : results) {
+                    f.get();
+                }
+            } finally {
+                exec.shutdown();
+            }
+        }
+        try (LogResourceRepository<String> repo = open(4096, 100)) {
+            assertVersions(repo, threads, versions);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testSaveAfterClose() throws Exception {
+        LogResourceRepository<String> repo = open(1024, 1000);
+        repo.close();
+        repo.save(ResourceObject.newInstance("a", "1", null, "first"));
+    }
+
+    /**
+     * A failed save of a new resource does not add the resource.
+     */
+    @Test
+    public void testFailedSaveOfNewResource() throws Exception {
+        LogResourceRepository<String> repo = open(1024, 1000);
+        repo.close();
+        try {
+            repo.save(ResourceObject.newInstance("a", "1", null, "first"));
+            fail("expected closed repository");
+        } catch (IOException ex) {
+            //expected
+        }
+        assertEquals(0, repo.size());
+        assertFalse(repo.findLatest("a").isPresent());
+    }
+
+    private LogResourceRepository<String> open(long segmentSize,
+            int checkpointInterval) throws IOException {
+        return LogResourceRepository.open(dir, String.class, TYPE, CODEC,
+                segmentSize, checkpointInterval);
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter((p) -> p.toString().endsWith(".log")).count();
+        }
+    }
+
+    private static void saveVersions(LogResourceRepository<String> repo,
+            int resources, int versions) throws Exception {
+        for (int v = 0; v < versions; v++) {
+            for (int r = 0; r < resources; r++) {
+                repo.save(ResourceObject.newInstance("r" + r, "v" + v,
+                        (v == 0) ? null : "v" + (v - 1), "r" + r + "-" + v));
+            }
+        }
+    }
+
+    private static void assertVersions(LogResourceRepository<String> repo,
+            int resources, int versions) throws Exception {
+        assertEquals(resources, repo.size());
+        for (int r = 0; r < resources; r++) {
+            assertEquals("r" + r + "-" + (versions - 1),
+                    repo.getLatest("r" + r).getObject());
+            for (int v = 0; v < versions; v++) {
+                assertEquals("r" + r + "-" + v,
+                        repo.get("r" + r, "v" + v).getObject());
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.repo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.geoint.acetate.java.bind.ResourceObject;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class OffHeapResourceRepositoryTest
+        extends ResourceRepositoryContract<OffHeapResourceRepository<String>> {
+
+    private static final ResourceCodec<String> CODEC
+            = new ResourceCodec<String>() {
+
+        @Override
+        public void encode(String object, OutputStream out)
+                throws IOException {
+            out.write(object.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String decode(ByteBuffer buffer) {
+            return StandardCharsets.UTF_8.decode(buffer).toString();
+        }
+    };
+
+    @Override
+    protected OffHeapResourceRepository<String> newRepository()
+            throws IOException {
+        return newRepository(1024);
+    }
+
+    @Override
+    protected ResourceObject<String> save(
+            OffHeapResourceRepository<String> repo,
+            ResourceObject<String> resource) throws Exception {
+        return repo.save(resource);
+    }
+
+    @Override
+    protected int size(OffHeapResourceRepository<String> repo) {
+        return repo.size();
+    }
+
+    @Override
+    protected void close(OffHeapResourceRepository<String> repo)
+            throws IOException {
+        repo.close();
+    }
+
+    /**
+     * Enough resources to grow the index and span many segments.
+     */
+    @Test
+    public void testManyResources() throws Exception {
+        final int count = 5000;
+        try (OffHeapResourceRepository<String> repo = newRepository(4096)) {
+            for (int i = 0; i < count; i++) {
+                repo.save(ResourceObject.newInstance("r" + i, "1", null,
+                        "first" + i));
+                repo.save(ResourceObject.newInstance("r" + i, "2", "1",
+                        "second" + i));
+            }
+            assertEquals(count, repo.size());
+            for (int i = 0; i < count; i++) {
+                assertEquals("second" + i, repo.getLatest("r" + i).getObject());
+                assertEquals("first" + i, repo.get("r" + i, "1").getObject());
+            }
+        }
+    }
+
+    @Test
+    public void testCloseDeletesFile() throws Exception {
+        Path file = Files.createTempFile("resources", ".dat");
+        OffHeapResourceRepository<String> repo = OffHeapResourceRepository
+                .create(file, String.class, TYPE, CODEC, 1024);
+        repo.save(ResourceObject.newInstance("a", "1", null, "first"));
+        repo.close();
+        assertFalse(Files.exists(file));
+    }
+
+    private static OffHeapResourceRepository<String> newRepository(
+            int segmentSize) throws IOException {
+        Path file = Files.createTempFile("resources", ".dat");
+        file.toFile().deleteOnExit();
+        return OffHeapResourceRepository.create(file, String.class, TYPE,
+                CODEC, segmentSize);
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.repo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.geoint.acetate.java.bind.ResourceObject;
+import org.geoint.acetate.model.TypeDescriptor;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Behavior shared by all resource repository implementations; each
+ * implementation is tested by a subclass.
+ *
+ * @author steve_siebert
+ * @param <R> repository type
+ */
+public abstract class ResourceRepositoryContract<R extends ResourceRepository<String>> {
+
+    protected static final TypeDescriptor TYPE
+            = new TypeDescriptor("org.geoint.test", "1.0", "Note");
+
+    /**
+     * Create a new, empty, repository.
+     */
+    protected abstract R newRepository() throws Exception;
+
+    protected abstract ResourceObject<String> save(R repo,
+            ResourceObject<String> resource) throws Exception;
+
+    /**
+     * Number of resources (guids) in the repository.
+     */
+    protected abstract int size(R repo);
+
+    /**
+     * Release the repository; does nothing by default.
+     */
+    protected void close(R repo) throws Exception {
+    }
+
+    @Test
+    public void testVersions() throws Exception {
+        R repo = newRepository();
+        try {
+            save(repo, ResourceObject.newInstance("a", "1", null, "first"));
+            save(repo, ResourceObject.newInstance("a", "2", "1", "second"));
+
+            assertEquals("second", repo.getLatest("a").getObject());
+            assertEquals("first", repo.get("a", "1").getObject());
+            assertEquals("2", repo.findLatest("a").get().getVersion());
+            assertEquals("1", repo.get("a", "2").getPreviousVersion().get());
+            assertFalse(repo.get("a", "1").getPreviousVersion().isPresent());
+            assertFalse(repo.find("a", "3").isPresent());
+            assertFalse(repo.findLatest("b").isPresent());
+            assertEquals(1, size(repo));
+        } finally {
+            close(repo);
+        }
+    }
+
+    @Test(expected = InvalidResourceVersionException.class)
+    public void testStalePreviousVersion() throws Exception {
+        R repo = newRepository();
+        try {
+            save(repo, ResourceObject.newInstance("a", "1", null, "first"));
+            save(repo, ResourceObject.newInstance("a", "2", "1", "second"));
+            save(repo, ResourceObject.newInstance("a", "3", "1", "stale"));
+        } finally {
+            close(repo);
+        }
+    }
+
+    @Test(expected = InvalidResourceVersionException.class)
+    public void testDuplicateVersion() throws Exception {
+        R repo = newRepository();
+        try {
+            save(repo, ResourceObject.newInstance("a", "1", null, "first"));
+            save(repo, ResourceObject.newInstance("a", "2", "1", "second"));
+            save(repo, ResourceObject.newInstance("a", "1", "2", "again"));
+        } finally {
+            close(repo);
+        }
+    }
+
+    @Test(expected = UnknownResourceException.class)
+    public void testGetUnknownResource() throws Exception {
+        R repo = newRepository();
+        try {
+            repo.get("a", "1");
+        } finally {
+            close(repo);
+        }
+    }
+
+    @Test(expected = InvalidResourceVersionException.class)
+    public void testGetUnknownVersion() throws Exception {
+        R repo = newRepository();
+        try {
+            save(repo, ResourceObject.newInstance("a", "1", null, "first"));
+            repo.get("a", "2");
+        } finally {
+            close(repo);
+        }
+    }
+
+    /**
+     * Concurrent writers of the same resources never lose or reorder a
+     * version.
+     */
+    @Test
+    public void testConcurrentWriters() throws Exception {
+        final int writers = 4;
+        final int guids = 50;
+        final int rounds = 5;
+        R repo = newRepository();
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<Integer>> saved = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                saved.add(executor.submit(() -> {
+                    int count = 0;
+                    for (int i = 0; i < guids * rounds; i++) {
+                        String guid = "g" + (i % guids);
+                        ResourceObject<String> latest
+                                = repo.findLatest(guid).orElse(null);
+                        String previous = (latest == null)
+                                ? null
+                                : latest.getVersion();
+                        String version = (previous == null)
+                                ? "1"
+                                : String.valueOf(Integer.parseInt(previous) + 1);
+                        try {
+                            save(repo, ResourceObject.newInstance(guid,
+                                    version, previous, version));
+                            count++;
+                        } catch (InvalidResourceVersionException ex) {
+                            //another writer saved first
+                        }
+                    }
+                    return count;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> f : saved) {
+                total += f.get();
+            }
+
+            int versions = 0;
+            for (int g = 0; g < guids; g++) {
+                String guid = "g" + g;
+                int latest = Integer.parseInt(
+                        repo.getLatest(guid).getVersion());
+                for (int v = 1; v <= latest; v++) {
+                    ResourceObject<String> resource
+                            = repo.get(guid, String.valueOf(v));
+                    assertEquals(String.valueOf(v), resource.getObject());
+                    assertEquals((v == 1) ? null : String.valueOf(v - 1),
+                            resource.getPreviousVersion().orElse(null));
+                }
+                versions += latest;
+            }
+            assertEquals(total, versions);
+            assertEquals(guids, size(repo));
+        } finally {
+            executor.shutdown();
+            close(repo);
+        }
+    }
+}
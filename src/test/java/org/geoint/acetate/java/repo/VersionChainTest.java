@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.java.repo;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.geoint.acetate.java.repo.VersionChain.Version;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class VersionChainTest {
+
+    /**
+     * A reader finding a pending version stamps it past its snapshot, so
+     * every read of the snapshot agrees and the writer does not block it.
+     */
+    @Test
+    public void testPendingVersion() {
+        AtomicLong sequence = new AtomicLong();
+        VersionChain<String> chain = new VersionChain<>(sequence);
+        chain.appendPending("1", "first").stamp(sequence);
+
+        long snapshot = sequence.get();
+        Version<String> pending = chain.appendPending("2", "second");
+        assertEquals("1", chain.latest(snapshot).version);
+        assertTrue(pending.seq > snapshot);
+        assertNull(chain.find("2", snapshot));
+
+        //the writer stamping afterwards keeps the reader's stamp
+        long stamped = pending.seq;
+        assertEquals(stamped, pending.stamp(sequence));
+        assertEquals("1", chain.latest(snapshot).version);
+        assertEquals("2", chain.latest(sequence.get()).version);
+    }
+
+    /**
+     * A version stamped by its writer is visible to later snapshots only.
+     */
+    @Test
+    public void testStampedVersion() {
+        AtomicLong sequence = new AtomicLong();
+        VersionChain<String> chain = new VersionChain<>(sequence);
+        long before = sequence.get();
+        long seq = chain.appendPending("1", "first").stamp(sequence);
+
+        assertTrue(seq > before);
+        assertNull(chain.latest(before));
+        assertEquals("first", chain.latest(seq).value);
+        assertEquals("first", chain.find("1", seq).value);
+    }
+}